@@ -43,4 +43,15 @@ public class AlgebraOperatorPredicateImpl extends PredicateImpl implements Algeb
 	public AlgebraOperatorPredicateImpl clone() {
 		return this;
 	}
+
+	/**
+	 * Join and LeftJoin of OBDAVocabulary are compared by identity
+	 */
+	private Object readResolve() {
+		if (getName().equals(OBDAVocabulary.SPARQL_JOIN.getName()))
+			return OBDAVocabulary.SPARQL_JOIN;
+		if (getName().equals(OBDAVocabulary.SPARQL_LEFTJOIN.getName()))
+			return OBDAVocabulary.SPARQL_LEFTJOIN;
+		return this;
+	}
 }
@@ -41,7 +41,7 @@ public class CQIEImpl implements CQIE, ListListener {
 	private EventGeneratingList<Function> body = null;
 
 	private int hash = -1;
-	private boolean rehash = true;
+	private volatile boolean rehash = true; // written after hash
 
 	private String string = null;
 
@@ -124,7 +124,7 @@ public class CQIEImpl implements CQIE, ListListener {
 	public void updateHead(Function head) {
 		this.head = head;
 
-		EventGeneratingList<Term> headterms = (EventGeneratingLinkedList<Term>) head.getTerms();
+		EventGeneratingList<Term> headterms = (EventGeneratingList<Term>) head.getTerms();
 		headterms.removeListener(this);
 		headterms.addListener(this);
 		listChanged();
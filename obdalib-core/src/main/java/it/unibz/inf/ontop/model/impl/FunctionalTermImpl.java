@@ -26,10 +26,12 @@ import it.unibz.inf.ontop.model.Function;
 import it.unibz.inf.ontop.model.OperationPredicate;
 import it.unibz.inf.ontop.model.Predicate;
 import it.unibz.inf.ontop.model.Term;
-import it.unibz.inf.ontop.utils.EventGeneratingLinkedList;
+import it.unibz.inf.ontop.utils.EventGeneratingArrayList;
 import it.unibz.inf.ontop.utils.EventGeneratingList;
 import it.unibz.inf.ontop.utils.ListListener;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -40,13 +42,20 @@ public class FunctionalTermImpl implements Function, ListListener {
 	
 	private Predicate functor;
 	private EventGeneratingList<Term> terms;
-	private int identifier = -1;
+	// the caches are not serialized: the hash codes of some function symbols
+	// (e.g., the enum of the operations) differ from one JVM to another
+	private transient int identifier = -1;
 
-	// true when the list of terms has been modified
-	private boolean rehash = true;
+	// true when the list of terms (or of any inner term) has been modified
+	// (volatile: the terms of the mappings are hashed by concurrent translations)
+	private transient volatile boolean rehash = true;
+
+	// true when the list of terms may contain functional terms whose lists this
+	// term does not listen to yet (terms added after the construction)
+	private volatile boolean relisten = false;
 
 	// null when the list of terms has been modified
-	private String string = null;
+	private transient String string = null;
 
 	/**
 	 * The default constructor.
@@ -60,7 +69,7 @@ public class FunctionalTermImpl implements Function, ListListener {
 	protected FunctionalTermImpl(Predicate functor, Term... terms) {
 		this.functor = functor;
 
-		EventGeneratingList<Term> eventlist = new EventGeneratingLinkedList<Term>();
+		EventGeneratingList<Term> eventlist = new EventGeneratingArrayList<Term>(terms.length);
 		Collections.addAll(eventlist, terms);
 		
 		this.terms = eventlist;
@@ -70,7 +79,7 @@ public class FunctionalTermImpl implements Function, ListListener {
 	protected FunctionalTermImpl(Predicate functor, List<Term> terms) {
 		this.functor = functor;
 
-		EventGeneratingList<Term> eventlist = new EventGeneratingLinkedList<Term>();
+		EventGeneratingList<Term> eventlist = new EventGeneratingArrayList<Term>(terms.size());
 		eventlist.addAll(terms);	
 		
 		this.terms = eventlist;		
@@ -78,6 +87,11 @@ public class FunctionalTermImpl implements Function, ListListener {
 	}
 
 	
+	/**
+	 * Registers this term as a listener of the lists of terms of all its inner
+	 * terms (at any depth), so that their changes invalidate the cached hash code
+	 * and string (registering twice has no effect)
+	 */
 	private void registerListeners(EventGeneratingList<? extends Term> functions) {
 		functions.addListener(this);
 		for (Object o : functions) {
@@ -91,20 +105,74 @@ public class FunctionalTermImpl implements Function, ListListener {
 		}
 	}
 
+	/**
+	 * The terms added since the last call are listened to before the caches are
+	 * rebuilt. Until then, the caches are invalid anyway, so changes of these terms 
+	 * need not be notified.
+	 */
+	private void checkListeners() {
+		if (relisten) {
+			synchronized (this) {
+				if (relisten) {
+					relisten = false;
+					registerListeners(terms);
+				}
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		rehash = true;
+		string = null;
+	}
+
+	/**
+	 * Structural equality: same function symbol and pairwise equal arguments.
+	 * The (cached) hash codes are compared first, so that most of the
+	 * non-equal terms are told apart without walking the term trees.
+	 */
 	@Override
 	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
 		if (obj == null || !(obj instanceof FunctionalTermImpl)) {
 			return false;
 		}
 		FunctionalTermImpl other = (FunctionalTermImpl) obj;
-		return this.hashCode() == other.hashCode();
+		if (this.hashCode() != other.hashCode()) {
+			return false;
+		}
+		if (!functor.equals(other.functor)) {
+			return false;
+		}
+		int size = terms.size();
+		if (size != other.terms.size()) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (!terms.get(i).equals(other.terms.get(i))) {
+				return false;
+			}
+		}
+		return true;
 	}
 
+	/**
+	 * The hash code is computed from the hash codes of the function symbol
+	 * and of the arguments (which are cached by the inner functional terms)
+	 * and is kept until the term is modified.
+	 */
 	@Override
 	public int hashCode() {
 		if (rehash) {
-			string = toString();
-			identifier = string.hashCode();
+			checkListeners();
+			int h = functor.hashCode();
+			for (int i = 0; i < terms.size(); i++) {
+				h = 31 * h + terms.get(i).hashCode();
+			}
+			identifier = h;
 			rehash = false;
 		}
 		return identifier;
@@ -113,7 +181,8 @@ public class FunctionalTermImpl implements Function, ListListener {
 	@Override
 	public void setPredicate(Predicate predicate) {
 		this.functor = predicate;
-		listChanged();
+		// the terms containing this one listen to its list of terms
+		terms.riseListChanged();
 	}
 
 	@Override
@@ -148,6 +217,7 @@ public class FunctionalTermImpl implements Function, ListListener {
 	@Override
 	public String toString() {
 		if (string == null) {
+			checkListeners();
 			StringBuilder sb = new StringBuilder();
 			sb.append(functor.toString());
 			sb.append("(");
@@ -184,6 +254,7 @@ public class FunctionalTermImpl implements Function, ListListener {
 
 	@Override
 	public void listChanged() {
+		relisten = true;
 		rehash = true;
 		string = null;
 	}
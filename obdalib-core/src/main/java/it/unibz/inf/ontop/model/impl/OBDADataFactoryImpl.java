@@ -33,42 +33,37 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OBDADataFactoryImpl implements OBDADataFactory {
 
 	private static final long serialVersionUID = 1851116693137470887L;
 	
-	private static OBDADataFactory instance = null;
-	private static ValueFactory irifactory = null;
-	private DatatypeFactoryImpl datatypes = null;
+	/*
+	 * The factory is shared by all the threads translating queries:
+	 * the instances are created eagerly and the counters are atomic.
+	 */
+	private static final AtomicInteger counter = new AtomicInteger();
+	private static final OBDADataFactory instance = new OBDADataFactoryImpl();
+	private static final ValueFactory irifactory = new ValueFactoryImpl();
+	private final DatatypeFactoryImpl datatypes = new DatatypeFactoryImpl();
 	private final JdbcTypeMapper jdbcTypeMapper =  new JdbcTypeMapper(); 
 	
 
-	private static int counter = 0;
-	
 	private OBDADataFactoryImpl() {
 		// protected constructor prevents instantiation from other classes.
 	}
 
 	public static OBDADataFactory getInstance() {
-		if (instance == null) {
-			instance = new OBDADataFactoryImpl();
-		}
 		return instance;
 	}
 	
 	public static ValueFactory getIRIFactory() {
-		if (irifactory == null) {
-			irifactory = new ValueFactoryImpl();
-		}
 		return irifactory;
 	}
 	
 	@Override
 	public DatatypeFactory getDatatypeFactory() {
-		if (datatypes == null) {
-			datatypes = new DatatypeFactoryImpl();
-		}
 		return datatypes;
 	}
 
@@ -175,7 +170,7 @@ public class OBDADataFactoryImpl implements OBDADataFactory {
 	@Override
 	public ValueConstant getConstantFreshLiteral() {
 		// TODO: a bit more elaborate name is needed to avoid conflicts
-		return new ValueConstantImpl("f" + (counter++), COL_TYPE.LITERAL);
+		return new ValueConstantImpl("f" + counter.getAndIncrement(), COL_TYPE.LITERAL);
 	}
 
 	@Override
@@ -456,7 +451,7 @@ public class OBDADataFactoryImpl implements OBDADataFactory {
 		return getFunction(PredicateImpl.QUEST_TRIPLE_PRED, subject, predicate, object);
 	}
 
-	private int suffix = 0;
+	private final AtomicInteger suffix = new AtomicInteger();
 	
 	/***
 	 * Replaces each variable 'v' in the query for a new variable constructed
@@ -483,7 +478,7 @@ public class OBDADataFactoryImpl implements OBDADataFactory {
 	@Override
 	public CQIE getFreshCQIECopy(CQIE rule) {
 		
-		int suff = ++suffix;
+		int suff = suffix.incrementAndGet();
 		
 		// This method doesn't support nested functional terms
 		CQIE freshRule = rule.clone();
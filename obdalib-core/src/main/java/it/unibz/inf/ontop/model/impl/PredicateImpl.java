@@ -22,7 +22,11 @@ package it.unibz.inf.ontop.model.impl;
 
 import it.unibz.inf.ontop.model.*;
 
-public class PredicateImpl implements Predicate {
+import java.io.Serializable;
+
+public class PredicateImpl implements Predicate, Serializable {
+
+	private static final long serialVersionUID = -6094851622236817153L;
 
 	public static final Predicate QUEST_TRIPLE_PRED = new PredicateImpl("triple", 3, new COL_TYPE[3]);	
 	
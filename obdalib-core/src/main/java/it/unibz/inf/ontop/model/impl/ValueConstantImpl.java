@@ -24,6 +24,10 @@ import it.unibz.inf.ontop.model.Predicate;
 import it.unibz.inf.ontop.model.ValueConstant;
 import it.unibz.inf.ontop.model.Predicate.COL_TYPE;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
 public class ValueConstantImpl implements ValueConstant {
 
 	private static final long serialVersionUID = 8031338451909170400L;
@@ -95,7 +99,7 @@ public class ValueConstantImpl implements ValueConstant {
 			return false;
 		}
 		ValueConstantImpl value2 = (ValueConstantImpl) obj;
-		return this.hashCode() == value2.hashCode();
+		return this.string.equals(value2.string);
 	}
 
 	@Override
@@ -127,4 +131,42 @@ public class ValueConstantImpl implements ValueConstant {
 	public String toString() {
 		return string;
 	}
+
+	/**
+	 * NULL, TRUE and FALSE of OBDAVocabulary are compared by identity
+	 * and so are serialized by reference
+	 */
+	private Object writeReplace() {
+		if (this == OBDAVocabulary.NULL)
+			return new VocabularyConstant(0);
+		if (this == OBDAVocabulary.TRUE)
+			return new VocabularyConstant(1);
+		if (this == OBDAVocabulary.FALSE)
+			return new VocabularyConstant(2);
+		return this;
+	}
+
+	private static final class VocabularyConstant implements Serializable {
+
+		private static final long serialVersionUID = -2402271187335196530L;
+
+		private final int id;
+
+		VocabularyConstant(int id) {
+			this.id = id;
+		}
+
+		private Object readResolve() throws ObjectStreamException {
+			switch (id) {
+				case 0:
+					return OBDAVocabulary.NULL;
+				case 1:
+					return OBDAVocabulary.TRUE;
+				case 2:
+					return OBDAVocabulary.FALSE;
+				default:
+					throw new InvalidObjectException("Unknown constant " + id);
+			}
+		}
+	}
 }
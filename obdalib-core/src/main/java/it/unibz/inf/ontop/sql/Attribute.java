@@ -20,6 +20,7 @@ package it.unibz.inf.ontop.sql;
  * #L%
  */
 
+import java.io.Serializable;
 import java.sql.Types;
 
 /**
@@ -29,7 +30,9 @@ import java.sql.Types;
  *
  */
 
-public class Attribute {
+public class Attribute implements Serializable {
+
+	private static final long serialVersionUID = -398945938642050647L;
 
 	private final RelationDefinition table; // reference to the relation or parser view
 	
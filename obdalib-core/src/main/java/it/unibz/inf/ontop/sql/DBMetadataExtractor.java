@@ -22,11 +22,18 @@ package it.unibz.inf.ontop.sql;
 
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Retrieves the database metadata (table schema and database constraints) 
@@ -178,6 +185,25 @@ public class DBMetadataExtractor {
 	 */
 
 	public static void loadMetadata(DBMetadata metadata, Connection conn, Set<RelationID> realTables) throws SQLException {
+		loadMetadata(metadata, conn, realTables, null, 1);
+	}
+
+	/**
+	 * Retrieves the database metadata (table schema and database constraints) 
+	 * 
+	 * The columns and keys of the relations are retrieved by the given number of threads, 
+	 * each with its own connection from the data source (if the data source is null, 
+	 * they are all retrieved on the given connection).
+	 * <p>
+	 * The columns of many relations in the same schema are retrieved by a single call 
+	 * for the whole schema. For Oracle and MS SQL Server, the keys of all relations are 
+	 * retrieved by a few queries over the system catalog. 
+	 * 
+	 * @param dataSource data source for the connections of the threads (may be null)
+	 * @param threads maximum number of threads
+	 */
+	
+	public static void loadMetadata(DBMetadata metadata, Connection conn, Set<RelationID> realTables, DataSource dataSource, int threads) throws SQLException {
 		
 		if (printouts)
 			System.out.println("GETTING METADATA WITH " + conn + " ON " + realTables);
@@ -220,43 +246,43 @@ public class DBMetadataExtractor {
 		else if (productName.contains("MySQL"))
 			dt = MySQLTypeFixer;
 
+		if (dataSource == null)
+			threads = 1;
+		
+		List<List<ColumnRecord>> columns = getColumns(seedRelationIds, idfac, dt, conn, dataSource, threads);
+
 		List<DatabaseRelationDefinition> extractedRelations = new LinkedList<>();
 		
-		for (RelationID seedId : seedRelationIds) {
+		for (List<ColumnRecord> seedColumns : columns) {
 			// the same seedId can be mapped to many tables (if the seedId has no schema)
 			// we collect attributes from all of them
 			DatabaseRelationDefinition currentRelation = null;
 			
-			// catalog is ignored for now (rs.getString("TABLE_CAT"))
-			try (ResultSet rs = md.getColumns(null, seedId.getSchemaName(), seedId.getTableName(), null)) {
-				while (rs.next()) {
-					RelationID relationId = RelationID.createRelationIdFromDatabaseRecord(idfac, rs.getString("TABLE_SCHEM"), 
-										rs.getString("TABLE_NAME"));
-					QuotedID attributeId = QuotedID.createIdFromDatabaseRecord(idfac, rs.getString("COLUMN_NAME"));
-					if (printouts)
-						System.out.println("         " + relationId + "." + attributeId);
-					
-					if (currentRelation == null || !currentRelation.getID().equals(relationId)) {
-						// switch to the next database relation
-						currentRelation = metadata.createDatabaseRelation(relationId);
-						extractedRelations.add(currentRelation);
-					}
-					
-					// columnNoNulls, columnNullable, columnNullableUnknown 
-					boolean isNullable = rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls;
-					String typeName = rs.getString("TYPE_NAME");
-					int dataType = dt.getCorrectedDatatype(rs.getInt("DATA_TYPE"), typeName);
-					
-					currentRelation.addAttribute(attributeId, dataType, typeName, isNullable);
+			for (ColumnRecord column : seedColumns) {
+				if (printouts)
+					System.out.println("         " + column.relationId + "." + column.attributeId);
+				
+				if (currentRelation == null || !currentRelation.getID().equals(column.relationId)) {
+					// switch to the next database relation
+					currentRelation = metadata.createDatabaseRelation(column.relationId);
+					extractedRelations.add(currentRelation);
 				}
+				
+				currentRelation.addAttribute(column.attributeId, column.dataType, column.typeName, column.isNullable);
 			}
 		}
-			
-		for (DatabaseRelationDefinition relation : extractedRelations)	{
-			getPrimaryKey(md, relation, metadata.getQuotedIDFactory());
-			getUniqueAttributes(md, relation, metadata.getQuotedIDFactory());
-			getForeignKeys(md, relation, metadata);
-			if (printouts) {
+		
+		KeyCatalog catalog = null;
+		if (productName.contains("Oracle"))
+			catalog = OracleKeyCatalog;
+		else if (productName.contains("SQL Server"))
+			catalog = SQLServerKeyCatalog;
+		
+		if (catalog == null || extractedRelations.isEmpty() || !getKeysFromCatalog(catalog, extractedRelations, metadata, conn))
+			getKeys(extractedRelations, metadata, conn, dataSource, threads);
+		
+		if (printouts) {
+			for (DatabaseRelationDefinition relation : extractedRelations)	{
 				System.out.println(relation + ";");
 				for (UniqueConstraint uc : relation.getUniqueConstraints())				
 					System.out.println(uc + ";");
@@ -268,6 +294,403 @@ public class DBMetadataExtractor {
 	}
 	
 	
+	/**
+	 * Schemas with at least this number of seed relations have their columns 
+	 * retrieved by a single call for the whole schema
+	 */
+	private static final int SCHEMA_COLUMNS_THRESHOLD = 20;
+	
+	private static final class ColumnRecord {
+		private final RelationID relationId;
+		private final QuotedID attributeId;
+		private final int dataType;
+		private final String typeName;
+		private final boolean isNullable;
+		
+		ColumnRecord(ResultSet rs, QuotedIDFactory idfac, DatatypeNormalizer dt) throws SQLException {
+			// catalog is ignored for now (rs.getString("TABLE_CAT"))
+			relationId = RelationID.createRelationIdFromDatabaseRecord(idfac, rs.getString("TABLE_SCHEM"), 
+								rs.getString("TABLE_NAME"));
+			attributeId = QuotedID.createIdFromDatabaseRecord(idfac, rs.getString("COLUMN_NAME"));
+			// columnNoNulls, columnNullable, columnNullableUnknown 
+			isNullable = rs.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls;
+			typeName = rs.getString("TYPE_NAME");
+			dataType = dt.getCorrectedDatatype(rs.getInt("DATA_TYPE"), typeName);
+		}
+	}
+	
+	/**
+	 * Retrieves the columns of each seed relation (in the order of the seed relations)
+	 */
+	private static List<List<ColumnRecord>> getColumns(List<RelationID> seedRelationIds, final QuotedIDFactory idfac, 
+			final DatatypeNormalizer dt, Connection conn, DataSource dataSource, int threads) throws SQLException {
+		
+		final List<List<ColumnRecord>> columns = new ArrayList<>(seedRelationIds.size());
+		Map<String, Map<RelationID, Integer>> schemas = new HashMap<>();
+		for (RelationID seedId : seedRelationIds) {
+			if (seedId.hasSchema()) {
+				Map<RelationID, Integer> positions = schemas.get(seedId.getSchemaName());
+				if (positions == null) {
+					positions = new HashMap<>();
+					schemas.put(seedId.getSchemaName(), positions);
+				}
+				positions.put(seedId, columns.size());
+			}
+			columns.add(new ArrayList<ColumnRecord>());
+		}
+		
+		List<MetadataTask> tasks = new ArrayList<>();
+		Set<Integer> retrievedBySchema = new HashSet<>();
+		for (final Map.Entry<String, Map<RelationID, Integer>> e : schemas.entrySet()) {
+			if (e.getValue().size() < SCHEMA_COLUMNS_THRESHOLD) 
+				continue;
+			
+			retrievedBySchema.addAll(e.getValue().values());
+			tasks.add(new MetadataTask() {
+				@Override
+				public void run(DatabaseMetaData md) throws SQLException {
+					try (ResultSet rs = md.getColumns(null, e.getKey(), null, null)) {
+						while (rs.next()) {
+							ColumnRecord column = new ColumnRecord(rs, idfac, dt);
+							Integer position = e.getValue().get(column.relationId);
+							if (position != null)
+								columns.get(position).add(column);
+						}
+					}
+				}
+			});
+		}
+		
+		for (int i = 0; i < seedRelationIds.size(); i++) {
+			if (retrievedBySchema.contains(i))
+				continue;
+			
+			final RelationID seedId = seedRelationIds.get(i);
+			final List<ColumnRecord> seedColumns = columns.get(i);
+			tasks.add(new MetadataTask() {
+				@Override
+				public void run(DatabaseMetaData md) throws SQLException {
+					try (ResultSet rs = md.getColumns(null, seedId.getSchemaName(), seedId.getTableName(), null)) {
+						while (rs.next()) 
+							seedColumns.add(new ColumnRecord(rs, idfac, dt));
+					}
+				}
+			});
+		}
+		
+		runTasks(tasks, conn, dataSource, threads);
+		return columns;
+	}
+	
+	/**
+	 * Retrieves the primary keys, unique constraints and foreign keys 
+	 * of each relation by the JDBC metadata calls
+	 */
+	private static void getKeys(List<DatabaseRelationDefinition> relations, final DBMetadata metadata, 
+			Connection conn, DataSource dataSource, int threads) throws SQLException {
+		
+		// each task changes only its own relation (the others are only looked up)
+		List<MetadataTask> tasks = new ArrayList<>(relations.size());
+		for (final DatabaseRelationDefinition relation : relations) 
+			tasks.add(new MetadataTask() {
+				@Override
+				public void run(DatabaseMetaData md) throws SQLException {
+					getPrimaryKey(md, relation, metadata.getQuotedIDFactory());
+					getUniqueAttributes(md, relation, metadata.getQuotedIDFactory());
+					getForeignKeys(md, relation, metadata);
+				}
+			});
+		
+		runTasks(tasks, conn, dataSource, threads);
+	}
+	
+	
+	private interface MetadataTask {
+		void run(DatabaseMetaData md) throws SQLException;
+	}
+	
+	/**
+	 * Runs the tasks by the given number of threads, each with its own connection 
+	 * from the data source, or on the given connection if there is only one thread
+	 */
+	private static void runTasks(final List<MetadataTask> tasks, Connection conn, final DataSource dataSource, int threads) throws SQLException {
+		final int n = Math.min(threads, tasks.size());
+		if (n <= 1) {
+			DatabaseMetaData md = conn.getMetaData();
+			for (MetadataTask task : tasks)
+				task.run(md);
+			return;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(n, 
+				new ThreadFactoryBuilder().setNameFormat("ontop-metadata-%d").setDaemon(true).build());
+		try {
+			List<Future<Void>> futures = new ArrayList<>(n);
+			for (int i = 0; i < n; i++) {
+				final int first = i;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws SQLException {
+						try (Connection c = dataSource.getConnection()) {
+							DatabaseMetaData md = c.getMetaData();
+							for (int j = first; j < tasks.size(); j += n)
+								tasks.get(j).run(md);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) 
+				future.get();
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof SQLException)
+				throw (SQLException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new SQLException(e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException(e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	
+	/**
+	 * Queries over the system catalog that return the keys of all relations in a schema  
+	 * (the schema name is the only parameter of each query). The columns are named as in 
+	 * getPrimaryKeys, getIndexInfo and getImportedKeys of {@link DatabaseMetaData} and 
+	 * the rows of each key are consecutive and ordered by their position in the key. 
+	 */
+	private interface KeyCatalog {
+		/**
+		 * TABLE_SCHEM, TABLE_NAME, PK_NAME, COLUMN_NAME, KEY_SEQ
+		 */
+		String getPrimaryKeysQuery();
+		
+		/**
+		 * TABLE_SCHEM, TABLE_NAME, INDEX_NAME, COLUMN_NAME, ORDINAL_POSITION
+		 * (of the unique indexes, including the indexes of primary keys)
+		 */
+		String getUniqueIndexesQuery();
+		
+		/**
+		 * FKTABLE_SCHEM, FKTABLE_NAME, FK_NAME, FKCOLUMN_NAME, 
+		 * PKTABLE_SCHEM, PKTABLE_NAME, PKCOLUMN_NAME, KEY_SEQ
+		 */
+		String getForeignKeysQuery();
+	}
+	
+	private static final KeyCatalog OracleKeyCatalog = new KeyCatalog() {
+		@Override
+		public String getPrimaryKeysQuery() {
+			return "SELECT c.owner AS TABLE_SCHEM, c.table_name AS TABLE_NAME, c.constraint_name AS PK_NAME, " +
+				   "       cc.column_name AS COLUMN_NAME, cc.position AS KEY_SEQ " +
+				   "FROM all_constraints c " +
+				   "   JOIN all_cons_columns cc ON cc.owner = c.owner AND cc.constraint_name = c.constraint_name " +
+				   "WHERE c.constraint_type = 'P' AND c.owner = ? " +
+				   "ORDER BY c.table_name, c.constraint_name, cc.position";
+		}
+
+		@Override
+		public String getUniqueIndexesQuery() {
+			return "SELECT i.table_owner AS TABLE_SCHEM, i.table_name AS TABLE_NAME, i.index_name AS INDEX_NAME, " +
+				   "       ic.column_name AS COLUMN_NAME, ic.column_position AS ORDINAL_POSITION " +
+				   "FROM all_indexes i " +
+				   "   JOIN all_ind_columns ic ON ic.index_owner = i.owner AND ic.index_name = i.index_name " +
+				   "WHERE i.uniqueness = 'UNIQUE' AND i.table_owner = ? " +
+				   "ORDER BY i.table_name, i.index_name, ic.column_position";
+		}
+
+		@Override
+		public String getForeignKeysQuery() {
+			return "SELECT c.owner AS FKTABLE_SCHEM, c.table_name AS FKTABLE_NAME, c.constraint_name AS FK_NAME, " +
+				   "       cc.column_name AS FKCOLUMN_NAME, r.owner AS PKTABLE_SCHEM, r.table_name AS PKTABLE_NAME, " +
+				   "       rc.column_name AS PKCOLUMN_NAME, cc.position AS KEY_SEQ " +
+				   "FROM all_constraints c " +
+				   "   JOIN all_cons_columns cc ON cc.owner = c.owner AND cc.constraint_name = c.constraint_name " +
+				   "   JOIN all_constraints r ON r.owner = c.r_owner AND r.constraint_name = c.r_constraint_name " +
+				   "   JOIN all_cons_columns rc ON rc.owner = r.owner AND rc.constraint_name = r.constraint_name " +
+				   "                           AND rc.position = cc.position " +
+				   "WHERE c.constraint_type = 'R' AND c.owner = ? " +
+				   "ORDER BY c.table_name, c.constraint_name, cc.position";
+		}
+	};
+	
+	private static final KeyCatalog SQLServerKeyCatalog = new KeyCatalog() {
+		@Override
+		public String getPrimaryKeysQuery() {
+			return "SELECT s.name AS TABLE_SCHEM, t.name AS TABLE_NAME, i.name AS PK_NAME, " +
+				   "       c.name AS COLUMN_NAME, ic.key_ordinal AS KEY_SEQ " +
+				   "FROM sys.indexes i " +
+				   "   JOIN sys.tables t ON t.object_id = i.object_id " +
+				   "   JOIN sys.schemas s ON s.schema_id = t.schema_id " +
+				   "   JOIN sys.index_columns ic ON ic.object_id = i.object_id AND ic.index_id = i.index_id " +
+				   "   JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id " +
+				   "WHERE i.is_primary_key = 1 AND ic.key_ordinal > 0 AND s.name = ? " +
+				   "ORDER BY t.name, i.name, ic.key_ordinal";
+		}
+
+		@Override
+		public String getUniqueIndexesQuery() {
+			return "SELECT s.name AS TABLE_SCHEM, t.name AS TABLE_NAME, i.name AS INDEX_NAME, " +
+				   "       c.name AS COLUMN_NAME, ic.key_ordinal AS ORDINAL_POSITION " +
+				   "FROM sys.indexes i " +
+				   "   JOIN sys.tables t ON t.object_id = i.object_id " +
+				   "   JOIN sys.schemas s ON s.schema_id = t.schema_id " +
+				   "   JOIN sys.index_columns ic ON ic.object_id = i.object_id AND ic.index_id = i.index_id " +
+				   "   JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id " +
+				   "WHERE i.is_unique = 1 AND ic.key_ordinal > 0 AND s.name = ? " +
+				   "ORDER BY t.name, i.name, ic.key_ordinal";
+		}
+
+		@Override
+		public String getForeignKeysQuery() {
+			return "SELECT fs.name AS FKTABLE_SCHEM, ft.name AS FKTABLE_NAME, fk.name AS FK_NAME, " +
+				   "       fc.name AS FKCOLUMN_NAME, ps.name AS PKTABLE_SCHEM, pt.name AS PKTABLE_NAME, " +
+				   "       pc.name AS PKCOLUMN_NAME, fkc.constraint_column_id AS KEY_SEQ " +
+				   "FROM sys.foreign_keys fk " +
+				   "   JOIN sys.foreign_key_columns fkc ON fkc.constraint_object_id = fk.object_id " +
+				   "   JOIN sys.tables ft ON ft.object_id = fk.parent_object_id " +
+				   "   JOIN sys.schemas fs ON fs.schema_id = ft.schema_id " +
+				   "   JOIN sys.columns fc ON fc.object_id = fkc.parent_object_id AND fc.column_id = fkc.parent_column_id " +
+				   "   JOIN sys.tables pt ON pt.object_id = fk.referenced_object_id " +
+				   "   JOIN sys.schemas ps ON ps.schema_id = pt.schema_id " +
+				   "   JOIN sys.columns pc ON pc.object_id = fkc.referenced_object_id AND pc.column_id = fkc.referenced_column_id " +
+				   "WHERE fs.name = ? " +
+				   "ORDER BY ft.name, fk.name, fkc.constraint_column_id";
+		}
+	};
+	
+	/**
+	 * Retrieves the keys of the relations by the queries of the catalog (one query 
+	 * of each kind per schema). The keys are added in the same order as by the 
+	 * JDBC metadata calls: the primary key, the unique constraints and then the foreign keys.
+	 * 
+	 * @return false if the catalog cannot be queried (nothing is added then)
+	 */
+	private static boolean getKeysFromCatalog(KeyCatalog catalog, List<DatabaseRelationDefinition> relations, 
+			DBMetadata metadata, Connection conn) {
+		
+		Map<RelationID, DatabaseRelationDefinition> relationMap = new HashMap<>();
+		Set<String> schemas = new HashSet<>();
+		for (DatabaseRelationDefinition relation : relations) {
+			relationMap.put(relation.getID(), relation);
+			if (relation.getID().hasSchema())
+				schemas.add(relation.getID().getSchemaName());
+		}
+		
+		List<String[]> pks, uniques, fks;
+		try {
+			pks = getCatalogRows(conn, catalog.getPrimaryKeysQuery(), schemas, 
+					"TABLE_SCHEM", "TABLE_NAME", "PK_NAME", "COLUMN_NAME", "KEY_SEQ");
+			uniques = getCatalogRows(conn, catalog.getUniqueIndexesQuery(), schemas, 
+					"TABLE_SCHEM", "TABLE_NAME", "INDEX_NAME", "COLUMN_NAME", "ORDINAL_POSITION");
+			fks = getCatalogRows(conn, catalog.getForeignKeysQuery(), schemas, 
+					"FKTABLE_SCHEM", "FKTABLE_NAME", "FK_NAME", "FKCOLUMN_NAME", 
+					"PKTABLE_SCHEM", "PKTABLE_NAME", "PKCOLUMN_NAME", "KEY_SEQ");
+		}
+		catch (SQLException e) {
+			log.warn("Cannot query the catalog for the keys, using the JDBC metadata instead: " + e.getMessage());
+			return false;
+		}
+		
+		QuotedIDFactory idfac = metadata.getQuotedIDFactory();
+		addUniqueConstraints(pks, relationMap, idfac, true);
+		addUniqueConstraints(uniques, relationMap, idfac, false);
+		
+		ForeignKeyConstraint.Builder builder = null;
+		DatabaseRelationDefinition relation = null, ref = null;
+		String currentName = null;
+		for (String[] row : fks) {
+			if (Integer.parseInt(row[7]) == 1) {
+				if (builder != null) 
+					relation.addForeignKeyConstraint(builder.build(currentName));
+				
+				builder = null;
+				currentName = row[2]; 
+				relation = relationMap.get(RelationID.createRelationIdFromDatabaseRecord(idfac, row[0], row[1]));
+				if (relation == null)
+					continue; // not one of the extracted relations
+				
+				RelationID refId = RelationID.createRelationIdFromDatabaseRecord(idfac, row[4], row[5]);
+				ref = metadata.getDatabaseRelation(refId);
+				if (ref != null) 
+					builder = new ForeignKeyConstraint.Builder(relation, ref);
+				else 
+					// do not add this foreign key because there is no table it refers to
+					System.err.println("Cannot find table: " + refId + " for FK " + currentName);
+			}
+			if (builder != null) {
+				Attribute attribute = relation.getAttribute(QuotedID.createIdFromDatabaseRecord(idfac, row[3]));
+				Attribute reference = ref.getAttribute(QuotedID.createIdFromDatabaseRecord(idfac, row[6]));
+				if (attribute != null && reference != null) 
+					builder.add(attribute, reference);
+				else
+					builder = null;
+			}
+		}
+		if (builder != null)
+			relation.addForeignKeyConstraint(builder.build(currentName));
+		
+		return true;
+	}
+	
+	/**
+	 * Adds the unique constraints (or primary keys) from the rows of the catalog 
+	 * (schema, table, name, column, position)
+	 */
+	private static void addUniqueConstraints(List<String[]> rows, Map<RelationID, DatabaseRelationDefinition> relations, 
+			QuotedIDFactory idfac, boolean isPK) {
+		
+		UniqueConstraint.Builder builder = null;
+		DatabaseRelationDefinition relation = null;
+		String currentName = null;
+		for (String[] row : rows) {
+			if (Integer.parseInt(row[4]) == 1) {
+				if (builder != null)
+					relation.addUniqueConstraint(builder.build(currentName, isPK));
+				
+				currentName = row[2];
+				relation = relations.get(RelationID.createRelationIdFromDatabaseRecord(idfac, row[0], row[1]));
+				builder = (relation != null) ? UniqueConstraint.builder(relation) : null;
+			}
+			if (builder != null) {
+				// e.g., function-based indexes have no column of the relation
+				Attribute attribute = relation.getAttribute(QuotedID.createIdFromDatabaseRecord(idfac, row[3]));
+				if (attribute != null)
+					builder.add(attribute);
+				else
+					builder = null;
+			}
+		}
+		if (builder != null)
+			relation.addUniqueConstraint(builder.build(currentName, isPK));
+	}
+	
+	private static List<String[]> getCatalogRows(Connection conn, String query, Set<String> schemas, String... columns) throws SQLException {
+		List<String[]> rows = new ArrayList<>();
+		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+			for (String schema : schemas) {
+				stmt.setString(1, schema);
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						String[] row = new String[columns.length];
+						for (int i = 0; i < columns.length; i++)
+							row[i] = rs.getString(columns[i]);
+						rows.add(row);
+					}
+				}
+			}
+		}
+		return rows;
+	}
+	
+	
 	/**
 	 * Retrieve the normalized list of tables from a given list of RelationIDs
 	 */
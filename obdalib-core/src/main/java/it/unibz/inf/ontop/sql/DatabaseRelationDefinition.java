@@ -34,6 +34,8 @@ import java.util.*;
 
 public class DatabaseRelationDefinition extends RelationDefinition {
 
+	private static final long serialVersionUID = -4417587424350417553L;
+
 	private final List<Attribute> attributes = new ArrayList<>();
 	private final Map<QuotedID, Attribute> attributeMap = new HashMap<>();
 
@@ -23,6 +23,7 @@ package it.unibz.inf.ontop.sql;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,9 +41,14 @@ import java.util.List;
  *
  */
 
-public class ForeignKeyConstraint {
+public class ForeignKeyConstraint implements Serializable {
+
+	private static final long serialVersionUID = 7132434983843433869L;
+
+    public static final class Component implements Serializable {
+
+		private static final long serialVersionUID = -210852010459788789L;
 
-    public static final class Component {
 		private final Attribute attribute, reference;
 		
 		private Component(Attribute attribute, Attribute reference) {
@@ -32,6 +32,8 @@ import java.util.*;
 
 public class ParserViewDefinition extends RelationDefinition {
 
+	private static final long serialVersionUID = 6158836286536727373L;
+
 	private final List<Attribute> attributes = new ArrayList<>();
 	private final Map<QualifiedAttributeID, Attribute> attributeMap = new HashMap<>();
 	
@@ -20,6 +20,8 @@ package it.unibz.inf.ontop.sql;
  * #L%
  */
 
+import java.io.Serializable;
+
 
 /**
  * Database identifier used for possibly qualified column names
@@ -31,7 +33,9 @@ package it.unibz.inf.ontop.sql;
  */
 
 
-public class QualifiedAttributeID {
+public class QualifiedAttributeID implements Serializable {
+
+	private static final long serialVersionUID = -1113154408943535407L;
 
 	private final QuotedID attribute;
 	private final RelationID relation;
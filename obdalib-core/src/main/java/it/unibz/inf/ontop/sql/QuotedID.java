@@ -20,6 +20,8 @@ package it.unibz.inf.ontop.sql;
  * #L%
  */
 
+import java.io.Serializable;
+
 /**
  * Database identifier used for schema names, table names and aliases
  * <p>
@@ -31,7 +33,9 @@ package it.unibz.inf.ontop.sql;
  */
 
 
-public class QuotedID {
+public class QuotedID implements Serializable {
+
+	private static final long serialVersionUID = -3202067333979746322L;
 	
 	private final String id;
 	private final String quoteString;
@@ -20,6 +20,8 @@ package it.unibz.inf.ontop.sql;
  * #L%
  */
 
+import java.io.Serializable;
+
 
 /**
  * Factory for creating attribute and relation identifier from strings.
@@ -29,7 +31,7 @@ package it.unibz.inf.ontop.sql;
  *
  */
 
-public interface QuotedIDFactory {
+public interface QuotedIDFactory extends Serializable {
 
 	/**
 	 * 
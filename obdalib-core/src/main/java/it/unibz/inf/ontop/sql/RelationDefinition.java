@@ -20,6 +20,7 @@ package it.unibz.inf.ontop.sql;
  * #L%
  */
 
+import java.io.Serializable;
 import java.util.List;
 
 
@@ -33,7 +34,9 @@ import java.util.List;
  *
  */
 
-public abstract class RelationDefinition {
+public abstract class RelationDefinition implements Serializable {
+
+	private static final long serialVersionUID = 8928295235131167502L;
 
 	private final RelationID id;
 	
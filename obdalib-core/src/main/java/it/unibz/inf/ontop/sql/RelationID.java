@@ -21,6 +21,8 @@ package it.unibz.inf.ontop.sql;
  * #L%
  */
 
+import java.io.Serializable;
+
 /**
  * Database identifier used for possibly qualified table names and aliases
  * <p>
@@ -31,7 +33,9 @@ package it.unibz.inf.ontop.sql;
  */
 
 
-public class RelationID {
+public class RelationID implements Serializable {
+
+	private static final long serialVersionUID = 5392961813720846894L;
 
 	private final QuotedID schema, table;
 	
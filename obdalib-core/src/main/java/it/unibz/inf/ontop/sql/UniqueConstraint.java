@@ -23,6 +23,7 @@ package it.unibz.inf.ontop.sql;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,7 +39,9 @@ import java.util.List;
  *
  */
 
-public class UniqueConstraint {
+public class UniqueConstraint implements Serializable {
+
+	private static final long serialVersionUID = 993060469328972714L;
 
 	public static final class Builder {
 		private final ImmutableList.Builder<Attribute> builder = new ImmutableList.Builder<>();
@@ -22,7 +22,10 @@ package it.unibz.inf.ontop.utils;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Comparator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,7 +40,8 @@ public class EventGeneratingArrayList<E> extends ArrayList<E> implements EventGe
 
 	private static final long serialVersionUID = -6352076117258356066L;
 
-	private LinkedList<ListListener> listeners = new LinkedList<ListListener>();
+	// copy-on-write: a listener may register itself on other lists while an event is delivered
+	private final CopyOnWriteArrayList<ListListener> listeners = new CopyOnWriteArrayList<ListListener>();
 
 	private static Logger log = LoggerFactory.getLogger(EventGeneratingArrayList.class);
 
@@ -53,12 +57,23 @@ public class EventGeneratingArrayList<E> extends ArrayList<E> implements EventGe
 		super(initialCapacity);
 	}
 
-	public void addListener(ListListener listener) {
+	/**
+	 * Adds the listener unless it is already registered (listeners are compared by
+	 * identity: functional terms, for instance, have a structural equality)
+	 */
+	public synchronized void addListener(ListListener listener) {
+		for (ListListener l : listeners)
+			if (l == listener)
+				return;
 		listeners.add(listener);
 	}
 
-	public void removeListener(ListListener listener) {
-		listeners.remove(listener);
+	public synchronized void removeListener(ListListener listener) {
+		for (int i = 0; i < listeners.size(); i++)
+			if (listeners.get(i) == listener) {
+				listeners.remove(i);
+				return;
+			}
 	}
 
 	@Override
@@ -101,6 +116,32 @@ public class EventGeneratingArrayList<E> extends ArrayList<E> implements EventGe
 		return r;
 	}
 
+	@Override
+	public E remove(int index) {
+		E r = super.remove(index); // also used by the iterators
+		riseListChanged();
+		return r;
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super E> filter) {
+		boolean r = super.removeIf(filter);
+		riseListChanged();
+		return r;
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<E> operator) {
+		super.replaceAll(operator);
+		riseListChanged();
+	}
+
+	@Override
+	public void sort(Comparator<? super E> c) {
+		super.sort(c);
+		riseListChanged();
+	}
+
 	@Override
 	public boolean remove(Object o) {
 		boolean r = super.remove(o);
@@ -0,0 +1,144 @@
+package it.unibz.inf.ontop.model.impl;
+
+import it.unibz.inf.ontop.model.Function;
+import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.Predicate;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Structural equality and hash codes of functional terms, which are cached
+ * and have to follow the changes of the terms at any depth
+ */
+public class FunctionalTermImplTest {
+
+	private static final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
+
+	private static final Predicate f = fac.getPredicate("http://example.org/f", 2);
+	private static final Predicate g = fac.getPredicate("http://example.org/g", 1);
+	private static final Predicate h = fac.getPredicate("http://example.org/h", 1);
+
+	private static Function nested(String x, String y) {
+		return fac.getFunction(f, fac.getFunction(g, fac.getVariable(x)), fac.getConstantLiteral(y));
+	}
+
+	@Test
+	public void testEqualNestedTerms() {
+		Function t1 = nested("x", "a");
+		Function t2 = nested("x", "a");
+		assertEquals(t1, t2);
+		assertEquals(t1.hashCode(), t2.hashCode());
+		assertEquals(t1.toString(), t2.toString());
+	}
+
+	@Test
+	public void testUnequalNestedTerms() {
+		Function t = nested("x", "a");
+		assertFalse(t.equals(nested("y", "a")));
+		assertFalse(t.equals(nested("x", "b")));
+		assertFalse(t.equals(fac.getFunction(f, fac.getFunction(h, fac.getVariable("x")), fac.getConstantLiteral("a"))));
+		assertFalse(t.equals(fac.getFunction(g, fac.getVariable("x"))));
+	}
+
+	@Test
+	public void testChangeAfterHash() {
+		Function t1 = nested("x", "a");
+		Function t2 = nested("y", "a");
+		int hash = t1.hashCode();
+		assertEquals(hash, nested("x", "a").hashCode());
+		String string = t1.toString();
+		assertFalse(t1.equals(t2));
+
+		// change of an inner term
+		((Function) t1.getTerm(0)).setTerm(0, fac.getVariable("y"));
+		assertEquals(t2, t1);
+		assertEquals(t2.hashCode(), t1.hashCode());
+		assertFalse(string.equals(t1.toString()));
+
+		// change of the function symbol of an inner term
+		((Function) t1.getTerm(0)).setPredicate(h);
+		assertFalse(t1.equals(t2));
+		((Function) t2.getTerm(0)).setPredicate(h);
+		assertEquals(t2, t1);
+		assertEquals(t2.hashCode(), t1.hashCode());
+
+		// change of a term added after the construction (and after the hash was computed)
+		Function inner = fac.getFunction(g, fac.getVariable("x"));
+		t1.setTerm(1, inner);
+		Function expected = fac.getFunction(f, fac.getFunction(h, fac.getVariable("y")), fac.getFunction(g, fac.getVariable("z")));
+		assertFalse(expected.equals(t1));
+		inner.setTerm(0, fac.getVariable("z"));
+		assertEquals(expected, t1);
+		assertEquals(expected.hashCode(), t1.hashCode());
+		assertEquals(expected.toString(), t1.toString());
+
+		// removal through an iterator
+		Iterator<?> it = t1.getTerms().iterator();
+		it.next();
+		it.remove();
+		assertEquals(fac.getFunction(f, fac.getFunction(g, fac.getVariable("z"))), t1);
+	}
+
+	/**
+	 * Function symbol whose hash code depends on the JVM (as the hash codes of enums)
+	 */
+	private static final class SaltedPredicate extends PredicateImpl {
+		private static int salt = 0;
+
+		SaltedPredicate(String name, int arity) {
+			super(name, arity, null);
+		}
+
+		@Override
+		public int hashCode() {
+			return super.hashCode() + salt;
+		}
+	}
+
+	@Test
+	public void testHashAfterDeserialization() throws Exception {
+		Predicate op = new SaltedPredicate("op", 2);
+		Function t = fac.getFunction(f, fac.getFunction(op, fac.getVariable("x"), fac.getConstantLiteral("a")), fac.getVariable("y"));
+		t.hashCode();
+		t.toString();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(t);
+		}
+
+		// the term is read in "another JVM"
+		SaltedPredicate.salt = 17;
+		try {
+			Function loaded;
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+				loaded = (Function) in.readObject();
+			}
+			Function fresh = fac.getFunction(f, fac.getFunction(op, fac.getVariable("x"), fac.getConstantLiteral("a")), fac.getVariable("y"));
+			assertEquals(fresh.hashCode(), loaded.hashCode());
+			assertEquals(fresh, loaded);
+			assertEquals(loaded, fresh);
+			assertEquals(fresh.toString(), loaded.toString());
+
+			Set<Function> set = new HashSet<>();
+			set.add(fresh);
+			assertTrue(set.contains(loaded));
+
+			// the deserialized term follows the changes of its inner terms
+			((Function) loaded.getTerm(0)).setTerm(0, fac.getVariable("z"));
+			assertFalse(fresh.equals(loaded));
+		}
+		finally {
+			SaltedPredicate.salt = 0;
+		}
+	}
+}
@@ -20,9 +20,11 @@ package it.unibz.inf.ontop.sesame;
  * #L%
  */
 
+import it.unibz.inf.ontop.model.Constant;
 import it.unibz.inf.ontop.model.ObjectConstant;
 import it.unibz.inf.ontop.model.ValueConstant;
 import it.unibz.inf.ontop.model.impl.OBDAVocabulary;
+import it.unibz.inf.ontop.ontology.AnnotationAssertion;
 import it.unibz.inf.ontop.ontology.Assertion;
 import it.unibz.inf.ontop.ontology.ClassAssertion;
 import it.unibz.inf.ontop.ontology.DataPropertyAssertion;
@@ -77,6 +79,18 @@ public class SesameStatement implements Statement {
 			predicate = SesameHelper.createURI(OBDAVocabulary.RDF_TYPE); // URI
 			object = SesameHelper.createURI(obj);
 		}
+		else if (assertion instanceof AnnotationAssertion) {
+			//annotation assertion
+			AnnotationAssertion aa = (AnnotationAssertion) assertion;
+			ObjectConstant subj = aa.getSubject();
+			String pred = aa.getProperty().getName();
+			Constant obj = aa.getValue();
+
+			// convert string into respective type
+			subject = SesameHelper.getResource(subj);
+			predicate = SesameHelper.createURI(pred); // URI
+			object = SesameHelper.getValue(obj);
+		}
 	}
 	
 
@@ -29,18 +29,44 @@ import it.unibz.inf.ontop.model.OBDADataFactory;
 import it.unibz.inf.ontop.model.OBDAModel;
 import it.unibz.inf.ontop.model.Predicate;
 import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
+import it.unibz.inf.ontop.ontology.Assertion;
 import it.unibz.inf.ontop.ontology.Ontology;
 import it.unibz.inf.ontop.owlapi.OWLAPITranslatorUtility;
 import it.unibz.inf.ontop.owlapi.QuestOWLIndividualAxiomIterator;
+import it.unibz.inf.ontop.owlrefplatform.core.QuestConnection;
+import it.unibz.inf.ontop.owlrefplatform.core.abox.QuestMaterializer;
 import it.unibz.inf.ontop.owlrefplatform.owlapi.OWLAPIMaterializer;
+import it.unibz.inf.ontop.sesame.SesameStatementIterator;
+import org.openrdf.model.vocabulary.OWL;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.RDFS;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.n3.N3Writer;
+import org.openrdf.rio.ntriples.NTriplesWriter;
+import org.openrdf.rio.turtle.TurtleWriter;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.io.WriterDocumentTarget;
 import org.semanticweb.owlapi.model.*;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 @Command(name = "materialize",
         description = "Materialize the RDF graph exposed by the mapping and the OWL ontology")
@@ -48,11 +74,14 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
 
     private static final int TRIPLE_LIMIT_PER_FILE = 500000;
 
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
     @Option(type = OptionType.COMMAND, name = {"-f", "--format"}, title = "outputFormat",
             description = "The format of the materialized ontology. " +
-                    //" Options: rdfxml, owlxml, turtle, n3. " +
+                    //" Options: rdfxml, owlxml, turtle, n3, ntriples, nquads. " +
+                    "The triples are streamed directly to the output in the turtle, n3, ntriples and nquads formats. " +
                     "Default: rdfxml")
-    @AllowedValues(allowedValues = {"rdfxml", "owlxml", "turtle", "n3"})
+    @AllowedValues(allowedValues = {"rdfxml", "owlxml", "turtle", "n3", "ntriples", "nquads"})
     public String format;
 
     @Option(type = OptionType.COMMAND, name = {"--separate-files"}, title = "output to separate files",
@@ -60,6 +89,15 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
                     " materializing large OBDA setting. Default: false.")
     public boolean separate = false;
 
+    @Option(type = OptionType.COMMAND, name = {"--threads"}, title = "number of threads",
+            description = "number of classes/properties materialized in parallel, each one with its own " +
+                    "connection to the database (only with --separate-files). Default: 1.")
+    public int threads = 1;
+
+    @Option(type = OptionType.COMMAND, name = {"--gzip"}, title = "compress the output",
+            description = "compress the output with gzip (only with the turtle, n3, ntriples and nquads formats). " +
+                    "Default: false.")
+    public boolean gzip = false;
 
 
     @Option(type = OptionType.COMMAND, name = {"--no-streaming"}, title = "do not execute streaming of results",
@@ -84,6 +122,8 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
         }
         if(separate) {
             runWithSeparateFiles();
+        } else if (isStreamingFormat()) {
+            runWithSingleStreamingFile();
         } else {
             runWithSingleFile();
         }
@@ -133,15 +173,62 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
 
             obdaModel.getOntologyVocabulary().merge(inputOntology.getVocabulary());
 
+            final long startTime = System.currentTimeMillis();
 
-            int numPredicates = predicates.size();
+            // one Quest instance for all the predicates
+            QuestMaterializer materializer = new QuestMaterializer(obdaModel, inputOntology, predicates, doStreamResults);
+            Map<String, String> namespaces = getNamespaces(obdaModel);
+
+            Set<OWLDeclarationAxiom> declarations = ontology.getAxioms(AxiomType.DECLARATION);
 
-            int i = 1;
-            for (Predicate predicate : predicates) {
-                System.err.println(String.format("Materializing %s (%d/%d)", predicate, i, numPredicates));
-                serializePredicate(ontology, inputOntology, obdaModel, predicate, outputFile, format);
-                i++;
+            Queue<Predicate> queue = new ConcurrentLinkedQueue<>(predicates);
+            int numPredicates = predicates.size();
+            AtomicInteger done = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            AtomicLong tripleCount = new AtomicLong();
+
+            int numThreads = Math.max(1, Math.min(threads, numPredicates));
+            ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            for (int t = 0; t < numThreads; t++) {
+                executor.execute(() -> {
+                    try (QuestConnection connection = materializer.getConnection()) {
+                        Predicate predicate;
+                        while ((predicate = queue.poll()) != null) {
+                            try {
+                                final long predicateStartTime = System.currentTimeMillis();
+                                long count = serializePredicate(declarations, namespaces, materializer, connection,
+                                        predicate, outputFile, format);
+                                tripleCount.addAndGet(count);
+                                System.err.println(String.format("Materialized %s (%d/%d): %d triples in %d ms",
+                                        predicate, done.incrementAndGet(), numPredicates, count,
+                                        System.currentTimeMillis() - predicateStartTime));
+                            }
+                            catch (Exception e) {
+                                failed.incrementAndGet();
+                                System.err.println(String.format("Error materializing %s (%d/%d):",
+                                        predicate, done.incrementAndGet(), numPredicates));
+                                e.printStackTrace();
+                            }
+                        }
+                    }
+                    catch (Exception e) {
+                        System.err.println("Error connecting to the database:");
+                        e.printStackTrace();
+                    }
+                });
             }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            materializer.disconnect();
+
+            System.out.println("NR of TRIPLES: " + tripleCount.get());
+            System.out.println("VOCABULARY SIZE (NR of QUERIES): " + materializer.getVocabSize());
+            if (failed.get() > 0)
+                System.out.println("NR of FAILED PREDICATES: " + failed.get());
+
+            final long endTime = System.currentTimeMillis();
+            final long time = endTime - startTime;
+            System.out.println("Elapsed time to materialize: " + time + " {ms}");
 
         } catch (OWLOntologyCreationException e) {
             e.printStackTrace();
@@ -153,32 +240,42 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
     /**
      * Serializes the A-box corresponding to a predicate into one or multiple file.
      */
-    private void serializePredicate(OWLOntology ontology, Ontology inputOntology, OBDAModel obdaModel,
-                                           Predicate predicate, String outputFile, String format) throws Exception {
-        final long startTime = System.currentTimeMillis();
+    private long serializePredicate(Set<OWLDeclarationAxiom> declarations, Map<String, String> namespaces,
+                                    QuestMaterializer materializer, QuestConnection connection, Predicate predicate,
+                                    String outputFile, String format) throws Exception {
 
-        OWLAPIMaterializer materializer = new OWLAPIMaterializer(obdaModel, inputOntology, predicate, doStreamResults);
-        QuestOWLIndividualAxiomIterator iterator = materializer.getIterator();
+        QuestMaterializer.AssertionIterator assertions = materializer.getAssertionIterator(predicate, connection);
+        try {
+            String outputDir = outputFile;
+            String fileName = predicate.getName().replaceAll("[^a-zA-Z0-9]", "_");
+
+            if (isStreamingFormat()) {
+                // the whole predicate goes into one file
+                String path = Paths.get(outputDir, fileName + "." + getFileExtension(format)).toString();
+                if (gzip)
+                    path += ".gz";
+                try (Writer writer = openWriter(new FileOutputStream(path))) {
+                    return writeAssertions(assertions, writer, namespaces);
+                }
+            }
 
-        System.err.println("Starts writing triples into files.");
+            QuestOWLIndividualAxiomIterator iterator = new QuestOWLIndividualAxiomIterator(assertions);
 
-        int tripleCount = 0;
-        int fileCount = 0;
+            int tripleCount = 0;
+            int fileCount = 0;
 
-        String outputDir = outputFile;
-        String filePrefix = Paths.get(outputDir, predicate.getName().replaceAll("[^a-zA-Z0-9]", "_") + "_").toString();
+            String filePrefix = Paths.get(outputDir, fileName + "_").toString();
 
-        while(iterator.hasNext()) {
-            tripleCount += serializeTripleBatch(ontology, iterator, filePrefix, predicate.getName(), fileCount, format);
-            fileCount++;
+            while(iterator.hasNext()) {
+                tripleCount += serializeTripleBatch(declarations, iterator, filePrefix, predicate.getName(), fileCount, format);
+                fileCount++;
+            }
+            return tripleCount;
+        }
+        finally {
+            // releases the statement even if the serialization failed
+            assertions.close();
         }
-
-        System.out.println("NR of TRIPLES: " + tripleCount);
-        System.out.println("VOCABULARY SIZE (NR of QUERIES): " + materializer.getVocabularySize());
-
-        final long endTime = System.currentTimeMillis();
-        final long time = endTime - startTime;
-        System.out.println("Elapsed time to materialize: " + time + " {ms}");
     }
 
     /**
@@ -186,7 +283,7 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
      * Upper bound: TRIPLE_LIMIT_PER_FILE.
      *
      */
-    private int serializeTripleBatch(OWLOntology ontology, QuestOWLIndividualAxiomIterator iterator,
+    private int serializeTripleBatch(Set<OWLDeclarationAxiom> declarations, QuestOWLIndividualAxiomIterator iterator,
                                             String filePrefix, String predicateName, int fileCount, String format) throws Exception {
         String fileName = filePrefix + fileCount + ".owl";
 
@@ -196,9 +293,7 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
         OWLOntology aBox = manager.createOntology(IRI.create(predicateName));
 
         // Add the signatures
-        for (OWLDeclarationAxiom axiom : ontology.getAxioms(AxiomType.DECLARATION)) {
-            manager.addAxiom(aBox, axiom);
-        }
+        manager.addAxioms(aBox, declarations);
 
         int tripleCount = 0;
         while (iterator.hasNext() && (tripleCount < TRIPLE_LIMIT_PER_FILE )) {
@@ -208,13 +303,154 @@ public class OntopMaterialize extends OntopReasoningCommandBase {
 
         //BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(outputPath.toFile()));
         //BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
-        BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
-        manager.saveOntology(aBox, getDocumentFormat(format), new WriterDocumentTarget(writer));
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
+            manager.saveOntology(aBox, getDocumentFormat(format), new WriterDocumentTarget(writer));
+        }
 
         return tripleCount;
     }
 
 
+    /**
+     * The formats written statement by statement, without building OWLAPI ontologies in memory
+     */
+    private boolean isStreamingFormat() {
+        if (format == null)
+            return false;
+        switch (format) {
+            case "turtle":
+            case "n3":
+            case "ntriples":
+            case "nquads":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String getFileExtension(String format) {
+        switch (format) {
+            case "turtle":
+                return "ttl";
+            case "n3":
+                return "n3";
+            case "ntriples":
+                return "nt";
+            case "nquads":
+                return "nq";
+            default:
+                return "owl";
+        }
+    }
+
+    private void runWithSingleStreamingFile() {
+        try {
+            final long startTime = System.currentTimeMillis();
+
+            OBDAModel obdaModel = loadMappingFile(mappingFile);
+
+            Ontology onto = null;
+            if (owlFile != null) {
+                OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+                OWLOntology ontology = manager.loadOntologyFromOntologyDocument((new File(owlFile)));
+                if (disableReasoning) {
+                    ontology = extractDeclarations(manager, ontology);
+                }
+                onto = OWLAPITranslatorUtility.translate(ontology);
+                obdaModel.getOntologyVocabulary().merge(onto.getVocabulary());
+            }
+
+            QuestMaterializer materializer = new QuestMaterializer(obdaModel, onto, doStreamResults);
+
+            OutputStream output = (outputFile != null) ? new FileOutputStream(outputFile) : new FilterOutputStream(System.out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // System.out stays open
+                    flush();
+                }
+            };
+            long tripleCount;
+            try (Writer writer = openWriter(output)) {
+                tripleCount = writeAssertions(materializer.getAssertionIterator(), writer, getNamespaces(obdaModel));
+            }
+            materializer.disconnect();
+
+            System.err.println("NR of TRIPLES: " + tripleCount);
+            System.err.println("VOCABULARY SIZE (NR of QUERIES): " + materializer.getVocabSize());
+
+            final long endTime = System.currentTimeMillis();
+            final long time = endTime - startTime;
+            System.err.println("Elapsed time to materialize: " + time + " {ms}");
+
+        } catch (Exception e) {
+            System.err.println("Error materializing ontology:");
+            e.printStackTrace();
+        }
+    }
+
+    private Writer openWriter(OutputStream output) throws IOException {
+        if (gzip)
+            output = new GZIPOutputStream(output, OUTPUT_BUFFER_SIZE);
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+    }
+
+    /**
+     * Writes the assertions one by one, so that the memory use does not depend on their number
+     *
+     * @return the number of triples
+     */
+    private long writeAssertions(Iterator<Assertion> assertions, Writer writer, Map<String, String> namespaces)
+            throws RDFHandlerException {
+        RDFHandler handler;
+        switch (format) {
+            case "turtle":
+                handler = new TurtleWriter(writer);
+                break;
+            case "n3":
+                handler = new N3Writer(writer);
+                break;
+            default:
+                // the triples belong to the default graph, so their N-Quads are N-Triples
+                handler = new NTriplesWriter(writer);
+        }
+
+        handler.startRDF();
+        for (Map.Entry<String, String> namespace : namespaces.entrySet())
+            handler.handleNamespace(namespace.getKey(), namespace.getValue());
+
+        long tripleCount = 0;
+        SesameStatementIterator statements = new SesameStatementIterator(assertions);
+        while (statements.hasNext()) {
+            handler.handleStatement(statements.next());
+            tripleCount++;
+        }
+        handler.endRDF();
+        return tripleCount;
+    }
+
+    /**
+     * The prefixes of the mapping (and the standard ones) for abbreviating IRIs in turtle and n3
+     */
+    private static Map<String, String> getNamespaces(OBDAModel obdaModel) {
+        Map<String, String> namespaces = new LinkedHashMap<>();
+        namespaces.put("rdf", RDF.NAMESPACE);
+        namespaces.put("rdfs", RDFS.NAMESPACE);
+        namespaces.put("owl", OWL.NAMESPACE);
+        namespaces.put("xsd", XMLSchema.NAMESPACE);
+        for (Map.Entry<String, String> prefix : obdaModel.getPrefixManager().getPrefixMap().entrySet()) {
+            String name = prefix.getKey();
+            if (name.endsWith(":"))
+                name = name.substring(0, name.length() - 1);
+            namespaces.put(name, prefix.getValue());
+        }
+        return namespaces;
+    }
+
     public void runWithSingleFile() {
         BufferedOutputStream output = null;
         BufferedWriter writer = null;
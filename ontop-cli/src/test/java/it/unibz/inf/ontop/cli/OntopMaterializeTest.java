@@ -1,10 +1,120 @@
 package it.unibz.inf.ontop.cli;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.Model;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.Rio;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class OntopMaterializeTest {
 
+    private static final String NS = "http://it.unibz.inf/obda/test/simple#";
+
+    private static final String OWL_FILE = "src/test/resources/test/simplemapping.owl";
+    private static final String OBDA_FILE = "src/test/resources/test/simplemapping.obda";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Connection conn;
+
+    @Before
+    public void setUp() throws Exception {
+        // the in-memory database of simplemapping.obda lives as long as this connection
+        conn = DriverManager.getConnection("jdbc:h2:mem:materialization_test", "sa", "");
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate(new String(Files.readAllBytes(Paths.get("src/test/resources/test/simplemapping-create-h2.sql")),
+                    StandardCharsets.UTF_8));
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("DROP ALL OBJECTS");
+        }
+        conn.close();
+    }
+
+    @Test
+    public void testMaterializeStreamingTurtle() throws Exception {
+        checkStreamingMaterialization("turtle", false, RDFFormat.TURTLE);
+    }
+
+    @Test
+    public void testMaterializeStreamingTurtleGzip() throws Exception {
+        checkStreamingMaterialization("turtle", true, RDFFormat.TURTLE);
+    }
+
+    @Test
+    public void testMaterializeStreamingNTriples() throws Exception {
+        checkStreamingMaterialization("ntriples", false, RDFFormat.NTRIPLES);
+    }
+
+    @Test
+    public void testMaterializeStreamingNTriplesGzip() throws Exception {
+        checkStreamingMaterialization("ntriples", true, RDFFormat.NTRIPLES);
+    }
+
+    /**
+     * the triples are in the default graph, so the N-Quads are also N-Triples
+     */
+    @Test
+    public void testMaterializeStreamingNQuads() throws Exception {
+        checkStreamingMaterialization("nquads", false, RDFFormat.NTRIPLES);
+    }
+
+    @Test
+    public void testMaterializeStreamingNQuadsGzip() throws Exception {
+        checkStreamingMaterialization("nquads", true, RDFFormat.NTRIPLES);
+    }
+
+    /**
+     * materializes the class assertions of simplemapping.obda (without reasoning)
+     * into a single file and parses it back
+     */
+    private void checkStreamingMaterialization(String format, boolean gzip, RDFFormat parseFormat) throws Exception {
+        File outFile = new File(folder.getRoot(), "out");
+        if (gzip)
+            Ontop.main("materialize", "-m", OBDA_FILE, "-t", OWL_FILE, "-f", format, "-o", outFile.getPath(),
+                    "--disable-reasoning", "--gzip");
+        else
+            Ontop.main("materialize", "-m", OBDA_FILE, "-t", OWL_FILE, "-f", format, "-o", outFile.getPath(),
+                    "--disable-reasoning");
+
+        Model model;
+        try (InputStream in = gzip ? new GZIPInputStream(new FileInputStream(outFile)) : new FileInputStream(outFile)) {
+            model = Rio.parse(in, NS, parseFormat);
+        }
+
+        ValueFactory vf = ValueFactoryImpl.getInstance();
+        assertEquals(3, model.size());
+        assertTrue(model.contains(vf.createURI(NS + "1"), RDF.TYPE, vf.createURI(NS + "A")));
+        assertTrue(model.contains(vf.createURI(NS + "3"), RDF.TYPE, vf.createURI(NS + "A")));
+        assertTrue(model.contains(vf.createURI(NS + "7"), RDF.TYPE, vf.createURI(NS + "B")));
+    }
+
     @Test
     public void testOntopHelpMaterialize(){
         Ontop.main("help", "materialize");
@@ -67,8 +67,11 @@ public class InconsistencyCheckAction extends ProtegeAction {
 				if (isConsistent) {
 					JOptionPane.showMessageDialog(null, "Your ontology is consistent! Great job!");
 				} else {
-					JOptionPane.showMessageDialog(null, "Your ontology is not consistent. The axiom creating inconsistency is: \n"
-							+questReasoner.getInconsistentAxiom().toString());
+					StringBuilder axioms = new StringBuilder();
+					for (Object axiom : questReasoner.getInconsistentAxioms())
+						axioms.append("\n").append(axiom);
+					JOptionPane.showMessageDialog(null, "Your ontology is not consistent. The axioms creating inconsistency are: "
+							+axioms);
 				}
 				
 			}catch(Exception ex){
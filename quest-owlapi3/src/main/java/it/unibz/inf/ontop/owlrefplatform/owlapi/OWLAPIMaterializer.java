@@ -33,7 +33,7 @@ import java.util.Iterator;
 
 public class OWLAPIMaterializer implements AutoCloseable{
 
-	private final Iterator<Assertion> assertions;
+	private Iterator<Assertion> assertions; // created on demand
 	private final QuestMaterializer materializer;
 	
 	public OWLAPIMaterializer(OBDAModel model, boolean doStreamResults) throws Exception {
@@ -43,7 +43,6 @@ public class OWLAPIMaterializer implements AutoCloseable{
 	
 	public OWLAPIMaterializer(OBDAModel model, Ontology onto, boolean doStreamResults) throws Exception {
 		 materializer = new QuestMaterializer(model, onto, doStreamResults);
-		 assertions = materializer.getAssertionIterator();
 	}
 
     /*
@@ -51,7 +50,6 @@ public class OWLAPIMaterializer implements AutoCloseable{
      */
     public OWLAPIMaterializer(OBDAModel model, Ontology onto, Collection<Predicate> predicates, boolean doStreamResults) throws Exception {
         materializer = new QuestMaterializer(model, onto, predicates, doStreamResults);
-        assertions = materializer.getAssertionIterator();
     }
 
     public OWLAPIMaterializer(OBDAModel obdaModel, Ontology onto, Predicate predicate, boolean doStreamResults)  throws Exception{
@@ -59,6 +57,14 @@ public class OWLAPIMaterializer implements AutoCloseable{
     }
 
     public QuestOWLIndividualAxiomIterator getIterator() {
+		if (assertions == null) {
+			try {
+				assertions = materializer.getAssertionIterator();
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
 		return new QuestOWLIndividualAxiomIterator(assertions);
 	}
 	
@@ -23,7 +23,6 @@ package it.unibz.inf.ontop.owlrefplatform.owlapi;
 import it.unibz.inf.ontop.model.OBDAException;
 import it.unibz.inf.ontop.model.OBDAModel;
 import it.unibz.inf.ontop.model.ResultSet;
-import it.unibz.inf.ontop.model.TupleResultSet;
 import it.unibz.inf.ontop.ontology.*;
 import it.unibz.inf.ontop.owlapi.OWLAPIABoxIterator;
 import it.unibz.inf.ontop.owlapi.OWLAPITranslator2QLOWL;
@@ -50,7 +49,9 @@ import org.semanticweb.owlapi.util.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -58,6 +59,13 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The OBDAOWLReformulationPlatform implements the OWL reasoner interface and is
@@ -91,6 +99,9 @@ public class QuestOWL extends OWLReasonerBase implements AutoCloseable {
 
 	private Object inconsistent = null;
 
+	// all the axioms violated in the last consistency check
+	private List<Object> inconsistentAxioms = new ArrayList<>();
+
 	// / holds the error that quest had when initializing
 	private String errorMessage = "";
 
@@ -528,126 +539,177 @@ public class QuestOWL extends OWLReasonerBase implements AutoCloseable {
 		return inconsistent;
 	}
 
-	public boolean isQuestConsistent() throws ReasonerInterruptedException, TimeOutException {
-		return isDisjointAxiomsConsistent() && isFunctionalPropertyAxiomsConsistent();
+	/**
+	 * @return all the disjointness and functionality axioms violated by the data
+	 *         in the last consistency check
+	 */
+	public List<Object> getInconsistentAxioms() {
+		return Collections.unmodifiableList(inconsistentAxioms);
 	}
 
-	private boolean isDisjointAxiomsConsistent() throws ReasonerInterruptedException, TimeOutException {
-
-		// deal with disjoint classes
-		{
-			final String strQueryClass = "ASK {?x a <%s>; a <%s> }";
+	/**
+	 * Checks the disjointness and functionality axioms against the data. The patterns
+	 * of the violations of the axioms are grouped into batches and each batch is checked 
+	 * by a single SQL query (an EXISTS probe for each pattern, so that the DBMS stops at 
+	 * the first violation). The batches are executed in parallel on connections of the pool.
+	 */
+	public boolean isQuestConsistent() throws ReasonerInterruptedException, TimeOutException {
+		final List<ConsistencyProbe> probes = getConsistencyProbes();
 
-			for (NaryAxiom<ClassExpression> dda : translatedOntologyMerge.getDisjointClassesAxioms()) {
-				// TODO: handle complex class expressions and many pairs of
-				// disjoint classes
-				Collection<ClassExpression> disj = dda.getComponents();
-				Iterator<ClassExpression> classIterator = disj.iterator();
-				ClassExpression s1 = classIterator.next();
-				ClassExpression s2 = classIterator.next();
-				String strQuery = String.format(strQueryClass, s1, s2);
+		int batchSize = Math.max(1, Integer.valueOf((String) preferences.getCurrentValue(QuestPreferences.CONSISTENCY_BATCH_SIZE)));
+		int threads = Math.max(1, Integer.valueOf((String) preferences.getCurrentValue(QuestPreferences.CONSISTENCY_THREADS)));
 
-				boolean isConsistent = executeConsistencyQuery(strQuery);
-				if (!isConsistent) {
-					inconsistent = dda;
-					return false;
-				}
-			}
+		long start = System.currentTimeMillis();
+		SortedSet<Integer> violated = new TreeSet<>();
+		if (probes.size() <= batchSize || threads == 1) {
+			for (int from = 0; from < probes.size(); from += batchSize)
+				violated.addAll(executeConsistencyQuery(conn, probes, from, Math.min(from + batchSize, probes.size())));
 		}
-
-		// deal with disjoint properties
-		{
-			final String strQueryProp = "ASK {?x <%s> ?y; <%s> ?y }";
-
-			for (NaryAxiom<ObjectPropertyExpression> dda : translatedOntologyMerge
-					.getDisjointObjectPropertiesAxioms()) {
-				// TODO: handle role inverses and multiple arguments
-				Collection<ObjectPropertyExpression> props = dda.getComponents();
-				Iterator<ObjectPropertyExpression> iterator = props.iterator();
-				ObjectPropertyExpression p1 = iterator.next();
-				ObjectPropertyExpression p2 = iterator.next();
-				String strQuery = String.format(strQueryProp, p1, p2);
-
-				boolean isConsistent = executeConsistencyQuery(strQuery);
-				if (!isConsistent) {
-					inconsistent = dda;
-					return false;
+		else {
+			ExecutorService executor = Executors.newFixedThreadPool(threads,
+					new ThreadFactoryBuilder().setNameFormat("ontop-consistency-%d").setDaemon(true).build());
+			try {
+				List<Future<Set<Integer>>> futures = new ArrayList<>();
+				for (int from = 0; from < probes.size(); from += batchSize) {
+					final int batchFrom = from;
+					final int batchTo = Math.min(from + batchSize, probes.size());
+					futures.add(executor.submit(new Callable<Set<Integer>>() {
+						@Override
+						public Set<Integer> call() throws OBDAException {
+							QuestConnection poolConn = questInstance.getConnection();
+							try {
+								return executeConsistencyQuery(poolConn, probes, batchFrom, batchTo);
+							}
+							finally {
+								poolConn.close();
+							}
+						}
+					}));
 				}
+				for (Future<Set<Integer>> future : futures)
+					violated.addAll(future.get());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ReasonerInterruptedException(e);
+			}
+			catch (ExecutionException e) {
+				throw new ReasonerInternalException(e.getCause());
+			}
+			finally {
+				executor.shutdownNow();
 			}
 		}
 
-		{
-			final String strQueryProp = "ASK {?x <%s> ?y; <%s> ?y }";
-
-			for (NaryAxiom<DataPropertyExpression> dda : translatedOntologyMerge.getDisjointDataPropertiesAxioms()) {
-				// TODO: handle role inverses and multiple arguments
-				Collection<DataPropertyExpression> props = dda.getComponents();
-				Iterator<DataPropertyExpression> iterator = props.iterator();
-				DataPropertyExpression p1 = iterator.next();
-				DataPropertyExpression p2 = iterator.next();
-				String strQuery = String.format(strQueryProp, p1, p2);
-
-				boolean isConsistent = executeConsistencyQuery(strQuery);
-				if (!isConsistent) {
-					inconsistent = dda;
-					return false;
-				}
-			}
+		inconsistentAxioms = new ArrayList<>();
+		for (int i : violated) {
+			Object axiom = probes.get(i).axiom;
+			if (!inconsistentAxioms.contains(axiom))
+				inconsistentAxioms.add(axiom);
 		}
+		inconsistent = inconsistentAxioms.isEmpty() ? null : inconsistentAxioms.get(0);
 
-		return true;
+		log.debug("Consistency check of {} patterns in {} ms: {} violated axioms", probes.size(),
+				System.currentTimeMillis() - start, inconsistentAxioms.size());
+		return inconsistentAxioms.isEmpty();
 	}
 
-	private boolean isFunctionalPropertyAxiomsConsistent() throws ReasonerInterruptedException, TimeOutException {
-
-		// deal with functional properties
+	/**
+	 * A disjointness or functionality axiom and a graph pattern matching its violations
+	 */
+	private static final class ConsistencyProbe {
+		private final Object axiom;
+		private final String pattern;
 
-		final String strQueryFunc = "ASK { ?x <%s> ?y; <%s> ?z. FILTER (?z != ?y) }";
+		ConsistencyProbe(Object axiom, String pattern) {
+			this.axiom = axiom;
+			this.pattern = pattern;
+		}
+	}
 
-		for (ObjectPropertyExpression pfa : translatedOntologyMerge.getFunctionalObjectProperties()) {
-			// TODO: handle inverses
-			String propFunc = pfa.getName();
-			String strQuery = String.format(strQueryFunc, propFunc, propFunc);
+	private List<ConsistencyProbe> getConsistencyProbes() {
+		List<ConsistencyProbe> probes = new ArrayList<>();
 
-			boolean isConsistent = executeConsistencyQuery(strQuery);
-			if (!isConsistent) {
-				inconsistent = pfa;
-				return false;
-			}
+		// deal with disjoint classes (every pair of them)
+		for (NaryAxiom<ClassExpression> dda : translatedOntologyMerge.getDisjointClassesAxioms()) {
+			List<ClassExpression> disj = new ArrayList<>(dda.getComponents());
+			for (int i = 0; i < disj.size(); i++)
+				for (int j = i + 1; j < disj.size(); j++)
+					probes.add(new ConsistencyProbe(dda, getPattern("?x", disj.get(i)) + " " + getPattern("?x", disj.get(j))));
 		}
 
-		for (DataPropertyExpression pfa : translatedOntologyMerge.getFunctionalDataProperties()) {
-			String propFunc = pfa.getName();
-			String strQuery = String.format(strQueryFunc, propFunc, propFunc);
+		// deal with disjoint properties
+		for (NaryAxiom<ObjectPropertyExpression> dda : translatedOntologyMerge.getDisjointObjectPropertiesAxioms()) {
+			List<ObjectPropertyExpression> props = new ArrayList<>(dda.getComponents());
+			for (int i = 0; i < props.size(); i++)
+				for (int j = i + 1; j < props.size(); j++)
+					probes.add(new ConsistencyProbe(dda, getPattern("?x", props.get(i), "?y") + " " + getPattern("?x", props.get(j), "?y")));
+		}
 
-			boolean isConsistent = executeConsistencyQuery(strQuery);
-			if (!isConsistent) {
-				inconsistent = pfa;
-				return false;
-			}
+		for (NaryAxiom<DataPropertyExpression> dda : translatedOntologyMerge.getDisjointDataPropertiesAxioms()) {
+			List<DataPropertyExpression> props = new ArrayList<>(dda.getComponents());
+			for (int i = 0; i < props.size(); i++)
+				for (int j = i + 1; j < props.size(); j++)
+					probes.add(new ConsistencyProbe(dda, String.format("?x <%s> ?y . ?x <%s> ?y .", props.get(i).getName(), props.get(j).getName())));
 		}
 
-		return true;
+		// deal with functional properties
+		for (ObjectPropertyExpression pfa : translatedOntologyMerge.getFunctionalObjectProperties())
+			probes.add(new ConsistencyProbe(pfa, getPattern("?x", pfa, "?y") + " " + getPattern("?x", pfa, "?z") + " FILTER (?z != ?y)"));
+
+		for (DataPropertyExpression pfa : translatedOntologyMerge.getFunctionalDataProperties())
+			probes.add(new ConsistencyProbe(pfa, String.format("?x <%s> ?y . ?x <%s> ?z . FILTER (?z != ?y)", pfa.getName(), pfa.getName())));
+
+		return probes;
 	}
 
-	private boolean executeConsistencyQuery(String strQuery) {
-		QuestStatement query;
+	private static String getPattern(String s, ObjectPropertyExpression p, String o) {
+		if (p.isInverse())
+			return String.format("%s <%s> %s .", o, p.getName(), s);
+		return String.format("%s <%s> %s .", s, p.getName(), o);
+	}
+
+	private static String getPattern(String x, ClassExpression c) {
+		if (c instanceof OClass)
+			return String.format("%s a <%s> .", x, ((OClass) c).getName());
+		if (c instanceof ObjectSomeValuesFrom)
+			return getPattern(x, ((ObjectSomeValuesFrom) c).getProperty(), "[]");
+		// DataSomeValuesFrom
+		return String.format("%s <%s> [] .", x, ((DataSomeValuesFrom) c).getProperty().getName());
+	}
+
+	/**
+	 * Executes the probes from (inclusive) to (exclusive) in a single SQL query, with an 
+	 * EXISTS over the translation of each probe (see {@link QuestStatement#getNonEmptyQueries}), 
+	 * and returns the indexes of the probes with a match. If the query fails, the probes 
+	 * are executed one by one (a failing probe is considered satisfied, as before).
+	 */
+	private static Set<Integer> executeConsistencyQuery(QuestConnection conn, List<ConsistencyProbe> probes, int from, int to) {
+		List<String> queries = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++)
+			queries.add("SELECT * WHERE { " + probes.get(i).pattern + " }");
+
+		Set<Integer> violated = new HashSet<>();
 		try {
-			query = conn.createStatement();
-			ResultSet rs = query.execute(strQuery);
-			TupleResultSet trs = ((TupleResultSet) rs);
-			if (trs != null && trs.nextRow()) {
-				String value = trs.getConstant(0).getValue();
-				boolean b = Boolean.parseBoolean(value);
-				trs.close();
-				if (b)
-					return false;
+			QuestStatement st = conn.createStatement();
+			try {
+				for (int i : st.getNonEmptyQueries(queries))
+					violated.add(from + i);
+			}
+			finally {
+				st.close();
 			}
-
-		} catch (OBDAException e) {
-			e.printStackTrace();
 		}
-		return true;
+		catch (RuntimeException e) {
+			if (to - from > 1) {
+				log.debug("Consistency query failed, checking its {} patterns one by one: {}", to - from, e.getMessage());
+				for (int i = from; i < to; i++)
+					violated.addAll(executeConsistencyQuery(conn, probes, i, i + 1));
+			}
+			else
+				log.warn("Cannot check {}: {}", probes.get(from).axiom, e.getMessage());
+		}
+		return violated;
 	}
 
 	@Override
@@ -1133,15 +1195,21 @@ public class QuestOWL extends OWLReasonerBase implements AutoCloseable {
 
 	/**
 	 * Methods to get the empty concepts and roles in the ontology using the
-	 * given mappings. It generates SPARQL queries to check for entities.
+	 * given mappings. It generates SPARQL queries to check for entities, or
+	 * batches of SQL probes (see QuestPreferences.EMPTY_ENTITIES_BATCH_SIZE).
 	 * 
 	 * @return QuestOWLEmptyEntitiesChecker class to get empty concepts and
 	 *         roles
 	 * @throws Exception
 	 */
 	public QuestOWLEmptyEntitiesChecker getEmptyEntitiesChecker() throws Exception {
-		QuestOWLEmptyEntitiesChecker empties = new QuestOWLEmptyEntitiesChecker(translatedOntologyMerge, owlconn);
-		return empties;
+		int batchSize = Integer.valueOf((String) preferences.getCurrentValue(QuestPreferences.EMPTY_ENTITIES_BATCH_SIZE));
+		if (batchSize <= 1)
+			return new QuestOWLEmptyEntitiesChecker(translatedOntologyMerge, owlconn);
+
+		int threads = Integer.valueOf((String) preferences.getCurrentValue(QuestPreferences.EMPTY_ENTITIES_THREADS));
+		boolean cache = Boolean.valueOf((String) preferences.getCurrentValue(QuestPreferences.EMPTY_ENTITIES_CACHE));
+		return new QuestOWLEmptyEntitiesChecker(translatedOntologyMerge, questInstance, batchSize, threads, cache);
 	}
 
 	@Override
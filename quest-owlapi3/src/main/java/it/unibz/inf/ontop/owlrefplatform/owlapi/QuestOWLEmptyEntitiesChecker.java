@@ -20,28 +20,57 @@ package it.unibz.inf.ontop.owlrefplatform.owlapi;
  * #L%
  */
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import it.unibz.inf.ontop.model.OBDAException;
 import it.unibz.inf.ontop.model.Predicate;
 import it.unibz.inf.ontop.ontology.DataPropertyExpression;
 import it.unibz.inf.ontop.ontology.OClass;
 import it.unibz.inf.ontop.ontology.ObjectPropertyExpression;
 import it.unibz.inf.ontop.ontology.Ontology;
+import it.unibz.inf.ontop.owlrefplatform.core.Quest;
+import it.unibz.inf.ontop.owlrefplatform.core.QuestConnection;
+import it.unibz.inf.ontop.owlrefplatform.core.QuestStatement;
 import org.semanticweb.owlapi.model.OWLException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Return empty concepts and roles, based on the mappings. Given an ontology,
  * which is connected to a database via mappings, generate a suitable set of
  * queries that test if there are empty concepts, concepts that are no populated
  * to anything.
+ * <p>
+ * In the batched mode, the classes and properties without mappings are empty with no
+ * query, and the others are checked in batches: each batch is a single SQL query with an
+ * EXISTS probe for each entity, and the batches are run in parallel on connections of the pool.
  */
 public class QuestOWLEmptyEntitiesChecker {
 
+	private static final Logger log = LoggerFactory.getLogger(QuestOWLEmptyEntitiesChecker.class);
+
 	private Ontology onto;
 	private QuestOWLConnection conn;
 
+	/* batched mode (null in the mode of one query for each entity) */
+	private Quest questInstance;
+	private int batchSize;
+	private int threads;
+	private boolean cache;
+
+	/* empty classes and properties, computed at once in the batched mode */
+	private List<Predicate> emptyEntities;
+
 	private int nEmptyConcepts = 0;
 	private int nEmptyRoles = 0;
 
@@ -58,15 +87,173 @@ public class QuestOWLEmptyEntitiesChecker {
 
 	}
 
+	/**
+	 * Checks the classes and properties in batches
+	 *
+	 * @param translatedOntologyMerge the ontology
+	 * @param questInstance the instance whose connection pool runs the batches
+	 * @param batchSize the number of entities checked by each SQL query
+	 * @param threads the number of SQL queries run in parallel
+	 * @param cache whether the empty entities are stored alongside the mapping snapshot
+	 */
+	public QuestOWLEmptyEntitiesChecker(Ontology translatedOntologyMerge, Quest questInstance, int batchSize, int threads, boolean cache) {
+		this.onto = translatedOntologyMerge;
+		this.questInstance = questInstance;
+		this.batchSize = Math.max(1, batchSize);
+		this.threads = Math.max(1, threads);
+		this.cache = cache;
+	}
+
 	public Iterator<Predicate> iEmptyConcepts() {
+		if (questInstance != null) {
+			List<Predicate> concepts = new ArrayList<>();
+			for (Predicate entity : getEmptyEntities())
+				if (entity.getArity() == 1)
+					concepts.add(entity);
+			nEmptyConcepts = concepts.size();
+			return concepts.iterator();
+		}
 		return new EmptyEntitiesIterator( onto.getVocabulary().getClasses().iterator(), conn);
 	}
 
 
 	public Iterator<Predicate> iEmptyRoles() {
+		if (questInstance != null) {
+			List<Predicate> roles = new ArrayList<>();
+			for (Predicate entity : getEmptyEntities())
+				if (entity.getArity() == 2)
+					roles.add(entity);
+			nEmptyRoles = roles.size();
+			return roles.iterator();
+		}
 		return new EmptyEntitiesIterator(onto.getVocabulary().getObjectProperties().iterator(), onto.getVocabulary().getDataProperties().iterator(), conn);
 	}
 
+	private synchronized List<Predicate> getEmptyEntities() {
+		if (emptyEntities != null)
+			return emptyEntities;
+
+		List<Predicate> entities = new ArrayList<>();
+		for (OClass c : onto.getVocabulary().getClasses())
+			if (!c.isTop() && !c.isBottom())
+				entities.add(c.getPredicate());
+		for (ObjectPropertyExpression p : onto.getVocabulary().getObjectProperties())
+			if (!p.isTop() && !p.isBottom())
+				entities.add(p.getPredicate());
+		for (DataPropertyExpression p : onto.getVocabulary().getDataProperties())
+			if (!p.isTop() && !p.isBottom())
+				entities.add(p.getPredicate());
+
+		Set<String> stored = cache ? questInstance.loadEmptyPredicates() : null;
+		if (stored != null) {
+			emptyEntities = new ArrayList<>();
+			for (Predicate entity : entities)
+				if (stored.contains(entity.getName()))
+					emptyEntities.add(entity);
+			log.debug("{} empty entities have been loaded alongside the mapping snapshot", emptyEntities.size());
+			return emptyEntities;
+		}
+
+		long start = System.currentTimeMillis();
+		// the entities without mappings are not probed
+		final List<Predicate> mapped = new ArrayList<>();
+		for (Predicate entity : entities)
+			if (questInstance.getEngine().hasMappings(entity))
+				mapped.add(entity);
+
+		Set<Integer> nonEmpty = new HashSet<>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat("ontop-empties-%d").setDaemon(true).build());
+		try {
+			List<Future<Set<Integer>>> futures = new ArrayList<>();
+			for (int from = 0; from < mapped.size(); from += batchSize) {
+				final int batchFrom = from;
+				final int batchTo = Math.min(from + batchSize, mapped.size());
+				futures.add(executor.submit(new Callable<Set<Integer>>() {
+					@Override
+					public Set<Integer> call() throws OBDAException {
+						QuestConnection poolConn = questInstance.getConnection();
+						try {
+							QuestStatement st = poolConn.createStatement();
+							try {
+								return getNonEmptyEntities(st, mapped, batchFrom, batchTo);
+							}
+							finally {
+								st.close();
+							}
+						}
+						finally {
+							poolConn.close();
+						}
+					}
+				}));
+			}
+			for (Future<Set<Integer>> future : futures)
+				nonEmpty.addAll(future.get());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OBDAException(e);
+		}
+		catch (ExecutionException e) {
+			throw new OBDAException("Cannot check the empty entities", e.getCause());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		Set<Predicate> nonEmptyEntities = new HashSet<>();
+		for (int i : nonEmpty)
+			nonEmptyEntities.add(mapped.get(i));
+		emptyEntities = new ArrayList<>();
+		Set<String> names = new HashSet<>();
+		for (Predicate entity : entities)
+			if (!nonEmptyEntities.contains(entity)) {
+				emptyEntities.add(entity);
+				names.add(entity.getName());
+			}
+		log.debug("{} empty entities out of {} ({} with mappings) in {} ms", emptyEntities.size(), entities.size(),
+				mapped.size(), System.currentTimeMillis() - start);
+
+		if (cache)
+			questInstance.storeEmptyPredicates(names);
+		return emptyEntities;
+	}
+
+	/**
+	 * Returns the indexes of the entities from (inclusive) to (exclusive) with instances.
+	 * If the batch fails, the entities are checked one by one; an entity that cannot be
+	 * checked is not reported as empty.
+	 */
+	private static Set<Integer> getNonEmptyEntities(QuestStatement st, List<Predicate> entities, int from, int to) {
+		List<String> queries = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			Predicate entity = entities.get(i);
+			if (entity.getArity() == 1)
+				queries.add(String.format("SELECT ?x WHERE {?x a <%s>.}", entity.getName()));
+			else
+				queries.add(String.format("SELECT * WHERE {?x <%s> ?y.}", entity.getName()));
+		}
+
+		Set<Integer> result = new HashSet<>();
+		try {
+			for (int i : st.getNonEmptyQueries(queries))
+				result.add(from + i);
+		}
+		catch (RuntimeException e) {
+			if (to - from > 1) {
+				log.debug("Batch of {} entities failed, checking them one by one: {}", to - from, e.getMessage());
+				for (int i = from; i < to; i++)
+					result.addAll(getNonEmptyEntities(st, entities, i, i + 1));
+			}
+			else {
+				log.warn("Cannot check whether {} is empty: {}", entities.get(from), e.getMessage());
+				result.add(from);
+			}
+		}
+		return result;
+	}
+
 	public int getEConceptsSize() {
 		return nEmptyConcepts;
 	}
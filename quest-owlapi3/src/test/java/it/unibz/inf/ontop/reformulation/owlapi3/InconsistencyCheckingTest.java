@@ -30,6 +30,8 @@ import org.junit.Test;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.*;
 
+import java.util.List;
+
 import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.Class;
 import static org.semanticweb.owlapi.apibinding.OWLFunctionalSyntaxFactory.*;
 
@@ -67,7 +69,10 @@ public class InconsistencyCheckingTest extends TestCase{
 	}
 	
 	private void startReasoner() {
-		QuestPreferences p = new QuestPreferences();
+		startReasoner(new QuestPreferences());
+	}
+
+	private void startReasoner(QuestPreferences p) {
 		p.setCurrentValueOf(QuestPreferences.ABOX_MODE, QuestConstants.CLASSIC);
 		p.setCurrentValueOf(QuestPreferences.OPTIMIZE_EQUIVALENCES, "true");
 
@@ -157,4 +162,63 @@ public class InconsistencyCheckingTest extends TestCase{
 		assertFalse(consistent);
 
 	} 
+
+	@Test
+	public void testAllInconsistenciesReported() throws OWLOntologyCreationException {
+
+		//Male(a), Female(a), disjoint(Male, Female), hasAge(a, 18), hasAge(a, 21), func(hasAge)
+		manager.addAxiom(ontology, ClassAssertion(c1, a));
+		manager.addAxiom(ontology, ClassAssertion(c2, a));
+		manager.addAxiom(ontology, DisjointClasses(c1, c2));
+		manager.addAxiom(ontology, DataPropertyAssertion(d1, a, Literal(18)));
+		manager.addAxiom(ontology, DataPropertyAssertion(d1, a, Literal(21)));
+		manager.addAxiom(ontology, FunctionalDataProperty(d1));
+		manager.addAxiom(ontology, FunctionalObjectProperty(r1));
+
+		startReasoner();
+
+		boolean consistent = reasoner.isQuestConsistent();
+		assertFalse(consistent);
+		assertEquals(2, reasoner.getInconsistentAxioms().size());
+		assertEquals(reasoner.getInconsistentAxioms().get(0), reasoner.getInconsistentAxiom());
+	}
+
+	@Test
+	public void testAllInconsistenciesReportedByParallelProbes() throws OWLOntologyCreationException {
+
+		//Male(a), Female(a), disjoint(Male, Female), hasMother(a, b), hasFather(a, b), disjoint(hasMother, hasFather),
+		//hasAge(a, 18), hasAge(a, 21), func(hasAge), func(hasMother), func(hasAgeFirst)
+		manager.addAxiom(ontology, ClassAssertion(c1, a));
+		manager.addAxiom(ontology, ClassAssertion(c2, a));
+		manager.addAxiom(ontology, DisjointClasses(c1, c2));
+		manager.addAxiom(ontology, ObjectPropertyAssertion(r1, a, b));
+		manager.addAxiom(ontology, ObjectPropertyAssertion(r2, a, b));
+		manager.addAxiom(ontology, DisjointObjectProperties(r1, r2));
+		manager.addAxiom(ontology, DataPropertyAssertion(d2, a, Literal(18)));
+		manager.addAxiom(ontology, DataPropertyAssertion(d2, a, Literal(21)));
+		manager.addAxiom(ontology, FunctionalDataProperty(d2));
+		manager.addAxiom(ontology, FunctionalObjectProperty(r1));
+		manager.addAxiom(ontology, FunctionalDataProperty(d1));
+
+		// each probe is a batch of its own and the batches run on 3 connections of the pool
+		QuestPreferences p = new QuestPreferences();
+		p.setCurrentValueOf(QuestPreferences.CONSISTENCY_BATCH_SIZE, "1");
+		p.setCurrentValueOf(QuestPreferences.CONSISTENCY_THREADS, "3");
+		startReasoner(p);
+
+		assertFalse(reasoner.isQuestConsistent());
+		assertEquals(3, reasoner.getInconsistentAxioms().size());
+		assertEquals(reasoner.getInconsistentAxioms().get(0), reasoner.getInconsistentAxiom());
+
+		// the same axioms are reported when all the probes are checked by a single query
+		List<Object> parallel = reasoner.getInconsistentAxioms();
+		reasoner.dispose();
+		p = new QuestPreferences();
+		p.setCurrentValueOf(QuestPreferences.CONSISTENCY_BATCH_SIZE, "100");
+		p.setCurrentValueOf(QuestPreferences.CONSISTENCY_THREADS, "1");
+		startReasoner(p);
+
+		assertFalse(reasoner.isQuestConsistent());
+		assertEquals(parallel, reasoner.getInconsistentAxioms());
+	}
 }
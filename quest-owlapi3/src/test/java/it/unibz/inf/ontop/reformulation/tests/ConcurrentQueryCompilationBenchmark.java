@@ -0,0 +1,45 @@
+package it.unibz.inf.ontop.reformulation.tests;
+
+import it.unibz.inf.ontop.owlrefplatform.owlapi.QuestOWL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reports the throughput of the translation of SPARQL queries into SQL for
+ * 1 up to (number of cores) threads sharing one reasoner (not part of the
+ * unit tests: run the main method from the quest-owlapi3 directory).
+ */
+public class ConcurrentQueryCompilationBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(ConcurrentQueryCompilationBenchmark.class);
+
+	public static void main(String[] args) throws Exception {
+		int queries = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		ConcurrentQueryCompilationTest test = new ConcurrentQueryCompilationTest();
+		test.setUp();
+		try {
+			QuestOWL reasoner = test.createReasoner();
+			try {
+				// each run translates fresh queries, the first one warms up the JIT
+				ConcurrentQueryCompilationTest.translate(reasoner, queries, 0, cores);
+				int offset = queries;
+				for (int threads = 1; threads <= cores; threads *= 2) {
+					long start = System.nanoTime();
+					ConcurrentQueryCompilationTest.translate(reasoner, queries, offset, threads);
+					long time = System.nanoTime() - start;
+					offset += queries;
+					log.info(String.format("%d threads: %.0f translations/s", threads,
+							queries / (time / 1_000_000_000.0)));
+				}
+			}
+			finally {
+				reasoner.dispose();
+			}
+		}
+		finally {
+			test.tearDown();
+		}
+	}
+}
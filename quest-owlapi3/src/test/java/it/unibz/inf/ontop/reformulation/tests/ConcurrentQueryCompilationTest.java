@@ -0,0 +1,172 @@
+package it.unibz.inf.ontop.reformulation.tests;
+
+import it.unibz.inf.ontop.io.ModelIOManager;
+import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.OBDAModel;
+import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
+import it.unibz.inf.ontop.owlrefplatform.core.QuestConstants;
+import it.unibz.inf.ontop.owlrefplatform.core.QuestPreferences;
+import it.unibz.inf.ontop.owlrefplatform.owlapi.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Translates SPARQL queries into SQL from several threads sharing one
+ * reasoner, and compares the translations with the ones obtained sequentially
+ * (see {@link ConcurrentQueryCompilationBenchmark} for the throughput).
+ */
+public class ConcurrentQueryCompilationTest {
+
+	private static final String PREFIX = "PREFIX : <http://it.unibz.inf/obda/test/simple#>\n";
+
+	/*
+	 * Shapes of the queries: DISTINCT and ORDER BY are mixed on purpose because
+	 * they change the SQL generated for the same body. The LIMIT makes each query
+	 * (and its template) distinct, so that no translation comes from a cache.
+	 */
+	private static final String[] SHAPES = {
+		"SELECT ?x ?v WHERE { ?x a :A ; :U ?v } LIMIT %d",
+		"SELECT DISTINCT ?x ?y WHERE { ?x :P ?y . ?y a :A } LIMIT %d",
+		"SELECT ?x ?y ?v WHERE { ?x :P ?y . OPTIONAL { ?y :U ?v } } ORDER BY ?v LIMIT %d",
+		"SELECT DISTINCT ?x WHERE { { ?x a :A } UNION { ?x :P ?y . ?y :U ?v } } ORDER BY ?x LIMIT %d"
+	};
+
+	final String owlfile = "src/test/resources/test/simplemapping.owl";
+	final String obdafile = "src/test/resources/test/simplemapping.obda";
+
+	private Connection conn;
+	private OBDAModel obdaModel;
+	private OWLOntology ontology;
+
+	@Before
+	public void setUp() throws Exception {
+		conn = DriverManager.getConnection("jdbc:h2:mem:questjunitdb", "sa", "");
+		executeScript("src/test/resources/test/simplemapping-create-h2.sql");
+
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+		ontology = manager.loadOntologyFromOntologyDocument(new File(owlfile));
+
+		OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
+		obdaModel = fac.getOBDAModel();
+		ModelIOManager ioManager = new ModelIOManager(obdaModel);
+		ioManager.load(obdafile);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		executeScript("src/test/resources/test/simplemapping-drop-h2.sql");
+		conn.close();
+	}
+
+	private void executeScript(String file) throws Exception {
+		StringBuilder bf = new StringBuilder();
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = in.readLine()) != null)
+				bf.append(line);
+		}
+		try (Statement st = conn.createStatement()) {
+			st.executeUpdate(bf.toString());
+		}
+		conn.commit();
+	}
+
+	QuestOWL createReasoner() throws Exception {
+		QuestPreferences p = new QuestPreferences();
+		p.setCurrentValueOf(QuestPreferences.ABOX_MODE, QuestConstants.VIRTUAL);
+		QuestOWLConfiguration config = QuestOWLConfiguration.builder().obdaModel(obdaModel).preferences(p).build();
+		return new QuestOWLFactory().createReasoner(ontology, config);
+	}
+
+	static String getQuery(int i) {
+		return PREFIX + String.format(SHAPES[i % SHAPES.length], i + 1);
+	}
+
+	@Test
+	public void testConcurrentTranslations() throws Exception {
+		int queries = 400;
+		int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+		List<String> expected = new ArrayList<>(queries);
+		QuestOWL reference = createReasoner();
+		try {
+			QuestOWLStatement st = reference.getConnection().createStatement();
+			for (int i = 0; i < queries; i++)
+				expected.add(st.getUnfolding(getQuery(i)));
+			st.close();
+		}
+		finally {
+			reference.dispose();
+		}
+
+		QuestOWL reasoner = createReasoner();
+		try {
+			List<String> actual = translate(reasoner, queries, 0, threads);
+			for (int i = 0; i < queries; i++)
+				assertEquals(getQuery(i), expected.get(i), actual.get(i));
+		}
+		finally {
+			reasoner.dispose();
+		}
+	}
+
+	/**
+	 * Translates the queries from offset to offset + n by the given number of threads,
+	 * each with its own statement
+	 */
+	static List<String> translate(final QuestOWL reasoner, final int n, final int offset, int threads) throws Exception {
+		final String[] sql = new String[n];
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> futures = new ArrayList<>(threads);
+			for (int t = 0; t < threads; t++) {
+				final int first = t, step = threads;
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						QuestOWLConnection conn = reasoner.getConnection();
+						QuestOWLStatement st = conn.createStatement();
+						try {
+							for (int i = first; i < n; i += step)
+								sql[i] = st.getUnfolding(getQuery(offset + i));
+						}
+						finally {
+							st.close();
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures)
+				future.get();
+		}
+		finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+		List<String> result = new ArrayList<>(n);
+		for (String s : sql)
+			result.add(s);
+		return result;
+	}
+}
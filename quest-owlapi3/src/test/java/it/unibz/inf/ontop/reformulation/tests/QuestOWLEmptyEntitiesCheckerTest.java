@@ -143,6 +143,31 @@ public class QuestOWLEmptyEntitiesCheckerTest {
 
 	}
 
+	/**
+	 * Test the batched mode (the default of the reasoner) gives the same empty
+	 * concepts and roles
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testBatchedEmptyEntities() throws Exception {
+		QuestOWLEmptyEntitiesChecker empties = reasoner.getEmptyEntitiesChecker();
+		Iterator<Predicate> iterator = empties.iEmptyConcepts();
+		while (iterator.hasNext()){
+			emptyConcepts.add(iterator.next());
+		}
+		iterator = empties.iEmptyRoles();
+		while (iterator.hasNext()){
+			emptyRoles.add(iterator.next());
+		}
+
+		log.info("Empty concept/s: " + emptyConcepts + ", empty role/s: " + emptyRoles);
+		assertEquals(1, emptyConcepts.size());
+		assertEquals(1, empties.getEConceptsSize());
+		assertEquals(2, emptyRoles.size());
+		assertEquals(2, empties.getERolesSize());
+	}
+
 	private void dropTables() throws SQLException, IOException {
 
 		Statement st = connection.createStatement();
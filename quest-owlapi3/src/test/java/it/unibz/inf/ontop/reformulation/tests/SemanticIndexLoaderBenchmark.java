@@ -0,0 +1,95 @@
+package it.unibz.inf.ontop.reformulation.tests;
+
+import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.Predicate.COL_TYPE;
+import it.unibz.inf.ontop.model.URIConstant;
+import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
+import it.unibz.inf.ontop.ontology.Assertion;
+import it.unibz.inf.ontop.ontology.AssertionFactory;
+import it.unibz.inf.ontop.ontology.Ontology;
+import it.unibz.inf.ontop.ontology.OntologyFactory;
+import it.unibz.inf.ontop.ontology.OntologyVocabulary;
+import it.unibz.inf.ontop.ontology.impl.AssertionFactoryImpl;
+import it.unibz.inf.ontop.ontology.impl.OntologyFactoryImpl;
+import it.unibz.inf.ontop.owlrefplatform.core.abox.RDBMSSIRepositoryManager;
+import it.unibz.inf.ontop.owlrefplatform.core.abox.SemanticIndexLoader;
+import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.TBoxReasonerImpl;
+import org.h2.jdbcx.JdbcDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports the throughput of the Semantic Index loader (and the time each stage
+ * of the pipeline waits for the others) with 1 thread in each stage and with
+ * (number of cores) parsers and encoders and several writers, on an in-memory
+ * H2 database (not part of the unit tests: run the main method).
+ */
+public class SemanticIndexLoaderBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(SemanticIndexLoaderBenchmark.class);
+
+	private static final String URL = "jdbc:h2:mem:semantic_index_loader_benchmark;DB_CLOSE_DELAY=-1";
+	private static final String NS = "http://example.org/benchmark#";
+
+	private static final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
+	private static final OntologyFactory ofac = OntologyFactoryImpl.getInstance();
+	private static final AssertionFactory afac = AssertionFactoryImpl.getInstance();
+
+	public static void main(String[] args) throws Exception {
+		int individuals = (args.length > 0) ? Integer.parseInt(args[0]) : 200_000;
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		OntologyVocabulary vb = ofac.createVocabulary();
+		vb.createClass(NS + "C");
+		vb.createObjectProperty(NS + "next");
+		vb.createDataProperty(NS + "value");
+		Ontology ontology = ofac.createOntology(vb);
+
+		List<Assertion> assertions = new ArrayList<>(3 * individuals);
+		for (int i = 0; i < individuals; i++) {
+			URIConstant individual = fac.getConstantURI(NS + "i" + i);
+			assertions.add(afac.createClassAssertion(NS + "C", individual));
+			if (i > 0)
+				assertions.add(afac.createObjectPropertyAssertion(NS + "next", fac.getConstantURI(NS + "i" + (i - 1)), individual));
+			assertions.add(afac.createDataPropertyAssertion(NS + "value", individual, fac.getConstantLiteral(String.valueOf(i), COL_TYPE.INTEGER)));
+		}
+
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL(URL);
+		dataSource.setUser("sa");
+		dataSource.setPassword("");
+
+		try (Connection conn = dataSource.getConnection()) {
+			// the first run warms up the JIT
+			load(ontology, conn, dataSource, assertions, cores, Math.max(2, cores / 2));
+			load(ontology, conn, dataSource, assertions, 1, 1);
+			load(ontology, conn, dataSource, assertions, cores, Math.max(2, cores / 2));
+
+			try (Statement st = conn.createStatement()) {
+				st.execute("DROP ALL OBJECTS");
+			}
+		}
+	}
+
+	/**
+	 * Loads the assertions into a new repository
+	 */
+	private static void load(Ontology ontology, Connection conn, JdbcDataSource dataSource, List<Assertion> assertions,
+							 int threads, int writers) throws Exception {
+		RDBMSSIRepositoryManager repository = new RDBMSSIRepositoryManager(TBoxReasonerImpl.create(ontology), ontology.getVocabulary());
+		repository.generateMetadata();
+		try (Statement st = conn.createStatement()) {
+			st.execute("DROP ALL OBJECTS");
+		}
+		repository.createDBSchemaAndInsertMetadata(conn);
+
+		SemanticIndexLoader loader = new SemanticIndexLoader(repository, conn, dataSource, threads, threads, writers, 2 * threads);
+		loader.load(SemanticIndexLoader.fromIterator(assertions.iterator(), 1000));
+		log.info(String.format("%d parsers and encoders, %d writers: %s", threads, writers, loader.getStatistics()));
+	}
+}
@@ -20,8 +20,9 @@ package it.unibz.inf.ontop.sesame;
  * #L%
  */
 
-import info.aduna.iteration.CloseableIteration;
 import info.aduna.iteration.CloseableIteratorIteration;
+import info.aduna.iteration.EmptyIteration;
+import info.aduna.iteration.ExceptionConvertingIteration;
 import info.aduna.iteration.Iteration;
 import it.unibz.inf.ontop.model.OBDAException;
 import it.unibz.inf.ontop.owlrefplatform.core.QuestConstants;
@@ -39,6 +40,7 @@ import org.openrdf.repository.RepositoryResult;
 import org.openrdf.repository.UnknownTransactionStateException;
 import org.openrdf.rio.*;
 import org.openrdf.rio.helpers.BasicParserSettings;
+import org.openrdf.rio.ntriples.NTriplesUtil;
 
 import java.io.*;
 import java.net.URISyntaxException;
@@ -483,20 +485,17 @@ throw new RuntimeException(e);
 			throws RepositoryException, RDFHandlerException {
 		//Exports all statements with a specific subject, predicate 
 		//and/or object from the repository, optionally from the specified contexts. 
+		//The statements are streamed to the handler as they are read.
 		RepositoryResult<Statement> stms = getStatements(subj, pred, obj, includeInferred, contexts);
-
-		handler.startRDF();
-		// handle
-		if (stms != null) {
-			while (stms.hasNext()) {
-				{
-					Statement st = stms.next();
-					if (st!=null)
-						handler.handleStatement(st);
-				}
-			}
+		try {
+			handler.startRDF();
+			while (stms.hasNext())
+				handler.handleStatement(stms.next());
+			handler.endRDF();
+		}
+		finally {
+			stms.close();
 		}
-		handler.endRDF();
 
 	}
 
@@ -553,52 +552,22 @@ throw new RuntimeException(e);
 		//predicate and/or object from the repository.
 		//The result is optionally restricted to the specified set of named contexts. 
 		
-		//construct query for it
-		String queryString = "CONSTRUCT {";
-		String s="", p="", o="";
-		if (subj == null)
-			s = "?s ";
-		else {		
-			s = subj.toString();
-			if (subj instanceof URI) {
-				s = "<" + s + ">";
-			}
-		}
-		
-		if (pred == null)
-			p = " ?p ";
-		else 
-			p = "<" + pred.stringValue()  + ">";
-		if (obj == null)
-			o = " ?o ";
-		else {
-			if (obj instanceof URI) {
-				o = "<" + obj.stringValue() + ">";
-			} else {
-				o = obj.stringValue();
-			}
-		}
-		queryString+= s+p+o+"} WHERE {"+s+p+o+"}";	
+		//The statements are read lazily from the result set of a CONSTRUCT query.
+		if (contexts.length > 0 && contexts[0] != null)
+			return new RepositoryResult<Statement>(new EmptyIteration<Statement, RepositoryException>());
 		
-		//execute construct query
+		String pattern = getTriplePattern(subj, pred, obj);
+		String queryString = "CONSTRUCT {" + pattern + "} WHERE {" + pattern + "}";
 		try {
-			List<Statement> list = new LinkedList<Statement>();
-			
-			if (contexts.length == 0 || (contexts.length > 0 && contexts[0] == null)) {
-					GraphQuery query = prepareGraphQuery(QueryLanguage.SPARQL,
-							queryString);
-					GraphQueryResult result = query.evaluate();
-
-					// System.out.println("result: "+result.hasNext());
-					while (result.hasNext())
-						list.add(result.next());
-					// result.close();
-			}
-			CloseableIteration<Statement, RepositoryException> iter = new CloseableIteratorIteration<Statement, RepositoryException>(
-					list.iterator());
-			RepositoryResult<Statement> repoResult = new RepositoryResult<Statement>(iter);
-
-			return repoResult;
+			GraphQuery query = prepareGraphQuery(QueryLanguage.SPARQL, queryString);
+			GraphQueryResult result = query.evaluate();
+			return new RepositoryResult<Statement>(
+					new ExceptionConvertingIteration<Statement, RepositoryException>(result) {
+						@Override
+						protected RepositoryException convert(Exception e) {
+							return new RepositoryException(e);
+						}
+					});
 		} catch (MalformedQueryException e) {
 			throw new RepositoryException(e);
 
@@ -608,6 +577,17 @@ throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * The triple pattern of the statements with the given subject, predicate and object
+	 * (any of which can be null)
+	 */
+	private static String getTriplePattern(Resource subj, org.openrdf.model.URI pred, Value obj) {
+		String s = (subj == null) ? "?s" : NTriplesUtil.toNTriplesString(subj);
+		String p = (pred == null) ? "?p" : NTriplesUtil.toNTriplesString(pred);
+		String o = (obj == null) ? "?o" : NTriplesUtil.toNTriplesString(obj);
+		return " " + s + " " + p + " " + o + " ";
+	}
+
 	@Override
     public ValueFactory getValueFactory() {
 		//Gets a ValueFactory for this RepositoryConnection. 
@@ -628,14 +608,19 @@ throw new RuntimeException(e);
                                 boolean includeInferred, Resource... contexts) throws RepositoryException {
 		//Checks whether the repository contains statements with a specific subject, 
 		//predicate and/or object, optionally in the specified contexts. 
-		    RepositoryResult<Statement> stIter = getStatements(subj, pred,
-                     obj, includeInferred, contexts);
-             try {
-                 return stIter.hasNext();
-             } finally {
-                 stIter.close();
-             }
-         }
+		if (contexts.length > 0 && contexts[0] != null)
+			return false;
+		
+		//An ASK query: the SQL does not need to return all the statements
+		String pattern = getTriplePattern(subj, pred, obj);
+		try {
+			return prepareBooleanQuery(QueryLanguage.SPARQL, "ASK {" + pattern + "}").evaluate();
+		} catch (MalformedQueryException e) {
+			throw new RepositoryException(e);
+		} catch (QueryEvaluationException e) {
+			throw new RepositoryException(e);
+		}
+	}
 
 
 
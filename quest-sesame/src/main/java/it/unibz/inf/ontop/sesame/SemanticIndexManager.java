@@ -23,23 +23,39 @@ package it.unibz.inf.ontop.sesame;
 import it.unibz.inf.ontop.ontology.ImmutableOntologyVocabulary;
 import it.unibz.inf.ontop.ontology.Ontology;
 import it.unibz.inf.ontop.owlapi.OWLAPIABoxIterator;
+import it.unibz.inf.ontop.ontology.Assertion;
 import it.unibz.inf.ontop.owlrefplatform.core.abox.RDBMSSIRepositoryManager;
+import it.unibz.inf.ontop.owlrefplatform.core.abox.SemanticIndexLoader;
 import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.TBoxReasoner;
 import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.TBoxReasonerImpl;
 import it.unibz.inf.ontop.owlrefplatform.owlapi.QuestOWL;
+import org.openrdf.model.Statement;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.openrdf.rio.helpers.StatementCollector;
+import org.openrdf.rio.ntriples.NTriplesParser;
 import org.openrdf.rio.turtle.TurtleParser;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 /***
  * An utility to setup and maintain a semantic index repository independently
@@ -57,6 +73,8 @@ public class SemanticIndexManager {
 
 	private final RDBMSSIRepositoryManager dataRepository;
 
+	private volatile SemanticIndexLoader.Statistics loadStatistics;
+
 	private final Logger log = LoggerFactory.getLogger(this.getClass());
 
 	public SemanticIndexManager(OWLOntology tbox, Connection connection) throws Exception {
@@ -72,6 +90,15 @@ public class SemanticIndexManager {
 		log.debug("TBox has been processed. Ready to ");
 	}
 
+	/**
+	 * @return the statistics of the current or last load of a file (throughput and 
+	 *         time each stage of the pipeline waited for the others), or null if no 
+	 *         file has been loaded
+	 */
+	public SemanticIndexLoader.Statistics getLoadStatistics() {
+		return loadStatistics;
+	}
+
 	public void restoreRepository() throws SQLException {
 		dataRepository.loadMetadata(conn);
 
@@ -114,71 +141,167 @@ public class SemanticIndexManager {
 		return result;
 	}
 
+	/**
+	 * Loads the file through the connection of the manager with one parser thread 
+	 * and one encoder thread per processor.
+	 * 
+	 * Each chunk is written in its own transaction, so the chunks have commitInterval 
+	 * statements (or batchSize statements if commitInterval is not positive) and 
+	 * are inserted in a single JDBC batch per table.
+	 *
+	 * @param commitInterval number of statements between two commits
+	 * @param batchSize number of statements in each chunk if commitInterval is not positive
+	 */
 	public int insertDataNTriple(final String ntripleFile, final String baseURI, final int commitInterval, final int batchSize)
 			throws SQLException, RDFParseException, RDFHandlerException, FileNotFoundException, IOException {
 
-		final TurtleParser parser = new TurtleParser();
-		// NTriplesParser parser = new NTriplesParser();
+		int threads = Runtime.getRuntime().availableProcessors();
+		int chunkSize = (commitInterval > 0) ? commitInterval : batchSize;
+		return insertDataNTriple(ntripleFile, baseURI, null, chunkSize, threads, 1);
+	}
 
-		final SesameRDFIterator aBoxIter = new SesameRDFIterator();
-		
-		parser.setRDFHandler(aBoxIter);
-		
+	/**
+	 * Loads the file with a pipeline of parsers, encoders and writers (see {@link SemanticIndexLoader}).
+	 * N-Triples files (.nt) are split into chunks of lines, which are parsed in parallel; other 
+	 * files are parsed as Turtle by a single thread (the statements are converted in parallel).
+	 *
+	 * @param dataSource the data source of the connections of the writers 
+	 *                   (null if the data is written by a single writer through the connection of the manager)
+	 * @param chunkSize number of statements in each chunk (each chunk is committed separately)
+	 * @param threads number of parser threads and of encoder threads
+	 * @param writers number of writer threads
+	 */
+	public int insertDataNTriple(final String file, final String baseURI, DataSource dataSource, final int chunkSize, int threads, int writers)
+			throws SQLException, RDFParseException, RDFHandlerException, FileNotFoundException, IOException {
 
-		Thread t = new Thread() {
-			@Override
-			public void run() {
-
-				try {
-					parser.parse(new BufferedReader(new FileReader(ntripleFile)), baseURI);
-				} catch (RDFParseException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				} catch (RDFHandlerException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				} catch (FileNotFoundException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				} catch (IOException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+		final int size = Math.max(chunkSize, 1);
+		SemanticIndexLoader loader = new SemanticIndexLoader(dataRepository, conn, dataSource, threads, threads, writers, 2 * threads);
+		loadStatistics = loader.getStatistics();
+		
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		try {
+			SemanticIndexLoader.Source source;
+			Thread turtleParser = null;
+			
+			if (file.endsWith(".nt")) {
+				source = new SemanticIndexLoader.Source() {
+					@Override
+					public List<Assertion> nextChunk() throws Exception {
+						StringBuilder lines = new StringBuilder();
+						synchronized (reader) {
+							String line;
+							for (int i = 0; i < size && (line = reader.readLine()) != null; i++) 
+								lines.append(line).append('\n');
+						}
+						if (lines.length() == 0)
+							return null;
+						
+						NTriplesParser parser = new NTriplesParser();
+						// the same blank node label in different chunks is the same blank node
+						parser.setPreserveBNodeIDs(true);
+						StatementCollector collector = new StatementCollector();
+						parser.setRDFHandler(collector);
+						parser.parse(new StringReader(lines.toString()), baseURI);
+						return toAssertions(collector.getStatements());
+					}
+				};
 			}
-		};
-
-		final int[] val = new int[1];
-
-		Thread t2 = new Thread() {
-
-			@Override
-			public void run() {
-				try {
-					val[0] = dataRepository.insertData(conn, aBoxIter, commitInterval, batchSize);
-				} catch (SQLException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
-				log.info("Loaded {} items into the DB.", val[0]);
-
+			else {
+				final BlockingQueue<List<Statement>> queue = new ArrayBlockingQueue<>(2 * threads);
+				final List<Statement> end = new ArrayList<>(0);
+				final AtomicReference<Exception> error = new AtomicReference<>();
+				
+				turtleParser = new Thread("ontop-turtle-parser") {
+					@Override
+					public void run() {
+						TurtleParser parser = new TurtleParser();
+						parser.setRDFHandler(new RDFHandlerBase() {
+							private List<Statement> chunk = new ArrayList<>(size);
+							
+							@Override
+							public void handleStatement(Statement st) throws RDFHandlerException {
+								chunk.add(st);
+								if (chunk.size() == size) 
+									put(chunk);
+							}
+
+							@Override
+							public void endRDF() throws RDFHandlerException {
+								if (!chunk.isEmpty()) 
+									put(chunk);
+							}
+							
+							private void put(List<Statement> statements) throws RDFHandlerException {
+								try {
+									queue.put(statements);
+								} 
+								catch (InterruptedException e) {
+									throw new RDFHandlerException(e);
+								}
+								chunk = new ArrayList<>(size);
+							}
+						});
+						try {
+							parser.parse(reader, baseURI);
+						}
+						catch (Exception e) {
+							error.set(e);
+						}
+						finally {
+							try {
+								queue.put(end);
+							} 
+							catch (InterruptedException e) {
+								// no-op: the load has been stopped
+							}
+						}
+					}
+				};
+				turtleParser.setDaemon(true);
+				turtleParser.start();
+				
+				source = new SemanticIndexLoader.Source() {
+					@Override
+					public List<Assertion> nextChunk() throws Exception {
+						List<Statement> statements = queue.take();
+						if (statements == end) {
+							queue.put(end);  // for the other parsers
+							if (error.get() != null)
+								throw error.get();
+							return null;
+						}
+						return toAssertions(statements);
+					}
+				};
 			}
-
-		};
-
-		t.start();
-		t2.start();
-		try {
-			t.join();
-
-			t2.join();
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			
+			int result;
+			try {
+				result = loader.load(source);
+			}
+			catch (SQLException e) {
+				if (e.getCause() instanceof RDFParseException)
+					throw (RDFParseException) e.getCause();
+				throw e;
+			}
+			finally {
+				if (turtleParser != null) 
+					turtleParser.interrupt();
+			}
+			log.info("Loaded {} items into the DB: {}", result, loader.getStatistics());
+			return result;
+		}
+		finally {
+			reader.close();
 		}
-		// EquivalentTriplePredicateIterator newData = new
-		// EquivalentTriplePredicateIterator(aBoxIter, equivalenceMaps);
+	}
 
-		return val[0];
+	private static List<Assertion> toAssertions(Collection<Statement> statements) {
+		List<Assertion> assertions = new ArrayList<>(statements.size());
+		SesameRDFIterator iterator = new SesameRDFIterator(statements.iterator());
+		while (iterator.hasNext()) 
+			assertions.add(iterator.next());
+		return assertions;
 	}
 
 }
@@ -0,0 +1,120 @@
+package it.unibz.inf.ontop.sesame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openrdf.model.Value;
+import org.openrdf.query.Binding;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.impl.BindingImpl;
+
+/**
+ * Solution of a tuple query backed by an array of values, one per binding name.
+ * The names and their positions are shared by all the solutions of a query result;
+ * a null value means that the name is unbound in this solution.
+ */
+public class SesameArrayBindingSet implements BindingSet {
+
+	private static final long serialVersionUID = 6287431540921093115L;
+
+	private final List<String> names;
+	private final Map<String, Integer> positions;
+	private final Value[] values;
+
+	SesameArrayBindingSet(List<String> names, Map<String, Integer> positions, Value[] values) {
+		this.names = names;
+		this.positions = positions;
+		this.values = values;
+	}
+
+	@Override
+	public Iterator<Binding> iterator() {
+		List<Binding> bindings = new ArrayList<>(values.length);
+		for (int i = 0; i < values.length; i++)
+			if (values[i] != null)
+				bindings.add(new BindingImpl(names.get(i), values[i]));
+		return bindings.iterator();
+	}
+
+	@Override
+	public Set<String> getBindingNames() {
+		Set<String> bound = new LinkedHashSet<>(values.length * 2);
+		for (int i = 0; i < values.length; i++)
+			if (values[i] != null)
+				bound.add(names.get(i));
+		return Collections.unmodifiableSet(bound);
+	}
+
+	@Override
+	public Binding getBinding(String bindingName) {
+		Value value = getValue(bindingName);
+		return (value == null) ? null : new BindingImpl(bindingName, value);
+	}
+
+	@Override
+	public boolean hasBinding(String bindingName) {
+		return getValue(bindingName) != null;
+	}
+
+	@Override
+	public Value getValue(String bindingName) {
+		Integer position = positions.get(bindingName);
+		return (position == null) ? null : values[position];
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Value value : values)
+			if (value != null)
+				size++;
+		return size;
+	}
+
+	/**
+	 * Same contract as the other binding sets of Sesame: two binding sets are equal
+	 * if they bind the same names to the same values
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (this == other)
+			return true;
+		if (!(other instanceof BindingSet))
+			return false;
+
+		BindingSet that = (BindingSet) other;
+		if (size() != that.size())
+			return false;
+
+		for (int i = 0; i < values.length; i++)
+			if (values[i] != null && !values[i].equals(that.getValue(names.get(i))))
+				return false;
+
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hashCode = 0;
+		for (int i = 0; i < values.length; i++)
+			if (values[i] != null)
+				hashCode ^= names.get(i).hashCode() ^ values[i].hashCode();
+		return hashCode;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (Binding binding : this) {
+			if (sb.length() > 1)
+				sb.append(";");
+			sb.append(binding);
+		}
+		return sb.append("]").toString();
+	}
+}
@@ -22,21 +22,13 @@ package it.unibz.inf.ontop.sesame;
 
 import it.unibz.inf.ontop.model.GraphResultSet;
 import it.unibz.inf.ontop.model.OBDAException;
-import it.unibz.inf.ontop.ontology.Assertion;
 import it.unibz.inf.ontop.owlrefplatform.core.QuestDBConnection;
 import it.unibz.inf.ontop.owlrefplatform.core.QuestDBStatement;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-
-import org.openrdf.model.Statement;
 import org.openrdf.query.GraphQuery;
 import org.openrdf.query.GraphQueryResult;
 import org.openrdf.query.MalformedQueryException;
 import org.openrdf.query.QueryEvaluationException;
-import org.openrdf.query.impl.GraphQueryResultImpl;
 import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFHandlerException;
 
@@ -54,54 +46,23 @@ public class SesameGraphQuery extends SesameAbstractQuery implements GraphQuery
 			throw new MalformedQueryException("Graph query expected!");
 	}
 
-	private Statement createStatement(Assertion assertion) {
-
-		SesameStatement stm = new SesameStatement(assertion);
-		if (stm.getSubject()!=null && stm.getPredicate()!=null && stm.getObject()!=null)
-			return stm;
-		else 
-			return null;
-	}
-
         @Override
 	public GraphQueryResult evaluate() throws QueryEvaluationException {
-		GraphResultSet res = null;
 		QuestDBStatement stm = null;
 		try {
 			stm = conn.createStatement();
-			res = (GraphResultSet) stm.execute(getQueryString());
-			
-			Map<String, String> namespaces = new HashMap<String, String>();
-			List<Statement> results = new LinkedList<Statement>();
-			if (res != null) {
-				while (res.hasNext()) {
-					List<Assertion> chunk = res.next();
-					for (Assertion as : chunk) {
-						Statement st = createStatement(as);
-						if (st!=null)
-							results.add(st);
-					}
-				}
-			}
-			
-			return new GraphQueryResultImpl(namespaces, results.iterator());
-			
-		} catch (OBDAException e) {
-			throw new QueryEvaluationException(e);
+			// the statements are read lazily, the result closes the statement
+			GraphResultSet res = (GraphResultSet) stm.execute(getQueryString());
+			return new SesameGraphQueryResult(res, stm);
 		}
-		finally{
+		catch (OBDAException e) {
 			try {
-				if (res != null)
-				res.close();
+				if (stm != null)
+					stm.close();
 			} catch (OBDAException e1) {
 				e1.printStackTrace();
 			}
-			try {
-				if (stm != null)
-						stm.close();
-			} catch (OBDAException e) {
-				e.printStackTrace();
-			}
+			throw new QueryEvaluationException(e);
 		}
 	}
 
@@ -109,10 +70,14 @@ public class SesameGraphQuery extends SesameAbstractQuery implements GraphQuery
 	public void evaluate(RDFHandler handler) throws QueryEvaluationException,
 			RDFHandlerException {
 		GraphQueryResult result =  evaluate();
-		handler.startRDF();
-		while (result.hasNext())
-			handler.handleStatement(result.next());
-		handler.endRDF();
-
+		try {
+			handler.startRDF();
+			while (result.hasNext())
+				handler.handleStatement(result.next());
+			handler.endRDF();
+		}
+		finally {
+			result.close();
+		}
 	}
 }
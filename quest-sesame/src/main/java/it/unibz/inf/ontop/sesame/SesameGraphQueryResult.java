@@ -0,0 +1,101 @@
+package it.unibz.inf.ontop.sesame;
+
+import it.unibz.inf.ontop.model.GraphResultSet;
+import it.unibz.inf.ontop.model.OBDAException;
+import it.unibz.inf.ontop.ontology.Assertion;
+import it.unibz.inf.ontop.owlrefplatform.core.QuestDBStatement;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.openrdf.model.Statement;
+import org.openrdf.query.GraphQueryResult;
+import org.openrdf.query.QueryEvaluationException;
+
+/**
+ * Statements of a CONSTRUCT or DESCRIBE query, read lazily from the graph
+ * result set. The result set and its statement are closed once the last
+ * statement has been read, or when the result is closed.
+ */
+public class SesameGraphQueryResult implements GraphQueryResult {
+
+	private final GraphResultSet res; // null if the query has no answers
+	private final QuestDBStatement stm;
+
+	// the statements of the current row of the result set
+	private final Deque<Statement> statements = new ArrayDeque<>();
+	private boolean closed = false;
+
+	SesameGraphQueryResult(GraphResultSet res, QuestDBStatement stm) {
+		this.res = res;
+		this.stm = stm;
+	}
+
+	@Override
+	public Map<String, String> getNamespaces() {
+		return Collections.emptyMap();
+	}
+
+	@Override
+	public boolean hasNext() throws QueryEvaluationException {
+		try {
+			while (statements.isEmpty()) {
+				if (closed)
+					return false;
+				if (res == null || !res.hasNext()) {
+					close();
+					return false;
+				}
+				for (Assertion assertion : res.next()) {
+					SesameStatement st = new SesameStatement(assertion);
+					if (st.getSubject() != null && st.getPredicate() != null && st.getObject() != null)
+						statements.add(st);
+				}
+			}
+			return true;
+		}
+		catch (OBDAException e) {
+			close();
+			throw new QueryEvaluationException(e);
+		}
+	}
+
+	@Override
+	public Statement next() throws QueryEvaluationException {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		return statements.poll();
+	}
+
+	@Override
+	public void remove() throws QueryEvaluationException {
+		throw new QueryEvaluationException("The query result is read-only. Elements cannot be removed");
+	}
+
+	@Override
+	public void close() throws QueryEvaluationException {
+		if (closed)
+			return;
+		closed = true;
+		statements.clear();
+		try {
+			if (res != null)
+				res.close();
+		}
+		catch (OBDAException e) {
+			throw new QueryEvaluationException(e);
+		}
+		finally {
+			try {
+				if (stm != null)
+					stm.close();
+			}
+			catch (OBDAException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
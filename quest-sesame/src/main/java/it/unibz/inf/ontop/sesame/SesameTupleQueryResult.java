@@ -21,35 +21,59 @@ package it.unibz.inf.ontop.sesame;
  */
 
 
+import it.unibz.inf.ontop.model.Constant;
 import it.unibz.inf.ontop.model.OBDAException;
+import it.unibz.inf.ontop.model.ObjectConstant;
 import it.unibz.inf.ontop.model.TupleResultSet;
 
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
-import org.openrdf.query.Binding;
+import org.openrdf.model.Value;
 import org.openrdf.query.BindingSet;
 import org.openrdf.query.QueryEvaluationException;
 import org.openrdf.query.TupleQueryResult;
-import org.openrdf.query.impl.MapBindingSet;
 
+/**
+ * Solutions of a SELECT query. The positions of the binding names are resolved
+ * once, and each row is read by column index into a {@link SesameArrayBindingSet}.
+ *
+ * The result set interns the URIs (and blank nodes) it reads, so their Sesame
+ * values are cached by identity: a URI repeated in the answers is converted only once.
+ */
 public class SesameTupleQueryResult implements TupleQueryResult {
 
-	TupleResultSet res;
-	List<String> signature;
-	Set<String> bindingNames;
-	
+	private static final int MAX_CACHED_VALUES = 10000;
+
+	private final TupleResultSet res;
+	private final List<String> signature;
+	private final Map<String, Integer> positions;
+
+	// the constant and the value of the previous row of each column
+	private final Constant[] lastConstants;
+	private final Value[] lastValues;
+	private final Map<Constant, Value> resourceCache = new IdentityHashMap<>();
+
+	private boolean ready = false; // the cursor is on a row that has not been returned yet
+
 	SesameTupleQueryResult(TupleResultSet res, List<String> signature){
 		if(res == null)
 			throw new NullPointerException();
 		this.res = res;
 		this.signature = signature;
-		this.bindingNames = new HashSet<String>(signature);
+		this.positions = new HashMap<>(signature.size() * 2);
+		for (int i = 0; i < signature.size(); i++)
+			positions.put(signature.get(i), i);
+		this.lastConstants = new Constant[signature.size()];
+		this.lastValues = new Value[signature.size()];
 	}
-	
+
 	@Override
 	public void close() throws QueryEvaluationException {
+		ready = false;
 		try {
 			res.close();
 		} catch (OBDAException e) {
@@ -59,8 +83,11 @@ public class SesameTupleQueryResult implements TupleQueryResult {
 
 	@Override
 	public boolean hasNext() throws QueryEvaluationException {
+		if (ready)
+			return true;
 		try {
-			return res.nextRow();
+			ready = res.nextRow();
+			return ready;
 		} catch (OBDAException e) {
 			throw new QueryEvaluationException(e);
 		}
@@ -68,27 +95,48 @@ public class SesameTupleQueryResult implements TupleQueryResult {
 
 	@Override
 	public BindingSet next() throws QueryEvaluationException {
-		MapBindingSet set = new MapBindingSet(this.signature.size() * 2);
-		for (String name : this.signature) {
-			Binding binding = createBinding(name, res, this.bindingNames);
-			if (binding != null) {
-				set.addBinding(binding);
+		if (!hasNext())
+			throw new NoSuchElementException();
+		ready = false;
+
+		Value[] values = new Value[signature.size()];
+		try {
+			for (int i = 0; i < values.length; i++)
+				values[i] = getValue(i, res.getConstant(i + 1));
+		} catch (OBDAException e) {
+			throw new QueryEvaluationException(e);
+		}
+		return new SesameArrayBindingSet(signature, positions, values);
+	}
+
+	private Value getValue(int i, Constant c) {
+		if (c == null)
+			return null;
+		if (c == lastConstants[i])
+			return lastValues[i];
+
+		Value value;
+		if (c instanceof ObjectConstant) {
+			value = resourceCache.get(c);
+			if (value == null) {
+				value = SesameHelper.getValue(c);
+				if (resourceCache.size() >= MAX_CACHED_VALUES)
+					resourceCache.clear();
+				resourceCache.put(c, value);
 			}
 		}
-		return set;
+		else
+			value = SesameHelper.getValue(c);
+
+		lastConstants[i] = c;
+		lastValues[i] = value;
+		return value;
 	}
 
 	@Override
 	public void remove() throws QueryEvaluationException {
 		throw new QueryEvaluationException("The query result is read-only. Elements cannot be removed");
 	}
-	
-
-	private Binding createBinding(String bindingName, TupleResultSet set, Set<String> bindingnames) {
-		SesameBindingSet bset = new SesameBindingSet(set, bindingnames);
-		return bset.getBinding(bindingName);
-	}
-
 
 	@Override
 	public List<String> getBindingNames() throws QueryEvaluationException {
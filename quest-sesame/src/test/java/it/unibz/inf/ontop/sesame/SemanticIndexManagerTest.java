@@ -0,0 +1,111 @@
+package it.unibz.inf.ontop.sesame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Loads files in which a blank node occurs in statements of different chunks:
+ * all its occurrences must get the same id in the Semantic Index
+ */
+public class SemanticIndexManagerTest {
+
+	private static final String NS = "http://example.org/si#";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Connection conn;
+	private SemanticIndexManager manager;
+
+	@Before
+	public void setUp() throws Exception {
+		conn = DriverManager.getConnection("jdbc:h2:mem:semantic_index_manager_test;DB_CLOSE_DELAY=-1", "sa", "");
+
+		OWLOntologyManager man = OWLManager.createOWLOntologyManager();
+		OWLDataFactory df = man.getOWLDataFactory();
+		OWLOntology tbox = man.createOntology(IRI.create(NS));
+		man.addAxiom(tbox, df.getOWLDeclarationAxiom(df.getOWLClass(IRI.create(NS + "C"))));
+		man.addAxiom(tbox, df.getOWLDeclarationAxiom(df.getOWLObjectProperty(IRI.create(NS + "p"))));
+
+		manager = new SemanticIndexManager(tbox, conn);
+		manager.setupRepository(true);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (Statement st = conn.createStatement()) {
+			st.execute("DROP ALL OBJECTS");
+		}
+		conn.close();
+	}
+
+	@Test
+	public void testBlankNodeAcrossNTriplesChunks() throws Exception {
+		File file = write("data.nt",
+				"_:b <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <" + NS + "C> .\n" +
+				"<" + NS + "x> <" + NS + "p> _:b .\n" +
+				"_:b <" + NS + "p> <" + NS + "y> .\n");
+
+		// a commit (and a chunk) after each statement
+		assertEquals(3, manager.insertDataNTriple(file.getPath(), NS, 1, 100));
+		checkSingleBlankNode();
+	}
+
+	@Test
+	public void testBlankNodeAcrossTurtleChunks() throws Exception {
+		File file = write("data.ttl",
+				"@prefix : <" + NS + "> .\n" +
+				"_:b a :C .\n" +
+				":x :p _:b .\n" +
+				"_:b :p :y .\n");
+
+		assertEquals(3, manager.insertDataNTriple(file.getPath(), NS, null, 1, 4, 1));
+		checkSingleBlankNode();
+		assertEquals(3, manager.getLoadStatistics().getWritten());
+		assertEquals(3, manager.getLoadStatistics().getParsed());
+	}
+
+	private File write(String name, String content) throws Exception {
+		File file = folder.newFile(name);
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			writer.write(content);
+		}
+		return file;
+	}
+
+	private void checkSingleBlankNode() throws Exception {
+		assertEquals(1, count("SELECT COUNT(*) FROM URIID WHERE URI NOT LIKE 'http:%'"));
+		assertEquals(1, count("SELECT COUNT(*) FROM QUEST_CLASS_ASSERTION WHERE ISBNODE"));
+		// the object of the first and the subject of the second property assertion
+		assertEquals(2, count("SELECT COUNT(*) FROM QUEST_OBJECT_PROPERTY_ASSERTION r, QUEST_CLASS_ASSERTION c " +
+				"WHERE (r.\"URI2\" = c.\"URI\" AND r.ISBNODE2) OR (r.\"URI1\" = c.\"URI\" AND r.ISBNODE)"));
+	}
+
+	private int count(String sql) throws Exception {
+		try (Statement st = conn.createStatement();
+			 ResultSet rs = st.executeQuery(sql)) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+}
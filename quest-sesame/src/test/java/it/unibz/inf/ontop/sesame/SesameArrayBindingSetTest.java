@@ -0,0 +1,65 @@
+package it.unibz.inf.ontop.sesame;
+
+import org.junit.Test;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.query.Binding;
+import org.openrdf.query.BindingSet;
+import org.openrdf.query.impl.MapBindingSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SesameArrayBindingSetTest {
+
+	private static final List<String> NAMES = Arrays.asList("x", "y", "z");
+
+	private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+	private static BindingSet create(Value... values) {
+		Map<String, Integer> positions = new HashMap<>();
+		for (int i = 0; i < NAMES.size(); i++)
+			positions.put(NAMES.get(i), i);
+		return new SesameArrayBindingSet(NAMES, positions, values);
+	}
+
+	@Test
+	public void testUnboundNames() {
+		BindingSet set = create(vf.createURI("http://example.org/a"), null, vf.createLiteral(3));
+		assertEquals(2, set.size());
+		assertTrue(set.hasBinding("x"));
+		assertFalse(set.hasBinding("y"));
+		assertFalse(set.hasBinding("w"));
+		assertNull(set.getValue("y"));
+		assertNull(set.getBinding("y"));
+		assertEquals(2, set.getBindingNames().size());
+
+		int n = 0;
+		for (Binding binding : set) {
+			assertNotNull(binding.getValue());
+			n++;
+		}
+		assertEquals(2, n);
+	}
+
+	@Test
+	public void testEqualsMapBindingSet() {
+		BindingSet set = create(vf.createURI("http://example.org/a"), null, vf.createLiteral("b"));
+
+		MapBindingSet expected = new MapBindingSet();
+		expected.addBinding("x", vf.createURI("http://example.org/a"));
+		expected.addBinding("z", vf.createLiteral("b"));
+
+		assertEquals(expected, set);
+		assertEquals(set, expected);
+		assertEquals(expected.hashCode(), set.hashCode());
+
+		expected.addBinding("y", vf.createLiteral("c"));
+		assertFalse(set.equals(expected));
+	}
+}
@@ -0,0 +1,124 @@
+package it.unibz.inf.ontop.sql;
+
+import it.unibz.inf.ontop.owlrefplatform.core.QuestConstants;
+import it.unibz.inf.ontop.owlrefplatform.core.QuestPreferences;
+import it.unibz.inf.ontop.r2rml.R2RMLManager;
+import it.unibz.inf.ontop.sesame.RepositoryConnection;
+import it.unibz.inf.ontop.sesame.SesameVirtualRepo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.repository.RepositoryResult;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.Scanner;
+
+import static org.junit.Assert.*;
+
+/**
+ * getStatements, hasStatement and exportStatements of the repository connection
+ * over a virtual repository
+ */
+public class SesameGetStatementsTest {
+
+	private static final String NS = "http://www.semanticweb.org/ontologies/2013/7/untitled-ontology-150#";
+
+	static String owlfile = "src/test/resources/userconstraints/uc.owl";
+	static String r2rmlfile = "src/test/resources/userconstraints/uc.ttl";
+	static String uc_create = "src/test/resources/userconstraints/create.sql";
+
+	static String jdbcUrl = "jdbc:h2:mem:countries_statements_test";
+
+	private Connection sqlConnection;
+	private RepositoryConnection conn;
+	private ValueFactory vf;
+
+	@Before
+	public void init() throws Exception {
+		sqlConnection = DriverManager.getConnection(jdbcUrl, "sa", "");
+		try (java.sql.Statement s = sqlConnection.createStatement();
+			 Scanner sqlFile = new Scanner(new File(uc_create))) {
+			s.execute(sqlFile.useDelimiter("\\A").next());
+			for (int i = 1; i <= 10; i++)
+				s.execute("INSERT INTO TABLE1 VALUES (" + i + "," + i + ");");
+		}
+
+		OWLOntology ontology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(new File(owlfile));
+
+		QuestPreferences preference = new QuestPreferences();
+		preference.setCurrentValueOf(QuestPreferences.ABOX_MODE, QuestConstants.VIRTUAL);
+		preference.setCurrentValueOf(QuestPreferences.DBNAME, "countries_statements_test");
+		preference.setCurrentValueOf(QuestPreferences.JDBC_URL, jdbcUrl);
+		preference.setCurrentValueOf(QuestPreferences.DBUSER, "sa");
+		preference.setCurrentValueOf(QuestPreferences.DBPASSWORD, "");
+		preference.setCurrentValueOf(QuestPreferences.JDBC_DRIVER, "org.h2.Driver");
+
+		SesameVirtualRepo repo = new SesameVirtualRepo("", ontology, new R2RMLManager(r2rmlfile).getModel(), preference);
+		repo.initialize();
+		conn = repo.getConnection();
+		vf = conn.getValueFactory();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		conn.close();
+		try (java.sql.Statement s = sqlConnection.createStatement()) {
+			s.execute("DROP ALL OBJECTS DELETE FILES");
+		}
+		sqlConnection.close();
+	}
+
+	@Test
+	public void testGetStatements() throws Exception {
+		URI hasVal1 = vf.createURI(NS + "hasVal1");
+		RepositoryResult<Statement> result = conn.getStatements(null, hasVal1, null, false);
+		int n = 0;
+		try {
+			while (result.hasNext()) {
+				assertEquals(hasVal1, result.next().getPredicate());
+				n++;
+			}
+		}
+		finally {
+			result.close();
+		}
+		assertEquals(10, n);
+	}
+
+	@Test
+	public void testGetStatementsClosedEarly() throws Exception {
+		RepositoryResult<Statement> result = conn.getStatements(null, vf.createURI(NS + "hasVal1"), null, false);
+		assertTrue(result.hasNext());
+		assertTrue(result.hasNext()); // does not skip a statement
+		result.next();
+		result.close();
+		assertFalse(result.hasNext());
+	}
+
+	@Test
+	public void testHasStatement() throws Exception {
+		URI hasVal1 = vf.createURI(NS + "hasVal1");
+		assertTrue(conn.hasStatement(vf.createURI(NS + "Class1-3"), hasVal1, null, false));
+		assertFalse(conn.hasStatement(vf.createURI(NS + "Class1-42"), hasVal1, null, false));
+	}
+
+	@Test
+	public void testExportStatements() throws Exception {
+		final int[] n = new int[1];
+		conn.exportStatements(null, vf.createURI(NS + "hasVal1"), null, false, new RDFHandlerBase() {
+			@Override
+			public void handleStatement(Statement st) {
+				n[0]++;
+			}
+		});
+		assertEquals(10, n[0]);
+	}
+}
@@ -21,6 +21,8 @@ package it.unibz.inf.ontop.sesame.repository.test;
  */
 
 import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
 
 import junit.framework.TestCase;
 
@@ -292,4 +294,59 @@ public class SesameConstructDescribeTest extends TestCase{
 		Assert.assertEquals(2, result);
 	}
 
+	private static final String P1 = "<http://www.semanticweb.org/ontologies/test#p1>";
+	private static final String P2 = "<http://www.semanticweb.org/ontologies/test#p2>";
+
+	/**
+	 * @return the statements of the CONSTRUCT query as "subject predicate object"
+	 */
+	private Set<String> construct(String queryString) throws Exception {
+		Set<String> result = new HashSet<>();
+		GraphQueryResult gresult = con.prepareGraphQuery(QueryLanguage.SPARQL, queryString).evaluate();
+		while (gresult.hasNext()) {
+			Statement s = gresult.next();
+			result.add(s.getSubject().stringValue() + " " + s.getPredicate().stringValue() + " " + s.getObject().stringValue());
+		}
+		gresult.close();
+		return result;
+	}
+
+	private static Set<String> statements(String... statements) {
+		Set<String> result = new HashSet<>();
+		for (String s : statements)
+			result.add(s);
+		return result;
+	}
+
+	@Test
+	public void testConstructConstants() throws Exception {
+		Set<String> result = construct("CONSTRUCT { ?s a <http://example.org/K> . "
+				+ "?s <http://example.org/q> <http://example.org/E> . ?s " + P1 + " \"constant\" } "
+				+ "WHERE { ?s " + P2 + " <http://example.org/D> }");
+		Assert.assertEquals(statements(
+				"http://example.org/A http://www.w3.org/1999/02/22-rdf-syntax-ns#type http://example.org/K",
+				"http://example.org/A http://example.org/q http://example.org/E",
+				"http://example.org/A http://www.semanticweb.org/ontologies/test#p1 constant"), result);
+	}
+
+	@Test
+	public void testConstructSameVariableInSeveralPositions() throws Exception {
+		Set<String> result = construct("CONSTRUCT { ?x <http://example.org/q> ?x . ?y " + P2 + " ?x } "
+				+ "WHERE { ?x " + P2 + " ?y }");
+		Assert.assertEquals(statements(
+				"http://example.org/B http://example.org/q http://example.org/B",
+				"http://example.org/A http://www.semanticweb.org/ontologies/test#p2 http://example.org/B",
+				"http://example.org/A http://example.org/q http://example.org/A",
+				"http://example.org/D http://www.semanticweb.org/ontologies/test#p2 http://example.org/A"), result);
+	}
+
+	@Test
+	public void testConstructUnboundVariables() throws Exception {
+		// ?z is unbound for ?o = D and ?w is not in the WHERE clause: their triples are left out
+		Set<String> result = construct("CONSTRUCT { ?s " + P2 + " ?o . ?o " + P2 + " ?z . ?s " + P2 + " ?w } "
+				+ "WHERE { ?s " + P2 + " ?o OPTIONAL { ?o " + P2 + " ?z } }");
+		Assert.assertEquals(statements(
+				"http://example.org/B http://www.semanticweb.org/ontologies/test#p2 http://example.org/A",
+				"http://example.org/A http://www.semanticweb.org/ontologies/test#p2 http://example.org/D"), result);
+	}
 }
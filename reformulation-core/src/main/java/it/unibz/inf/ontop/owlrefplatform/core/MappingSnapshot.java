@@ -0,0 +1,320 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import it.unibz.inf.ontop.model.CQIE;
+import it.unibz.inf.ontop.model.Function;
+import it.unibz.inf.ontop.model.OBDAMappingAxiom;
+import it.unibz.inf.ontop.ontology.Ontology;
+import it.unibz.inf.ontop.sql.Attribute;
+import it.unibz.inf.ontop.sql.DBMetadata;
+import it.unibz.inf.ontop.sql.DatabaseRelationDefinition;
+import it.unibz.inf.ontop.sql.ForeignKeyConstraint;
+import it.unibz.inf.ontop.sql.UniqueConstraint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Snapshot of the unfolding program of a virtual repository (the normalized mappings
+ * with T-mappings, data types and the facts of the ontology) together with the DB metadata
+ * it refers to (including the views created by the SQL parser). It lets the engine start
+ * without preparing the mappings again.
+ * <p>
+ * A snapshot is identified by a key, which is a digest of all its inputs: the ontology,
+ * the mappings, the database schema and the settings that affect the unfolding program.
+ * A snapshot with a different key (or of a different format) is ignored and replaced.
+ */
+public class MappingSnapshot {
+
+	private static final Logger log = LoggerFactory.getLogger(MappingSnapshot.class);
+
+	private static final int MAGIC = 0x4f4d5053;
+	private static final int FORMAT_VERSION = 1;
+
+	private final List<CQIE> program;
+	private final DBMetadata metadata;
+
+	private MappingSnapshot(List<CQIE> program, DBMetadata metadata) {
+		this.program = program;
+		this.metadata = metadata;
+	}
+
+	public List<CQIE> getProgram() {
+		return program;
+	}
+
+	public DBMetadata getMetadata() {
+		return metadata;
+	}
+
+	/**
+	 * Computes the key of the snapshot for the given inputs.
+	 *
+	 * @param ontology the input ontology
+	 * @param mappings the mappings (before any processing)
+	 * @param metadata the DB metadata (with the user-supplied constraints)
+	 * @param settings the values of all the settings that affect the unfolding program
+	 * @return a SHA-256 digest in hexadecimal
+	 */
+	public static String getKey(Ontology ontology, Collection<OBDAMappingAxiom> mappings, DBMetadata metadata, String settings) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(FORMAT_VERSION);
+		putString(hasher, settings);
+
+		// the collections of the ontology are sets with no particular order
+		putSorted(hasher, ontology.getVocabulary().getClasses());
+		putSorted(hasher, ontology.getVocabulary().getObjectProperties());
+		putSorted(hasher, ontology.getVocabulary().getDataProperties());
+		putSorted(hasher, ontology.getVocabulary().getAnnotationProperties());
+		putSorted(hasher, ontology.getSubClassAxioms());
+		putSorted(hasher, ontology.getSubDataRangeAxioms());
+		putSorted(hasher, ontology.getSubObjectPropertyAxioms());
+		putSorted(hasher, ontology.getSubDataPropertyAxioms());
+		putSorted(hasher, ontology.getSubAnnotationAxioms());
+		putSorted(hasher, ontology.getClassAssertions());
+		putSorted(hasher, ontology.getObjectPropertyAssertions());
+		putSorted(hasher, ontology.getDataPropertyAssertions());
+		putSorted(hasher, ontology.getAnnotationAssertions());
+
+		// the order of the mappings is the order of the rules in the program
+		for (OBDAMappingAxiom mapping : mappings) {
+			putString(hasher, mapping.getId());
+			putString(hasher, mapping.getSourceQuery().toString());
+			for (Function atom : mapping.getTargetQuery())
+				putString(hasher, atom.toString());
+		}
+
+		putString(hasher, metadata.getDriverName());
+		putString(hasher, metadata.getDriverVersion());
+		putString(hasher, metadata.getDbmsProductName());
+		putString(hasher, metadata.getDbmsVersion());
+		putString(hasher, metadata.getQuotedIDFactory().getClass().getName());
+		Set<String> relations = new TreeSet<>();
+		for (DatabaseRelationDefinition relation : metadata.getDatabaseRelations()) {
+			StringBuilder bf = new StringBuilder(relation.toString());
+			for (Attribute attribute : relation.getAttributes())
+				bf.append('\n').append(attribute.getType());
+			for (UniqueConstraint uc : relation.getUniqueConstraints())
+				bf.append('\n').append(uc);
+			for (ForeignKeyConstraint fk : relation.getForeignKeys())
+				bf.append('\n').append(fk);
+			relations.add(bf.toString());
+		}
+		for (String relation : relations)
+			putString(hasher, relation);
+
+		return hasher.hash().toString();
+	}
+
+	private static void putSorted(Hasher hasher, Collection<?> elements) {
+		Set<String> strings = new TreeSet<>();
+		for (Object e : elements)
+			strings.add(e.toString());
+		hasher.putInt(strings.size());
+		for (String s : strings)
+			putString(hasher, s);
+	}
+
+	private static void putString(Hasher hasher, String s) {
+		if (s == null) {
+			hasher.putInt(-1);
+		}
+		else {
+			hasher.putInt(s.length());
+			hasher.putString(s, Charsets.UTF_8);
+		}
+	}
+
+	/**
+	 * Loads the snapshot from the file by mapping it into memory.
+	 *
+	 * @return the snapshot, or null if the file does not exist, has a different key or
+	 *         cannot be read (e.g., because it has been written by another version)
+	 */
+	public static MappingSnapshot load(File file, String key) {
+		if (!file.isFile())
+			return null;
+
+		try (FileInputStream in = new FileInputStream(file);
+			 FileChannel channel = in.getChannel()) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			DataInputStream header = new DataInputStream(new ByteBufferInputStream(buffer));
+			if (header.readInt() != MAGIC || header.readInt() != FORMAT_VERSION) {
+				log.debug("Mapping snapshot {} has a different format", file);
+				return null;
+			}
+			if (!header.readUTF().equals(key)) {
+				log.debug("Mapping snapshot {} is out of date", file);
+				return null;
+			}
+
+			ObjectInputStream objects = new ObjectInputStream(header);
+			@SuppressWarnings("unchecked")
+			List<CQIE> program = (List<CQIE>) objects.readObject();
+			DBMetadata metadata = (DBMetadata) objects.readObject();
+			return new MappingSnapshot(program, metadata);
+		}
+		catch (IOException | ClassNotFoundException | ClassCastException e) {
+			log.warn("Cannot read the mapping snapshot {}: {}", file, e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the snapshot to the file (via a temporary file, so that a concurrent reader
+	 * never sees an incomplete snapshot). Failures are logged and otherwise ignored.
+	 */
+	public static void store(File file, String key, List<CQIE> program, DBMetadata metadata) {
+		File dir = file.getAbsoluteFile().getParentFile();
+		File temp = null;
+		try {
+			temp = File.createTempFile(file.getName(), ".tmp", dir);
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(key);
+
+				ObjectOutputStream objects = new ObjectOutputStream(out);
+				objects.writeObject(new ArrayList<>(program));
+				objects.writeObject(metadata);
+				objects.flush();
+			}
+			replace(temp, file);
+			log.debug("Mapping snapshot {} has been written ({} rules)", file, program.size());
+		}
+		catch (IOException e) {
+			log.warn("Cannot write the mapping snapshot {}: {}", file, e.toString());
+			if (temp != null)
+				temp.delete();
+		}
+	}
+
+	private static void replace(File temp, File file) throws IOException {
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * The empty classes and properties are stored in a file next to the snapshot
+	 * (with the extension .empty) under the key of the snapshot.
+	 */
+	private static File getEmptyPredicatesFile(File file) {
+		return new File(file.getPath() + ".empty");
+	}
+
+	/**
+	 * Loads the names of the empty classes and properties stored alongside the snapshot.
+	 *
+	 * @return the names, or null if the file does not exist, has a different key or cannot be read
+	 */
+	public static Set<String> loadEmptyPredicates(File file, String key) {
+		File emptyFile = getEmptyPredicatesFile(file);
+		if (!emptyFile.isFile())
+			return null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(emptyFile)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(key)) {
+				log.debug("Empty entities of the mapping snapshot {} are out of date", file);
+				return null;
+			}
+			int n = in.readInt();
+			Set<String> names = new HashSet<>();
+			for (int i = 0; i < n; i++)
+				names.add(in.readUTF());
+			return names;
+		}
+		catch (IOException e) {
+			log.warn("Cannot read the empty entities {}: {}", emptyFile, e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the names of the empty classes and properties alongside the snapshot.
+	 * Failures are logged and otherwise ignored.
+	 */
+	public static void storeEmptyPredicates(File file, String key, Set<String> names) {
+		File emptyFile = getEmptyPredicatesFile(file);
+		File temp = null;
+		try {
+			temp = File.createTempFile(emptyFile.getName(), ".tmp", emptyFile.getAbsoluteFile().getParentFile());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(key);
+				out.writeInt(names.size());
+				for (String name : names)
+					out.writeUTF(name);
+			}
+			replace(temp, emptyFile);
+			log.debug("Empty entities {} have been written ({} entities)", emptyFile, names.size());
+		}
+		catch (IOException e) {
+			log.warn("Cannot write the empty entities {}: {}", emptyFile, e.toString());
+			if (temp != null)
+				temp.delete();
+		}
+	}
+
+	/**
+	 * Input stream reading a (memory-mapped) byte buffer
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0)
+				return 0;
+			if (!buffer.hasRemaining())
+				return -1;
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import java.util.List;
+
+/**
+ * An SQL query with JDBC parameter markers (?) in place of its string
+ * constants and integers, together with the values to bind to them (in order).
+ * <p>
+ * All the SPARQL queries with the same template share the SQL string, 
+ * so the SQL can be prepared once per connection and planned once by the DBMS.
+ */
+public final class ParameterizedSQL {
+
+	private final String sql;
+	private final List<Object> parameters;
+
+	public ParameterizedSQL(String sql, List<Object> parameters) {
+		this.sql = sql;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * The SQL string with parameter markers
+	 */
+	public String getSQL() {
+		return sql;
+	}
+
+	/**
+	 * The values of the parameters (strings and longs), to be bound with setObject
+	 */
+	public List<Object> getParameters() {
+		return parameters;
+	}
+
+	@Override
+	public String toString() {
+		return sql + "\n" + parameters;
+	}
+}
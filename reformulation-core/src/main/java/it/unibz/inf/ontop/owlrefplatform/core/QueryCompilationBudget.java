@@ -0,0 +1,75 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits on the size of the intermediate results and on the time of the
+ * translation of a query into SQL. A query that exceeds them is rejected
+ * with a {@link QueryCompilationBudgetException} instead of exhausting the
+ * memory of the JVM or producing SQL that the DBMS cannot parse.
+ * <p>
+ * A limit of 0 means no limit.
+ */
+public final class QueryCompilationBudget {
+
+	public static final QueryCompilationBudget UNLIMITED = new QueryCompilationBudget(0, 0, 0, 0);
+
+	private final int maxRewrittenCQs;
+	private final int maxUnfoldedRules;
+	private final int maxSQLLength;
+	private final long timeout; // milliseconds
+
+	/**
+	 * @param maxRewrittenCQs maximum number of CQs produced by the rewriting
+	 * @param maxUnfoldedRules maximum number of rules produced by the unfolding
+	 * @param maxSQLLength maximum length of the generated SQL (in characters)
+	 * @param timeout maximum time of the translation (in milliseconds)
+	 */
+	public QueryCompilationBudget(int maxRewrittenCQs, int maxUnfoldedRules, int maxSQLLength, long timeout) {
+		this.maxRewrittenCQs = maxRewrittenCQs;
+		this.maxUnfoldedRules = maxUnfoldedRules;
+		this.maxSQLLength = maxSQLLength;
+		this.timeout = timeout;
+	}
+
+	public int getMaxUnfoldedRules() {
+		return maxUnfoldedRules;
+	}
+
+	/**
+	 * The value of System.nanoTime() at which a translation started at the given
+	 * time runs out of time, or 0 if there is no timeout
+	 */
+	public long getDeadline(long start) {
+		return (timeout > 0) ? start + TimeUnit.MILLISECONDS.toNanos(timeout) : 0;
+	}
+
+	void checkRewriting(int cqs) {
+		if (maxRewrittenCQs > 0 && cqs > maxRewrittenCQs)
+			throw new QueryCompilationBudgetException("The rewriting of the query has " + cqs 
+					+ " CQs, more than the limit of " + maxRewrittenCQs + " (" + QuestPreferences.MAX_REWRITTEN_CQS + ")");
+	}
+
+	void checkSQL(int length) {
+		if (maxSQLLength > 0 && length > maxSQLLength)
+			throw new QueryCompilationBudgetException("The SQL translation of the query has " + length 
+					+ " characters, more than the limit of " + maxSQLLength + " (" + QuestPreferences.MAX_SQL_LENGTH + ")");
+	}
+
+	/**
+	 * Checks whether the deadline (as returned by getDeadline) has passed
+	 */
+	public static void checkDeadline(long deadline) {
+		if (deadline != 0 && System.nanoTime() - deadline > 0)
+			throw new QueryCompilationBudgetException("The translation of the query into SQL exceeded the time limit ("
+					+ QuestPreferences.TRANSLATION_TIMEOUT + ")");
+	}
+
+	/**
+	 * Fails because the unfolding produced more rules than allowed
+	 */
+	public static QueryCompilationBudgetException unfoldingExceeded(int maxUnfoldedRules) {
+		return new QueryCompilationBudgetException("The unfolding of the query has more than "
+				+ maxUnfoldedRules + " rules (" + QuestPreferences.MAX_UNFOLDED_RULES + ")");
+	}
+}
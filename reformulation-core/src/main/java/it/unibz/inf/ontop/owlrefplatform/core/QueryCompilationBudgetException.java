@@ -0,0 +1,16 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import it.unibz.inf.ontop.model.OBDAException;
+
+/**
+ * Thrown when the translation of a query into SQL exceeds one of the limits
+ * of the {@link QueryCompilationBudget}
+ */
+public class QueryCompilationBudgetException extends OBDAException {
+
+	private static final long serialVersionUID = 4581740233416612079L;
+
+	public QueryCompilationBudgetException(String cause) {
+		super(cause);
+	}
+}
@@ -0,0 +1,123 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time spent in each phase of the translation of one SPARQL query into SQL,
+ * together with the size of the intermediate results.
+ */
+public final class QueryCompilationStats {
+
+	/**
+	 * The phases of the translation, in the order in which they are run
+	 */
+	public enum Phase {
+		TRANSLATION,     // SPARQL algebra to Datalog
+		FLATTENING,
+		EQUIVALENCES,    // replacement of equivalent classes and properties
+		NORMALIZATION,
+		SIGMA,           // optimization with the ABox dependencies
+		REWRITING,
+		UNFOLDING,
+		EXPRESSIONS,     // evaluation of boolean expressions
+		SQL_GENERATION
+	}
+
+	private final EnumMap<Phase, Long> times = new EnumMap<>(Phase.class); // nanoseconds
+	private Phase current;
+	private long phaseStart;
+
+	private int rewrittenCQs = -1;
+	private int unfoldedRules = -1;
+	private int sqlLength = -1;
+
+	/**
+	 * Ends the current phase (if any) and starts the given one
+	 */
+	void start(Phase phase) {
+		long now = System.nanoTime();
+		if (current != null)
+			times.put(current, now - phaseStart);
+		current = phase;
+		phaseStart = now;
+	}
+
+	/**
+	 * Ends the current phase
+	 */
+	void stop() {
+		if (current != null) {
+			times.put(current, System.nanoTime() - phaseStart);
+			current = null;
+		}
+	}
+
+	void setRewrittenCQs(int n) {
+		rewrittenCQs = n;
+	}
+
+	void setUnfoldedRules(int n) {
+		unfoldedRules = n;
+	}
+
+	void setSQLLength(int n) {
+		sqlLength = n;
+	}
+
+	/**
+	 * Time (in nanoseconds) spent in each of the completed phases
+	 */
+	public Map<Phase, Long> getPhaseTimes() {
+		return times;
+	}
+
+	/**
+	 * Total time (in nanoseconds) of the completed phases
+	 */
+	public long getTotalTime() {
+		long total = 0;
+		for (long t : times.values())
+			total += t;
+		return total;
+	}
+
+	/**
+	 * Number of conjunctive queries after the rewriting, -1 if not reached
+	 */
+	public int getRewrittenCQs() {
+		return rewrittenCQs;
+	}
+
+	/**
+	 * Number of rules after the unfolding, -1 if not reached
+	 */
+	public int getUnfoldedRules() {
+		return unfoldedRules;
+	}
+
+	/**
+	 * Length of the generated SQL, -1 if not reached
+	 */
+	public int getSQLLength() {
+		return sqlLength;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("total ").append(TimeUnit.NANOSECONDS.toMillis(getTotalTime())).append(" ms (");
+		boolean separator = false;
+		for (Map.Entry<Phase, Long> e : times.entrySet()) {
+			if (separator)
+				sb.append(", ");
+			sb.append(e.getKey().name().toLowerCase()).append(' ')
+				.append(TimeUnit.NANOSECONDS.toMillis(e.getValue())).append(" ms");
+			separator = true;
+		}
+		sb.append("), ").append(rewrittenCQs).append(" CQs after rewriting, ")
+			.append(unfoldedRules).append(" rules after unfolding, SQL length ").append(sqlLength);
+		return sb.toString();
+	}
+}
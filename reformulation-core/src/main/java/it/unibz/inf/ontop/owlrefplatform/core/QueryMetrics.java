@@ -0,0 +1,177 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of the query translations and executions of a 
+ * Quest instance, shared by all its connections (and thread-safe).
+ * <p>
+ * The counts of CQs, rules and SQL characters are summed over all the
+ * translations, so that their averages can be derived from the number
+ * of compilations.
+ */
+public final class QueryMetrics implements QueryMetricsMXBean {
+
+	// bucket i counts the times below 2^i ms, the last one all the others
+	private static final int BUCKETS = 18;
+
+	private final LongAdder compilations = new LongAdder();
+	private final LongAdder compilationCacheHits = new LongAdder();
+	private final LongAdder templateCacheHits = new LongAdder();
+	private final LongAdder compilationTime = new LongAdder(); // nanoseconds
+	private final LongAdder[] phaseTimes = new LongAdder[QueryCompilationStats.Phase.values().length];
+	private final AtomicLongArray compilationHistogram = new AtomicLongArray(BUCKETS);
+	private final LongAdder rewrittenCQs = new LongAdder();
+	private final LongAdder unfoldedRules = new LongAdder();
+	private final LongAdder sqlLength = new LongAdder();
+
+	private final LongAdder executions = new LongAdder();
+	private final LongAdder executionTime = new LongAdder(); // nanoseconds
+	private final AtomicLongArray executionHistogram = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder slowQueries = new LongAdder();
+
+	public QueryMetrics() {
+		for (int i = 0; i < phaseTimes.length; i++)
+			phaseTimes[i] = new LongAdder();
+	}
+
+	void recordCompilation(QueryCompilationStats stats) {
+		compilations.increment();
+		long total = stats.getTotalTime();
+		compilationTime.add(total);
+		for (Map.Entry<QueryCompilationStats.Phase, Long> e : stats.getPhaseTimes().entrySet())
+			phaseTimes[e.getKey().ordinal()].add(e.getValue());
+		compilationHistogram.incrementAndGet(bucket(total));
+		if (stats.getRewrittenCQs() > 0)
+			rewrittenCQs.add(stats.getRewrittenCQs());
+		if (stats.getUnfoldedRules() > 0)
+			unfoldedRules.add(stats.getUnfoldedRules());
+		if (stats.getSQLLength() > 0)
+			sqlLength.add(stats.getSQLLength());
+	}
+
+	void recordCompilationCacheHit() {
+		compilationCacheHits.increment();
+	}
+
+	void recordTemplateCacheHit() {
+		templateCacheHits.increment();
+	}
+
+	void recordExecution(long nanos) {
+		executions.increment();
+		executionTime.add(nanos);
+		executionHistogram.incrementAndGet(bucket(nanos));
+	}
+
+	void recordSlowQuery() {
+		slowQueries.increment();
+	}
+
+	private static int bucket(long nanos) {
+		long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+		int i = 64 - Long.numberOfLeadingZeros(millis); // millis < 2^i
+		return Math.min(i, BUCKETS - 1);
+	}
+
+	private static Map<String, Long> histogram(AtomicLongArray buckets) {
+		Map<String, Long> map = new LinkedHashMap<>();
+		for (int i = 0; i < BUCKETS - 1; i++)
+			map.put("<" + (1L << i) + "ms", buckets.get(i));
+		map.put(">=" + (1L << (BUCKETS - 2)) + "ms", buckets.get(BUCKETS - 1));
+		return map;
+	}
+
+	@Override
+	public long getCompilations() {
+		return compilations.sum();
+	}
+
+	@Override
+	public long getCompilationCacheHits() {
+		return compilationCacheHits.sum();
+	}
+
+	@Override
+	public long getTemplateCacheHits() {
+		return templateCacheHits.sum();
+	}
+
+	@Override
+	public long getCompilationTime() {
+		return TimeUnit.NANOSECONDS.toMillis(compilationTime.sum());
+	}
+
+	@Override
+	public Map<String, Long> getPhaseTimes() {
+		Map<String, Long> map = new LinkedHashMap<>();
+		for (QueryCompilationStats.Phase phase : QueryCompilationStats.Phase.values())
+			map.put(phase.name().toLowerCase(), TimeUnit.NANOSECONDS.toMillis(phaseTimes[phase.ordinal()].sum()));
+		return map;
+	}
+
+	@Override
+	public Map<String, Long> getCompilationTimeHistogram() {
+		return histogram(compilationHistogram);
+	}
+
+	@Override
+	public long getRewrittenCQs() {
+		return rewrittenCQs.sum();
+	}
+
+	@Override
+	public long getUnfoldedRules() {
+		return unfoldedRules.sum();
+	}
+
+	@Override
+	public long getSQLLength() {
+		return sqlLength.sum();
+	}
+
+	@Override
+	public long getExecutions() {
+		return executions.sum();
+	}
+
+	@Override
+	public long getExecutionTime() {
+		return TimeUnit.NANOSECONDS.toMillis(executionTime.sum());
+	}
+
+	@Override
+	public Map<String, Long> getExecutionTimeHistogram() {
+		return histogram(executionHistogram);
+	}
+
+	@Override
+	public long getSlowQueries() {
+		return slowQueries.sum();
+	}
+
+	@Override
+	public void reset() {
+		compilations.reset();
+		compilationCacheHits.reset();
+		templateCacheHits.reset();
+		compilationTime.reset();
+		for (LongAdder t : phaseTimes)
+			t.reset();
+		rewrittenCQs.reset();
+		unfoldedRules.reset();
+		sqlLength.reset();
+		executions.reset();
+		executionTime.reset();
+		slowQueries.reset();
+		for (int i = 0; i < BUCKETS; i++) {
+			compilationHistogram.set(i, 0);
+			executionHistogram.set(i, 0);
+		}
+	}
+}
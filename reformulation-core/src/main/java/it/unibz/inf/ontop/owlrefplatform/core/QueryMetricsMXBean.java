@@ -0,0 +1,40 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link QueryMetrics} of a Quest instance.
+ * All times are in milliseconds. The histograms map the (exclusive) upper bound
+ * of each bucket (e.g., "<8ms") to the number of queries that fall into it; the
+ * last bucket (">=65536ms") has no upper bound.
+ */
+public interface QueryMetricsMXBean {
+
+	long getCompilations();
+
+	long getCompilationCacheHits();
+
+	long getTemplateCacheHits();
+
+	long getCompilationTime();
+
+	Map<String, Long> getPhaseTimes();
+
+	Map<String, Long> getCompilationTimeHistogram();
+
+	long getRewrittenCQs();
+
+	long getUnfoldedRules();
+
+	long getSQLLength();
+
+	long getExecutions();
+
+	long getExecutionTime();
+
+	Map<String, Long> getExecutionTimeHistogram();
+
+	long getSlowQueries();
+
+	void reset();
+}
@@ -44,12 +44,15 @@ import it.unibz.inf.ontop.owlrefplatform.core.srcquerygeneration.SQLQueryGenerat
 import it.unibz.inf.ontop.owlrefplatform.core.translator.MappingVocabularyRepair;
 import it.unibz.inf.ontop.utils.MappingParser;
 import net.sf.jsqlparser.JSQLParserException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.tomcat.jdbc.pool.DataSource;
 import org.apache.tomcat.jdbc.pool.PoolProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.sql.Statement;
+import java.io.File;
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.security.InvalidParameterException;
 import java.sql.Connection;
@@ -59,6 +62,13 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 
 public class Quest implements Serializable {
@@ -75,6 +85,26 @@ public class Quest implements Serializable {
 	protected boolean logAbandoned = false;
 	protected int abandonedTimeout = 60; // 60 seconds
 	protected boolean keepAlive = true;
+
+	/* Executes the SQL queries of all the statements (created on demand) */
+	private transient ThreadPoolExecutor queryExecutor = null;
+	// Query executor default properties
+	protected int queryExecutorThreads = 20;
+	protected int queryExecutorQueueSize = 100;
+	protected long queryDeadline = 0; // no deadline
+	protected int describeBatchSize = 100;
+	
+	/* Counters of the query translations and executions */
+	private final QueryMetrics queryMetrics = new QueryMetrics();
+	private long slowQueryThreshold = 0; // disabled
+	private boolean queryMetricsJmx = false;
+	private transient ObjectName queryMetricsName = null;
+	
+	/* Limits on the translation of a query into SQL (0 if unlimited) */
+	private int maxRewrittenCQs = 0;
+	private int maxUnfoldedRules = 0;
+	private int maxSQLLength = 0;
+	private long translationTimeout = 0;
 	
 	// Whether to print primary and foreign keys to stdout.
 	private boolean printKeys;
@@ -96,6 +126,8 @@ public class Quest implements Serializable {
 	private OBDAModel inputOBDAModel = null;
 
 	private QuestQueryProcessor engine;
+
+	private SQLDialectAdapter sqlAdapter;
 		
 	/**
 	 * This represents user-supplied constraints, i.e. primary
@@ -143,12 +175,43 @@ public class Quest implements Serializable {
 
     private boolean sqlGenerateReplace = true;
 
+	/* Whether URIs with single-column templates are built by the result sets rather than in SQL */
+	private boolean clientSideURITemplates = false;
+	private URITemplateRegistry uriTemplates = null;
+
 	private boolean distinctResultSet = false;
 
+	private long distinctResultSetMemory = 64 * 1024 * 1024;
+
+	private boolean distinctResultSetExact = false;
+
+	private long queryCacheMaxWeight = 20000000;
+
+	private boolean queryCacheTemplates = true;
+
+	private boolean sqlPreparedStatements = false;
+
+	private int preparedStatementCacheSize = 50;
+
 	private boolean queryingAnnotationsInOntology = false;
 
 	private boolean sameAsInMapping =  false;
 
+	/* Number of threads (and connections of the pool) retrieving the DB metadata */
+	private int metadataThreads = 4;
+
+	/* File with the snapshot of the prepared mappings (empty if there is no snapshot) */
+	private String mappingSnapshot = "";
+
+	/* Key of the snapshot of the prepared mappings in use (null if there is no snapshot) */
+	private String mappingSnapshotKey = null;
+
+	/* File with a copy of the URI dictionary of the Semantic Index (empty if there is no file) */
+	private String uriDictionary = "";
+
+	/* Insert the data with the bulk-load command of the DBMS */
+	private boolean bulkLoad = false;
+
 	private String aboxMode = QuestConstants.CLASSIC;
 
 	private String aboxSchemaType = QuestConstants.SEMANTIC_INDEX;
@@ -313,12 +376,16 @@ public class Quest implements Serializable {
 
 
 	public void dispose() {
+		if (dataRepository != null)
+			dataRepository.saveUriDictionary();
 		try {
 			if (localConnection != null && !localConnection.isClosed())
 				disconnect();
 		} catch (Exception e) {
 			log.debug("Error during disconnect: " + e.getMessage());
 		}
+		shutdownQueryExecutor();
+		unregisterQueryMetrics();
 	}
 
 	public Properties getPreferences() {
@@ -333,6 +400,16 @@ public class Quest implements Serializable {
 		abandonedTimeout = Integer.valueOf((String) preferences.get(QuestPreferences.ABANDONED_TIMEOUT));
 		startPoolSize = Integer.valueOf((String) preferences.get(QuestPreferences.INIT_POOL_SIZE));
 		maxPoolSize = Integer.valueOf((String) preferences.get(QuestPreferences.MAX_POOL_SIZE));
+		queryExecutorThreads = Integer.valueOf((String) preferences.get(QuestPreferences.QUERY_EXECUTOR_THREADS));
+		queryExecutorQueueSize = Integer.valueOf((String) preferences.get(QuestPreferences.QUERY_EXECUTOR_QUEUE_SIZE));
+		queryDeadline = Long.valueOf((String) preferences.get(QuestPreferences.QUERY_DEADLINE));
+		describeBatchSize = Integer.valueOf((String) preferences.get(QuestPreferences.DESCRIBE_BATCH_SIZE));
+		slowQueryThreshold = Long.valueOf((String) preferences.get(QuestPreferences.SLOW_QUERY_THRESHOLD));
+		queryMetricsJmx = Boolean.valueOf((String) preferences.get(QuestPreferences.QUERY_METRICS_JMX));
+		maxRewrittenCQs = Integer.valueOf((String) preferences.get(QuestPreferences.MAX_REWRITTEN_CQS));
+		maxUnfoldedRules = Integer.valueOf((String) preferences.get(QuestPreferences.MAX_UNFOLDED_RULES));
+		maxSQLLength = Integer.valueOf((String) preferences.get(QuestPreferences.MAX_SQL_LENGTH));
+		translationTimeout = Long.valueOf((String) preferences.get(QuestPreferences.TRANSLATION_TIMEOUT));
 
 		reformulate = Boolean.valueOf((String) preferences.get(QuestPreferences.REWRITE));
 		reformulationTechnique = (String) preferences.get(QuestPreferences.REFORMULATION_TECHNIQUE);
@@ -346,9 +423,20 @@ public class Quest implements Serializable {
 		obtainFullMetadata = Boolean.valueOf((String) preferences.get(QuestPreferences.OBTAIN_FULL_METADATA));	
 		printKeys = Boolean.valueOf((String) preferences.get(QuestPreferences.PRINT_KEYS));
 		distinctResultSet = Boolean.valueOf((String) preferences.get(QuestPreferences.DISTINCT_RESULTSET));
+		distinctResultSetMemory = Long.valueOf((String) preferences.get(QuestPreferences.DISTINCT_RESULTSET_MEMORY));
+		distinctResultSetExact = Boolean.valueOf((String) preferences.get(QuestPreferences.DISTINCT_RESULTSET_EXACT));
         sqlGenerateReplace = Boolean.valueOf((String) preferences.get(QuestPreferences.SQL_GENERATE_REPLACE));
+		clientSideURITemplates = Boolean.valueOf((String) preferences.get(QuestPreferences.CLIENT_SIDE_URI_TEMPLATES));
+		queryCacheMaxWeight = Long.valueOf((String) preferences.get(QuestPreferences.QUERY_CACHE_MAX_WEIGHT));
+		queryCacheTemplates = Boolean.valueOf((String) preferences.get(QuestPreferences.QUERY_CACHE_TEMPLATES));
+		sqlPreparedStatements = Boolean.valueOf((String) preferences.get(QuestPreferences.SQL_PREPARED_STATEMENTS));
+		preparedStatementCacheSize = Integer.valueOf((String) preferences.get(QuestPreferences.PREPARED_STATEMENT_CACHE_SIZE));
 		queryingAnnotationsInOntology = Boolean.valueOf((String) preferences.get(QuestPreferences.ANNOTATIONS_IN_ONTO));
 		sameAsInMapping = Boolean.valueOf((String) preferences.get(QuestPreferences.SAME_AS));
+		mappingSnapshot = preferences.getProperty(QuestPreferences.MAPPING_SNAPSHOT, "").trim();
+		uriDictionary = preferences.getProperty(QuestPreferences.URI_DICTIONARY, "").trim();
+		bulkLoad = Boolean.valueOf((String) preferences.get(QuestPreferences.BULK_LOAD));
+		metadataThreads = Integer.valueOf((String) preferences.get(QuestPreferences.METADATA_THREADS));
 
                 
 		if (!inmemory) {
@@ -366,12 +454,28 @@ public class Quest implements Serializable {
 			log.debug("Extensional query rewriting technique: {}", reformulationTechnique);
 		}
 		log.debug("Optimize TBox using class/property equivalences: {}", bOptimizeEquivalences);
+		log.debug("Query cache size (characters): {}, shared by query templates: {}", queryCacheMaxWeight, queryCacheTemplates);
+		log.debug("Execute queries as prepared statements: {}", sqlPreparedStatements);
+		log.debug("URI templates built by the result sets: {}", clientSideURITemplates);
+		if (distinctResultSet)
+			log.debug("Distinct result set memory (bytes): {}, exact: {}", distinctResultSetMemory, distinctResultSetExact);
+		log.debug("Query executor threads: {}, queue size: {}, deadline (ms): {}", queryExecutorThreads, queryExecutorQueueSize, queryDeadline);
+		log.debug("Resources described by each query of a DESCRIBE: {}", describeBatchSize);
+		log.debug("Slow query threshold (ms): {}, query metrics exposed via JMX: {}", slowQueryThreshold, queryMetricsJmx);
+		log.debug("Translation limits (0 if unlimited): {} rewritten CQs, {} unfolded rules, {} SQL characters, {} ms", 
+				maxRewrittenCQs, maxUnfoldedRules, maxSQLLength, translationTimeout);
 		log.debug("ABox mode: {}", aboxMode);
+		log.debug("DB metadata threads: {}", metadataThreads);
+		if (!mappingSnapshot.isEmpty())
+			log.debug("Mapping snapshot: {}", mappingSnapshot);
 		if (!aboxMode.equals("virtual")) {
 			log.debug("Use in-memory database: {}", inmemory);
 			log.debug("Schema configuration: {}", aboxSchemaType);
 			log.debug("Get ABox assertions from OBDA models: {}", bObtainFromMappings);
 			log.debug("Get ABox assertions from ontology: {}", bObtainFromOntology);
+			log.debug("Bulk load of the data: {}", bulkLoad);
+			if (!uriDictionary.isEmpty())
+				log.debug("URI dictionary: {}", uriDictionary);
 		}
 
 	}
@@ -402,6 +506,33 @@ public class Quest implements Serializable {
 		return false;
 	}
 
+	/**
+	 * meta-mappings (with class and property names taken from the data) are expanded by querying the database
+	 */
+	private static boolean hasMetaMappings(Collection<OBDAMappingAxiom> mappings) {
+		for (OBDAMappingAxiom mapping : mappings)
+			for (Function atom : mapping.getTargetQuery())
+				if (atom.getFunctionSymbol().isTriplePredicate())
+					return true;
+		return false;
+	}
+
+	/**
+	 * the threads retrieving the metadata take their connections from the pool
+	 */
+	private int getMetadataThreads() {
+		return Math.max(1, Math.min(metadataThreads, maxPoolSize));
+	}
+
+	/**
+	 * the settings that affect the mappings prepared by the unfolder (user-supplied 
+	 * constraints are part of the metadata)
+	 */
+	private String getMappingSettings() {
+		return "equivalences: " + bOptimizeEquivalences + ", sameAs: " + sameAsInMapping
+				+ ", annotations: " + queryingAnnotationsInOntology + ", excluded from T-mappings: " + excludeFromTMappings;
+	}
+
 	public void disconnect() throws SQLException {
 		try {
 			localConnection.close();
@@ -494,6 +625,7 @@ public class Quest implements Serializable {
 				setupConnectionPool();
 
 				dataRepository = new RDBMSSIRepositoryManager(reformulationReasoner, inputOntology.getVocabulary());
+				dataRepository.setBulkLoad(bulkLoad);
 
 				if (inmemory) {
 					// we work in memory (with H2), the database is clean and 
@@ -507,6 +639,8 @@ public class Quest implements Serializable {
 					// the repository has already been created in the database, 
 					// restore the repository and do NOT insert any data in the repo, 
 					// it should have been inserted already.
+					if (!uriDictionary.isEmpty())
+						dataRepository.setUriDictionaryFile(new File(uriDictionary));
 					dataRepository.loadMetadata(localConnection);
 
 					// TODO add code to verify that the existing semantic index
@@ -542,12 +676,14 @@ public class Quest implements Serializable {
 			}
 
 			
+			boolean metadataExtracted = (metadata == null);
+
 			//if the metadata was not already set
 			if (metadata == null) {
 				metadata = DBMetadataExtractor.createMetadata(localConnection);
 				// if we have to parse the full metadata or just the table list in the mappings
 				if (obtainFullMetadata) {
-					DBMetadataExtractor.loadMetadata(metadata, localConnection, null);
+					DBMetadataExtractor.loadMetadata(metadata, localConnection, null, tomcatPool, getMetadataThreads());
 				} 
 				else {
 					try {
@@ -563,7 +699,7 @@ public class Quest implements Serializable {
 							realTables.addAll(referredTables);
 						}
 
-						DBMetadataExtractor.loadMetadata(metadata, localConnection, realTables);
+						DBMetadataExtractor.loadMetadata(metadata, localConnection, realTables, tomcatPool, getMetadataThreads());
 					}
 					catch (JSQLParserException e) {
 						System.out.println("Error obtaining the tables" + e);
@@ -602,11 +738,34 @@ public class Quest implements Serializable {
 			else
 				log.debug("DB Metadata: \n{}", metadata);
 
+			/*
+			 * The snapshot of the prepared mappings replaces the metadata by the metadata the
+			 * mappings refer to. Meta-mappings are expanded by querying the data, so their 
+			 * mappings cannot be stored.
+			 */
+			File snapshotFile = null;
+			String snapshotKey = null;
+			MappingSnapshot snapshot = null;
+			if (aboxMode.equals(QuestConstants.VIRTUAL) && !mappingSnapshot.isEmpty() && metadataExtracted
+					&& !hasMetaMappings(mappings)) {
+				snapshotFile = new File(mappingSnapshot);
+				snapshotKey = MappingSnapshot.getKey(inputOntology, mappings, metadata, getMappingSettings());
+				snapshot = MappingSnapshot.load(snapshotFile, snapshotKey);
+				if (snapshot != null) {
+					metadata = snapshot.getMetadata();
+					log.debug("Mappings have been loaded from the snapshot {}", snapshotFile);
+				}
+			}
+			mappingSnapshotKey = snapshotKey;
+
             SQLDialectAdapter sqladapter = SQLAdapterFactory
                    .getSQLDialectAdapter(obdaSource
                           .getParameter(RDBMSourceParameterConstants.DATABASE_DRIVER), metadata.getDbmsVersion());
 			
-            SQLQueryGenerator datasourceQueryGenerator = new SQLGenerator(metadata, sqladapter, sqlGenerateReplace, distinctResultSet, getUriMap());
+            uriTemplates = clientSideURITemplates ? new URITemplateRegistry(sqlGenerateReplace) : null;
+            sqlAdapter = sqladapter;
+            SQLQueryGenerator datasourceQueryGenerator = new SQLGenerator(metadata, sqladapter, sqlGenerateReplace, distinctResultSet, 
+            		getUriMap(), uriTemplates);
 
     		VocabularyValidator vocabularyValidator = new VocabularyValidator(reformulationReasoner, inputOntology.getVocabulary());
             
@@ -615,8 +774,16 @@ public class Quest implements Serializable {
 			/*
 			 * T-Mappings and Fact mappings
 			 */
-			if (aboxMode.equals(QuestConstants.VIRTUAL)) 
-				unfolder.setupInVirtualMode(mappings, localConnection, vocabularyValidator, reformulationReasoner, inputOntology, excludeFromTMappings, queryingAnnotationsInOntology, sameAsInMapping);
+			if (aboxMode.equals(QuestConstants.VIRTUAL)) {
+				if (snapshot != null) {
+					unfolder.setupFromMappingProgram(snapshot.getProgram(), sameAsInMapping);
+				}
+				else {
+					unfolder.setupInVirtualMode(mappings, localConnection, vocabularyValidator, reformulationReasoner, inputOntology, excludeFromTMappings, queryingAnnotationsInOntology, sameAsInMapping);
+					if (snapshotKey != null)
+						MappingSnapshot.store(snapshotFile, snapshotKey, unfolder.getMappingProgram(), metadata);
+				}
+			}
 			else
 				unfolder.setupInSemanticIndexMode(mappings, reformulationReasoner);
 
@@ -666,7 +833,12 @@ public class Quest implements Serializable {
 			/*
 			 * Done, sending a new reasoner with the modules we just configured
 			 */
-			engine = new QuestQueryProcessor(rewriter, sigma, unfolder, vocabularyValidator, getUriMap(), datasourceQueryGenerator);
+			engine = new QuestQueryProcessor(rewriter, sigma, unfolder, vocabularyValidator, getUriMap(), datasourceQueryGenerator,
+					queryCacheMaxWeight, queryCacheTemplates, queryMetrics, 
+					new QueryCompilationBudget(maxRewrittenCQs, maxUnfoldedRules, maxSQLLength, translationTimeout));
+			
+			if (queryMetricsJmx)
+				registerQueryMetrics();
 			
 
 			log.debug("... Quest has been initialized.");
@@ -749,7 +921,102 @@ public class Quest implements Serializable {
 	}
 
 	public void close() {
+		if (dataRepository != null)
+			dataRepository.saveUriDictionary();
 		tomcatPool.close();
+		shutdownQueryExecutor();
+		unregisterQueryMetrics();
+	}
+
+	/**
+	 * Returns the executor of the SQL queries: a bounded pool of threads with a
+	 * bounded queue of waiting queries. Queries submitted when the queue is full 
+	 * are rejected (RejectedExecutionException).
+	 */
+	public synchronized ExecutorService getQueryExecutor() {
+		if (queryExecutor == null) {
+			queryExecutor = new ThreadPoolExecutor(queryExecutorThreads, queryExecutorThreads,
+					60, TimeUnit.SECONDS, 
+					new ArrayBlockingQueue<Runnable>(queryExecutorQueueSize),
+					new ThreadFactoryBuilder().setNameFormat("quest-query-%d").setDaemon(true).build(),
+					new ThreadPoolExecutor.AbortPolicy());
+			// idle threads are not kept forever
+			queryExecutor.allowCoreThreadTimeOut(true);
+		}
+		return queryExecutor;
+	}
+
+	private synchronized void shutdownQueryExecutor() {
+		if (queryExecutor != null) {
+			queryExecutor.shutdownNow();
+			queryExecutor = null;
+		}
+	}
+
+	/**
+	 * Maximum time (in milliseconds) for the execution of a query, 0 if unlimited
+	 */
+	public long getQueryDeadline() {
+		return queryDeadline;
+	}
+
+	/**
+	 * Number of resources described by each of the queries of a DESCRIBE
+	 */
+	public int getDescribeBatchSize() {
+		return Math.max(describeBatchSize, 1);
+	}
+
+	/**
+	 * The URI templates instantiated by the result sets, null if all URIs are built in SQL
+	 */
+	public URITemplateRegistry getURITemplates() {
+		return uriTemplates;
+	}
+
+	/**
+	 * Counters and histograms of the translations and executions of the queries
+	 */
+	public QueryMetrics getQueryMetrics() {
+		return queryMetrics;
+	}
+
+	/**
+	 * Queries whose translation and execution take longer (in milliseconds) 
+	 * are logged with their phase breakdown, 0 if disabled
+	 */
+	public long getSlowQueryThreshold() {
+		return slowQueryThreshold;
+	}
+
+	/**
+	 * Registers the query metrics in the platform MBean server, under a name 
+	 * identifying this instance
+	 */
+	private synchronized void registerQueryMetrics() {
+		if (queryMetricsName != null)
+			return;
+		try {
+			ObjectName name = new ObjectName("it.unibz.inf.ontop:type=QueryMetrics,quest=" 
+					+ Integer.toHexString(System.identityHashCode(this)));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(queryMetrics, name);
+			queryMetricsName = name;
+		} 
+		catch (JMException e) {
+			log.warn("Cannot register the query metrics via JMX: " + e.getMessage());
+		}
+	}
+
+	private synchronized void unregisterQueryMetrics() {
+		if (queryMetricsName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(queryMetricsName);
+			} 
+			catch (JMException e) {
+				log.debug(e.getMessage(), e);
+			}
+			queryMetricsName = null;
+		}
 	}
 
 	public void releaseSQLPoolConnection(Connection co) {
@@ -841,8 +1108,60 @@ public class Quest implements Serializable {
 		return distinctResultSet;		
 	}
 
+	/**
+	 * Memory budget (in bytes) of a distinct result set before spilling to disk
+	 */
+	public long getDistinctResultSetMemory() {
+		return distinctResultSetMemory;
+	}
+
+	/**
+	 * Whether distinct result sets compare the rows themselves rather than their fingerprints
+	 */
+	public boolean hasExactDistinctResultSet() {
+		return distinctResultSetExact;
+	}
+
+	/**
+	 * Whether the queries with lifted literals are executed as prepared statements 
+	 * (see QuestQueryProcessor.getParameterizedSQL)
+	 */
+	public boolean usesPreparedStatements() {
+		return sqlPreparedStatements;
+	}
+
+	/**
+	 * The maximum number of idle prepared statements per connection
+	 */
+	public int getPreparedStatementCacheSize() {
+		return preparedStatementCacheSize;
+	}
+
 	public QuestQueryProcessor getEngine() {
 		return engine;
 	}
+
+	public SQLDialectAdapter getSQLDialectAdapter() {
+		return sqlAdapter;
+	}
+
+	/**
+	 * Returns the names of the empty classes and properties stored alongside the snapshot
+	 * of the mappings, or null if there is no snapshot or the list is missing or out of date
+	 */
+	public Set<String> loadEmptyPredicates() {
+		if (mappingSnapshotKey == null)
+			return null;
+		return MappingSnapshot.loadEmptyPredicates(new File(mappingSnapshot), mappingSnapshotKey);
+	}
+
+	/**
+	 * Stores the names of the empty classes and properties alongside the snapshot of the
+	 * mappings (if there is one)
+	 */
+	public void storeEmptyPredicates(Set<String> names) {
+		if (mappingSnapshotKey != null)
+			MappingSnapshot.storeEmptyPredicates(new File(mappingSnapshot), mappingSnapshotKey, names);
+	}
 	
 }
@@ -24,7 +24,13 @@ import it.unibz.inf.ontop.model.OBDAConnection;
 import it.unibz.inf.ontop.model.OBDAException;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 /***
  * Quest connection is responsible for wrapping a JDBC connection to the data
@@ -40,13 +46,83 @@ public class QuestConnection implements OBDAConnection {
 
 	private final Quest questInstance;
 	
-	private boolean isClosed;
+	/* set by close(): the JDBC connection may stay open in the pool */
+	private volatile boolean isClosed;
+
+	/*
+	 * Idle prepared statements of the connection, by SQL string, 
+	 * in the order of their last use (least recently used first)
+	 */
+	private final LinkedHashMap<String, PreparedStatement> preparedStatements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+			if (size() <= questInstance.getPreparedStatementCacheSize())
+				return false;
+			closeQuietly(eldest.getValue());
+			return true;
+		}
+	};
+
+	/*
+	 * Prepared statements in use, prepared on the current JDBC connection
+	 * (the statements of a replaced connection are closed when they are released)
+	 */
+	private final Set<PreparedStatement> borrowedStatements =
+			Collections.newSetFromMap(new IdentityHashMap<PreparedStatement, Boolean>());
 
 	public QuestConnection(Quest questInstance, Connection connection) {
 		this.questInstance = questInstance;
 		this.conn = connection;
 		isClosed = false;
 	}
+
+	/**
+	 * Takes a prepared statement for the given SQL from the idle ones of 
+	 * the connection, or prepares a new one. The statement must be given back
+	 * by releasePreparedStatement once its results are no longer needed.
+	 */
+	synchronized PreparedStatement borrowPreparedStatement(String sql) throws SQLException {
+		PreparedStatement ps = preparedStatements.remove(sql);
+		if (ps == null || ps.isClosed())
+			ps = conn.prepareStatement(sql, java.sql.ResultSet.TYPE_FORWARD_ONLY, 
+					java.sql.ResultSet.CONCUR_READ_ONLY);
+		borrowedStatements.add(ps);
+		return ps;
+	}
+
+	/**
+	 * Gives back a statement taken by borrowPreparedStatement: it is kept for 
+	 * later use, unless the connection has been closed or replaced by a reconnection
+	 * in the meantime (then the statement is closed). 
+	 */
+	synchronized void releasePreparedStatement(String sql, PreparedStatement ps) {
+		if (!borrowedStatements.remove(ps) || isClosed) {
+			closeQuietly(ps);
+			return;
+		}
+		PreparedStatement previous = preparedStatements.put(sql, ps);
+		if (previous != null && previous != ps)
+			closeQuietly(previous);
+	}
+
+	private synchronized void closePreparedStatements() {
+		for (PreparedStatement ps : preparedStatements.values())
+			closeQuietly(ps);
+		preparedStatements.clear();
+		// the statements in use are closed when they are released
+		borrowedStatements.clear();
+	}
+
+	private static void closeQuietly(PreparedStatement ps) {
+		try {
+			ps.close();
+		} 
+		catch (SQLException e) {
+			// the statement is discarded anyway
+		}
+	}
 	
 	@Deprecated // used only in QuestSemanticSIRepository
 	public Connection getConnection() {
@@ -56,6 +132,10 @@ public class QuestConnection implements OBDAConnection {
 	@Override
 	public void close() throws OBDAException {
 		try {
+			synchronized (this) {
+				isClosed = true;
+				closePreparedStatements();
+			}
 			questInstance.releaseSQLPoolConnection(conn);
 		} catch (Exception e) {
 			throw new OBDAException(e);
@@ -68,7 +148,10 @@ public class QuestConnection implements OBDAConnection {
 		try {
 			if (conn.isClosed()) {
 				// Sometimes it gets dropped, reconnect
-				conn = questInstance.getSQLPoolConnection();
+				synchronized (this) {
+					closePreparedStatements();
+					conn = questInstance.getSQLPoolConnection();
+				}
 			}
 			QuestStatement st = new QuestStatement(this.questInstance, this,
 					conn.createStatement(java.sql.ResultSet.TYPE_FORWARD_ONLY,
@@ -119,8 +202,7 @@ public class QuestConnection implements OBDAConnection {
 	@Override
 	public boolean isClosed() throws OBDAException {
 		try {
-			isClosed = conn.isClosed();
-			return isClosed;
+			return isClosed || conn.isClosed();
 		} catch (Exception e) {
 			
 			OBDAException obdaException = new OBDAException(e);
@@ -57,9 +57,51 @@ public class QuestPreferences extends Properties {
 	public static final String  BASE_IRI             	= "org.obda.owlreformulationplatform.baseiri";
 	
 	public static final String OBTAIN_FULL_METADATA = "OBTAIN_FULL_METADATA";
+	public static final String METADATA_THREADS = "org.obda.owlreformulationplatform.metadataThreads";
 
     public static final String SQL_GENERATE_REPLACE = "org.obda.owlreformulationplatform.sqlGenerateReplace";
+	public static final String CLIENT_SIDE_URI_TEMPLATES = "org.obda.owlreformulationplatform.clientSideURITemplates";
 	public static final String DISTINCT_RESULTSET = "org.obda.owlreformulationplatform.distinctResultSet";
+	public static final String DISTINCT_RESULTSET_MEMORY = "org.obda.owlreformulationplatform.distinctResultSetMemory";
+	public static final String DISTINCT_RESULTSET_EXACT = "org.obda.owlreformulationplatform.distinctResultSetExact";
+
+	// Query translation cache
+	public static final String QUERY_CACHE_MAX_WEIGHT = "org.obda.owlreformulationplatform.queryCacheMaxWeight";
+	public static final String QUERY_CACHE_TEMPLATES = "org.obda.owlreformulationplatform.queryCacheTemplates";
+	public static final String SQL_PREPARED_STATEMENTS = "org.obda.owlreformulationplatform.sqlPreparedStatements";
+	public static final String PREPARED_STATEMENT_CACHE_SIZE = "org.obda.owlreformulationplatform.preparedStatementCacheSize";
+
+	// Query execution
+	public static final String QUERY_EXECUTOR_THREADS = "org.obda.owlreformulationplatform.queryExecutorThreads";
+	public static final String QUERY_EXECUTOR_QUEUE_SIZE = "org.obda.owlreformulationplatform.queryExecutorQueueSize";
+	public static final String QUERY_DEADLINE = "org.obda.owlreformulationplatform.queryDeadline";
+	public static final String SLOW_QUERY_THRESHOLD = "org.obda.owlreformulationplatform.slowQueryThreshold";
+	public static final String QUERY_METRICS_JMX = "org.obda.owlreformulationplatform.queryMetricsJmx";
+	public static final String DESCRIBE_BATCH_SIZE = "org.obda.owlreformulationplatform.describeBatchSize";
+
+	// Query translation limits
+	public static final String MAX_REWRITTEN_CQS = "org.obda.owlreformulationplatform.maxRewrittenCQs";
+	public static final String MAX_UNFOLDED_RULES = "org.obda.owlreformulationplatform.maxUnfoldedRules";
+	public static final String MAX_SQL_LENGTH = "org.obda.owlreformulationplatform.maxSQLLength";
+	public static final String TRANSLATION_TIMEOUT = "org.obda.owlreformulationplatform.translationTimeout";
+
+	// Snapshot of the prepared mappings (virtual mode)
+	public static final String MAPPING_SNAPSHOT = "org.obda.owlreformulationplatform.mappingSnapshot";
+
+	// Copy of the URI dictionary of the Semantic Index (classic mode)
+	public static final String URI_DICTIONARY = "org.obda.owlreformulationplatform.uriDictionary";
+
+	// Insertion of the data with the bulk-load command of the DBMS (classic mode)
+	public static final String BULK_LOAD = "org.obda.owlreformulationplatform.bulkLoad";
+
+	// Consistency check of the disjointness and functionality axioms
+	public static final String CONSISTENCY_BATCH_SIZE = "org.obda.owlreformulationplatform.consistencyBatchSize";
+	public static final String CONSISTENCY_THREADS = "org.obda.owlreformulationplatform.consistencyThreads";
+
+	// Check of the empty classes and properties
+	public static final String EMPTY_ENTITIES_BATCH_SIZE = "org.obda.owlreformulationplatform.emptyEntitiesBatchSize";
+	public static final String EMPTY_ENTITIES_THREADS = "org.obda.owlreformulationplatform.emptyEntitiesThreads";
+	public static final String EMPTY_ENTITIES_CACHE = "org.obda.owlreformulationplatform.emptyEntitiesCache";
 
 	public static final String  REWRITE 	= "rewrite";
 	
@@ -2,6 +2,7 @@ package it.unibz.inf.ontop.owlrefplatform.core;
 
 import it.unibz.inf.ontop.model.CQIE;
 import it.unibz.inf.ontop.model.DatalogProgram;
+import it.unibz.inf.ontop.model.Function;
 import it.unibz.inf.ontop.model.OBDAException;
 import it.unibz.inf.ontop.model.Predicate;
 import it.unibz.inf.ontop.model.Term;
@@ -22,12 +23,16 @@ import it.unibz.inf.ontop.owlrefplatform.core.unfolding.ExpressionEvaluator;
 import it.unibz.inf.ontop.owlrefplatform.core.unfolding.SPARQLQueryFlattener;
 import it.unibz.inf.ontop.renderer.DatalogProgramRenderer;
 
+import it.unibz.inf.ontop.owlrefplatform.core.translator.SparqlQueryTemplate;
+
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Random;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 import org.openrdf.query.MalformedQueryException;
 import org.openrdf.query.QueryLanguage;
 import org.openrdf.query.parser.ParsedQuery;
@@ -37,10 +42,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class QuestQueryProcessor {
-	
-	private final Map<String, ParsedQuery> parsedQueryCache = new ConcurrentHashMap<>();
-	private final Map<ParsedQuery, List<String>> querySignatureCache = new ConcurrentHashMap<>();
-	private final Map<ParsedQuery, String> translatedSQLCache = new ConcurrentHashMap<>();
+
+	/*
+	 * All caches are bounded by the total length (in characters) of their entries.
+	 * The caches keyed by ParsedQuery compare keys by identity (as ParsedQuery does not
+	 * override equals) and hold them weakly: their entries go away together with 
+	 * the parsed queries evicted from parsedQueryCache.
+	 */
+	private final Cache<String, ParsedQuery> parsedQueryCache;
+	private final Cache<ParsedQuery, List<String>> querySignatureCache;
+	private final Cache<ParsedQuery, String> translatedSQLCache;
+	private final Cache<ParsedQuery, ParameterizedSQL> parameterizedSQLCache;
+	private final Cache<ParsedQuery, QueryCompilationStats> compilationStatsCache;
+
+	/*
+	 * SQL translations shared by all queries with the same template, 
+	 * i.e., differing only in plain string literals, in integers and in the values 
+	 * of the URI templates of their IRIs (null if disabled)
+	 */
+	private final Cache<String, SQLTemplate> sqlTemplateCache;
+	private final String placeholderPrefix = "ontop" + Long.toHexString(new Random().nextLong() & Long.MAX_VALUE) + "p";
 	
 	private final QueryRewriter rewriter;
 	private final LinearInclusionDependencies sigma;
@@ -48,21 +69,85 @@ public class QuestQueryProcessor {
 	private final VocabularyValidator vocabularyValidator;
 	private final SemanticIndexURIMap uriMap;
 	private final SQLQueryGenerator datasourceQueryGenerator;
+	private final QueryMetrics metrics;
+	private final QueryCompilationBudget budget;
 	
 	private static final Logger log = LoggerFactory.getLogger(QuestQueryProcessor.class);
 	
+	/**
+	 * Logger of the queries that take longer than the slow query threshold
+	 */
+	static final Logger slowQueryLog = LoggerFactory.getLogger("it.unibz.inf.ontop.slowqueries");
+	
+	/**
+	 * @param cacheMaxWeight the maximum size of each cache (in characters of the cached queries)
+	 * @param reuseTemplates whether queries differing only in plain string literals (and integers and IRIs) share SQL translations
+	 * @param metrics the counters updated by the translations
+	 * @param budget the limits on the translation of each query
+	 */
 	public QuestQueryProcessor(QueryRewriter rewriter, LinearInclusionDependencies sigma, QuestUnfolder unfolder, 
-			VocabularyValidator vocabularyValidator, SemanticIndexURIMap uriMap, SQLQueryGenerator datasourceQueryGenerator) {
+			VocabularyValidator vocabularyValidator, SemanticIndexURIMap uriMap, SQLQueryGenerator datasourceQueryGenerator,
+			long cacheMaxWeight, boolean reuseTemplates, QueryMetrics metrics, QueryCompilationBudget budget) {
 		this.rewriter = rewriter;
 		this.sigma = sigma;
 		this.unfolder = unfolder;
 		this.vocabularyValidator = vocabularyValidator;
 		this.uriMap = uriMap;
 		this.datasourceQueryGenerator = datasourceQueryGenerator;
+		this.metrics = metrics;
+		this.budget = budget;
+
+		parsedQueryCache = CacheBuilder.newBuilder()
+				.maximumWeight(cacheMaxWeight)
+				.weigher(new Weigher<String, ParsedQuery>() {
+					@Override
+					public int weigh(String sparql, ParsedQuery pq) {
+						return sparql.length();
+					}
+				})
+				.build();
+		querySignatureCache = CacheBuilder.newBuilder()
+				.weakKeys()
+				.build();
+		translatedSQLCache = CacheBuilder.newBuilder()
+				.weakKeys()
+				.maximumWeight(cacheMaxWeight)
+				.weigher(new Weigher<ParsedQuery, String>() {
+					@Override
+					public int weigh(ParsedQuery pq, String sql) {
+						return sql.length();
+					}
+				})
+				.build();
+		parameterizedSQLCache = CacheBuilder.newBuilder()
+				.weakKeys()
+				.maximumWeight(cacheMaxWeight)
+				.weigher(new Weigher<ParsedQuery, ParameterizedSQL>() {
+					@Override
+					public int weigh(ParsedQuery pq, ParameterizedSQL psql) {
+						int weight = psql.getSQL().length();
+						for (Object parameter : psql.getParameters())
+							weight += parameter.toString().length();
+						return weight;
+					}
+				})
+				.build();
+		compilationStatsCache = CacheBuilder.newBuilder()
+				.weakKeys()
+				.build();
+		sqlTemplateCache = !reuseTemplates ? null : CacheBuilder.newBuilder()
+				.maximumWeight(cacheMaxWeight)
+				.weigher(new Weigher<String, SQLTemplate>() {
+					@Override
+					public int weigh(String key, SQLTemplate template) {
+						return key.length() + template.getWeight();
+					}
+				})
+				.build();
 	}
 	
 	public ParsedQuery getParsedQuery(String sparql) throws MalformedQueryException {
-		ParsedQuery pq = parsedQueryCache.get(sparql);
+		ParsedQuery pq = parsedQueryCache.getIfPresent(sparql);
 		if (pq == null) {
 			QueryParser parser = QueryParserUtil.createParser(QueryLanguage.SPARQL);
 			pq = parser.parseQuery(sparql, null);
@@ -78,11 +163,38 @@ public class QuestQueryProcessor {
 	 * @return
 	 */
 	public List<String> getQuerySignature(ParsedQuery pq) {
-		List<String> signature = querySignatureCache.get(pq);
+		List<String> signature = querySignatureCache.getIfPresent(pq);
 		return signature;
 	}
 	
 	
+	/**
+	 * Returns the SQL translation of the query with its string and integer literals
+	 * (and the values of the URI templates of its IRIs) replaced by JDBC parameters, 
+	 * or null if the translation has no such parameters (the SQL from getSQL 
+	 * should be used instead).
+	 * 
+	 * CAN BE CALLED ONLY AFTER getSQL
+	 */
+	public ParameterizedSQL getParameterizedSQL(ParsedQuery pq) {
+		return parameterizedSQLCache.getIfPresent(pq);
+	}
+	
+	/**
+	 * Returns the phase breakdown of the last translation of the query into SQL,
+	 * or null if its SQL has been obtained from a query template.
+	 * 
+	 * CAN BE CALLED ONLY AFTER getSQL
+	 */
+	public QueryCompilationStats getCompilationStats(ParsedQuery pq) {
+		return compilationStatsCache.getIfPresent(pq);
+	}
+	
+	public QueryMetrics getMetrics() {
+		return metrics;
+	}
+	
+	
 	private DatalogProgram translateAndPreProcess(ParsedQuery pq)  {
 		
 		SparqlAlgebraToDatalogTranslator translator = new SparqlAlgebraToDatalogTranslator(unfolder.getUriTemplateMatcher(), uriMap, unfolder.getSameAsDataPredicatesAndClasses(), unfolder.getSameAsObjectPredicates() );
@@ -104,36 +216,129 @@ public class QuestQueryProcessor {
 	}
 	
 	
+	/**
+	 * Returns false if the class or property has no mappings (and so no instances),
+	 * which is decided without translating any query. The equivalent classes and 
+	 * properties are replaced by their representatives, as in the queries.
+	 */
+	public boolean hasMappings(Predicate predicate) {
+		List<Term> terms = new ArrayList<>(predicate.getArity());
+		for (int i = 0; i < predicate.getArity(); i++)
+			terms.add(OBDADataFactoryImpl.getInstance().getVariable("x" + i));
+		Function atom = vocabularyValidator.getNormal(OBDADataFactoryImpl.getInstance().getFunction(predicate, terms));
+		return unfolder.getMappedPredicates().contains(atom.getFunctionSymbol());
+	}
+
 	public void clearSQLCache() {
-		translatedSQLCache.clear();
+		translatedSQLCache.invalidateAll();
+		parameterizedSQLCache.invalidateAll();
+		if (sqlTemplateCache != null)
+			sqlTemplateCache.invalidateAll();
 	}
 	
 	
 	public String getSQL(ParsedQuery pq) throws OBDAException {
 			
-		String cachedSQL = translatedSQLCache.get(pq);
-		if (cachedSQL != null)
+		String cachedSQL = translatedSQLCache.getIfPresent(pq);
+		if (cachedSQL != null) {
+			metrics.recordCompilationCacheHit();
 			return cachedSQL;
+		}
+
+		if (sqlTemplateCache == null) {
+			String sql = translateIntoSQL(pq);
+			translatedSQLCache.put(pq, sql);
+			return sql;
+		}
+
+		// in the Semantic Index mode IRIs are replaced by their ids, and so are not lifted
+		SparqlQueryTemplate template = SparqlQueryTemplate.create(pq, placeholderPrefix, unfolder.getMappingConstants(), 
+				(uriMap == null) ? unfolder.getUriTemplateMatcher() : null);
+		if (template == null) {
+			String sql = translateIntoSQL(pq);
+			translatedSQLCache.put(pq, sql);
+			return sql;
+		}
+
+		SQLTemplate sqlTemplate = sqlTemplateCache.getIfPresent(template.getKey());
+		if (sqlTemplate == SQLTemplate.NOT_REUSABLE) {
+			String sql = translateIntoSQL(pq);
+			translatedSQLCache.put(pq, sql);
+			return sql;
+		}
+		if (sqlTemplate != null) {
+			String sql = sqlTemplate.getSQL(template.getParameters(), datasourceQueryGenerator);
+			log.debug("Query template cache hit, resulting SQL: \n{}", sql);
+			metrics.recordTemplateCacheHit();
+			querySignatureCache.put(pq, sqlTemplate.getSignature());
+			if (sqlTemplate.hasParameters())
+				parameterizedSQLCache.put(pq, sqlTemplate.getParameterizedSQL(template.getParameters()));
+			translatedSQLCache.put(pq, sql);
+			return sql;
+		}
+
+		// only the query of the template is translated: the SQL of the query is obtained by binding the template
+		String templateSQL = translateIntoSQL(template.getQuery());
+		sqlTemplate = SQLTemplate.create(templateSQL, getQuerySignature(template.getQuery()), template, 
+				placeholderPrefix, datasourceQueryGenerator);
+		if (sqlTemplate == null) {
+			// the translation depends on the lifted values (and so does the translation of any query with the same key)
+			log.debug("The SQL of the query template cannot be bound to other values, not reused");
+			sqlTemplateCache.put(template.getKey(), SQLTemplate.NOT_REUSABLE);
+			String sql = translateIntoSQL(pq);
+			translatedSQLCache.put(pq, sql);
+			return sql;
+		}
+		sqlTemplateCache.put(template.getKey(), sqlTemplate);
 		
+		String sql = sqlTemplate.getSQL(template.getParameters(), datasourceQueryGenerator);
+		querySignatureCache.put(pq, sqlTemplate.getSignature());
+		if (sqlTemplate.hasParameters())
+			parameterizedSQLCache.put(pq, sqlTemplate.getParameterizedSQL(template.getParameters()));
+		translatedSQLCache.put(pq, sql);
+		return sql;
+	}
+
+	/**
+	 * Parses and translates a query that is not to be cached (e.g., a probe of the
+	 * consistency check): neither the parsed query nor its SQL is kept by the caches.
+	 */
+	public String getUncachedSQL(String sparql) throws MalformedQueryException, OBDAException {
+		QueryParser parser = QueryParserUtil.createParser(QueryLanguage.SPARQL);
+		return translateIntoSQL(parser.parseQuery(sparql, null));
+	}
+
+	/**
+	 * Translates the query into SQL (and records its signature), bypassing the SQL caches.
+	 * The method is reentrant: the state of a translation is local to it (the rewriter,
+	 * the unfolder and the SQL generator are shared by concurrent translations).
+	 */
+	private String translateIntoSQL(ParsedQuery pq) throws OBDAException {
+		QueryCompilationStats stats = new QueryCompilationStats();
+		long deadline = budget.getDeadline(System.nanoTime());
 		try {
 			// log.debug("Input query:\n{}", strquery);
 			
+			stats.start(QueryCompilationStats.Phase.TRANSLATION);
 			SparqlAlgebraToDatalogTranslator translator = new SparqlAlgebraToDatalogTranslator(unfolder.getUriTemplateMatcher(), uriMap, unfolder.getSameAsDataPredicatesAndClasses(), unfolder.getSameAsObjectPredicates());
 			DatalogProgram translation = translator.translate(pq);
 
 			log.debug("Datalog program translated from the SPARQL query: \n{}", translation);
 
+			stats.start(QueryCompilationStats.Phase.FLATTENING);
 			SPARQLQueryFlattener flattener = new SPARQLQueryFlattener(translation);
 			DatalogProgram program = flattener.flatten();
 			log.debug("Flattened program: \n{}", program);
 				
 			log.debug("Replacing equivalences...");
+			stats.start(QueryCompilationStats.Phase.EQUIVALENCES);
 			DatalogProgram newprogram = OBDADataFactoryImpl.getInstance().getDatalogProgram(program.getQueryModifiers());
 			for (CQIE query : program.getRules()) {
 				CQIE newquery = vocabularyValidator.replaceEquivalences(query);
 				newprogram.appendRule(newquery);
 			}
 
+			stats.start(QueryCompilationStats.Phase.NORMALIZATION);
 			for (CQIE q : newprogram.getRules()) 
 				DatalogNormalizer.unfoldJoinTrees(q);
 			log.debug("Normalized program: \n{}", newprogram);
@@ -143,17 +348,19 @@ public class QuestQueryProcessor {
 
 			log.debug("Start the rewriting process...");
 
-			//final long startTime0 = System.currentTimeMillis();
+			stats.start(QueryCompilationStats.Phase.SIGMA);
 			for (CQIE cq : newprogram.getRules())
 				CQCUtilities.optimizeQueryWithSigmaRules(cq.getBody(), sigma);
+			stats.start(QueryCompilationStats.Phase.REWRITING);
 			DatalogProgram programAfterRewriting = rewriter.rewrite(newprogram);
-			
-			//rewritingTime = System.currentTimeMillis() - startTime0;
+			stats.setRewrittenCQs(programAfterRewriting.getRules().size());
+			budget.checkRewriting(programAfterRewriting.getRules().size());
+			QueryCompilationBudget.checkDeadline(deadline);
 
-			//final long startTime = System.currentTimeMillis();
 			log.debug("Start the partial evaluation process...");
 
-			DatalogProgram programAfterUnfolding = unfolder.unfold(programAfterRewriting);
+			stats.start(QueryCompilationStats.Phase.UNFOLDING);
+			DatalogProgram programAfterUnfolding = unfolder.unfold(programAfterRewriting, budget.getMaxUnfoldedRules(), deadline);
 			log.debug("Data atoms evaluated: \n{}", programAfterUnfolding);
 
 			List<CQIE> toRemove = new LinkedList<>();
@@ -166,6 +373,7 @@ public class QuestQueryProcessor {
 			programAfterUnfolding.removeRules(toRemove);
 			log.debug("Irrelevant rules removed: \n{}", programAfterUnfolding);
 
+			stats.start(QueryCompilationStats.Phase.EXPRESSIONS);
 			ExpressionEvaluator evaluator = new ExpressionEvaluator(unfolder.getUriTemplateMatcher());
 			evaluator.evaluateExpressions(programAfterUnfolding);
 			
@@ -186,7 +394,7 @@ public class QuestQueryProcessor {
 
 			log.debug("Boolean expression evaluated: \n{}", programAfterUnfolding);
 			log.debug("Partial evaluation ended.");
-			//unfoldingTime = System.currentTimeMillis() - startTime;
+			stats.setUnfoldedRules(programAfterUnfolding.getRules().size());
 
 			List<String> signature = null;
 			 // IMPORTANT: this is the original query 
@@ -204,15 +412,27 @@ public class QuestQueryProcessor {
 			String sql;
 			if (programAfterUnfolding.getRules().size() > 0) {
 				log.debug("Producing the SQL string...");
+				QueryCompilationBudget.checkDeadline(deadline);
+				stats.start(QueryCompilationStats.Phase.SQL_GENERATION);
 				sql = datasourceQueryGenerator.generateSourceQuery(programAfterUnfolding, signature);
+				budget.checkSQL(sql.length());
 				log.debug("Resulting SQL: \n{}", sql);
 			}
 			else
 				sql = "";
+			stats.stop();
+			stats.setSQLLength(sql.length());
 			
-			translatedSQLCache.put(pq, sql);
+			log.debug("Translation into SQL: {}", stats);
+			compilationStatsCache.put(pq, stats);
+			metrics.recordCompilation(stats);
 			return sql;
 		} 
+		catch (QueryCompilationBudgetException e) {
+			stats.stop();
+			log.warn("{}. Translation so far: {}\nSPARQL:\n{}", e.getMessage(), stats, pq.getSourceString());
+			throw e;
+		}
 		catch (Exception e) {
 			log.debug(e.getMessage(), e);
 			e.printStackTrace();
@@ -30,13 +30,23 @@ import org.openrdf.query.parser.ParsedQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -51,8 +61,13 @@ public class QuestStatement implements OBDAStatement {
 	private final Statement sqlStatement;
 
 
-	private QueryExecutionThread executionThread;
-	private boolean canceled = false;
+	// the current (or last) execution: a new execution is never affected by the cancellation of the previous one
+	private final AtomicReference<QueryExecution> execution = new AtomicReference<>();
+	private volatile boolean canceled = false;
+
+	/* the prepared statement (borrowed from the connection) of the last executed query, if any */
+	private volatile PreparedStatement preparedStatement;
+	private String preparedSQL;
 
 	
 	private static final Logger log = LoggerFactory.getLogger(QuestStatement.class);
@@ -72,25 +87,36 @@ public class QuestStatement implements OBDAStatement {
 		DESCRIBE
 	}
 
-	private class QueryExecutionThread extends Thread {
+	/**
+	 * The execution of the SQL query, run by the query executor of Quest
+	 */
+	private class QueryExecution implements Runnable {
 
-		private final CountDownLatch monitor;
 		private final String sql;
+		private final ParameterizedSQL parameterizedSQL; // null if executed as a plain statement
 		private final List<String> signature;
 		private final QueryType type;
 		private final SesameConstructTemplate templ; // only for CONSTRUCT and DESCRIBE queries
+		private final boolean distinct; // duplicate rows are removed by the result set
 		
 		private TupleResultSet tupleResult;	  // only for SELECT and ASK queries
 		private GraphResultSet graphResult;   // only for CONSTRUCT and DESCRIBE queries
 		private Exception exception = null;
-		private boolean executingSQL = false;
+		private volatile boolean executingSQL = false;
+		private volatile boolean canceled = false;
+		private volatile Future<?> future;
+		private volatile long executionTime = 0; // nanoseconds until the SQL results are available
 
-		public QueryExecutionThread(String sql, List<String> signature, QueryType type, SesameConstructTemplate templ, CountDownLatch monitor) {
-			this.monitor = monitor;
+		private java.sql.ResultSet resultSet; // guarded by this
+		private boolean abandoned = false;    // guarded by this: nobody waits for the results
+
+		public QueryExecution(String sql, ParameterizedSQL parameterizedSQL, List<String> signature, QueryType type, SesameConstructTemplate templ, boolean distinct) {
 			this.sql = sql;
+			this.parameterizedSQL = parameterizedSQL;
 			this.signature = signature;
 			this.templ = templ;
 			this.type = type;
+			this.distinct = distinct;
 		}
 
 		public boolean errorStatus() {
@@ -109,17 +135,56 @@ public class QuestStatement implements OBDAStatement {
 			return graphResult;
 		}
 
+		public boolean isCanceled() {
+			return canceled;
+		}
+
 		public void cancel() throws SQLException {
 			canceled = true;
 			if (!executingSQL) {
-				this.stop();
+				// if the execution has not started yet, it will never start
+				Future<?> f = future;
+				if (f != null)
+					f.cancel(true);
 			} else {
-				sqlStatement.cancel();
+				PreparedStatement ps = preparedStatement;
+				if (parameterizedSQL != null && ps != null)
+					ps.cancel();
+				else
+					sqlStatement.cancel();
+			}
+		}
+
+		/**
+		 * Called when the results are no longer awaited (after a timeout, a cancellation 
+		 * or an interruption): the SQL results are closed now or, if the SQL query is 
+		 * still running, as soon as they arrive.
+		 */
+		public void abandon() {
+			java.sql.ResultSet set;
+			synchronized (this) {
+				abandoned = true;
+				set = resultSet;
+				resultSet = null;
+			}
+			closeAbandoned(set);
+		}
+
+		private void closeAbandoned(java.sql.ResultSet set) {
+			if (set == null)
+				return;
+			try {
+				set.close();
+			}
+			catch (SQLException e) {
+				log.debug("Cannot close the results of an abandoned query: {}", e.getMessage());
 			}
 		}
 
 		@Override
 		public void run() {
+			if (canceled)
+				return;
 			try {
 				// Obtaining the query from the cache
 				 
@@ -140,12 +205,31 @@ public class QuestStatement implements OBDAStatement {
 //                        }
 						// Execute the SQL query string
 						executingSQL = true;
-						java.sql.ResultSet set = sqlStatement.executeQuery(sql);
+						long start = System.nanoTime();
+						java.sql.ResultSet set;
+						if (parameterizedSQL != null)
+							set = executePreparedQuery(parameterizedSQL);
+						else
+							set = sqlStatement.executeQuery(sql);
+						executionTime = System.nanoTime() - start;
+						questInstance.getQueryMetrics().recordExecution(executionTime);
+
+						boolean late;
+						synchronized (this) {
+							late = abandoned;
+							if (!late)
+								resultSet = set;
+						}
+						if (late) {
+							log.debug("The results of the SQL query arrived after the query was abandoned");
+							closeAbandoned(set);
+							return;
+						}
 
 						// Store the SQL result to application result set.
 						switch (type) {
 						case SELECT:
-							if (questInstance.hasDistinctResultSet()) 
+							if (distinct)
 								tupleResult = new QuestDistinctTupleResultSet(set, signature, QuestStatement.this);
 							else
 								tupleResult = new QuestTupleResultSet(set, signature, QuestStatement.this);
@@ -161,8 +245,9 @@ public class QuestStatement implements OBDAStatement {
 							break;
 							
 						case DESCRIBE:
+							// streamed: the DESCRIBE queries are run one at a time (see DescribeResultSet)
 							tuples = new QuestTupleResultSet(set, signature, QuestStatement.this);
-							graphResult = new QuestGraphResultSet(tuples, templ, true);
+							graphResult = new QuestGraphResultSet(tuples, templ, false);
 							break;
 						}
 					}
@@ -198,12 +283,68 @@ public class QuestStatement implements OBDAStatement {
 				exception = e;
 				log.error(e.getMessage(), e);
 			}
-			finally {
-				monitor.countDown();
+		}
+
+
+	}
+
+	/**
+	 * The triples of a DESCRIBE query: the CONSTRUCT queries are executed one after
+	 * the other, each when the results of the previous one have been consumed
+	 * (they share the SQL statement)
+	 */
+	private class DescribeResultSet implements GraphResultSet {
+
+		private final Iterator<String> queries;
+		private GraphResultSet current = null;
+		private boolean ready = false; // whether current has a result to return
+
+		DescribeResultSet(List<String> queries) {
+			this.queries = queries.iterator();
+		}
+
+		@Override
+		public boolean hasNext() throws OBDAException {
+			if (ready)
+				return true;
+			while (true) {
+				if (current != null) {
+					if (current.hasNext()) {
+						ready = true;
+						return true;
+					}
+					current.close();
+					current = null;
+				}
+				if (!queries.hasNext())
+					return false;
+				// null if the query has no SQL translation
+				current = executeGraphQuery(queries.next(), QueryType.DESCRIBE);
 			}
 		}
 
+		@Override
+		public List<Assertion> next() throws OBDAException {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			ready = false;
+			return current.next();
+		}
+
+		@Override
+		public void close() throws OBDAException {
+			if (current != null) {
+				current.close();
+				current = null;
+			}
+			while (queries.hasNext())
+				queries.next();
+		}
 
+		@Override
+		public void addNewResultSet(List<Assertion> result) {
+			throw new UnsupportedOperationException();
+		}
 	}
 
 	/**
@@ -231,7 +372,7 @@ public class QuestStatement implements OBDAStatement {
 			} 
 			else if (SPARQLQueryUtility.isDescribeQuery(pq)) {
 				// create list of URI constants we want to describe
-				List<String> constants = new LinkedList<>();
+				List<String> constants = new ArrayList<>();
 				if (SPARQLQueryUtility.isVarDescribe(strquery)) {
 					// if describe ?var, we have to do select distinct ?var first
 					String sel = SPARQLQueryUtility.getSelectVarDescribe(strquery);
@@ -247,6 +388,7 @@ public class QuestStatement implements OBDAStatement {
 								constants.add(((URIConstant)constant).getURI());
 							}
 						}
+						res.close();
 					}
 				} 
 				else if (SPARQLQueryUtility.isURIDescribe(strquery)) {
@@ -259,35 +401,20 @@ public class QuestStatement implements OBDAStatement {
 					}
 				}
 
-				GraphResultSet describeResultSet = null;
-				// execute describe <uriconst> in subject position
-				for (String constant : constants) {
-					// for each constant we execute a construct with
-					// the uri as subject, and collect the results
-					String str = SPARQLQueryUtility.getConstructSubjQuery(constant);
-					GraphResultSet set = executeGraphQuery(str, QueryType.DESCRIBE);
-					if (describeResultSet == null) { // just for the first time
-						describeResultSet = set;	
-					} 
-					else if (set != null) {
-						// 2nd and manyth times execute, but collect result into one object
-						while (set.hasNext()) 
-							describeResultSet.addNewResultSet(set.next());
-					}
-				}
-				// execute describe <uriconst> in object position
-				for (String constant : constants) {
-					String str = SPARQLQueryUtility.getConstructObjQuery(constant);
-					GraphResultSet set = executeGraphQuery(str, QueryType.DESCRIBE);
-					if (describeResultSet == null) { // just for the first time
-						describeResultSet = set;
-					} 
-					else if (set != null) {
-						while (set.hasNext()) 
-							describeResultSet.addNewResultSet(set.next());
-					}
-				}
-				return describeResultSet;
+				if (constants.isEmpty())
+					return null;
+
+				// the triples with the URIs in subject position and then in object position,
+				// by CONSTRUCT queries over batches of URIs (in VALUES)
+				List<String> queries = new ArrayList<>();
+				int batchSize = questInstance.getDescribeBatchSize();
+				for (int i = 0; i < constants.size(); i += batchSize)
+					queries.add(SPARQLQueryUtility.getConstructSubjQuery(
+							constants.subList(i, Math.min(i + batchSize, constants.size()))));
+				for (int i = 0; i < constants.size(); i += batchSize)
+					queries.add(SPARQLQueryUtility.getConstructObjQuery(
+							constants.subList(i, Math.min(i + batchSize, constants.size()))));
+				return new DescribeResultSet(queries);
 			}
 		}
 		catch (MalformedQueryException e) {
@@ -314,8 +441,8 @@ public class QuestStatement implements OBDAStatement {
 
 		log.debug("Executing SPARQL query: \n{}", strquery);
 
-		QueryExecutionThread executionthread = startExecute(pq, type, null);
-		TupleResultSet result = executionthread.getTupleResult();
+		QueryExecution execution = startExecute(pq, type, null);
+		TupleResultSet result = execution.getTupleResult();
 		if (result == null)
 			throw new RuntimeException("Error, the result set was null");
 
@@ -332,8 +459,8 @@ public class QuestStatement implements OBDAStatement {
 			String query = SPARQLQueryUtility.getSelectFromConstruct(strquery);
 			ParsedQuery pq = engine.getParsedQuery(query);
 			
-			QueryExecutionThread executionthread = startExecute(pq, type, templ);
-			GraphResultSet executedGraphQuery = executionthread.getGraphResult();
+			QueryExecution execution = startExecute(pq, type, templ);
+			GraphResultSet executedGraphQuery = execution.getGraphResult();
 			return executedGraphQuery;
 		} 
 		catch (MalformedQueryException e) {
@@ -345,37 +472,136 @@ public class QuestStatement implements OBDAStatement {
 	
 
 	/**
-	 * Internal method to start a new query execution thread type defines the
-	 * query type SELECT, ASK, CONSTRUCT, or DESCRIBE
+	 * Internal method to execute the query on the query executor of Quest 
+	 * and wait for the result; type defines the query type SELECT, ASK, 
+	 * CONSTRUCT, or DESCRIBE
 	 */
-	private QueryExecutionThread startExecute(ParsedQuery pq, QueryType type, SesameConstructTemplate templ) throws OBDAException {
-		CountDownLatch monitor = new CountDownLatch(1);
+	private QueryExecution startExecute(ParsedQuery pq, QueryType type, SesameConstructTemplate templ) throws OBDAException {
+		long start = System.nanoTime();
 		String sql = engine.getSQL(pq);
+		long compilationTime = System.nanoTime() - start;
 		List<String> signature = engine.getQuerySignature(pq);
-		QueryExecutionThread executionthread = new QueryExecutionThread(sql, signature, type, templ, monitor);
-		this.executionThread = executionthread;
-		executionthread.start();
+		ParameterizedSQL parameterizedSQL = questInstance.usesPreparedStatements() ? engine.getParameterizedSQL(pq) : null;
+		// with a distinct result set, the SQL query does not remove the duplicates
+		boolean distinct = (type == QueryType.SELECT) && questInstance.hasDistinctResultSet() 
+				&& SPARQLQueryUtility.isDistinctQuery(pq);
+		QueryExecution execution = new QueryExecution(sql, parameterizedSQL, signature, type, templ, distinct);
+		this.execution.set(execution);
+		canceled = false;
+
 		try {
-			monitor.await();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+			execution.future = questInstance.getQueryExecutor().submit(execution);
+		} 
+		catch (RejectedExecutionException e) {
+			throw new OBDAException("Query rejected: too many queries are waiting for execution", e);
 		}
-		if (executionthread.errorStatus()) {
-			OBDAException ex = new OBDAException(executionthread.getException().getMessage());
-			ex.setStackTrace(executionthread.getStackTrace());
+
+		long deadline = questInstance.getQueryDeadline();
+		try {
+			if (deadline > 0)
+				execution.future.get(deadline, TimeUnit.MILLISECONDS);
+			else
+				execution.future.get();
+		} 
+		catch (TimeoutException e) {
+			try {
+				execution.cancel();
+			} 
+			catch (SQLException e1) {
+				log.debug(e1.getMessage(), e1);
+			}
+			execution.abandon();
+			throw new OBDAException("Query execution exceeded the deadline of " + deadline + " ms");
+		} 
+		catch (CancellationException e) {
+			// reported below
+		} 
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			try {
+				execution.cancel();
+			} 
+			catch (SQLException e1) {
+				log.debug(e1.getMessage(), e1);
+			}
+		} 
+		catch (ExecutionException e) {
+			// all the exceptions are caught by the execution itself
+			throw new OBDAException("Error executing the query", e.getCause());
+		}
+
+		if (execution.errorStatus()) {
+			OBDAException ex = new OBDAException(execution.getException().getMessage());
+			ex.setStackTrace(execution.getException().getStackTrace());
 			throw ex;
 		}
 
-		if (canceled == true) {
-			canceled = false;
+		if (execution.isCanceled()) {
+			execution.abandon();
 			throw new OBDAException("Query execution was cancelled");
 		}
-		return executionthread;
+		
+		logIfSlow(pq, sql, compilationTime, execution.executionTime);
+		return execution;
+	}
+
+	/**
+	 * Logs the query if its translation and execution exceeded the slow query threshold,
+	 * with the phase breakdown of its translation (if it has been translated, rather
+	 * than obtained from a query template)
+	 */
+	private void logIfSlow(ParsedQuery pq, String sql, long compilationTime, long executionTime) {
+		long threshold = questInstance.getSlowQueryThreshold();
+		if (threshold <= 0)
+			return;
+		long total = TimeUnit.NANOSECONDS.toMillis(compilationTime + executionTime);
+		if (total < threshold)
+			return;
+		
+		questInstance.getQueryMetrics().recordSlowQuery();
+		QueryCompilationStats stats = engine.getCompilationStats(pq);
+		QuestQueryProcessor.slowQueryLog.warn("Slow query: {} ms (translation {} ms, SQL execution {} ms)\n"
+				+ "Translation phases: {}\nSPARQL:\n{}\nSQL:\n{}", 
+				total, TimeUnit.NANOSECONDS.toMillis(compilationTime), TimeUnit.NANOSECONDS.toMillis(executionTime),
+				(stats != null) ? stats : "none (cached translation)", pq.getSourceString(), sql);
 	}
 
 	
 
 
+	/**
+	 * Executes the SQL query by means of a prepared statement of the connection.
+	 * As with plain JDBC statements, the results of the previous query of this 
+	 * statement are no longer available afterwards.
+	 */
+	private java.sql.ResultSet executePreparedQuery(ParameterizedSQL parameterizedSQL) throws SQLException {
+		releasePreparedStatement();
+		
+		PreparedStatement ps = conn.borrowPreparedStatement(parameterizedSQL.getSQL());
+		preparedSQL = parameterizedSQL.getSQL();
+		preparedStatement = ps;
+
+		// the settings are made on the plain statement
+		ps.setQueryTimeout(sqlStatement.getQueryTimeout());
+		ps.setFetchSize(sqlStatement.getFetchSize());
+		ps.setMaxRows(sqlStatement.getMaxRows());
+		
+		List<Object> parameters = parameterizedSQL.getParameters();
+		for (int i = 0; i < parameters.size(); i++)
+			ps.setObject(i + 1, parameters.get(i));
+		
+		log.debug("Executing the prepared statement with parameters {}", parameters);
+		return ps.executeQuery();
+	}
+
+	private void releasePreparedStatement() {
+		PreparedStatement ps = preparedStatement;
+		if (ps != null) {
+			preparedStatement = null;
+			conn.releasePreparedStatement(preparedSQL, ps);
+		}
+	}
+
 	/**
 	 * Returns the number of tuples returned by the query
 	 */
@@ -396,9 +622,53 @@ public class QuestStatement implements OBDAStatement {
 		}
 	}
 
+	/**
+	 * Returns the indexes of the SELECT queries with at least one answer. The queries
+	 * are checked by a single SQL query, a UNION ALL of an EXISTS probe for each of them,
+	 * so that the DBMS can stop at the first row of each. The queries with an empty 
+	 * translation (no mappings) are not probed. The queries are one-off, and so are
+	 * translated bypassing the caches of the query processor.
+	 */
+	public Set<Integer> getNonEmptyQueries(List<String> queries) throws OBDAException {
+		String dummyTable = questInstance.getSQLDialectAdapter().getDummyTable();
+		StringBuilder sql = new StringBuilder();
+		for (int i = 0; i < queries.size(); i++) {
+			String unf;
+			try {
+				unf = engine.getUncachedSQL(queries.get(i));
+			}
+			catch (MalformedQueryException e) {
+				throw new OBDAException(e);
+			}
+			if (unf.isEmpty())
+				continue;
+			if (sql.length() > 0)
+				sql.append("\nUNION ALL\n");
+			sql.append("SELECT ").append(i).append(" AS probe FROM (").append(dummyTable)
+				.append(") tdummy WHERE EXISTS (").append(unf).append(")");
+		}
+
+		Set<Integer> result = new HashSet<>();
+		if (sql.length() == 0)
+			return result;
+		if (canceled)
+			throw new OBDAException("Action canceled.");
+
+		log.debug("Executing the probes of {} queries: \n{}", queries.size(), sql);
+		try (java.sql.ResultSet set = sqlStatement.executeQuery(sql.toString())) {
+			while (set.next())
+				result.add(set.getInt(1));
+		}
+		catch (SQLException e) {
+			throw new OBDAException(e);
+		}
+		return result;
+	}
+
 	@Override
 	public void close() throws OBDAException {
 		try {
+			releasePreparedStatement();
 			if (sqlStatement != null)
 				sqlStatement.close();
 		} catch (Exception e) {
@@ -411,7 +681,9 @@ public class QuestStatement implements OBDAStatement {
 	public void cancel() throws OBDAException {
 		canceled = true;
 		try {
-			QuestStatement.this.executionThread.cancel();
+			QueryExecution execution = this.execution.get();
+			if (execution != null)
+				execution.cancel();
 		} catch (Exception e) {
 			throw new OBDAException(e);
 		}
@@ -422,7 +694,8 @@ public class QuestStatement implements OBDAStatement {
 	 * @return
 	 */
 	public boolean isCanceled(){
-		return canceled;
+		QueryExecution execution = this.execution.get();
+		return canceled || (execution != null && execution.isCanceled());
 	}
 	
 	@Override
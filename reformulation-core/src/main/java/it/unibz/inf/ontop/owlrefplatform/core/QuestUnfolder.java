@@ -53,6 +53,15 @@ public class QuestUnfolder {
 	private Set<Predicate> dataPropertiesAndClassesMapped = new HashSet<>();
 	private Set<Predicate> objectPropertiesMapped = new HashSet<>();
 
+	/* lexical values of all the constants occurring in the unfolding program */
+	private Set<String> mappingConstants = Collections.emptySet();
+
+	/* the unfolding program without the triple(x,y,z) mappings */
+	private List<CQIE> mappingProgram = Collections.emptyList();
+
+	/* the predicates in the heads of the mapping program */
+	private Set<Predicate> mappedPredicates = Collections.emptySet();
+
 	/**
 	 * @throws SQLException
 	 * @throws JSQLParserException
@@ -124,6 +133,50 @@ public class QuestUnfolder {
 			addSameAsMapping(unfoldingProgram);
 		}
 
+		setupUnfolder(unfoldingProgram);
+	}
+
+	/**
+	 * Sets up the unfolder from a program prepared by setupInVirtualMode
+	 * (see {@link #getMappingProgram()}) with the same mappings, ontology and settings
+	 *
+	 * @param mappingProgram the program, which is not modified
+	 * @param sameAs
+	 * @throws OBDAException
+	 */
+	public void setupFromMappingProgram(List<CQIE> mappingProgram, boolean sameAs) throws OBDAException {
+		List<CQIE> unfoldingProgram = new ArrayList<>(mappingProgram);
+
+		if (sameAs) {
+			addSameAsMapping(unfoldingProgram);
+		}
+
+		setupUnfolder(unfoldingProgram);
+	}
+
+	/**
+	 * Returns the unfolding program without the triple(x,y,z) mappings
+	 * (the mapping program, from which the unfolder can be set up again)
+	 */
+	public List<CQIE> getMappingProgram() {
+		return mappingProgram;
+	}
+
+	/**
+	 * Returns the predicates with at least one mapping (after T-mappings and the
+	 * replacement of equivalences); all other predicates have no instances
+	 */
+	public Set<Predicate> getMappedPredicates() {
+		return mappedPredicates;
+	}
+
+	private void setupUnfolder(List<CQIE> unfoldingProgram) {
+		mappingProgram = Collections.unmodifiableList(new ArrayList<>(unfoldingProgram));
+		Set<Predicate> heads = new HashSet<>();
+		for (CQIE rule : unfoldingProgram)
+			heads.add(rule.getHead().getFunctionSymbol());
+		mappedPredicates = Collections.unmodifiableSet(heads);
+
 		// Collecting URI templates
 		uriTemplateMatcher = UriTemplateMatcher.create(unfoldingProgram);
 
@@ -138,6 +191,7 @@ public class QuestUnfolder {
 		}
 		
 		unfolder = new DatalogUnfolder(unfoldingProgram, pkeys);
+		mappingConstants = collectConstants(unfoldingProgram);
 		
 		this.ufp = unfoldingProgram;
 	}
@@ -158,22 +212,7 @@ public class QuestUnfolder {
 		// existential quantifiers and inverse roles
 		unfoldingProgram = applyTMappings(unfoldingProgram, reformulationReasoner, false, TMappingExclusionConfig.empty());
 		
-		// Collecting URI templates
-		uriTemplateMatcher = UriTemplateMatcher.create(unfoldingProgram);
-
-		// Adding "triple(x,y,z)" mappings for support of unbounded
-		// predicates and variables as class names (implemented in the
-		// sparql translator)
-		unfoldingProgram.addAll(generateTripleMappings(unfoldingProgram));
-
-		if(log.isDebugEnabled()) {
-			String finalMappings = Joiner.on("\n").join(unfoldingProgram);
-			log.debug("Final set of mappings: \n {}", finalMappings);
-		}
-		
-		unfolder = new DatalogUnfolder(unfoldingProgram, pkeys);	
-		
-		this.ufp = unfoldingProgram;
+		setupUnfolder(unfoldingProgram);
 	}
 
 	
@@ -397,11 +436,47 @@ public class QuestUnfolder {
 	public UriTemplateMatcher getUriTemplateMatcher() {
 		return uriTemplateMatcher;
 	}
+
+	/**
+	 * Returns the lexical values of all the constants in the mappings (including URI templates).
+	 * Query literals with these values may be matched by the unfolder and cannot be 
+	 * treated as opaque SQL constants.
+	 */
+	public Set<String> getMappingConstants() {
+		return mappingConstants;
+	}
+
+	private static Set<String> collectConstants(List<CQIE> unfoldingProgram) {
+		Set<String> constants = new HashSet<>();
+		for (CQIE rule : unfoldingProgram) {
+			collectConstants(rule.getHead(), constants);
+			for (Function atom : rule.getBody())
+				collectConstants(atom, constants);
+		}
+		return Collections.unmodifiableSet(constants);
+	}
+
+	private static void collectConstants(Function atom, Set<String> constants) {
+		for (Term term : atom.getTerms()) {
+			if (term instanceof Function)
+				collectConstants((Function) term, constants);
+			else if (term instanceof ValueConstant)
+				constants.add(((ValueConstant) term).getValue());
+		}
+	}
 	
 	public DatalogProgram unfold(DatalogProgram query) throws OBDAException {
 		return unfolder.unfold(query);
 	}
 
+	/**
+	 * Unfolds the query, giving up as soon as the unfolding has more than maxRules 
+	 * rules (unless 0) or the deadline (a value of System.nanoTime(), unless 0) has passed
+	 */
+	public DatalogProgram unfold(DatalogProgram query, int maxRules, long deadline) throws OBDAException {
+		return unfolder.unfold(query, maxRules, deadline);
+	}
+
 
 	/***
 	 * Expands a SELECT * into a SELECT with all columns implicit in the *
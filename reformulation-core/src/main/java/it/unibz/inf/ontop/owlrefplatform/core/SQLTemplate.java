@@ -0,0 +1,171 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import it.unibz.inf.ontop.owlrefplatform.core.srcquerygeneration.SQLQueryGenerator;
+import it.unibz.inf.ontop.owlrefplatform.core.translator.SparqlQueryTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL translation of a {@link SparqlQueryTemplate}: the SQL string split
+ * around the SQL string constants (or the numbers, for integers) of the
+ * placeholders, so that it can be re-bound to the values of any query with
+ * the same template.
+ */
+final class SQLTemplate {
+
+	private final String[] fragments; // one more than the parameters
+	private final int[] parameters;
+	private final boolean[] integers; // for each placeholder of the template
+	private final List<String> signature;
+	private final int weight;
+	private volatile String parameterizedSQL; // with parameter markers, created on demand
+
+	/**
+	 * Marks the templates whose SQL cannot be bound to other values
+	 */
+	static final SQLTemplate NOT_REUSABLE = new SQLTemplate(new String[] { "" }, new int[0], new boolean[0], null);
+
+	private SQLTemplate(String[] fragments, int[] parameters, boolean[] integers, List<String> signature) {
+		this.fragments = fragments;
+		this.parameters = parameters;
+		this.integers = integers;
+		this.signature = signature;
+		int w = 0;
+		for (String f : fragments)
+			w += f.length();
+		this.weight = w;
+	}
+
+	/**
+	 * Splits the SQL translation of the template query.
+	 *
+	 * @return the SQL template, or null if a placeholder occurs in the SQL
+	 *           other than as a string constant or a number (e.g., as part of
+	 *           a LIKE pattern) or does not occur at all (i.e., its value may
+	 *           have been used by the translation, e.g., in the evaluation of a filter)
+	 */
+	static SQLTemplate create(String sql, List<String> signature, SparqlQueryTemplate template,
+							  String placeholderPrefix, SQLQueryGenerator generator) {
+
+		List<String> placeholders = template.getPlaceholders();
+		String[] sqlPlaceholders = new String[placeholders.size()];
+		boolean[] integers = new boolean[placeholders.size()];
+		for (int i = 0; i < sqlPlaceholders.length; i++) {
+			integers[i] = template.isInteger(i);
+			sqlPlaceholders[i] = integers[i] ? placeholders.get(i) : generator.getSQLLexicalFormString(placeholders.get(i));
+		}
+
+		List<String> fragments = new ArrayList<>();
+		List<Integer> parameters = new ArrayList<>();
+		int start = 0;
+		while (true) {
+			int next = -1, param = -1;
+			for (int i = 0; i < sqlPlaceholders.length; i++) {
+				int pos = integers[i] ? indexOfNumber(sql, sqlPlaceholders[i], start) : sql.indexOf(sqlPlaceholders[i], start);
+				if (pos != -1 && (next == -1 || pos < next)) {
+					next = pos;
+					param = i;
+				}
+			}
+			if (next == -1)
+				break;
+			fragments.add(sql.substring(start, next));
+			parameters.add(param);
+			start = next + sqlPlaceholders[param].length();
+		}
+		fragments.add(sql.substring(start));
+
+		for (String fragment : fragments) {
+			if (fragment.contains(placeholderPrefix))
+				return null;
+			for (int i = 0; i < sqlPlaceholders.length; i++)
+				if (integers[i] && fragment.contains(sqlPlaceholders[i]))
+					return null;
+		}
+		for (int i = 0; i < sqlPlaceholders.length; i++)
+			if (!parameters.contains(i))
+				return null;
+
+		int[] params = new int[parameters.size()];
+		for (int i = 0; i < params.length; i++)
+			params[i] = parameters.get(i);
+		return new SQLTemplate(fragments.toArray(new String[fragments.size()]), params, integers, signature);
+	}
+
+	/**
+	 * @return the position of the number in the SQL string (not as part of
+	 *           another number, a name or a string constant) or -1
+	 */
+	private static int indexOfNumber(String sql, String number, int start) {
+		for (int pos = sql.indexOf(number, start); pos != -1; pos = sql.indexOf(number, pos + 1)) {
+			int end = pos + number.length();
+			if ((pos == 0 || !isPartOfNumber(sql.charAt(pos - 1)))
+					&& (end == sql.length() || !isPartOfNumber(sql.charAt(end))))
+				return pos;
+		}
+		return -1;
+	}
+
+	private static boolean isPartOfNumber(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '\'' || c == '"';
+	}
+
+	/**
+	 * Binds the template to the given values.
+	 */
+	String getSQL(List<String> values, SQLQueryGenerator generator) {
+		StringBuilder sb = new StringBuilder(weight + 16 * parameters.length);
+		for (int i = 0; i < parameters.length; i++) {
+			sb.append(fragments[i]);
+			String value = values.get(parameters[i]);
+			if (!integers[parameters[i]])
+				sb.append(generator.getSQLLexicalFormString(value));
+			else if (value.startsWith("-"))
+				sb.append('(').append(value).append(')'); // not to be taken for a comment after a minus
+			else
+				sb.append(value);
+		}
+		sb.append(fragments[parameters.length]);
+		return sb.toString();
+	}
+
+	/**
+	 * Binds the template to the given values by means of JDBC parameters
+	 * (strings and, for the integers, longs).
+	 */
+	ParameterizedSQL getParameterizedSQL(List<String> values) {
+		String sql = parameterizedSQL;
+		if (sql == null) {
+			StringBuilder sb = new StringBuilder(weight + parameters.length);
+			for (int i = 0; i < parameters.length; i++)
+				sb.append(fragments[i]).append('?');
+			sb.append(fragments[parameters.length]);
+			sql = sb.toString();
+			parameterizedSQL = sql;
+		}
+
+		List<Object> bindings = new ArrayList<>(parameters.length);
+		for (int param : parameters) {
+			String value = values.get(param);
+			bindings.add(integers[param] ? (Object)Long.valueOf(value) : value);
+		}
+		return new ParameterizedSQL(sql, bindings);
+	}
+
+	boolean hasParameters() {
+		return parameters.length > 0;
+	}
+
+	List<String> getSignature() {
+		return signature;
+	}
+
+	/**
+	 * The approximate size of the template in characters (the SQL with
+	 * parameter markers is accounted for by the cache of the parameterized SQL)
+	 */
+	int getWeight() {
+		return weight;
+	}
+}
@@ -0,0 +1,93 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import it.unibz.inf.ontop.parser.EncodeForURI;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * URI templates that are instantiated by the result sets rather than by the
+ * DBMS. For such a template, the SQL query projects only the value of the
+ * column in the placeholder, and the type column of the variable holds the
+ * code of the template (instead of the code of COL_TYPE.OBJECT).
+ * <p>
+ * Only templates with a single placeholder are registered: the codes are
+ * shared by all the queries of a Quest instance and never removed (there are
+ * at most as many as the templates in the mappings).
+ */
+public final class URITemplateRegistry {
+
+	/**
+	 * The codes of the templates start here (far above the codes of COL_TYPE)
+	 */
+	public static final int TYPE_CODE_BASE = 1000;
+
+	private final boolean encode;
+	private final Map<String, Integer> codes = new HashMap<>();
+	private final CopyOnWriteArrayList<String[]> templates = new CopyOnWriteArrayList<>(); // prefix and suffix
+
+	/* the percent-encoding of each character that is encoded, null for the others */
+	private static final String[] ENCODING = new String[128];
+
+	static {
+		for (Map.Entry<String, String> e : EncodeForURI.TABLE.entrySet()) {
+			// the table holds SQL string contents: the quote is doubled
+			String c = e.getValue().equals("''") ? "'" : e.getValue();
+			ENCODING[c.charAt(0)] = e.getKey();
+		}
+	}
+
+	/**
+	 * @param encode whether the values are percent-encoded (as with the REPLACE
+	 *               functions generated by the SQL generator with sqlGenerateReplace)
+	 */
+	public URITemplateRegistry(boolean encode) {
+		this.encode = encode;
+	}
+
+	/**
+	 * Returns the type code of the template with the given text before and
+	 * after its placeholder
+	 */
+	public synchronized int getCode(String prefix, String suffix) {
+		String key = prefix + "{}" + suffix;
+		Integer code = codes.get(key);
+		if (code == null) {
+			templates.add(new String[] { prefix, suffix });
+			code = TYPE_CODE_BASE + templates.size() - 1;
+			codes.put(key, code);
+		}
+		return code;
+	}
+
+	public static boolean isTemplateCode(int code) {
+		return code >= TYPE_CODE_BASE;
+	}
+
+	/**
+	 * Instantiates the template with the given code by the value
+	 */
+	public String getURI(int code, String value) {
+		String[] template = templates.get(code - TYPE_CODE_BASE);
+		StringBuilder sb = new StringBuilder(template[0].length() + value.length() + template[1].length() + 8);
+		sb.append(template[0]);
+		if (encode)
+			appendEncoded(sb, value);
+		else
+			sb.append(value);
+		sb.append(template[1]);
+		return sb.toString();
+	}
+
+	private static void appendEncoded(StringBuilder sb, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			String code = (c < ENCODING.length) ? ENCODING[c] : null;
+			if (code != null)
+				sb.append(code);
+			else
+				sb.append(c);
+		}
+	}
+}
@@ -43,7 +43,6 @@ import it.unibz.inf.ontop.owlrefplatform.core.QuestPreferences;
 import it.unibz.inf.ontop.owlrefplatform.core.QuestStatement;
 
 import java.net.URI;
-import java.sql.SQLException;
 import java.util.*;
 
 import org.slf4j.Logger;
@@ -80,7 +79,6 @@ public class QuestMaterializer {
 	
 	private final Set<Predicate> vocabulary;
 
-	private long counter = 0;
 	private VirtualTripleIterator iterator;
 
 	private static final OntologyFactory ofac = OntologyFactoryImpl.getInstance();
@@ -262,6 +260,29 @@ public class QuestMaterializer {
 		return assertions;
 	}
 
+	/**
+	 * Opens a new connection to the data source, which can be used by one thread
+	 * at a time to materialize predicates with {@link #getAssertionIterator(Predicate, QuestConnection)}.
+	 * Several predicates can thus be materialized in parallel on the same Quest instance.
+	 */
+	public QuestConnection getConnection() throws OBDAException {
+		QuestConnection questConn = questInstance.getNonPoolConnection();
+		if (doStreamResults) {
+			// Autocommit must be OFF (needed for autocommit)
+			questConn.setAutoCommit(false);
+		}
+		return questConn;
+	}
+
+	/**
+	 * Returns the assertions of one predicate, retrieved through the given connection
+	 * (which is not closed by the iterator). The iterator must be closed
+	 * even if it is not consumed to the end.
+	 */
+	public AssertionIterator getAssertionIterator(Predicate predicate, QuestConnection connection) throws Exception {
+		return new VirtualTripleIterator(connection, Collections.singleton(predicate).iterator());
+	}
+
 	public int getTripleCount() throws Exception {
 		int counter = 0;
 		getAssertionIterator();
@@ -274,7 +295,7 @@ public class QuestMaterializer {
 
 	public long getTriplesCount() throws Exception {
 		if (iterator != null)
-			return counter;
+			return iterator.counter;
 		else  
 		return getTripleCount();
 	}
@@ -283,7 +304,18 @@ public class QuestMaterializer {
 		return vocabulary.size();
 	}
 	public void disconnect() {
-		iterator.disconnect();
+		if (iterator != null)
+			iterator.disconnect();
+	}
+
+	/**
+	 * An iterator over assertions that holds a statement (and its results) open
+	 * until it is closed.
+	 */
+	public interface AssertionIterator extends Iterator<Assertion>, AutoCloseable {
+
+		@Override
+		void close();
 	}
 
 	/***
@@ -292,15 +324,18 @@ public class QuestMaterializer {
 	 * predicate in each data source.
 	 * 
 	 */
-	private class VirtualTripleIterator implements Iterator<Assertion> {
+	private class VirtualTripleIterator implements AssertionIterator {
 
 
 		private String query1 = "CONSTRUCT {?s <%s> ?o} WHERE {?s <%s> ?o}";
 		private String query2 = "CONSTRUCT {?s a <%s>} WHERE {?s a <%s>}";
 
 		private QuestConnection questConn;
+		private final boolean ownsConnection;
 		private QuestStatement stm;
 		
+		private long counter = 0;
+		
 		private boolean read = false, hasNext = false;
 
 		private GraphResultSet results;
@@ -310,43 +345,58 @@ public class QuestMaterializer {
 		private Logger log = LoggerFactory.getLogger(VirtualTripleIterator.class);
 
 		public VirtualTripleIterator(Quest questInstance, Iterator<Predicate> vocabIter)
-				throws SQLException {
-			try{
-				questConn = questInstance.getNonPoolConnection();
-
-				if (doStreamResults) {
-					// Autocommit must be OFF (needed for autocommit)
-					questConn.setAutoCommit(false);
-				}
+				throws Exception {
+			ownsConnection = true;
+			questConn = getConnection();
+			try {
+				start(vocabIter);
+			} 
+			catch (Exception e) {
+				// the connection is not handed out to anybody else
+				disconnect();
+				throw e;
+			}
+		}
 
-				vocabularyIterator = vocabIter;
-				//execute first query to start the process
-				counter = 0;
-				stm = questConn.createStatement();
+		public VirtualTripleIterator(QuestConnection connection, Iterator<Predicate> vocabIter)
+				throws Exception {
+			ownsConnection = false;
+			questConn = connection;
+			try {
+				start(vocabIter);
+			}
+			catch (Exception e) {
+				// releases the statement but leaves the connection open
+				disconnect();
+				throw e;
+			}
+		}
 
-				if (doStreamResults) {
-					// Fetch 50 000 lines at the same time
-					stm.setFetchSize(FETCH_SIZE);
-				}
-				if (!vocabularyIterator.hasNext())
-					throw new NullPointerException("Vocabulary is empty!");
-				while (results == null) {
-					if (vocabularyIterator.hasNext()) {
-						Predicate pred = vocabularyIterator.next();
-						String query = getQuery(pred);
-						ResultSet execute = stm.execute(query);
+		private void start(Iterator<Predicate> vocabIter) throws Exception {
+			vocabularyIterator = vocabIter;
+			//execute first query to start the process
+			stm = questConn.createStatement();
 
-						results = (GraphResultSet) execute;
+			if (doStreamResults) {
+				// Fetch 50 000 lines at the same time
+				stm.setFetchSize(FETCH_SIZE);
+			}
+			if (!vocabularyIterator.hasNext())
+				throw new NullPointerException("Vocabulary is empty!");
+			while (results == null) {
+				if (vocabularyIterator.hasNext()) {
+					Predicate pred = vocabularyIterator.next();
+					String query = getQuery(pred);
+					ResultSet execute = stm.execute(query);
+
+					results = (GraphResultSet) execute;
 //						if (results!=null){
 //							hasNext = results.hasNext();
 //
 //						}					
-					}else{
-						break;
-					}
+				}else{
+					break;
 				}
-			} catch (Exception e) {
-				e.printStackTrace();
 			}
 		}
 		
@@ -372,9 +422,9 @@ public class QuestMaterializer {
 				hasNext = results.hasNext();
 				while (vocabularyIterator.hasNext() && hasNext == false)
 				{
-						//close previous statement if open
+						//close previous results and statement if open
 						if (stm!= null && results!=null)
-							{stm.close(); results.close(); }
+							{results.close(); stm.close(); }
 
 						//execute next query
 						stm = questConn.createStatement();
@@ -395,6 +445,11 @@ public class QuestMaterializer {
 				}
 				read = true;
 				
+				if (!hasNext && !ownsConnection) {
+					// the connection may be used for other predicates
+					results.close();
+					stm.close();
+				}
 			}
 			} catch(Exception e)
 			{e.printStackTrace();}
@@ -429,6 +484,14 @@ public class QuestMaterializer {
 		 * Releases all the connection resources
 		 */
 		public void disconnect() {
+			if (results != null) {
+				try {
+					results.close();
+				} catch (Exception e) {
+					// NO-OP
+				}
+			}
+
 			if (stm != null) {
 				try {
 					stm.close();
@@ -437,7 +500,7 @@ public class QuestMaterializer {
 				}
 			}
 
-			if (questConn != null) {
+			if (questConn != null && ownsConnection) {
 				try {
 					questConn.close();
 				} catch (Exception e) {
@@ -446,6 +509,11 @@ public class QuestMaterializer {
 			}
 		}
 
+		@Override
+		public void close() {
+			disconnect();
+		}
+
 		@Override
 		public void remove() {
 			throw new UnsupportedOperationException();
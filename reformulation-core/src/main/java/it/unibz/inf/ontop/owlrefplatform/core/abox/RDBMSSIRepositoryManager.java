@@ -48,7 +48,10 @@ import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.SemanticIndexCache;
 import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.SemanticIndexRange;
 import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.TBoxReasoner;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.sql.ResultSet;
@@ -84,8 +87,11 @@ public class RDBMSSIRepositoryManager implements Serializable {
 		
 		final String dropCommand;
 		
+		final String columns;
+		
 		TableDescription(String tableName, ImmutableMap<String, String> columnDefintions, String selectColumns) {
 			this.tableName = tableName;
+			this.columns = Joiner.on(", ").join(columnDefintions.keySet());
 			this.dropCommand = "DROP TABLE " + tableName;
 			this.createCommand = "CREATE TABLE " + tableName + 
 					" ( " + Joiner.on(", ").withKeyValueSeparator(" ").join(columnDefintions) + " )";
@@ -127,7 +133,7 @@ public class RDBMSSIRepositoryManager implements Serializable {
 					        "IDX_TO", "INTEGER", 
 					        "ENTITY_TYPE", "INTEGER"), "*");
 
-	private final static TableDescription uriIdTable = new TableDescription("URIID",
+	final static TableDescription uriIdTable = new TableDescription("URIID",
 			ImmutableMap.of("ID", "INTEGER", 
 					        "URI", "VARCHAR(400)"), "*");
 	
@@ -250,6 +256,11 @@ public class RDBMSSIRepositoryManager implements Serializable {
 	private static final OBDADataFactory dfac = OBDADataFactoryImpl.getInstance();
 	
 	private final SemanticIndexURIMap uriMap = new SemanticIndexURIMap();
+
+	private File uriDictionaryFile;
+	private int uriDictionaryFileSize = -1;  // number of ids in the file
+
+	private boolean bulkLoad;
 	
 	private final TBoxReasoner reasonerDag;
 	private final ImmutableOntologyVocabulary voc;
@@ -280,6 +291,40 @@ public class RDBMSSIRepositoryManager implements Serializable {
 	public SemanticIndexURIMap getUriMap() {
 		return uriMap;
 	}
+
+	/**
+	 * Sets the file with a copy of the URI dictionary (the URIID table), which is used
+	 * by {@link #loadMetadata} instead of the table if it is up to date, and which is
+	 * written after the table has been loaded and by {@link #saveUriDictionary}.
+	 */
+	public void setUriDictionaryFile(File file) {
+		this.uriDictionaryFile = file;
+		this.uriDictionaryFileSize = -1;
+	}
+
+	/**
+	 * Writes the URI dictionary to its file if URIs have been added since 
+	 * the file was read or written (called when Quest is closed rather than 
+	 * after each insertion, which would rewrite the whole dictionary every time).
+	 */
+	public void saveUriDictionary() {
+		if (uriDictionaryFile != null && uriMap.size() != uriDictionaryFileSize)
+			saveUriMap();
+	}
+
+	private void saveUriMap() {
+		if (uriMap.save(uriDictionaryFile))
+			uriDictionaryFileSize = uriMap.size();
+	}
+
+	/**
+	 * Enables the bulk-load command of the DBMS (if any) in {@link #insertData}, 
+	 * which then ignores the commit limit (the batch limit is used only if 
+	 * the bulk-load command fails and the data is inserted in batches).
+	 */
+	public void setBulkLoad(boolean bulkLoad) {
+		this.bulkLoad = bulkLoad;
+	}
 	
 
 
@@ -365,20 +410,62 @@ public class RDBMSSIRepositoryManager implements Serializable {
 		commitLimit = (commitLimit < 1) ? 1 : commitLimit;
 		batchLimit = (batchLimit < 1) ? 1 : batchLimit;
 
+		SemanticIndexBulkLoader bulkLoader = bulkLoad ? SemanticIndexBulkLoader.create(conn) : null;
+		if (bulkLoad && bulkLoader == null)
+			log.debug("No bulk-load command for this DBMS, inserting data in batches");
+
 		boolean oldAutoCommit = conn.getAutoCommit();
 		conn.setAutoCommit(false);
 
-		PreparedStatement uriidStm = conn.prepareStatement(uriIdTable.getINSERT("?, ?"));
-		Map<SemanticIndexViewID, PreparedStatement> stmMap = new HashMap<>();
-		
 		// For counting the insertion
-		int success = 0;
 		Map<Predicate, Integer> failures = new HashMap<>();
+		int success;
+		try {
+			success = (bulkLoader != null) 
+					? insertDataInBulk(conn, data, bulkLoader, batchLimit, failures)
+					: insertDataInBatches(conn, data, commitLimit, batchLimit, failures);
+		}
+		finally {
+			conn.setAutoCommit(oldAutoCommit);
+		}
 
+		finishInsert(success, failures);
+		return success;
+	}
+
+	/**
+	 * Reports the insertion of data and notifies the listeners 
+	 * (after the data has been committed)
+	 */
+	void finishInsert(int success, Map<Predicate, Integer> failures) {
+
+		// Print the monitoring log
+		log.debug("Total successful insertions: " + success + ".");
+		int totalFailures = 0;
+		for (Map.Entry<Predicate, Integer> entry : failures.entrySet()) {
+			log.warn("Failed to insert data for predicate {} ({} tuples).", entry.getKey(), entry.getValue());
+			totalFailures += entry.getValue();
+		}
+		if (totalFailures > 0) {
+			log.warn("Total failed insertions: " + totalFailures + ". (REASON: datatype mismatch between the ontology and database).");
+		}
+
+		/*
+		 * fired ONLY when new data is inserted and emptiness index is updated
+		 * (this is done in order to update T-mappings)
+		 */
+
+		for (RepositoryChangedListener listener : changeList) 
+			listener.repositoryChanged();
+	}
+
+	private int insertDataInBatches(Connection conn, Iterator<Assertion> data, int commitLimit, int batchLimit, Map<Predicate, Integer> failures) throws SQLException {
+		
+		int success = 0;
 		int batchCount = 0;
 		int commitCount = 0;
 
-		try {
+		try (BatchRowSink sink = new BatchRowSink(conn)) {
 			while (data.hasNext()) {
 				Assertion ax = data.next();
 
@@ -386,58 +473,12 @@ public class RDBMSSIRepositoryManager implements Serializable {
 				batchCount++;
 				commitCount++;
 
-				if (ax instanceof ClassAssertion) {
-					ClassAssertion ca = (ClassAssertion) ax; 
-					try {
-						process(conn, ca, uriidStm, stmMap);
-						success++;
-					}
-					catch (Exception e) {
-						Predicate predicate = ca.getConcept().getPredicate();
-						Integer counter = failures.get(predicate);
-						if (counter == null) 
-							counter = 0;
-						failures.put(predicate, counter + 1);					
-					}
-				} 
-				else if (ax instanceof ObjectPropertyAssertion) {
-					ObjectPropertyAssertion opa = (ObjectPropertyAssertion)ax;
-					try {
-						process(conn, opa, uriidStm, stmMap);	
-						success++;
-					}
-					catch (Exception e) {
-						Predicate predicate = opa.getProperty().getPredicate();
-						Integer counter = failures.get(predicate);
-						if (counter == null) 
-							counter = 0;
-						failures.put(predicate, counter + 1);					
-					}
-				}
-				else if (ax instanceof DataPropertyAssertion)  {
-					DataPropertyAssertion dpa = (DataPropertyAssertion)ax;
-					try {
-						process(conn, dpa, uriidStm, stmMap);				
-						success++;					
-					}
-					catch (Exception e) {
-						Predicate predicate = dpa.getProperty().getPredicate();
-						Integer counter = failures.get(predicate);
-						if (counter == null) 
-							counter = 0;
-						failures.put(predicate, counter + 1);					
-					}
-				}
-
+				if (process(ax, sink, failures))
+					success++;
 
 				// Check if the batch count is already in the batch limit
 				if (batchCount == batchLimit) {
-					uriidStm.executeBatch();
-					uriidStm.clearBatch();
-					for (PreparedStatement stm : stmMap.values()) {
-						stm.executeBatch();
-						stm.clearBatch();
-					}
+					sink.executeBatch();
 					batchCount = 0; // reset the counter
 				}
 
@@ -449,48 +490,328 @@ public class RDBMSSIRepositoryManager implements Serializable {
 			}
 
 			// Execute the rest of the batch
+			sink.executeBatch();
+			// Commit the rest of the batch insert
+			conn.commit();
+		}
+		return success;
+	}
+
+	/**
+	 * Writes all the rows into staging files and loads them with the bulk-load command 
+	 * of the DBMS in a single transaction (or, if the command fails, inserts them 
+	 * in batches). The indexes (if any) are dropped before and re-created after 
+	 * loading the data. The new URIs and the non-empty indexes of the views 
+	 * are registered only after the data has been committed.
+	 */
+	private int insertDataInBulk(Connection conn, Iterator<Assertion> data, SemanticIndexBulkLoader bulkLoader, 
+								 int batchLimit, Map<Predicate, Integer> failures) throws SQLException {
+		
+		int success = 0;
+		boolean indexed = isIndexed;
+		PendingChanges pending = new PendingChanges(true);
+		SQLException error = null;
+		try (SemanticIndexBulkLoader.Staging staging = bulkLoader.createStaging()) {
+			StagingRowSink sink = new StagingRowSink(staging);
+			while (data.hasNext()) {
+				if (process(data.next(), sink, failures, pending))
+					success++;
+			}
+			
+			if (indexed) {
+				dropIndexes(conn);
+				// the indexes are re-created even if the data is rolled back
+				conn.commit();
+			}
+			try {
+				staging.load(conn);
+			}
+			catch (SQLException | IOException e) {
+				log.warn("The bulk load has failed, inserting the data in batches: {}", e.toString());
+				conn.rollback();
+				insertStagedRows(conn, staging, batchLimit);
+			}
+			conn.commit();
+		}
+		catch (UncheckedIOException e) {
+			error = new SQLException("Cannot write the staging files of the bulk load", e.getCause());
+		}
+		catch (IOException e) {
+			error = new SQLException("Cannot read the staging files of the bulk load", e);
+		}
+		catch (SQLException e) {
+			error = e;
+		}
+		finally {
+			if (error != null) {
+				try {
+					conn.rollback();
+				}
+				catch (SQLException e) {
+					error.addSuppressed(e);
+				}
+			}
+			if (indexed && !isIndexed) {
+				try {
+					createIndexes(conn);
+					conn.commit();
+				}
+				catch (SQLException e) {
+					// the original error (if any) is reported
+					if (error != null)
+						error.addSuppressed(e);
+					else
+						error = e;
+				}
+			}
+		}
+		if (error != null)
+			throw error;
+		
+		pending.apply();
+		return success;
+	}
+
+	/**
+	 * Inserts the rows of the staging files in batches
+	 */
+	private static void insertStagedRows(Connection conn, SemanticIndexBulkLoader.Staging staging, final int batchLimit) throws SQLException, IOException {
+		try (final BatchRowSink sink = new BatchRowSink(conn)) {
+			staging.replay(new SemanticIndexBulkLoader.RowHandler() {
+				int batchCount = 0;
+				@Override
+				public void addRow(TableDescription table, Object[] row) throws SQLException {
+					sink.addRow(table, row);
+					if (++batchCount == batchLimit) {
+						sink.executeBatch();
+						batchCount = 0;
+					}
+				}
+			});
+			sink.executeBatch();
+		}
+	}
+
+	/**
+	 * The new URIs (with their ids) and the non-empty indexes of the views of the data 
+	 * that has not been committed yet: they are kept aside and applied to the dictionary 
+	 * and to the views after the commit. If the data is encoded by several threads, 
+	 * which share the ids, the URIs are added to the dictionary immediately 
+	 * (see {@link #restoreUriMap}).
+	 */
+	final class PendingChanges {
+		
+		private final boolean deferUris;
+		private final int firstId = uriMap.size();
+		private final Map<String, Integer> uris = new LinkedHashMap<>();
+		private final Map<SemanticIndexView, Set<Integer>> indexes = new HashMap<>();
+		
+		private PendingChanges(boolean deferUris) {
+			this.deferUris = deferUris;
+		}
+		
+		/**
+		 * @return the id of the URI or -1 if the URI has already been added
+		 */
+		int add(String uri) {
+			if (uris.containsKey(uri))
+				return -1;
+			int id = firstId + uris.size();
+			uris.put(uri, id);
+			return id;
+		}
+
+		int getId(String uri) {
+			return uris.get(uri);
+		}
+		
+		void addIndex(SemanticIndexView view, int idx) {
+			Set<Integer> set = indexes.get(view);
+			if (set == null) {
+				set = new HashSet<>();
+				indexes.put(view, set);
+			}
+			set.add(idx);
+		}
+		
+		void apply() {
+			for (Map.Entry<String, Integer> e : uris.entrySet())
+				uriMap.set(e.getKey(), e.getValue());
+			for (Map.Entry<SemanticIndexView, Set<Integer>> e : indexes.entrySet())
+				for (Integer idx : e.getValue())
+					e.getKey().addIndex(idx);
+		}
+	}
+
+	/**
+	 * Receives the rows of the views and of the URIID table
+	 */
+	interface RowSink {
+		
+		/**
+		 * @param values the parameters of the INSERT command of the view
+		 */
+		void add(SemanticIndexView view, Object... values) throws SQLException;
+		
+		void addURI(int id, String uri) throws SQLException;
+	}
+	
+	private static final class BatchRowSink implements RowSink, AutoCloseable {
+		
+		private final Connection conn;
+		private final PreparedStatement uriidStm;
+		private final Map<SemanticIndexViewID, PreparedStatement> stmMap = new HashMap<>();
+		private final Map<TableDescription, PreparedStatement> tableStmMap = new LinkedHashMap<>();
+		
+		BatchRowSink(Connection conn) throws SQLException {
+			this.conn = conn;
+			this.uriidStm = conn.prepareStatement(uriIdTable.getINSERT("?, ?"));
+		}
+		
+		@Override
+		public void add(SemanticIndexView view, Object... values) throws SQLException {
+			PreparedStatement stm = stmMap.get(view.getId());
+			if (stm == null) {
+				stm = conn.prepareStatement(view.getINSERT());
+				stmMap.put(view.getId(), stm);
+			}
+			for (int i = 0; i < values.length; i++)
+				stm.setObject(i + 1, values[i]);
+			stm.addBatch();
+		}
+		
+		@Override
+		public void addURI(int id, String uri) throws SQLException {
+			uriidStm.setInt(1, id);
+			uriidStm.setString(2, uri);
+			uriidStm.addBatch();								
+		}
+		
+		/**
+		 * @param row the values of all columns of the table
+		 */
+		void addRow(TableDescription table, Object[] row) throws SQLException {
+			PreparedStatement stm = tableStmMap.get(table);
+			if (stm == null) {
+				stm = conn.prepareStatement(table.getINSERT(Joiner.on(", ").join(Collections.nCopies(row.length, "?"))));
+				tableStmMap.put(table, stm);
+			}
+			for (int i = 0; i < row.length; i++)
+				stm.setObject(i + 1, row[i]);
+			stm.addBatch();
+		}
+		
+		void executeBatch() throws SQLException {
 			uriidStm.executeBatch();
 			uriidStm.clearBatch();
 			for (PreparedStatement stm : stmMap.values()) {
 				stm.executeBatch();
 				stm.clearBatch();
 			}
-			// Commit the rest of the batch insert
-			conn.commit();
+			for (PreparedStatement stm : tableStmMap.values()) {
+				stm.executeBatch();
+				stm.clearBatch();
+			}
 		}
-		finally {
+		
+		@Override
+		public void close() throws SQLException {
 			// Close all open statements
 			uriidStm.close();
 			for (PreparedStatement stm : stmMap.values()) 
 				stm.close();
+			for (PreparedStatement stm : tableStmMap.values()) 
+				stm.close();
 		}
-
-		conn.setAutoCommit(oldAutoCommit);
-
-		// Print the monitoring log
-		log.debug("Total successful insertions: " + success + ".");
-		int totalFailures = 0;
-		for (Map.Entry<Predicate, Integer> entry : failures.entrySet()) {
-			log.warn("Failed to insert data for predicate {} ({} tuples).", entry.getKey(), entry.getValue());
-			totalFailures += entry.getValue();
+	}
+	
+	private static final class StagingRowSink implements RowSink {
+		
+		private final SemanticIndexBulkLoader.Staging staging;
+		
+		StagingRowSink(SemanticIndexBulkLoader.Staging staging) {
+			this.staging = staging;
 		}
-		if (totalFailures > 0) {
-			log.warn("Total failed insertions: " + totalFailures + ". (REASON: datatype mismatch between the ontology and database).");
+		
+		@Override
+		public void add(SemanticIndexView view, Object... values) throws SQLException {
+			try {
+				staging.add(view.getTable(), view.getRow(values));
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		}
 
-		/*
-		 * fired ONLY when new data is inserted and emptiness index is updated
-		 * (this is done in order to update T-mappings)
-		 */
+		@Override
+		public void addURI(int id, String uri) throws SQLException {
+			try {
+				staging.add(uriIdTable, new Object[] { id, uri });
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	
+	/**
+	 * Encodes the assertion into the rows of a view (and of the URIID table); it can be 
+	 * called by several threads at the same time (with different failure maps).
+	 * 
+	 * @return true if the assertion has been inserted and false if its values 
+	 *         do not match the datatypes of the database (the failure is counted)
+	 */
+	boolean process(Assertion ax, RowSink sink, Map<Predicate, Integer> failures) {
+		return process(ax, sink, failures, null);
+	}
 
-		for (RepositoryChangedListener listener : changeList) 
-			listener.repositoryChanged();
+	/**
+	 * @return the non-empty indexes of the views to be kept aside until the commit 
+	 *         (the URIs are added to the dictionary immediately)
+	 */
+	PendingChanges createPendingIndexes() {
+		return new PendingChanges(false);
+	}
 
-		return success;
+	/**
+	 * @param pending the changes kept aside until the commit (null if they are applied immediately)
+	 */
+	boolean process(Assertion ax, RowSink sink, Map<Predicate, Integer> failures, PendingChanges pending) {
+		try {
+			if (ax instanceof ClassAssertion) 
+				process((ClassAssertion) ax, sink, pending);
+			else if (ax instanceof ObjectPropertyAssertion) 
+				process((ObjectPropertyAssertion) ax, sink, pending);
+			else if (ax instanceof DataPropertyAssertion) 
+				process((DataPropertyAssertion) ax, sink, pending);
+			else
+				return false;
+			return true;
+		}
+		catch (UncheckedIOException e) {
+			// the staging files cannot be written
+			throw e;
+		}
+		catch (Exception e) {
+			Predicate predicate = getPredicate(ax);
+			Integer counter = failures.get(predicate);
+			if (counter == null) 
+				counter = 0;
+			failures.put(predicate, counter + 1);
+			return false;
+		}
+	}
+	
+	private static Predicate getPredicate(Assertion ax) {
+		if (ax instanceof ClassAssertion) 
+			return ((ClassAssertion) ax).getConcept().getPredicate();
+		if (ax instanceof ObjectPropertyAssertion) 
+			return ((ObjectPropertyAssertion) ax).getProperty().getPredicate();
+		return ((DataPropertyAssertion) ax).getProperty().getPredicate();
 	}
 
 
-	private void process(Connection conn, ObjectPropertyAssertion ax, PreparedStatement uriidStm, Map<SemanticIndexViewID, PreparedStatement> stmMap) throws SQLException {
+	private void process(ObjectPropertyAssertion ax, RowSink sink, PendingChanges pending) throws SQLException {
 
 		ObjectPropertyExpression ope0 = ax.getProperty();
 		if (ope0.isInverse()) 
@@ -518,26 +839,17 @@ public class RDBMSSIRepositoryManager implements Serializable {
 
 		SemanticIndexView view = views.getView(o1.getType(), o2.getType());
 		
-		PreparedStatement stm = stmMap.get(view.getId());
-		if (stm == null) {
-			stm = conn.prepareStatement(view.getINSERT());
-			stmMap.put(view.getId(), stm);
-		}
-		
-		int uri_id = getObjectConstantUriId(o1, uriidStm);
-		int uri2_id = getObjectConstantUriId(o2, uriidStm);
+		int uri_id = getObjectConstantUriId(o1, sink, pending);
+		int uri2_id = getObjectConstantUriId(o2, sink, pending);
 		
 		// Construct the database INSERT statements		
-		stm.setInt(1, uri_id);
-		stm.setInt(2, uri2_id);		
-		stm.setInt(3, idx);
-		stm.addBatch();
+		sink.add(view, uri_id, uri2_id, idx);
 		
 		// Register non emptiness
-		view.addIndex(idx);
+		addIndex(view, idx, pending);
 	} 
 
-	private void process(Connection conn, DataPropertyAssertion ax, PreparedStatement uriidStm, Map<SemanticIndexViewID, PreparedStatement> stmMap) throws SQLException {
+	private void process(DataPropertyAssertion ax, RowSink sink, PendingChanges pending) throws SQLException {
 
 		// replace the property by its canonical representative 
 		DataPropertyExpression dpe0 = ax.getProperty();
@@ -550,35 +862,30 @@ public class RDBMSSIRepositoryManager implements Serializable {
 		COL_TYPE objectType = object.getType();
 		
 		SemanticIndexView view =  views.getView(subject.getType(), objectType);
-		PreparedStatement stm = stmMap.get(view.getId());
-		if (stm == null) {
-			stm = conn.prepareStatement(view.getINSERT());
-			stmMap.put(view.getId(), stm);
-		}
 
-		int uri_id = getObjectConstantUriId(subject, uriidStm);
-		stm.setInt(1, uri_id);
+		int uri_id = getObjectConstantUriId(subject, sink, pending);
 		
 		String value = object.getValue();
+		Object val;
 		
 		switch (objectType) {
 			case LITERAL:  // 0
-				stm.setString(2, value);
+				val = value;
 				break;  
 			case LITERAL_LANG:  // -3
-				stm.setString(2, value);
-				stm.setString(4, object.getLanguage());
-				break;  
+				sink.add(view, uri_id, value, idx, object.getLanguage());
+				addIndex(view, idx, pending);
+				return;  
 			case STRING:   // 1
-				stm.setString(2, value);
+				val = value;
 				break;
 	        case INT:   // 3
 	            //if (value.charAt(0) == '+') // ROMAN: not needed in Java 7
 	            //    value = value.substring(1, value.length());
-	        	stm.setInt(2, Integer.parseInt(value));
+	        	val = Integer.parseInt(value);
 	            break;
 	        case UNSIGNED_INT:  // 4
-	        	stm.setInt(2, Integer.parseInt(value));
+	        	val = Integer.parseInt(value);
 	            break;
 	        case INTEGER:  // 2
 	        case NEGATIVE_INTEGER:   // 5
@@ -588,23 +895,23 @@ public class RDBMSSIRepositoryManager implements Serializable {
 	        case LONG: // 10
 	            //if (value.charAt(0) == '+')  // ROMAN: not needed in Java 7
 	            //    value = value.substring(1, value.length());
-	            stm.setLong(2, Long.parseLong(value));
+	            val = Long.parseLong(value);
 	            break;
 	        case FLOAT: // 9
-				stm.setDouble(2, Float.parseFloat(value));
+				val = (double) Float.parseFloat(value);
 	            break;
 			case DOUBLE: // 12
-				stm.setDouble(2, Double.parseDouble(value));
+				val = Double.parseDouble(value);
 				break;
 			case DECIMAL: // 11
-				stm.setBigDecimal(2, new BigDecimal(value));
+				val = new BigDecimal(value);
 				break;
 			case DATETIME_STAMP: // 15
 			case DATETIME: // 13
-				stm.setTimestamp(2, XsdDatatypeConverter.parseXsdDateTime(value));
+				val = XsdDatatypeConverter.parseXsdDateTime(value);
 				break;
 			case BOOLEAN: // 14				
-				stm.setBoolean(2, XsdDatatypeConverter.parseXsdBoolean(value));
+				val = XsdDatatypeConverter.parseXsdBoolean(value);
 				break;
 			default:
 				// UNSUPPORTED DATATYPE
@@ -612,15 +919,14 @@ public class RDBMSSIRepositoryManager implements Serializable {
 				return;				
 		}
 		
-		stm.setInt(3, idx);
-		stm.addBatch();
+		sink.add(view, uri_id, val, idx);
 		
 		// register non-emptiness
-		view.addIndex(idx);
+		addIndex(view, idx, pending);
 	}
 	
 		
-	private void process(Connection conn, ClassAssertion ax, PreparedStatement uriidStm, Map<SemanticIndexViewID, PreparedStatement> stmMap) throws SQLException {
+	private void process(ClassAssertion ax, RowSink sink, PendingChanges pending) throws SQLException {
 		
 		// replace concept by the canonical representative (which must be a concept name)
 		OClass concept0 = ax.getConcept();
@@ -630,48 +936,128 @@ public class RDBMSSIRepositoryManager implements Serializable {
 		ObjectConstant c1 = ax.getIndividual();
 
 		SemanticIndexView view =  views.getView(c1.getType());
-	
-		PreparedStatement stm = stmMap.get(view.getId());
-		if (stm == null) {
-			stm = conn.prepareStatement(view.getINSERT());
-			stmMap.put(view.getId(), stm);
-		}
 
-		int uri_id = getObjectConstantUriId(c1, uriidStm); 
+		int uri_id = getObjectConstantUriId(c1, sink, pending); 
 		
 		// Construct the database INSERT statements
-		stm.setInt(1, uri_id);
-		stm.setInt(2, conceptIndex);
-		stm.addBatch();
+		sink.add(view, uri_id, conceptIndex);
 	
 		// Register non emptiness
-		view.addIndex(conceptIndex);
+		addIndex(view, conceptIndex, pending);
 	}
 
-	// TODO: big issue -- URI map is incomplete -- it is never read back from the DB
-	
-	// TODO: use database to get the maximum URIId
-	private int maxURIId = -1;
-	
-	private int getObjectConstantUriId(ObjectConstant c, PreparedStatement uriidStm) throws SQLException {
+	private static void addIndex(SemanticIndexView view, int idx, PendingChanges pending) {
+		if (pending != null)
+			pending.addIndex(view, idx);
+		else
+			view.addIndex(idx);
+	}
+
+	private int getObjectConstantUriId(ObjectConstant c, RowSink sink, PendingChanges pending) throws SQLException {
 		
 		// TODO (ROMAN): I am not sure this is entirely correct for blank nodes
 		String uri = (c instanceof BNode) ? ((BNode) c).getName() : ((URIConstant) c).getURI().toString();
 
 		int uri_id = uriMap.getId(uri);
 		if (uri_id < 0) {
-			uri_id = maxURIId + 1;
-			uriMap.set(uri, uri_id);			
-			maxURIId++;		
+			if (pending != null && pending.deferUris) {
+				uri_id = pending.add(uri);
+				if (uri_id < 0)
+					return pending.getId(uri); // added before
+			}
+			else {
+				uri_id = uriMap.add(uri);
+				if (uri_id < 0) 
+					return uriMap.getId(uri); // added in the meantime
+			}
 			
 			// Construct the database INSERT statement
-			uriidStm.setInt(1, uri_id);
-			uriidStm.setString(2, uri);
-			uriidStm.addBatch();								
+			sink.addURI(uri_id, uri);
 		}
 			
 		return uri_id;
 	}
+
+	/**
+	 * Reconciles the URI dictionary with the URIID table after a failed load whose URIs 
+	 * were added to the dictionary before their rows were committed: the URIs with ids 
+	 * from firstId that are missing in the table are inserted (the committed rows of other 
+	 * chunks may refer to them) and the dictionary is reloaded from the table.
+	 */
+	void restoreUriMap(Connection conn, int firstId) throws SQLException {
+		Set<Integer> stored = new HashSet<>();
+		try (PreparedStatement stm = conn.prepareStatement("SELECT ID FROM " + uriIdTable.tableName + " WHERE ID >= ?")) {
+			stm.setInt(1, firstId);
+			try (ResultSet res = stm.executeQuery()) {
+				while (res.next())
+					stored.add(res.getInt(1));
+			}
+		}
+
+		int size = uriMap.size();
+		if (stored.size() < size - firstId) {
+			boolean oldAutoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			try (PreparedStatement stm = conn.prepareStatement(uriIdTable.getINSERT("?, ?"))) {
+				for (int id = firstId; id < size; id++) 
+					if (!stored.contains(id)) {
+						stm.setInt(1, id);
+						stm.setString(2, uriMap.getURI(id));
+						stm.addBatch();
+					}
+				stm.executeBatch();
+				conn.commit();
+				log.debug("Inserted {} URIs of the failed load into {}", size - firstId - stored.size(), uriIdTable.tableName);
+			}
+			catch (SQLException e) {
+				conn.rollback();
+				throw e;
+			}
+			finally {
+				conn.setAutoCommit(oldAutoCommit);
+			}
+		}
+		loadUriMap(conn);
+	}
+
+	/**
+	 * Loads the URI dictionary from the file (if it has as many ids as the URIID table)
+	 * or otherwise from the URIID table (and then writes the file).
+	 */
+	private void loadUriMap(Connection conn) throws SQLException {
+		int rows;
+		try (Statement st = conn.createStatement();
+			 ResultSet res = st.executeQuery("SELECT COUNT(*), MAX(ID) FROM " + uriIdTable.tableName)) {
+			res.next();
+			rows = res.getInt(1);
+			int maxId = res.getInt(2);
+			if (!res.wasNull() && maxId != rows - 1) {
+				log.warn("The ids in {} are not consecutive ({} ids, the maximum is {})", uriIdTable.tableName, rows, maxId);
+				rows = Math.max(rows, maxId + 1);
+			}
+		}
+
+		if (uriDictionaryFile != null && uriMap.load(uriDictionaryFile)) {
+			if (uriMap.size() == rows) {
+				uriDictionaryFileSize = rows;
+				return;
+			}
+			log.debug("URI dictionary {} is out of date", uriDictionaryFile);
+		}
+
+		uriMap.clear();
+		try (Statement st = conn.createStatement()) {
+			st.setFetchSize(10000);
+			try (ResultSet res = st.executeQuery(uriIdTable.getSELECT() + " ORDER BY ID")) {
+				while (res.next()) 
+					uriMap.set(res.getString(2), res.getInt(1));
+			}
+		}
+		log.debug("Loaded {} URIs from {}", uriMap.size(), uriIdTable.tableName);
+
+		if (uriDictionaryFile != null)
+			saveUriMap();
+	}
 	
 
 
@@ -861,6 +1247,8 @@ public class RDBMSSIRepositoryManager implements Serializable {
 		res.close();
 
 		views.load(conn);
+
+		loadUriMap(conn);
 	}
 
 	
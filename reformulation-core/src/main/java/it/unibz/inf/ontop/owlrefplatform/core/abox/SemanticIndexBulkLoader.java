@@ -0,0 +1,317 @@
+package it.unibz.inf.ontop.owlrefplatform.core.abox;
+
+import com.google.common.base.Charsets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the rows of the Semantic Index tables with the bulk-load command of the DBMS
+ * (CSVREAD in H2, COPY in PostgreSQL and LOAD DATA in MySQL).
+ * <p>
+ * The rows are first written into a CSV staging file for each table (with all strings
+ * quoted and NULL as an unquoted word), and the files are then loaded one by one.
+ * The staged rows can also be read back, so that they can be inserted in batches 
+ * if the bulk-load command fails.
+ */
+abstract class SemanticIndexBulkLoader {
+
+	private static final Logger log = LoggerFactory.getLogger(SemanticIndexBulkLoader.class);
+
+	/**
+	 * @return the loader for the DBMS of the connection or null if the DBMS has
+	 *         no supported bulk-load command (and the data has to be inserted in batches)
+	 */
+	static SemanticIndexBulkLoader create(Connection conn) throws SQLException {
+		String product = conn.getMetaData().getDatabaseProductName().toLowerCase();
+		if (product.contains("h2"))
+			return new H2BulkLoader();
+		if (product.contains("postgresql")) {
+			try {
+				return new PostgreSQLBulkLoader(conn);
+			}
+			catch (ReflectiveOperationException | SQLException e) {
+				log.debug("COPY is not available: {}", e.toString());
+				return null;
+			}
+		}
+		if (product.contains("mysql"))
+			return new MySQLBulkLoader();
+		return null;
+	}
+
+	/**
+	 * Receives the rows read back from the staging files
+	 */
+	interface RowHandler {
+		void addRow(RDBMSSIRepositoryManager.TableDescription table, Object[] row) throws SQLException;
+	}
+
+	/**
+	 * Staging files of the rows, one for each table
+	 */
+	final class Staging implements AutoCloseable {
+
+		private final Map<RDBMSSIRepositoryManager.TableDescription, File> files = new LinkedHashMap<>();
+		private final Map<RDBMSSIRepositoryManager.TableDescription, Writer> writers = new HashMap<>();
+		private final Map<RDBMSSIRepositoryManager.TableDescription, Integer> counts = new HashMap<>();
+		// the class of the (non-null) values of each column, which are the same in all rows
+		private final Map<RDBMSSIRepositoryManager.TableDescription, Class<?>[]> types = new HashMap<>();
+
+		void add(RDBMSSIRepositoryManager.TableDescription table, Object[] row) throws IOException {
+			Writer writer = writers.get(table);
+			if (writer == null) {
+				File file = File.createTempFile("ontop-" + table.tableName, ".csv");
+				files.put(table, file);
+				writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charsets.UTF_8), 1 << 16);
+				writers.put(table, writer);
+				counts.put(table, 0);
+				types.put(table, new Class<?>[row.length]);
+			}
+			Class<?>[] columnTypes = types.get(table);
+			for (int i = 0; i < row.length; i++) {
+				if (i > 0)
+					writer.write(',');
+				writeValue(writer, row[i]);
+				if (row[i] != null && columnTypes[i] == null)
+					columnTypes[i] = row[i].getClass();
+			}
+			writer.write('\n');
+			counts.put(table, counts.get(table) + 1);
+		}
+
+		private void closeWriters() throws IOException {
+			for (Writer writer : writers.values())
+				writer.close();
+			writers.clear();
+		}
+
+		/**
+		 * loads the staged rows into the tables (the URIID table first)
+		 */
+		void load(Connection conn) throws SQLException, IOException {
+			closeWriters();
+
+			for (Map.Entry<RDBMSSIRepositoryManager.TableDescription, File> e : files.entrySet()) {
+				long start = System.currentTimeMillis();
+				SemanticIndexBulkLoader.this.load(conn, e.getKey(), e.getValue());
+				log.debug("Bulk-loaded {} rows into {} ({} ms)", counts.get(e.getKey()), e.getKey().tableName,
+						System.currentTimeMillis() - start);
+			}
+		}
+
+		/**
+		 * reads the staged rows back (the URIID table first)
+		 */
+		void replay(RowHandler handler) throws SQLException, IOException {
+			closeWriters();
+
+			for (Map.Entry<RDBMSSIRepositoryManager.TableDescription, File> e : files.entrySet()) {
+				RDBMSSIRepositoryManager.TableDescription table = e.getKey();
+				Class<?>[] columnTypes = types.get(table);
+				try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(e.getValue()), Charsets.UTF_8), 1 << 16)) {
+					List<Object> row = new ArrayList<>(columnTypes.length);
+					StringBuilder value = new StringBuilder();
+					boolean quoted = false, inQuotes = false;
+					int c;
+					while ((c = reader.read()) != -1) {
+						if (inQuotes) {
+							if (c == '"') {
+								reader.mark(1);
+								if (reader.read() == '"')
+									value.append('"');
+								else {
+									inQuotes = false;
+									reader.reset();
+								}
+							}
+							else
+								value.append((char) c);
+						}
+						else if (c == '"') {
+							inQuotes = true;
+							quoted = true;
+						}
+						else if (c == ',' || c == '\n') {
+							row.add(readValue(value.toString(), quoted, columnTypes[row.size()]));
+							value.setLength(0);
+							quoted = false;
+							if (c == '\n') {
+								handler.addRow(table, row.toArray());
+								row.clear();
+							}
+						}
+						else
+							value.append((char) c);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			for (Writer writer : writers.values()) {
+				try {
+					writer.close();
+				}
+				catch (IOException e) {
+					// no-op: the file is deleted anyway
+				}
+			}
+			for (File file : files.values())
+				file.delete();
+		}
+	}
+
+	Staging createStaging() {
+		return new Staging();
+	}
+
+	void writeValue(Writer writer, Object value) throws IOException {
+		if (value == null) {
+			writer.write("NULL");
+		}
+		else if (value instanceof String) {
+			String s = (String) value;
+			writer.write('"');
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (c == '"')
+					writer.write('"');
+				writer.write(c);
+			}
+			writer.write('"');
+		}
+		else if (value instanceof BigDecimal) {
+			writer.write(((BigDecimal) value).toPlainString());
+		}
+		else if (value instanceof Boolean) {
+			writer.write((Boolean) value ? "TRUE" : "FALSE");
+		}
+		else {
+			// numbers and timestamps (yyyy-mm-dd hh:mm:ss.fffffffff)
+			writer.write(value.toString());
+		}
+	}
+
+	/**
+	 * The inverse of {@link #writeValue}, given the class of the value
+	 */
+	static Object readValue(String s, boolean quoted, Class<?> type) {
+		if (quoted)
+			return s;
+		if (s.equals("NULL"))
+			return null;
+		if (type == Integer.class)
+			return Integer.valueOf(s);
+		if (type == Long.class)
+			return Long.valueOf(s);
+		if (type == Double.class)
+			return Double.valueOf(s);
+		if (type == BigDecimal.class)
+			return new BigDecimal(s);
+		if (type == Boolean.class)
+			return s.equals("TRUE") || s.equals("1");
+		if (type == Timestamp.class)
+			return Timestamp.valueOf(s);
+		return s;
+	}
+
+	abstract void load(Connection conn, RDBMSSIRepositoryManager.TableDescription table, File file) throws SQLException, IOException;
+
+	static String getStringLiteral(String s) {
+		return "'" + s.replace("'", "''") + "'";
+	}
+
+
+	private static final class H2BulkLoader extends SemanticIndexBulkLoader {
+		@Override
+		void load(Connection conn, RDBMSSIRepositoryManager.TableDescription table, File file) throws SQLException {
+			// the column names are given, so that the first line is not a header
+			String columns = table.columns.replace("\"", "").replace(" ", "");
+			try (Statement st = conn.createStatement()) {
+				st.executeUpdate("INSERT INTO " + table.tableName + " (" + table.columns + ") SELECT * FROM CSVREAD("
+						+ getStringLiteral(file.getAbsolutePath()) + ", " + getStringLiteral(columns)
+						+ ", 'charset=UTF-8 nullString=NULL')");
+			}
+		}
+	}
+
+	private static final class MySQLBulkLoader extends SemanticIndexBulkLoader {
+		@Override
+		void writeValue(Writer writer, Object value) throws IOException {
+			// BOOLEAN is TINYINT(1)
+			if (value instanceof Boolean)
+				writer.write((Boolean) value ? "1" : "0");
+			else
+				super.writeValue(writer, value);
+		}
+
+		@Override
+		void load(Connection conn, RDBMSSIRepositoryManager.TableDescription table, File file) throws SQLException {
+			String path = file.getAbsolutePath().replace("\\", "\\\\");
+			try (Statement st = conn.createStatement()) {
+				st.executeUpdate("LOAD DATA LOCAL INFILE " + getStringLiteral(path) + " INTO TABLE " + table.tableName
+						+ " CHARACTER SET utf8 FIELDS TERMINATED BY ',' OPTIONALLY ENCLOSED BY '\"' ESCAPED BY ''"
+						+ " LINES TERMINATED BY '\\n' (" + table.columns.replace('"', '`') + ")");
+			}
+		}
+	}
+
+	/**
+	 * COPY ... FROM STDIN through the CopyManager of the PostgreSQL driver, which is
+	 * accessed by reflection (the driver is not a compile-time dependency)
+	 */
+	private static final class PostgreSQLBulkLoader extends SemanticIndexBulkLoader {
+
+		private final Method getCopyAPI;
+		private final Method copyIn;
+		private final Class<?> pgConnection;
+
+		PostgreSQLBulkLoader(Connection conn) throws ReflectiveOperationException, SQLException {
+			pgConnection = Class.forName("org.postgresql.PGConnection");
+			if (!conn.isWrapperFor(pgConnection))
+				throw new SQLException("Not a connection of the PostgreSQL driver");
+			getCopyAPI = pgConnection.getMethod("getCopyAPI");
+			copyIn = getCopyAPI.getReturnType().getMethod("copyIn", String.class, Reader.class);
+		}
+
+		@Override
+		void load(Connection conn, RDBMSSIRepositoryManager.TableDescription table, File file) throws SQLException, IOException {
+			String sql = "COPY " + table.tableName + " (" + table.columns + ") FROM STDIN WITH CSV NULL 'NULL'";
+			try (Reader reader = new InputStreamReader(new FileInputStream(file), Charsets.UTF_8)) {
+				Object copyManager = getCopyAPI.invoke(conn.unwrap(pgConnection));
+				copyIn.invoke(copyManager, sql, reader);
+			}
+			catch (ReflectiveOperationException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof SQLException)
+					throw (SQLException) cause;
+				if (cause instanceof IOException)
+					throw (IOException) cause;
+				throw new SQLException("COPY failed for " + table.tableName, (cause != null) ? cause : e);
+			}
+		}
+	}
+}
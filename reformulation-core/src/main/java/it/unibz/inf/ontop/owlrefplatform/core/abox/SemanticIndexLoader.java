@@ -0,0 +1,425 @@
+package it.unibz.inf.ontop.owlrefplatform.core.abox;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import it.unibz.inf.ontop.model.Predicate;
+import it.unibz.inf.ontop.ontology.Assertion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads ABox assertions into a Semantic Index repository in a pipeline of three stages,
+ * each run by several threads and connected to the next by a bounded queue:
+ * <ol>
+ *     <li>parsing: the parsers take chunks of assertions from a {@link Source};</li>
+ *     <li>encoding: the encoders assign the URI ids (the dictionary is shared) and
+ *         route each assertion to the rows of its view;</li>
+ *     <li>writing: the writers insert the rows of each chunk with JDBC batches and
+ *         commit, each with a connection of its own.</li>
+ * </ol>
+ * A full queue blocks the previous stage (back-pressure); the time each stage waits
+ * for the next (or for the previous) is reported in the {@link Statistics}.
+ * <p>
+ * The chunks are committed independently of each other, so a failed load leaves
+ * the chunks that have already been written in the repository. The non-empty indexes 
+ * of the views are registered after the commit of each chunk, whereas the URIs are added
+ * to the dictionary by the encoders: if the load fails, the URIs whose rows have not been 
+ * committed are written and the dictionary is reloaded from the database.
+ */
+public class SemanticIndexLoader {
+
+	private static final Logger log = LoggerFactory.getLogger(SemanticIndexLoader.class);
+
+	/**
+	 * Source of the chunks of assertions
+	 */
+	public interface Source {
+		/**
+		 * Called concurrently by the parser threads.
+		 *
+		 * @return the next chunk of assertions or null if there are no more chunks
+		 */
+		List<Assertion> nextChunk() throws Exception;
+	}
+
+	/**
+	 * @return a source that splits the assertions of the iterator into chunks
+	 *         (only one parser at a time reads the iterator)
+	 */
+	public static Source fromIterator(final Iterator<Assertion> iterator, final int chunkSize) {
+		return new Source() {
+			@Override
+			public synchronized List<Assertion> nextChunk() {
+				if (!iterator.hasNext())
+					return null;
+				List<Assertion> chunk = new ArrayList<>(chunkSize);
+				while (chunk.size() < chunkSize && iterator.hasNext())
+					chunk.add(iterator.next());
+				return chunk;
+			}
+		};
+	}
+
+	/**
+	 * Counters of the pipeline (they can be read while the data is loaded)
+	 */
+	public static final class Statistics {
+		private final AtomicLong parsed = new AtomicLong();
+		private final AtomicLong encoded = new AtomicLong();
+		private final AtomicLong written = new AtomicLong();
+		private final AtomicLong failed = new AtomicLong();
+		private final AtomicLong parserBlockedNanos = new AtomicLong();
+		private final AtomicLong encoderIdleNanos = new AtomicLong();
+		private final AtomicLong encoderBlockedNanos = new AtomicLong();
+		private final AtomicLong writerIdleNanos = new AtomicLong();
+		private volatile long startNanos, endNanos;
+
+		/** number of parsed assertions */
+		public long getParsed() { return parsed.get(); }
+		/** number of assertions routed to the views */
+		public long getEncoded() { return encoded.get(); }
+		/** number of assertions written to the database */
+		public long getWritten() { return written.get(); }
+		/** number of assertions that do not match the datatypes of the database */
+		public long getFailed() { return failed.get(); }
+
+		/** time (in ms, summed over the threads) the parsers waited for the encoders */
+		public long getParserBlockedTime() { return parserBlockedNanos.get() / 1_000_000; }
+		/** time (in ms, summed over the threads) the encoders waited for the parsers */
+		public long getEncoderIdleTime() { return encoderIdleNanos.get() / 1_000_000; }
+		/** time (in ms, summed over the threads) the encoders waited for the writers */
+		public long getEncoderBlockedTime() { return encoderBlockedNanos.get() / 1_000_000; }
+		/** time (in ms, summed over the threads) the writers waited for the encoders */
+		public long getWriterIdleTime() { return writerIdleNanos.get() / 1_000_000; }
+
+		/** time (in ms) since the start of the load (until its end) */
+		public long getElapsedTime() {
+			if (startNanos == 0)
+				return 0;
+			return ((endNanos != 0 ? endNanos : System.nanoTime()) - startNanos) / 1_000_000;
+		}
+
+		/** assertions written per second */
+		public double getThroughput() {
+			long elapsed = getElapsedTime();
+			return (elapsed == 0) ? 0 : written.get() * 1000.0 / elapsed;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d parsed, %d encoded, %d written, %d failed in %d ms (%.0f assertions/s); " +
+							"waiting (ms): parsers for encoders %d, encoders for parsers %d, encoders for writers %d, writers for encoders %d",
+					getParsed(), getEncoded(), getWritten(), getFailed(), getElapsedTime(), getThroughput(),
+					getParserBlockedTime(), getEncoderIdleTime(), getEncoderBlockedTime(), getWriterIdleTime());
+		}
+	}
+
+	/**
+	 * Rows of the views (and of the URIID table) for a chunk of assertions
+	 */
+	private static final class RowBatch implements RDBMSSIRepositoryManager.RowSink {
+		private final Map<SemanticIndexView, List<Object[]>> rows = new HashMap<>();
+		private final List<Object[]> uris = new ArrayList<>();
+		private final RDBMSSIRepositoryManager.PendingChanges indexes;
+		private int assertions;
+
+		RowBatch(RDBMSSIRepositoryManager.PendingChanges indexes) {
+			this.indexes = indexes;
+		}
+
+		@Override
+		public void add(SemanticIndexView view, Object... values) {
+			List<Object[]> list = rows.get(view);
+			if (list == null) {
+				list = new ArrayList<>();
+				rows.put(view, list);
+			}
+			list.add(values);
+		}
+
+		@Override
+		public void addURI(int id, String uri) {
+			uris.add(new Object[] { id, uri });
+		}
+	}
+
+	// the ends of the streams (compared by identity)
+	private static final List<Assertion> NO_MORE_CHUNKS = new ArrayList<>(0);
+	private static final RowBatch NO_MORE_ROWS = new RowBatch(null);
+
+	private final RDBMSSIRepositoryManager repository;
+	private final Connection conn;
+	private final DataSource dataSource;
+	private final int parsers, encoders, writers;
+	private final int queueCapacity;
+
+	private final Statistics statistics = new Statistics();
+
+	/**
+	 * @param repository the repository
+	 * @param conn the connection used if there is no data source
+	 * @param dataSource the data source of the connections of the writers
+	 *                   (null if there is a single writer, which uses conn)
+	 * @param parsers number of parser threads
+	 * @param encoders number of encoder threads
+	 * @param writers number of writer threads
+	 * @param queueCapacity number of chunks in each queue
+	 */
+	public SemanticIndexLoader(RDBMSSIRepositoryManager repository, Connection conn, DataSource dataSource,
+							   int parsers, int encoders, int writers, int queueCapacity) {
+		this.repository = repository;
+		this.conn = conn;
+		this.dataSource = dataSource;
+		this.parsers = Math.max(parsers, 1);
+		this.encoders = Math.max(encoders, 1);
+		this.writers = (dataSource == null) ? 1 : Math.max(writers, 1);
+		this.queueCapacity = Math.max(queueCapacity, 1);
+	}
+
+	public Statistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Loads all the chunks of the source.
+	 *
+	 * @return the number of inserted assertions
+	 */
+	public int load(final Source source) throws SQLException {
+		log.debug("Loading data with {} parsers, {} encoders and {} writers", parsers, encoders, writers);
+
+		final BlockingQueue<List<Assertion>> chunks = new ArrayBlockingQueue<>(queueCapacity);
+		final BlockingQueue<RowBatch> batches = new ArrayBlockingQueue<>(queueCapacity);
+		final AtomicInteger activeParsers = new AtomicInteger(parsers);
+		final AtomicInteger activeEncoders = new AtomicInteger(encoders);
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		final Map<Predicate, Integer> failures = new HashMap<>();
+		int firstId = repository.getUriMap().size();
+
+		ExecutorService executor = Executors.newFixedThreadPool(parsers + encoders + writers,
+				new ThreadFactoryBuilder().setNameFormat("ontop-loader-%d").setDaemon(true).build());
+		statistics.startNanos = System.nanoTime();
+
+		for (int i = 0; i < parsers; i++) {
+			executor.execute(new Stage(executor, error) {
+				@Override
+				void run0() throws Exception {
+					try {
+						List<Assertion> chunk;
+						while ((chunk = source.nextChunk()) != null) {
+							statistics.parsed.addAndGet(chunk.size());
+							long start = System.nanoTime();
+							chunks.put(chunk);
+							statistics.parserBlockedNanos.addAndGet(System.nanoTime() - start);
+						}
+					}
+					finally {
+						if (activeParsers.decrementAndGet() == 0)
+							for (int j = 0; j < encoders; j++)
+								chunks.put(NO_MORE_CHUNKS);
+					}
+				}
+			});
+		}
+
+		for (int i = 0; i < encoders; i++) {
+			executor.execute(new Stage(executor, error) {
+				@Override
+				void run0() throws Exception {
+					Map<Predicate, Integer> encoderFailures = new HashMap<>();
+					try {
+						while (true) {
+							long start = System.nanoTime();
+							List<Assertion> chunk = chunks.take();
+							statistics.encoderIdleNanos.addAndGet(System.nanoTime() - start);
+							if (chunk == NO_MORE_CHUNKS)
+								break;
+
+							RowBatch batch = new RowBatch(repository.createPendingIndexes());
+							for (Assertion ax : chunk) {
+								if (repository.process(ax, batch, encoderFailures, batch.indexes))
+									batch.assertions++;
+								else
+									statistics.failed.incrementAndGet();
+							}
+							statistics.encoded.addAndGet(chunk.size());
+
+							start = System.nanoTime();
+							batches.put(batch);
+							statistics.encoderBlockedNanos.addAndGet(System.nanoTime() - start);
+						}
+					}
+					finally {
+						synchronized (failures) {
+							for (Map.Entry<Predicate, Integer> e : encoderFailures.entrySet()) {
+								Integer counter = failures.get(e.getKey());
+								failures.put(e.getKey(), (counter == null) ? e.getValue() : counter + e.getValue());
+							}
+						}
+						if (activeEncoders.decrementAndGet() == 0)
+							for (int j = 0; j < writers; j++)
+								batches.put(NO_MORE_ROWS);
+					}
+				}
+			});
+		}
+
+		for (int i = 0; i < writers; i++) {
+			executor.execute(new Stage(executor, error) {
+				@Override
+				void run0() throws Exception {
+					if (dataSource == null) {
+						write(conn, batches);
+					}
+					else {
+						try (Connection c = dataSource.getConnection()) {
+							write(c, batches);
+						}
+					}
+				}
+			});
+		}
+
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(10, TimeUnit.SECONDS))
+				log.debug("Loading data: {}", statistics);
+		}
+		catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new SQLException("Loading data has been interrupted", e);
+		}
+		statistics.endNanos = System.nanoTime();
+		log.debug("Loaded data: {}", statistics);
+
+		Throwable e = error.get();
+		if (e != null) {
+			try {
+				restoreUriMap(firstId);
+			}
+			catch (SQLException e1) {
+				e.addSuppressed(e1);
+			}
+			if (e instanceof SQLException)
+				throw (SQLException) e;
+			if (e instanceof RuntimeException)
+				throw (RuntimeException) e;
+			throw new SQLException("Cannot load the data", e);
+		}
+
+		int success = (int) statistics.getWritten();
+		repository.finishInsert(success, failures);
+		return success;
+	}
+
+	private void restoreUriMap(int firstId) throws SQLException {
+		if (dataSource == null) {
+			repository.restoreUriMap(conn, firstId);
+		}
+		else {
+			try (Connection c = dataSource.getConnection()) {
+				repository.restoreUriMap(c, firstId);
+			}
+		}
+	}
+
+	private void write(Connection c, BlockingQueue<RowBatch> batches) throws SQLException, InterruptedException {
+		boolean oldAutoCommit = c.getAutoCommit();
+		c.setAutoCommit(false);
+		Map<SemanticIndexView, PreparedStatement> stmMap = new HashMap<>();
+		try (PreparedStatement uriidStm = c.prepareStatement(RDBMSSIRepositoryManager.uriIdTable.getINSERT("?, ?"))) {
+			try {
+				while (true) {
+					long start = System.nanoTime();
+					RowBatch batch = batches.take();
+					statistics.writerIdleNanos.addAndGet(System.nanoTime() - start);
+					if (batch == NO_MORE_ROWS)
+						break;
+
+					if (!batch.uris.isEmpty()) {
+						for (Object[] row : batch.uris) {
+							uriidStm.setInt(1, (Integer) row[0]);
+							uriidStm.setString(2, (String) row[1]);
+							uriidStm.addBatch();
+						}
+						uriidStm.executeBatch();
+					}
+					for (Map.Entry<SemanticIndexView, List<Object[]>> e : batch.rows.entrySet()) {
+						PreparedStatement stm = stmMap.get(e.getKey());
+						if (stm == null) {
+							stm = c.prepareStatement(e.getKey().getINSERT());
+							stmMap.put(e.getKey(), stm);
+						}
+						for (Object[] values : e.getValue()) {
+							for (int i = 0; i < values.length; i++)
+								stm.setObject(i + 1, values[i]);
+							stm.addBatch();
+						}
+						stm.executeBatch();
+					}
+					c.commit();
+					batch.indexes.apply();
+					statistics.written.addAndGet(batch.assertions);
+				}
+			}
+			finally {
+				for (PreparedStatement stm : stmMap.values())
+					stm.close();
+			}
+		}
+		catch (SQLException e) {
+			c.rollback();
+			throw e;
+		}
+		finally {
+			c.setAutoCommit(oldAutoCommit);
+		}
+	}
+
+	/**
+	 * A thread of a stage; the first failure stops all the threads
+	 */
+	private static abstract class Stage implements Runnable {
+		private final ExecutorService executor;
+		private final AtomicReference<Throwable> error;
+
+		Stage(ExecutorService executor, AtomicReference<Throwable> error) {
+			this.executor = executor;
+			this.error = error;
+		}
+
+		abstract void run0() throws Exception;
+
+		@Override
+		public void run() {
+			try {
+				run0();
+			}
+			catch (InterruptedException e) {
+				// stopped because of a failure in another thread
+			}
+			catch (Throwable e) {
+				if (error.compareAndSet(null, e))
+					executor.shutdownNow();
+			}
+		}
+	}
+}
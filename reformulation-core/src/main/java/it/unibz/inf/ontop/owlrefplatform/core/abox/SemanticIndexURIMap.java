@@ -1,21 +1,115 @@
 package it.unibz.inf.ontop.owlrefplatform.core.abox;
 
-import java.util.HashMap;
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Dictionary of the URIs (and blank node names) of the Semantic Index repository.
+ * <p>
+ * The ids are dense (0, 1, 2, ...) and the URIs are stored off-heap in the order of
+ * their ids, front-coded in blocks of {@link #BLOCK_SIZE} entries (each URI but the first
+ * of a block keeps only the suffix it does not share with the previous URI). The reverse
+ * lookup is an off-heap open-addressing hash table of the ids. The dictionary can be
+ * saved to a file, which is later memory-mapped (copy-on-write) rather than read.
+ * <p>
+ * The map is thread-safe: the lookups of the decoders of the result sets run in
+ * parallel with each other and are only blocked while URIs are added.
+ */
 public class SemanticIndexURIMap {
-	
-	// Semantic Index URI reference structures
-	private final HashMap<String, Integer> uriIds = new HashMap<> (100000);
-	private final HashMap <Integer, String> uriMap2 = new HashMap<> (100000);
-	
-	
+
+	private static final Logger log = LoggerFactory.getLogger(SemanticIndexURIMap.class);
+
+	private static final int BLOCK_SIZE = 16;
+	private static final int BLOCK_BITS = 4;
+
+	private static final int STRING_PAGE_BITS = 22;   // 4MB
+	private static final int OFFSET_PAGE_BITS = 20;   // 1MB
+	private static final int MAX_HASH_PAGE_BITS = 20;
+	private static final int MIN_HASH_CAPACITY = 1024;
+
+	private static final int MAGIC = 0x4f555249;
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+
+	private static final HashFunction hashFunction = Hashing.murmur3_32();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private Pages strings;       // front-coded URIs
+	private Pages offsets;       // position of each block in strings
+	private Pages hashTable;     // (hash << 32 | id + 1) or 0 for an empty slot
+	private int hashCapacity;
+
+	private int count;           // the next id
+	private int indexed;         // number of entries in the hash table
+	private long stringsLength;
+	private byte[] last = new byte[0];
+
+	public SemanticIndexURIMap() {
+		clear();
+	}
+
 	/**
-	 * set(uri, id) is used only by RDBMSSIRepository
-	 * 
+	 * set(uri, id) is used only by RDBMSSIRepository (when the map is loaded from the DB);
+	 * the ids that are skipped remain unused
+	 *
 	 */
 	void set(String uri, int id) {
-		uriIds.put(uri, id);
-		uriMap2.put(id, uri);
+		byte[] bytes = uri.getBytes(Charsets.UTF_8);
+		lock.writeLock().lock();
+		try {
+			if (id < count) {
+				if (!Arrays.equals(bytes, decode(id)))
+					throw new IllegalArgumentException("Id " + id + " has already been assigned to " + getURI(id));
+				return;
+			}
+			while (count < id)
+				append(new byte[0]);
+			append(bytes);
+			index(hash(bytes), id);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds the URI with the next id (the size of the map).
+	 *
+	 * @return the id of the URI or -1 if the map already contains the URI
+	 */
+	int add(String uri) {
+		byte[] bytes = uri.getBytes(Charsets.UTF_8);
+		int hash = hash(bytes);
+		lock.writeLock().lock();
+		try {
+			if (lookup(bytes, hash) >= 0)
+				return -1;
+			int id = count;
+			append(bytes);
+			index(hash, id);
+			return id;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 	/***
@@ -25,15 +119,361 @@ public class SemanticIndexURIMap {
 	 * @param uri
 	 * @return
 	 */
-	
+
 	public int getId(String uri) {
-		Integer index =  uriIds.get(uri);
-		if (index != null)
-			return index;
-		return -2;
+		byte[] bytes = uri.getBytes(Charsets.UTF_8);
+		int hash = hash(bytes);
+		lock.readLock().lock();
+		try {
+			int id = lookup(bytes, hash);
+			if (id >= 0)
+				return id;
+			return -2;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
 	}
 
 	public String getURI(Integer id) {
-		return uriMap2.get(id);
+		if (id == null)
+			return null;
+		lock.readLock().lock();
+		try {
+			if (id < 0 || id >= count)
+				return null;
+			byte[] bytes = decode(id);
+			if (bytes.length == 0)
+				return null;
+			return new String(bytes, Charsets.UTF_8);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of ids (including the unused ones), i.e., the next id
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return count;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	void clear() {
+		lock.writeLock().lock();
+		try {
+			strings = new Pages(STRING_PAGE_BITS);
+			offsets = new Pages(OFFSET_PAGE_BITS);
+			hashCapacity = MIN_HASH_CAPACITY;
+			hashTable = createHashTable(hashCapacity);
+			count = 0;
+			indexed = 0;
+			stringsLength = 0;
+			last = new byte[0];
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+
+	private static int hash(byte[] bytes) {
+		return hashFunction.hashBytes(bytes).asInt();
+	}
+
+	private static int getHashPageBits(int capacity) {
+		return Math.min(Integer.numberOfTrailingZeros(capacity) + 3, MAX_HASH_PAGE_BITS);
+	}
+
+	private static Pages createHashTable(int capacity) {
+		Pages table = new Pages(getHashPageBits(capacity));
+		table.ensure((long)capacity << 3);
+		return table;
+	}
+
+	private int lookup(byte[] bytes, int hash) {
+		long mask = hashCapacity - 1;
+		for (long slot = hash & mask; ; slot = (slot + 1) & mask) {
+			long entry = hashTable.getLong(slot << 3);
+			if (entry == 0)
+				return -1;
+			if ((int)(entry >>> 32) == hash) {
+				int id = (int)entry - 1;
+				if (Arrays.equals(bytes, decode(id)))
+					return id;
+			}
+		}
+	}
+
+	private void index(int hash, int id) {
+		if ((long)(indexed + 1) * 4 > (long)hashCapacity * 3) {
+			int capacity = hashCapacity << 1;
+			if (capacity <= 0)
+				throw new IllegalStateException("Too many URIs in the Semantic Index dictionary");
+			Pages table = createHashTable(capacity);
+			for (long slot = 0; slot < hashCapacity; slot++) {
+				long entry = hashTable.getLong(slot << 3);
+				if (entry != 0)
+					insert(table, capacity, entry);
+			}
+			hashTable = table;
+			hashCapacity = capacity;
+		}
+		insert(hashTable, hashCapacity, ((long)hash << 32) | ((id + 1) & 0xffffffffL));
+		indexed++;
+	}
+
+	private static void insert(Pages table, int capacity, long entry) {
+		long mask = capacity - 1;
+		long slot = (entry >>> 32) & mask;
+		while (table.getLong(slot << 3) != 0)
+			slot = (slot + 1) & mask;
+		table.putLong(slot << 3, entry);
+	}
+
+	private void append(byte[] bytes) {
+		int prefix = 0;
+		if ((count & (BLOCK_SIZE - 1)) == 0) {
+			long position = (long)(count >>> BLOCK_BITS) << 3;
+			offsets.ensure(position + 8);
+			offsets.putLong(position, stringsLength);
+		}
+		else {
+			int max = Math.min(bytes.length, last.length);
+			while (prefix < max && bytes[prefix] == last[prefix])
+				prefix++;
+		}
+		int suffix = bytes.length - prefix;
+		strings.ensure(stringsLength + suffix + 10);
+		long pos = writeVarInt(strings, stringsLength, prefix);
+		pos = writeVarInt(strings, pos, suffix);
+		for (int i = prefix; i < bytes.length; i++)
+			strings.put(pos++, bytes[i]);
+		stringsLength = pos;
+		last = bytes;
+		count++;
+	}
+
+	private byte[] decode(int id) {
+		long pos = offsets.getLong((long)(id >>> BLOCK_BITS) << 3);
+		byte[] buffer = new byte[64];
+		int length = 0;
+		for (int i = id & (BLOCK_SIZE - 1); i >= 0; i--) {
+			int prefix = 0, shift = 0, b;
+			do {
+				b = strings.get(pos++);
+				prefix |= (b & 0x7f) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			int suffix = 0;
+			shift = 0;
+			do {
+				b = strings.get(pos++);
+				suffix |= (b & 0x7f) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+
+			length = prefix + suffix;
+			if (length > buffer.length)
+				buffer = Arrays.copyOf(buffer, Math.max(length, buffer.length << 1));
+			for (int j = prefix; j < length; j++)
+				buffer[j] = strings.get(pos++);
+		}
+		return Arrays.copyOf(buffer, length);
+	}
+
+	private static long writeVarInt(Pages pages, long pos, int value) {
+		while ((value & ~0x7f) != 0) {
+			pages.put(pos++, (byte)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		pages.put(pos++, (byte)value);
+		return pos;
+	}
+
+
+	/**
+	 * Writes the dictionary to the file (via a temporary file, so that the file is
+	 * never incomplete). Failures are logged and otherwise ignored.
+	 *
+	 * @return true if the file has been written
+	 */
+	public boolean save(File file) {
+		File dir = file.getAbsoluteFile().getParentFile();
+		File temp = null;
+		lock.readLock().lock();
+		try {
+			temp = File.createTempFile(file.getName(), ".tmp", dir);
+			try (RandomAccessFile out = new RandomAccessFile(temp, "rw");
+				 FileChannel channel = out.getChannel()) {
+				int blocks = (count + BLOCK_SIZE - 1) >>> BLOCK_BITS;
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC);
+				header.putInt(FORMAT_VERSION);
+				header.putInt(count);
+				header.putInt(indexed);
+				header.putInt(hashCapacity);
+				header.putLong(stringsLength);
+				header.rewind();
+				writeFully(channel, header);
+
+				offsets.write(channel, (long)blocks << 3);
+				strings.write(channel, stringsLength);
+				hashTable.write(channel, (long)hashCapacity << 3);
+			}
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			log.debug("URI dictionary {} has been written ({} ids)", file, count);
+			return true;
+		}
+		catch (IOException e) {
+			log.warn("Cannot write the URI dictionary {}: {}", file, e.toString());
+			if (temp != null)
+				temp.delete();
+			return false;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Replaces the content of the dictionary by the one saved in the file. The file
+	 * is mapped into memory, and so, the URIs are read only when they are looked up.
+	 *
+	 * @return false (and the dictionary is left unchanged) if the file does not exist
+	 *         or cannot be read
+	 */
+	public boolean load(File file) {
+		if (!file.isFile())
+			return false;
+
+		lock.writeLock().lock();
+		// copy-on-write mappings require a channel open for writing (the file is never changed)
+		try (RandomAccessFile in = new RandomAccessFile(file, "rw");
+			 FileChannel channel = in.getChannel()) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining())
+				if (channel.read(header) < 0)
+					break;
+			header.flip();
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+				log.debug("URI dictionary {} has a different format", file);
+				return false;
+			}
+			int newCount = header.getInt();
+			int newIndexed = header.getInt();
+			int newHashCapacity = header.getInt();
+			long newStringsLength = header.getLong();
+			int blocks = (newCount + BLOCK_SIZE - 1) >>> BLOCK_BITS;
+
+			Pages newOffsets = new Pages(OFFSET_PAGE_BITS);
+			long pos = newOffsets.map(channel, HEADER_SIZE, (long)blocks << 3);
+			Pages newStrings = new Pages(STRING_PAGE_BITS);
+			pos = newStrings.map(channel, pos, newStringsLength);
+			if (Integer.bitCount(newHashCapacity) != 1 || newHashCapacity < MIN_HASH_CAPACITY)
+				throw new IOException("Invalid hash table capacity " + newHashCapacity);
+			Pages newHashTable = new Pages(getHashPageBits(newHashCapacity));
+			newHashTable.map(channel, pos, (long)newHashCapacity << 3);
+
+			offsets = newOffsets;
+			strings = newStrings;
+			hashTable = newHashTable;
+			hashCapacity = newHashCapacity;
+			count = newCount;
+			indexed = newIndexed;
+			stringsLength = newStringsLength;
+			last = (count % BLOCK_SIZE == 0) ? new byte[0] : decode(count - 1);
+			log.debug("URI dictionary {} has been loaded ({} ids)", file, count);
+			return true;
+		}
+		catch (IOException | RuntimeException e) {
+			log.warn("Cannot read the URI dictionary {}: {}", file, e.toString());
+			return false;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * Off-heap byte array of (almost) unbounded length, split into pages
+	 * (direct buffers or copy-on-write mappings of a file)
+	 */
+	private static final class Pages {
+
+		private final int pageBits;
+		private final int pageSize;
+		private final long pageMask;
+		private final List<ByteBuffer> pages = new ArrayList<>();
+
+		Pages(int pageBits) {
+			this.pageBits = pageBits;
+			this.pageSize = 1 << pageBits;
+			this.pageMask = pageSize - 1;
+		}
+
+		void ensure(long length) {
+			while (((long)pages.size() << pageBits) < length)
+				pages.add(ByteBuffer.allocateDirect(pageSize));
+		}
+
+		byte get(long pos) {
+			return pages.get((int)(pos >>> pageBits)).get((int)(pos & pageMask));
+		}
+
+		void put(long pos, byte b) {
+			pages.get((int)(pos >>> pageBits)).put((int)(pos & pageMask), b);
+		}
+
+		// the positions of the longs are multiples of 8, so longs never cross pages
+		long getLong(long pos) {
+			return pages.get((int)(pos >>> pageBits)).getLong((int)(pos & pageMask));
+		}
+
+		void putLong(long pos, long value) {
+			pages.get((int)(pos >>> pageBits)).putLong((int)(pos & pageMask), value);
+		}
+
+		/**
+		 * writes the pages covering the given length (the last page is written in full)
+		 */
+		void write(FileChannel channel, long length) throws IOException {
+			int n = (int)((length + pageMask) >>> pageBits);
+			for (int i = 0; i < n; i++) {
+				ByteBuffer page = pages.get(i).duplicate();
+				page.clear();
+				writeFully(channel, page);
+			}
+		}
+
+		/**
+		 * maps the pages written by {@link #write} at the given position of the file
+		 *
+		 * @return the position after the last page
+		 */
+		long map(FileChannel channel, long position, long length) throws IOException {
+			int n = (int)((length + pageMask) >>> pageBits);
+			for (int i = 0; i < n; i++) {
+				pages.add(channel.map(FileChannel.MapMode.PRIVATE, position, pageSize));
+				position += pageSize;
+			}
+			return position;
+		}
 	}
 }
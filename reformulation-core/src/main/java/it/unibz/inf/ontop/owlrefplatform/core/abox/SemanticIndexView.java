@@ -1,9 +1,10 @@
 package it.unibz.inf.ontop.owlrefplatform.core.abox;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.Interval;
 
@@ -12,12 +13,29 @@ public class SemanticIndexView {
 	private final SemanticIndexViewID id;
 	private final String selectCommand;
 	private final String insertCommand;
-	private final Set<Integer> indexes = new HashSet<>();
+	// the rows of a view can be inserted by several threads
+	private final Set<Integer> indexes = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+	
+	private final RDBMSSIRepositoryManager.TableDescription table;
+	private final Object[] constants;
 	
 	public SemanticIndexView(SemanticIndexViewID id, String selectCommand, String insertCommand) {
+		this(id, selectCommand, insertCommand, null);
+	}
+	
+	/**
+	 * 
+	 * @param table the table of the view
+	 * @param constants the values of the last columns of the table, 
+	 *                  which are not parameters of the INSERT command
+	 */
+	SemanticIndexView(SemanticIndexViewID id, String selectCommand, String insertCommand, 
+			RDBMSSIRepositoryManager.TableDescription table, Object... constants) {
 		this.id = id;
 		this.selectCommand = selectCommand;
 		this.insertCommand = insertCommand;
+		this.table = table;
+		this.constants = constants;
 	}
 	
 	public SemanticIndexViewID getId() {
@@ -32,6 +50,20 @@ public class SemanticIndexView {
 		return insertCommand;
 	}
 	
+	RDBMSSIRepositoryManager.TableDescription getTable() {
+		return table;
+	}
+	
+	/**
+	 * @param values the parameters of the INSERT command
+	 * @return the complete row of the table 
+	 */
+	Object[] getRow(Object[] values) {
+		Object[] row = Arrays.copyOf(values, values.length + constants.length);
+		System.arraycopy(constants, 0, row, values.length, constants.length);
+		return row;
+	}
+	
 	public boolean isEmptyForIntervals(List<Interval> intervals) {
 		for (Interval interval : intervals) 
 			for (Integer i = interval.getStart(); i <= interval.getEnd(); i++) 
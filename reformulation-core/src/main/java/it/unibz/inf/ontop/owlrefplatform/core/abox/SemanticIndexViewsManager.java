@@ -57,7 +57,8 @@ public class SemanticIndexViewsManager {
 		
 		for (COL_TYPE type1 : objectTypes) {
 
-			String value =  (type1 == COL_TYPE.BNODE) ? "TRUE" : "FALSE";
+			boolean isBNode = (type1 == COL_TYPE.BNODE);
+			String value =  isBNode ? "TRUE" : "FALSE";
 			String filter = "ISBNODE = " + value + " AND ";
 			
 			{
@@ -65,7 +66,8 @@ public class SemanticIndexViewsManager {
 				String insert = RDBMSSIRepositoryManager.classTable.getINSERT("?, ?, " + value);
 				
 				SemanticIndexViewID viewId = new SemanticIndexViewID(type1);
-				SemanticIndexView view = new SemanticIndexView(viewId, select, insert);
+				SemanticIndexView view = new SemanticIndexView(viewId, select, insert, 
+						RDBMSSIRepositoryManager.classTable, isBNode);
 				views.put(view.getId(), view);		
 				classViews.add(view);
 			}
@@ -73,19 +75,27 @@ public class SemanticIndexViewsManager {
 			
 			for (COL_TYPE type2 : typesAndObjectTypes) {
 				String select, insert;
+				RDBMSSIRepositoryManager.TableDescription table;
+				Object[] constants;
 				
 				switch (type2) {
 					case OBJECT:
-						select = RDBMSSIRepositoryManager.attributeTable.get(type2).getSELECT(filter + "ISBNODE2 = FALSE AND ");
-						insert = RDBMSSIRepositoryManager.attributeTable.get(type2).getINSERT("?, ?, ?, " + value + ", FALSE");
+						table = RDBMSSIRepositoryManager.attributeTable.get(type2);
+						select = table.getSELECT(filter + "ISBNODE2 = FALSE AND ");
+						insert = table.getINSERT("?, ?, ?, " + value + ", FALSE");
+						constants = new Object[] { isBNode, false };
 						break;
 					case BNODE:
-						select = RDBMSSIRepositoryManager.attributeTable.get(COL_TYPE.OBJECT).getSELECT(filter + "ISBNODE2 = TRUE AND ");
-						insert = RDBMSSIRepositoryManager.attributeTable.get(COL_TYPE.OBJECT).getINSERT("?, ?, ?, " + value + ", TRUE");
+						table = RDBMSSIRepositoryManager.attributeTable.get(COL_TYPE.OBJECT);
+						select = table.getSELECT(filter + "ISBNODE2 = TRUE AND ");
+						insert = table.getINSERT("?, ?, ?, " + value + ", TRUE");
+						constants = new Object[] { isBNode, true };
 						break;
 					case LITERAL:
-						select = RDBMSSIRepositoryManager.attributeTable.get(type2).getSELECT("LANG IS NULL AND " + filter);
-						insert = RDBMSSIRepositoryManager.attributeTable.get(type2).getINSERT("?, ?, ?, NULL, " + value);
+						table = RDBMSSIRepositoryManager.attributeTable.get(type2);
+						select = table.getSELECT("LANG IS NULL AND " + filter);
+						insert = table.getINSERT("?, ?, ?, NULL, " + value);
+						constants = new Object[] { null, isBNode };
 						break;
 					case LITERAL_LANG:
 						/*
@@ -94,16 +104,20 @@ public class SemanticIndexViewsManager {
 						 * redundant since we have another stage in Quest where we add IS NOT
 						 * NULL for every variable in the head of a mapping.
 						 */
-						select = RDBMSSIRepositoryManager.attributeTable.get(COL_TYPE.LITERAL).getSELECT("LANG IS NOT NULL AND " + filter);
-						insert = RDBMSSIRepositoryManager.attributeTable.get(COL_TYPE.LITERAL).getINSERT("?, ?, ?, ?, " + value);
+						table = RDBMSSIRepositoryManager.attributeTable.get(COL_TYPE.LITERAL);
+						select = table.getSELECT("LANG IS NOT NULL AND " + filter);
+						insert = table.getINSERT("?, ?, ?, ?, " + value);
+						constants = new Object[] { isBNode };
 						break;
 					default:
-						select = RDBMSSIRepositoryManager.attributeTable.get(type2).getSELECT(filter);
-						insert = RDBMSSIRepositoryManager.attributeTable.get(type2).getINSERT("?, ?, ?, " + value);
+						table = RDBMSSIRepositoryManager.attributeTable.get(type2);
+						select = table.getSELECT(filter);
+						insert = table.getINSERT("?, ?, ?, " + value);
+						constants = new Object[] { isBNode };
 				}
 
 				SemanticIndexViewID viewId = new SemanticIndexViewID(type1, type2);
-				SemanticIndexView view = new SemanticIndexView(viewId, select, insert);
+				SemanticIndexView view = new SemanticIndexView(viewId, select, insert, table, constants);
 				views.put(view.getId(), view);					
 				propertyViews.add(view);
 			}
@@ -1,6 +1,9 @@
 package it.unibz.inf.ontop.owlrefplatform.core.basicoperations;
 
 import it.unibz.inf.ontop.model.CQIE;
+import it.unibz.inf.ontop.model.Predicate;
+
+import java.util.Set;
 
 public interface CQContainmentCheck {
 
@@ -16,5 +19,14 @@ public interface CQContainmentCheck {
 	boolean isContainedIn(CQIE cq1, CQIE cq2);
 
 	Substitution computeHomomorphsim(CQIE q1, CQIE q2);
+
+	/**
+	 * Returns the predicates of the atoms that a homomorphism into q can use
+	 *    (so, computeHomomorphsim(q, q2) is null unless q2 has only atoms over these predicates)
+	 *
+	 * @param q
+	 * @return the predicates of the (chased) body of q
+	 */
+	Set<Predicate> getChasedPredicates(CQIE q);
 	
 }
@@ -2,6 +2,10 @@ package it.unibz.inf.ontop.owlrefplatform.core.basicoperations;
 
 import it.unibz.inf.ontop.model.CQIE;
 import it.unibz.inf.ontop.model.Function;
+import it.unibz.inf.ontop.model.Predicate;
+
+import java.util.HashSet;
+import java.util.Set;
 
 public class CQContainmentCheckSyntactic implements CQContainmentCheck {
 
@@ -29,4 +33,12 @@ public class CQContainmentCheckSyntactic implements CQContainmentCheck {
 		throw new RuntimeException("Unimplemented method");
 	}
 
+	@Override
+	public Set<Predicate> getChasedPredicates(CQIE q) {
+		Set<Predicate> predicates = new HashSet<>();
+		for (Function atom : q.getBody())
+			predicates.add(atom.getFunctionSymbol());
+		return predicates;
+	}
+
 }
@@ -9,6 +9,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import it.unibz.inf.ontop.model.BuiltinPredicate;
 import it.unibz.inf.ontop.model.CQIE;
@@ -24,7 +26,8 @@ public class CQContainmentCheckUnderLIDs implements CQContainmentCheck {
 
 	private final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
 	
-	private final Map<CQIE,IndexedCQ> indexedCQcache = new HashMap<>();
+	// shared by the queries translated concurrently
+	private final ConcurrentMap<CQIE,IndexedCQ> indexedCQcache = new ConcurrentHashMap<>();
 	
 	private final LinearInclusionDependencies dependencies;
 	
@@ -156,7 +159,9 @@ public class CQContainmentCheckUnderLIDs implements CQContainmentCheck {
         		q1body = chaseAtoms(q1body);
         	
         	indexedQ1 = new IndexedCQ(q1.getHead(), q1body);
-    		indexedCQcache.put(q1, indexedQ1);
+        	IndexedCQ previous = indexedCQcache.putIfAbsent(q1, indexedQ1);
+        	if (previous != null)
+        		indexedQ1 = previous;
         }
            
         // just to speed up the check in case there can be no match
@@ -169,6 +174,19 @@ public class CQContainmentCheckUnderLIDs implements CQContainmentCheck {
 		return indexedQ1.computeHomomorphism(q2);
 	}	
 
+	@Override
+	public Set<Predicate> getChasedPredicates(CQIE q) {
+		Collection<Function> body = q.getBody();
+		if (dependencies != null)
+			body = chaseAtoms(body);
+
+		Set<Predicate> predicates = new HashSet<>();
+		for (Function atom : body)
+			if (atom.isDataFunction())
+				predicates.add(atom.getFunctionSymbol());
+		return predicates;
+	}
+
 	static int redundantCounter = 0;
 	public static int twoAtomQs = 0;
 	public static int oneAtomQs = 0;
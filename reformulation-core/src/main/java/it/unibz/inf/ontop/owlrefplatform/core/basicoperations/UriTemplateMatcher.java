@@ -34,11 +34,80 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Matches URIs against the URI templates of the mappings.
+ * <p>
+ * The templates are indexed by a trie on their constant prefix (the text 
+ * before the first placeholder): the candidate templates for a URI are
+ * found in a single pass over its characters, and only those are checked.
+ * Among the matching templates, the most specific (i.e., longest) is chosen.
+ */
 public class UriTemplateMatcher {
 
 	private static final OBDADataFactory ofac = OBDADataFactoryImpl.getInstance();
 
-	private final Map<Pattern, Function> uriTemplateMatcher = new HashMap<>();
+	private static final String PLACEHOLDER = "{}";
+
+	/**
+	 * A URI template: the constant parts around its placeholders
+	 */
+	private static final class Template {
+		final Function function;
+		final String[] parts; // one more than the placeholders
+		final Pattern pattern; // null if there is at most one placeholder
+		final int specificity; // the length of the template with (.+) for each placeholder 
+		final int order;
+
+		Template(Function function, String template, int order) {
+			this.function = function;
+			this.parts = template.split(Pattern.quote(PLACEHOLDER), -1);
+			this.order = order;
+			this.specificity = template.length() + (parts.length - 1) * ("(.+)".length() - PLACEHOLDER.length());
+			if (parts.length > 2) {
+				StringBuilder sb = new StringBuilder(Pattern.quote(parts[0]));
+				for (int i = 1; i < parts.length; i++)
+					sb.append("(.+)").append(Pattern.quote(parts[i]));
+				pattern = Pattern.compile(sb.toString());
+			}
+			else
+				pattern = null;
+		}
+
+		/**
+		 * Returns the values of the placeholders in the URI, or null if the URI does not match
+		 * (the URI is known to start with the first part)
+		 */
+		List<String> match(String uri) {
+			if (parts.length == 1)
+				return uri.equals(parts[0]) ? Collections.<String>emptyList() : null;
+
+			if (pattern == null) {
+				String prefix = parts[0], suffix = parts[1];
+				if (uri.length() <= prefix.length() + suffix.length() || !uri.endsWith(suffix))
+					return null;
+				return Collections.singletonList(uri.substring(prefix.length(), uri.length() - suffix.length()));
+			}
+
+			Matcher matcher = pattern.matcher(uri);
+			if (!matcher.matches())
+				return null;
+			List<String> values = new ArrayList<>(matcher.groupCount());
+			for (int i = 0; i < matcher.groupCount(); i++)
+				values.add(matcher.group(i + 1));
+			return values;
+		}
+	}
+
+	/**
+	 * A node of the trie of the constant prefixes of the templates
+	 */
+	private static final class Node {
+		final Map<Character, Node> children = new HashMap<>();
+		final List<Template> templates = new ArrayList<>(1); // with the prefix ending here
+	}
+
+	private final Node root = new Node();
+	private final Set<String> templateStrings = new HashSet<>();
 	
 	/**
 	 * creates a URI template matcher 
@@ -49,8 +118,6 @@ public class UriTemplateMatcher {
 	
 	public static UriTemplateMatcher create(List<CQIE> unfoldingProgram) {
 
-		Set<String> templateStrings = new HashSet<>();
-		
 		UriTemplateMatcher uriTemplateMatcher  = new UriTemplateMatcher();
 
 		for (CQIE mapping : unfoldingProgram) { 
@@ -76,34 +143,39 @@ public class UriTemplateMatcher {
 				if (fun.getTerms().size() == 1) {
 					/*
 					 * URI without template, we get it directly from the column
-					 * of the table, and the function is only f(x)
+					 * of the table, and the function is only f(x). It matches all 
+					 * URIs, as the default of generateURIFunction, and so takes
+					 * the place of the template {}
 					 */
-					if (templateStrings.contains("(.+)")) {
-						continue;
-					}
-
-					Function templateFunction = ofac.getUriTemplate(ofac.getVariable("x"));
-					Pattern matcher = Pattern.compile("(.+)");
-					uriTemplateMatcher.uriTemplateMatcher.put(matcher, templateFunction);
-					templateStrings.add("(.+)");
-				} else {
+					uriTemplateMatcher.templateStrings.add(PLACEHOLDER);
+				} 
+				else {
 					ValueConstant template = (ValueConstant) fun.getTerms().get(0);
-					String templateString = template.getValue();
-					templateString = templateString.replace("{}", "(.+)");
-
-					if (templateStrings.contains(templateString)) {
-						continue;
-					}
-
-					Pattern matcher = Pattern.compile(templateString);
-					uriTemplateMatcher.uriTemplateMatcher.put(matcher, fun);
-					templateStrings.add(templateString);
-
+					uriTemplateMatcher.add(template.getValue(), fun);
 				}
 			}
 		}
 		return uriTemplateMatcher;
 	}
+
+	private void add(String templateString, Function fun) {
+		if (!templateStrings.add(templateString))
+			return;
+		
+		Template template = new Template(fun, templateString, templateStrings.size());
+		String prefix = template.parts[0];
+		Node node = root;
+		for (int i = 0; i < prefix.length(); i++) {
+			Character c = prefix.charAt(i);
+			Node child = node.children.get(c);
+			if (child == null) {
+				child = new Node();
+				node.children.put(c, child);
+			}
+			node = child;
+		}
+		node.templates.add(template);
+	}
 	
 	
 	/***
@@ -112,61 +184,45 @@ public class UriTemplateMatcher {
 	 * parameters are the values for the groups of the pattern.
 	 */
 	public Function generateURIFunction(String uriString) {
-		Function functionURI = null;
-
-		List<Pattern> patternsMatched = new LinkedList<>();
-		for (Pattern pattern : uriTemplateMatcher.keySet()) {
-
-			Matcher matcher = pattern.matcher(uriString);
-			boolean match = matcher.matches();
-			if (!match) {
-				continue;
-			}
-			patternsMatched.add(pattern);
-		}
-		Comparator<Pattern> comparator = new Comparator<Pattern>() {
-		    public int compare(Pattern c1, Pattern c2) {
-		        return c2.pattern().length() - c1.pattern().length() ; // use your logic
-		    }
-		};
-
-		Collections.sort(patternsMatched, comparator); 
-		for (Pattern pattern : patternsMatched) {
-			Function matchingFunction = uriTemplateMatcher.get(pattern);
-			Term baseParameter = matchingFunction.getTerms().get(0);
-			if (baseParameter instanceof Constant) {
-				/*
-				 * This is a general template function of the form
-				 * uri("http://....", var1, var2,...) <p> we need to match var1,
-				 * var2, etc with substrings from the subjectURI
-				 */
-				Matcher matcher = pattern.matcher(uriString);
-				if ( matcher.matches()) {
-					List<Term> values = new ArrayList<>(matcher.groupCount());
-					values.add(baseParameter);
-					for (int i = 0; i < matcher.groupCount(); i++) {
-						String value = matcher.group(i + 1);
-						values.add(ofac.getConstantLiteral(value));
-					}
-					functionURI = ofac.getUriTemplate(values);
+		
+		Template best = null;
+		List<String> bestValues = null;
+		
+		// the templates whose prefix is a prefix of the URI lie on the path of the URI in the trie
+		Node node = root;
+		for (int i = 0; node != null; i++) {
+			for (Template template : node.templates) {
+				if (best != null && (template.specificity < best.specificity || 
+						(template.specificity == best.specificity && template.order > best.order)))
+					continue;
+				List<String> values = template.match(uriString);
+				if (values != null) {
+					best = template;
+					bestValues = values;
 				}
-			} 
-			else if (baseParameter instanceof Variable) {
-				/*
-				 * This is a direct mapping to a column, uri(x)
-				 * we need to match x with the subjectURI
-				 */
-				functionURI = ofac.getUriTemplate(ofac.getConstantLiteral(uriString));
 			}
-			break;
+			node = (i < uriString.length()) ? node.children.get(uriString.charAt(i)) : null;
 		}
-		if (functionURI == null) {
-			/* If we cannot match against a template, we try to match against the most general template (which will
-			 * generate empty queries later in the query answering process
+		
+		if (best != null) {
+			/*
+			 * This is a general template function of the form
+			 * uri("http://....", var1, var2,...) <p> we need to match var1,
+			 * var2, etc with substrings from the subjectURI
 			 */
-			functionURI = ofac.getUriTemplate(ofac.getConstantLiteral(uriString));
+			Term baseParameter = best.function.getTerms().get(0);
+			List<Term> values = new ArrayList<>(bestValues.size() + 1);
+			values.add(baseParameter);
+			for (String value : bestValues) 
+				values.add(ofac.getConstantLiteral(value));
+			return ofac.getUriTemplate(values);
 		}
-			
-		return functionURI;
+		
+		/*
+		 * This is a direct mapping to a column, uri(x), we need to match x with the subjectURI. 
+		 * If there is no such template, we try to match against the most general template 
+		 * (which will generate empty queries later in the query answering process)
+		 */
+		return ofac.getUriTemplate(ofac.getConstantLiteral(uriString));
 	}
 }
@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Class for TMapping Optimization. The Mappings for the classes and properties in the configuration are assumed to "exact".
@@ -50,6 +51,11 @@ public class TMappingExclusionConfig {
         return EMPTY;
     }
 
+    @Override
+    public String toString() {
+        return "classes: " + new TreeSet<>(classes) + ", properties: " + new TreeSet<>(properties);
+    }
+
     public static TMappingExclusionConfig parseFile(String fileName) {
         Set<String> classes = new HashSet<>();
         Set<String> properties = new HashSet<>();
@@ -43,11 +43,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
 
 public class TMappingProcessor {
 
@@ -134,6 +136,10 @@ public class TMappingProcessor {
 			while (mappingIterator.hasNext()) {
 
 				TMappingRule currentRule = mappingIterator.next(); 
+				// neither rule can be mapped into the other (and so, they are not equal) 
+				if (!currentRule.isComparableWith(newRule))
+					continue;
+				
 				// ROMAN (14 Oct 2015): quick fix, but one has to be more careful with variables in filters
 				if (currentRule.equals(newRule))
 					return;
@@ -243,12 +249,15 @@ public class TMappingProcessor {
 	 * @param dag
 	 * @param full
 	 */
-	private static void getObjectTMappings(Map<Predicate, TMappingIndexEntry> mappingIndex, 
-			Map<Predicate, List<TMappingRule>> originalMappings,
+	private static void getObjectTMappings(final Map<Predicate, TMappingIndexEntry> mappingIndex, 
+			final Map<Predicate, List<TMappingRule>> originalMappings,
 			EquivalencesDAG<ObjectPropertyExpression> dag, 
-			boolean full, TMappingExclusionConfig excludeFromTMappings) {
+			final boolean full, TMappingExclusionConfig excludeFromTMappings) {
 
-		for (Equivalences<ObjectPropertyExpression> propertySet : dag) {
+		List<Runnable> tasks = new ArrayList<>();
+		List<Set<Predicate>> updatedPredicates = new ArrayList<>();
+		
+		for (final Equivalences<ObjectPropertyExpression> propertySet : dag) {
 
 			ObjectPropertyExpression current = propertySet.getRepresentative();
 			if (current.isInverse())
@@ -259,12 +268,157 @@ public class TMappingProcessor {
 				continue;
 			}
 
-			/* Getting the current node mappings */
-			Predicate currentPredicate = current.getPredicate();
-			TMappingIndexEntry currentNodeMappings = getMappings(mappingIndex, currentPredicate);	
+			Set<Predicate> updated = new HashSet<>();
+			for (ObjectPropertyExpression equivProperty : propertySet) 
+				updated.add(equivProperty.getPredicate());
+			updatedPredicates.add(createMappings(mappingIndex, updated));
+
+			final Set<Equivalences<ObjectPropertyExpression>> sub = dag.getSub(propertySet);
+			tasks.add(new Runnable() {
+				@Override
+				public void run() {
+					getObjectTMappings(mappingIndex, originalMappings, propertySet, sub, full);
+				}
+			});
+		} // Properties loop ended
+		
+		runIndependentTasks(tasks, updatedPredicates);
+	}
+
+	/**
+	 * constructs the TMappings for an object property (and its equivalent properties)
+	 * @param sub the descendants of the property in the DAG
+	 */
+	private static void getObjectTMappings(Map<Predicate, TMappingIndexEntry> mappingIndex, 
+			Map<Predicate, List<TMappingRule>> originalMappings,
+			Equivalences<ObjectPropertyExpression> propertySet, 
+			Set<Equivalences<ObjectPropertyExpression>> sub, boolean full) {
+
+		ObjectPropertyExpression current = propertySet.getRepresentative();
+
+		/* Getting the current node mappings */
+		Predicate currentPredicate = current.getPredicate();
+		TMappingIndexEntry currentNodeMappings = getMappings(mappingIndex, currentPredicate);	
+
+		for (Equivalences<ObjectPropertyExpression> descendants : sub) {
+			for(ObjectPropertyExpression childproperty : descendants) {
+
+				/*
+				 * adding the mappings of the children as own mappings, the new
+				 * mappings use the current predicate instead of the child's
+				 * predicate and, if the child is inverse and the current is
+				 * positive, it will also invert the terms in the head
+				 */
+				boolean requiresInverse = childproperty.isInverse();
+
+				List<TMappingRule> childmappings = originalMappings.get(childproperty.getPredicate());
+				if (childmappings == null)
+					continue;
+				
+				for (TMappingRule childmapping : childmappings) {
+					
+					List<Term> terms = childmapping.cloneHeadTerms();
+
+					Function newMappingHead;
+					if (!requiresInverse) {
+						if (!full)
+							continue;
+						newMappingHead = fac.getFunction(currentPredicate, terms);
+					} 
+					else {
+						newMappingHead = fac.getFunction(currentPredicate, terms.get(1), terms.get(0));
+					}
+					TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping);				
+					currentNodeMappings.mergeMappingsWithCQC(newmapping);
+				}
+			}
+		}
+
+		/* Setting up mappings for the equivalent classes */
+		for (ObjectPropertyExpression equivProperty : propertySet) {
+				 
+			Predicate p = equivProperty.getPredicate();
+
+			// skip the property and its inverse (if it is symmetric)
+			if (p.equals(current.getPredicate()))
+				continue;
+			
+			TMappingIndexEntry equivalentPropertyMappings = getMappings(mappingIndex, p);
+				
+			for (TMappingRule currentNodeMapping : currentNodeMappings) {
+				List<Term> terms = currentNodeMapping.getHeadTerms();
+				
+				Function newhead;
+				if (!equivProperty.isInverse()) 
+					newhead = fac.getFunction(p, terms);
+				else 
+					newhead = fac.getFunction(p, terms.get(1), terms.get(0));
+				
+				TMappingRule newrule = new TMappingRule(newhead, currentNodeMapping);				
+				equivalentPropertyMappings.mergeMappingsWithCQC(newrule);
+			}
+		}
+	}
+
+	/**
+	 * constructs the TMappings for data properties using DAG
+	 * @param mappingIndex
+	 * @param originalMappings
+	 * @param dag
+	 * @param full
+	 */
+	private static void getDataTMappings(final Map<Predicate, TMappingIndexEntry> mappingIndex, 
+			final Map<Predicate, List<TMappingRule>> originalMappings,
+			EquivalencesDAG<DataPropertyExpression> dag, 
+			final boolean full, TMappingExclusionConfig excludeFromTMappings) {
+		
+		List<Runnable> tasks = new ArrayList<>();
+		List<Set<Predicate>> updatedPredicates = new ArrayList<>();
+		
+		for (final Equivalences<DataPropertyExpression> propertySet : dag) {
+
+			DataPropertyExpression current = propertySet.getRepresentative();
+
+			// for optimization
+			if(excludeFromTMappings.contains(current)){
+				continue;
+			}
+			
+			Set<Predicate> updated = new HashSet<>();
+			for (DataPropertyExpression equivProperty : propertySet) 
+				updated.add(equivProperty.getPredicate());
+			updatedPredicates.add(createMappings(mappingIndex, updated));
+
+			final Set<Equivalences<DataPropertyExpression>> sub = dag.getSub(propertySet);
+			tasks.add(new Runnable() {
+				@Override
+				public void run() {
+					getDataTMappings(mappingIndex, originalMappings, propertySet, sub, full);
+				}
+			});
+		} // Properties loop ended
+		
+		runIndependentTasks(tasks, updatedPredicates);
+	}
+
+	/**
+	 * constructs the TMappings for a data property (and its equivalent properties)
+	 * @param sub the descendants of the property in the DAG
+	 */
+	private static void getDataTMappings(Map<Predicate, TMappingIndexEntry> mappingIndex, 
+			Map<Predicate, List<TMappingRule>> originalMappings,
+			Equivalences<DataPropertyExpression> propertySet, 
+			Set<Equivalences<DataPropertyExpression>> sub, boolean full) {
+
+		DataPropertyExpression current = propertySet.getRepresentative();
 
-			for (Equivalences<ObjectPropertyExpression> descendants : dag.getSub(propertySet)) {
-				for(ObjectPropertyExpression childproperty : descendants) {
+		/* Getting the current node mappings */
+		Predicate currentPredicate = current.getPredicate();
+		TMappingIndexEntry currentNodeMappings = getMappings(mappingIndex, currentPredicate);	
+
+		if (full) {
+			for (Equivalences<DataPropertyExpression> descendants : sub) {
+				for(DataPropertyExpression childproperty : descendants) {
 
 					/*
 					 * adding the mappings of the children as own mappings, the new
@@ -272,130 +426,249 @@ public class TMappingProcessor {
 					 * predicate and, if the child is inverse and the current is
 					 * positive, it will also invert the terms in the head
 					 */
-					boolean requiresInverse = childproperty.isInverse();
-
 					List<TMappingRule> childmappings = originalMappings.get(childproperty.getPredicate());
 					if (childmappings == null)
 						continue;
 					
 					for (TMappingRule childmapping : childmappings) {
 						
-						List<Term> terms = childmapping.getHeadTerms();
-
-						Function newMappingHead;
-						if (!requiresInverse) {
-							if (!full)
-								continue;
-							newMappingHead = fac.getFunction(currentPredicate, terms);
-						} 
-						else {
-							newMappingHead = fac.getFunction(currentPredicate, terms.get(1), terms.get(0));
-						}
+						List<Term> terms = childmapping.cloneHeadTerms();
+
+						Function newMappingHead = fac.getFunction(currentPredicate, terms);
 						TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping);				
 						currentNodeMappings.mergeMappingsWithCQC(newmapping);
 					}
 				}
 			}
+		}
 
-			/* Setting up mappings for the equivalent classes */
-			for (ObjectPropertyExpression equivProperty : propertySet) {
-					 
-				Predicate p = equivProperty.getPredicate();
+		/* Setting up mappings for the equivalent classes */
+		for (DataPropertyExpression equivProperty : propertySet) {
+		
+			 
+			Predicate p = equivProperty.getPredicate();
 
-				// skip the property and its inverse (if it is symmetric)
-				if (p.equals(current.getPredicate()))
-					continue;
+			// skip the property and its inverse (if it is symmetric)
+			if (p.equals(current.getPredicate()))
+				continue;
+			
+			TMappingIndexEntry equivalentPropertyMappings = getMappings(mappingIndex, p);
 				
-				TMappingIndexEntry equivalentPropertyMappings = getMappings(mappingIndex, p);
-					
-				for (TMappingRule currentNodeMapping : currentNodeMappings) {
-					List<Term> terms = currentNodeMapping.getHeadTerms();
-					
-					Function newhead;
-					if (!equivProperty.isInverse()) 
-						newhead = fac.getFunction(p, terms);
-					else 
-						newhead = fac.getFunction(p, terms.get(1), terms.get(0));
-					
-					TMappingRule newrule = new TMappingRule(newhead, currentNodeMapping);				
-					equivalentPropertyMappings.mergeMappingsWithCQC(newrule);
-				}
+			for (TMappingRule currentNodeMapping : currentNodeMappings) {
+				Function newhead = fac.getFunction(p, currentNodeMapping.getHeadTerms());
+				
+				TMappingRule newrule = new TMappingRule(newhead, currentNodeMapping);				
+				equivalentPropertyMappings.mergeMappingsWithCQC(newrule);
 			}
-		} // Properties loop ended
-		
+		}
 	}
 
 	/**
-	 * constructs the TMappings for data properties using DAG
+	 * constructs the TMappings for classes using DAG
 	 * @param mappingIndex
 	 * @param originalMappings
 	 * @param dag
 	 * @param full
 	 */
-	private static void getDataTMappings(Map<Predicate, TMappingIndexEntry> mappingIndex, 
-			Map<Predicate, List<TMappingRule>> originalMappings,
-			EquivalencesDAG<DataPropertyExpression> dag, 
-			boolean full, TMappingExclusionConfig excludeFromTMappings) {
+	private static void getClassTMappings(final Map<Predicate, TMappingIndexEntry> mappingIndex, 
+			final Map<Predicate, List<TMappingRule>> originalMappings,
+			EquivalencesDAG<ClassExpression> dag, 
+			final boolean full, final TMappingExclusionConfig excludeFromTMappings) {
+
+		List<Runnable> tasks = new ArrayList<>();
+		List<Set<Predicate>> updatedPredicates = new ArrayList<>();
 		
-		for (Equivalences<DataPropertyExpression> propertySet : dag) {
+		for (final Equivalences<ClassExpression> classSet : dag) {
 
-			DataPropertyExpression current = propertySet.getRepresentative();
+			if (!(classSet.getRepresentative() instanceof OClass)) 
+				continue;
 
-			// for optimization
+			OClass current = (OClass)classSet.getRepresentative();
+
+			// FIXME: consider equivalences
+            // USE OF excludeFromTMappings
 			if(excludeFromTMappings.contains(current)){
 				continue;
 			}
-			/* Getting the current node mappings */
-			Predicate currentPredicate = current.getPredicate();
-			TMappingIndexEntry currentNodeMappings = getMappings(mappingIndex, currentPredicate);	
-
-			if (full) {
-				for (Equivalences<DataPropertyExpression> descendants : dag.getSub(propertySet)) {
-					for(DataPropertyExpression childproperty : descendants) {
-
-						/*
-						 * adding the mappings of the children as own mappings, the new
-						 * mappings use the current predicate instead of the child's
-						 * predicate and, if the child is inverse and the current is
-						 * positive, it will also invert the terms in the head
-						 */
-						List<TMappingRule> childmappings = originalMappings.get(childproperty.getPredicate());
-						if (childmappings == null)
-							continue;
-						
-						for (TMappingRule childmapping : childmappings) {
-							
-							List<Term> terms = childmapping.getHeadTerms();
 
-							Function newMappingHead = fac.getFunction(currentPredicate, terms);
-							TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping);				
-							currentNodeMappings.mergeMappingsWithCQC(newmapping);
-						}
-					}
+			Set<Predicate> updated = new HashSet<>();
+			for (ClassExpression equiv : classSet) 
+				if (equiv instanceof OClass)
+					updated.add(((OClass) equiv).getPredicate());
+			updatedPredicates.add(createMappings(mappingIndex, updated));
+
+			final Set<Equivalences<ClassExpression>> sub = dag.getSub(classSet);
+			tasks.add(new Runnable() {
+				@Override
+				public void run() {
+					getClassTMappings(mappingIndex, originalMappings, classSet, sub, full, excludeFromTMappings);
 				}
-			}
+			});
+		}
+		
+		runIndependentTasks(tasks, updatedPredicates);
+	}
 
-			/* Setting up mappings for the equivalent classes */
-			for (DataPropertyExpression equivProperty : propertySet) {
-			
-				 
-				Predicate p = equivProperty.getPredicate();
+	/**
+	 * constructs the TMappings for a class (and its equivalent classes)
+	 * @param sub the descendants of the class in the DAG
+	 */
+	private static void getClassTMappings(Map<Predicate, TMappingIndexEntry> mappingIndex, 
+			Map<Predicate, List<TMappingRule>> originalMappings,
+			Equivalences<ClassExpression> classSet, 
+			Set<Equivalences<ClassExpression>> sub, boolean full, TMappingExclusionConfig excludeFromTMappings) {
+
+		OClass current = (OClass)classSet.getRepresentative();
+
+		/* Getting the current node mappings */
+		Predicate currentPredicate = current.getPredicate();
+		TMappingIndexEntry currentNodeMappings = getMappings(mappingIndex, currentPredicate);
+
+		for (Equivalences<ClassExpression> descendants : sub) {
+			for (ClassExpression childDescription : descendants) {
+
+
+                    /* adding the mappings of the children as own mappings, the new
+				 * mappings. There are three cases, when the child is a named
+				 * class, or when it is an \exists P or \exists \inv P. 
+				 */
+				
+				boolean isClass, isInverse;
+
+				Predicate childPredicate;					
+				if (childDescription instanceof OClass) {
+					if (!full)
+						continue;
+					childPredicate = ((OClass) childDescription).getPredicate();
+					isClass = true;
+					isInverse = false;
+
+                        /*
+                         * USE OF excludeFromTMappings
+                         */
+                        if(excludeFromTMappings.contains((OClass) childDescription)){
+                            continue;
+                        }
 
-				// skip the property and its inverse (if it is symmetric)
-				if (p.equals(current.getPredicate()))
+				} 
+				else if (childDescription instanceof ObjectSomeValuesFrom) {
+					ObjectPropertyExpression some = ((ObjectSomeValuesFrom) childDescription).getProperty();
+					childPredicate = some.getPredicate();
+					isClass = false;
+					isInverse = some.isInverse();
+				} 
+				else {
+					assert (childDescription instanceof DataSomeValuesFrom);
+					DataPropertyExpression some = ((DataSomeValuesFrom) childDescription).getProperty();
+					childPredicate = some.getPredicate();
+					isClass = false;
+					isInverse = false;  // can never be an inverse
+				} 
+				
+				List<TMappingRule> childmappings = originalMappings.get(childPredicate);
+				if (childmappings == null)
 					continue;
 				
-				TMappingIndexEntry equivalentPropertyMappings = getMappings(mappingIndex, p);
+				for (TMappingRule childmapping : childmappings) {
 					
-				for (TMappingRule currentNodeMapping : currentNodeMappings) {
-					Function newhead = fac.getFunction(p, currentNodeMapping.getHeadTerms());
-					
-					TMappingRule newrule = new TMappingRule(newhead, currentNodeMapping);				
-					equivalentPropertyMappings.mergeMappingsWithCQC(newrule);
+					List<Term> terms = childmapping.cloneHeadTerms();
+
+					Function newMappingHead;
+					if (isClass) {
+						newMappingHead = fac.getFunction(currentPredicate, terms);
+					} 
+					else {
+						if (!isInverse) 
+							newMappingHead = fac.getFunction(currentPredicate, terms.get(0));
+						else 
+							newMappingHead = fac.getFunction(currentPredicate, terms.get(1));
+					}
+					TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping);				
+					currentNodeMappings.mergeMappingsWithCQC(newmapping);
 				}
 			}
-		} // Properties loop ended
+		}
+
+		
+		/* Setting up mappings for the equivalent classes */
+		for (ClassExpression equiv : classSet) {
+			if (!(equiv instanceof OClass) || equiv.equals(current))
+				continue;
+			
+			Predicate p = ((OClass) equiv).getPredicate();
+			TMappingIndexEntry equivalentClassMappings = getMappings(mappingIndex, p);	
+			
+			for (TMappingRule currentNodeMapping : currentNodeMappings) {
+				Function newhead = fac.getFunction(p, currentNodeMapping.getHeadTerms());
+
+				TMappingRule newrule = new TMappingRule(newhead, currentNodeMapping);				
+				equivalentClassMappings.mergeMappingsWithCQC(newrule);
+			}
+		}
+	}
+
+	/**
+	 * Runs the tasks (one for each node of a DAG) on the fork-join pool.
+	 * 
+	 * A task updates the mappings of the predicates of its node and reads only the
+	 * original mappings, which are never updated. So, the tasks that update 
+	 * the mappings of a common predicate are run one after the other, in the given order, 
+	 * and the other tasks are run in parallel. 
+	 * 
+	 * @param tasks
+	 * @param updatedPredicates the predicates whose mappings are updated by each task
+	 */
+	private static void runIndependentTasks(List<Runnable> tasks, List<Set<Predicate>> updatedPredicates) {
 		
+		// union-find over the tasks that update the mappings of a common predicate
+		int[] parent = new int[tasks.size()];
+		Map<Predicate, Integer> firstTask = new HashMap<>();
+		for (int i = 0; i < tasks.size(); i++) {
+			parent[i] = i;
+			for (Predicate p : updatedPredicates.get(i)) {
+				Integer j = firstTask.get(p);
+				if (j == null) 
+					firstTask.put(p, i);
+				else 
+					parent[find(parent, i)] = find(parent, j);
+			}
+		}
+		
+		Map<Integer, List<Runnable>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < tasks.size(); i++) {
+			int root = find(parent, i);
+			List<Runnable> group = groups.get(root);
+			if (group == null) {
+				group = new ArrayList<>();
+				groups.put(root, group);
+			}
+			group.add(tasks.get(i));
+		}
+		
+		if (groups.size() <= 1) {
+			for (Runnable task : tasks)
+				task.run();
+			return;
+		}
+		
+		List<ForkJoinTask<?>> forks = new ArrayList<>(groups.size());
+		for (final List<Runnable> group : groups.values()) 
+			forks.add(ForkJoinTask.adapt(new Runnable() {
+				@Override
+				public void run() {
+					for (Runnable task : group)
+						task.run();
+				}
+			}));
+		ForkJoinTask.invokeAll(forks);
+	}
+	
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
 	}
 	
 	/**
@@ -480,105 +753,7 @@ public class TMappingProcessor {
 		 * Starting with the leafs.
 		 */
 
-		for (Equivalences<ClassExpression> classSet : reasoner.getClassDAG()) {
-
-			if (!(classSet.getRepresentative() instanceof OClass)) 
-				continue;
-
-			OClass current = (OClass)classSet.getRepresentative();
-
-			// FIXME: consider equivalences
-            // USE OF excludeFromTMappings
-			if(excludeFromTMappings.contains(current)){
-				continue;
-			}
-
-			/* Getting the current node mappings */
-			Predicate currentPredicate = current.getPredicate();
-			TMappingIndexEntry currentNodeMappings = getMappings(mappingIndex, currentPredicate);
-
-			for (Equivalences<ClassExpression> descendants : reasoner.getClassDAG().getSub(classSet)) {
-				for (ClassExpression childDescription : descendants) {
-
-
-                    /* adding the mappings of the children as own mappings, the new
-					 * mappings. There are three cases, when the child is a named
-					 * class, or when it is an \exists P or \exists \inv P. 
-					 */
-					
-					boolean isClass, isInverse;
-
-					Predicate childPredicate;					
-					if (childDescription instanceof OClass) {
-						if (!full)
-							continue;
-						childPredicate = ((OClass) childDescription).getPredicate();
-						isClass = true;
-						isInverse = false;
-
-                        /*
-                         * USE OF excludeFromTMappings
-                         */
-                        if(excludeFromTMappings.contains((OClass) childDescription)){
-                            continue;
-                        }
-
-					} 
-					else if (childDescription instanceof ObjectSomeValuesFrom) {
-						ObjectPropertyExpression some = ((ObjectSomeValuesFrom) childDescription).getProperty();
-						childPredicate = some.getPredicate();
-						isClass = false;
-						isInverse = some.isInverse();
-					} 
-					else {
-						assert (childDescription instanceof DataSomeValuesFrom);
-						DataPropertyExpression some = ((DataSomeValuesFrom) childDescription).getProperty();
-						childPredicate = some.getPredicate();
-						isClass = false;
-						isInverse = false;  // can never be an inverse
-					} 
-					
-					List<TMappingRule> childmappings = originalMappingIndex.get(childPredicate);
-					if (childmappings == null)
-						continue;
-					
-					for (TMappingRule childmapping : childmappings) {
-						
-						List<Term> terms = childmapping.getHeadTerms();
-
-						Function newMappingHead;
-						if (isClass) {
-							newMappingHead = fac.getFunction(currentPredicate, terms);
-						} 
-						else {
-							if (!isInverse) 
-								newMappingHead = fac.getFunction(currentPredicate, terms.get(0));
-							else 
-								newMappingHead = fac.getFunction(currentPredicate, terms.get(1));
-						}
-						TMappingRule newmapping = new TMappingRule(newMappingHead, childmapping);				
-						currentNodeMappings.mergeMappingsWithCQC(newmapping);
-					}
-				}
-			}
-
-			
-			/* Setting up mappings for the equivalent classes */
-			for (ClassExpression equiv : classSet) {
-				if (!(equiv instanceof OClass) || equiv.equals(current))
-					continue;
-				
-				Predicate p = ((OClass) equiv).getPredicate();
-				TMappingIndexEntry equivalentClassMappings = getMappings(mappingIndex, p);	
-				
-				for (TMappingRule currentNodeMapping : currentNodeMappings) {
-					Function newhead = fac.getFunction(p, currentNodeMapping.getHeadTerms());
-
-					TMappingRule newrule = new TMappingRule(newhead, currentNodeMapping);				
-					equivalentClassMappings.mergeMappingsWithCQC(newrule);
-				}
-			}
-		}
+		getClassTMappings(mappingIndex, originalMappingIndex, reasoner.getClassDAG(), full, excludeFromTMappings);
 		
 		Map<Integer, Set<Predicate>> frequences = new HashMap<>();
 		
@@ -623,6 +798,15 @@ public class TMappingProcessor {
 	}
 
 	
+	/**
+	 * creates the (empty) mappings of the predicates before the tasks that update them are run
+	 */
+	private static Set<Predicate> createMappings(Map<Predicate, TMappingIndexEntry> mappingIndex, Set<Predicate> predicates) {
+		for (Predicate p : predicates)
+			getMappings(mappingIndex, p);
+		return predicates;
+	}
+	
 	private static TMappingIndexEntry getMappings(Map<Predicate, TMappingIndexEntry> mappingIndex, Predicate current) {
 		
 		TMappingIndexEntry currentMappings = mappingIndex.get(current);	
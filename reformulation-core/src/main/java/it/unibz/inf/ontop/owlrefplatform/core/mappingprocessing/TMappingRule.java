@@ -5,6 +5,7 @@ import it.unibz.inf.ontop.model.CQIE;
 import it.unibz.inf.ontop.model.Constant;
 import it.unibz.inf.ontop.model.Function;
 import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.Predicate;
 import it.unibz.inf.ontop.model.Term;
 import it.unibz.inf.ontop.model.Variable;
 import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
@@ -18,6 +19,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /***
  * Splits a given {@link mapping} into builtin predicates ({@link conditions})
@@ -36,6 +38,11 @@ public class TMappingRule {
 	private final List<List<Function>> filterAtoms;	  
 	private final CQContainmentCheck cqc;   
 
+	// the signature of the rule: a bit for each relation of the database atoms and
+	// for each relation of the chased database atoms (see isComparableWith)
+	private final long relations;
+	private final long chasedRelations;
+
 	
 	/***
 	 * Given a mappings in {@link currentMapping}, this method will
@@ -79,6 +86,20 @@ public class TMappingRule {
 		this.head = replaceConstants(head, filters);
 		this.stripped = fac.getCQIE(this.head, databaseAtoms);
 		this.cqc = cqc;
+		
+		List<Predicate> predicates = new ArrayList<>(databaseAtoms.size());
+		for (Function atom : databaseAtoms)
+			if (atom.isDataFunction())
+				predicates.add(atom.getFunctionSymbol());
+		this.relations = getSignature(predicates);
+		this.chasedRelations = getSignature(cqc.getChasedPredicates(stripped));
+	}
+
+	private static long getSignature(Iterable<Predicate> predicates) {
+		long signature = 0;
+		for (Predicate p : predicates)
+			signature |= 1L << (p.hashCode() & 63);
+		return signature;
 	}
 
 	
@@ -116,6 +137,8 @@ public class TMappingRule {
 		
 		this.stripped = fac.getCQIE(head, databaseAtoms);
 		this.cqc = baseRule.cqc;
+		this.relations = baseRule.relations;
+		this.chasedRelations = baseRule.chasedRelations;
 	}
 	
 	
@@ -129,6 +152,8 @@ public class TMappingRule {
 		
 		this.stripped = fac.getCQIE(head, databaseAtoms);
 		this.cqc = baseRule.cqc;
+		this.relations = baseRule.relations;
+		this.chasedRelations = baseRule.chasedRelations;
 	}
 	
 	
@@ -150,6 +175,18 @@ public class TMappingRule {
 		return filterAtoms.isEmpty();
 	}
 	
+	/**
+	 * A quick test on the signatures of the rules: false if there can be no homomorphism
+	 * between the two rules (in either direction), for each database atom of
+	 * the source of a homomorphism is mapped to a chased atom of its target.
+	 * 
+	 * @param other
+	 * @return false if neither rule can be mapped into the other
+	 */
+	public boolean isComparableWith(TMappingRule other) {
+		return ((relations & ~other.chasedRelations) == 0) || ((other.relations & ~chasedRelations) == 0);
+	}
+	
 	public Substitution computeHomomorphsim(TMappingRule other) {
 		return cqc.computeHomomorphsim(stripped, other.stripped);
 	}
@@ -210,6 +247,17 @@ public class TMappingRule {
 		return head.getTerms();
 	}
 	
+	/**
+	 * A copy of the terms of the head (the new functions built on the terms
+	 * register themselves as listeners of the functional terms)
+	 */
+	public List<Term> cloneHeadTerms() {
+		List<Term> terms = new ArrayList<>(head.getTerms().size());
+		for (Term t : head.getTerms())
+			terms.add(t.clone());
+		return terms;
+	}
+	
 	public int databaseAtomsSize() {
 		return databaseAtoms.size();
 	}
@@ -21,13 +21,21 @@ package it.unibz.inf.ontop.owlrefplatform.core.queryevaluation;
  */
 
 import org.openrdf.query.MalformedQueryException;
+import org.openrdf.query.algebra.Distinct;
+import org.openrdf.query.algebra.Order;
+import org.openrdf.query.algebra.Projection;
+import org.openrdf.query.algebra.Reduced;
+import org.openrdf.query.algebra.Slice;
 import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.UnaryTupleOperator;
 import org.openrdf.query.parser.ParsedBooleanQuery;
 import org.openrdf.query.parser.ParsedGraphQuery;
 import org.openrdf.query.parser.ParsedQuery;
 import org.openrdf.query.parser.ParsedTupleQuery;
 import org.openrdf.query.parser.sparql.SPARQLParser;
 
+import java.util.Collection;
+
 public class SPARQLQueryUtility {
 	
 	private String query;
@@ -100,6 +108,22 @@ public class SPARQLQueryUtility {
 		return (query instanceof ParsedGraphQuery) && isDescribeQuery(query.getSourceString());
 	}
 	
+	/**
+	 * Whether the solutions of the query are distinct, i.e., whether DISTINCT 
+	 * is among the solution modifiers at the top of the query
+	 */
+	public static boolean isDistinctQuery(ParsedQuery query) {
+		TupleExpr te = query.getTupleExpr();
+		while (te instanceof UnaryTupleOperator) {
+			if (te instanceof Distinct)
+				return true;
+			if (!(te instanceof Slice || te instanceof Order || te instanceof Projection || te instanceof Reduced))
+				return false;
+			te = ((UnaryTupleOperator) te).getArg();
+		}
+		return false;
+	}
+
 	public static boolean isVarDescribe(String strquery) {
 		if (strquery.contains("where"))
 		{
@@ -182,6 +206,29 @@ public class SPARQLQueryUtility {
 				+ constant + "> ?p ?o}";
 	}
 	
+	/**
+	 * Returns the CONSTRUCT query for the triples that have any of the URIs as subject
+	 */
+	public static String getConstructSubjQuery(Collection<String> constants) {
+		return getConstructValuesQuery("?s", constants);
+	}
+
+	/**
+	 * Returns the CONSTRUCT query for the triples that have any of the URIs as object
+	 */
+	public static String getConstructObjQuery(Collection<String> constants) {
+		return getConstructValuesQuery("?o", constants);
+	}
+
+	private static String getConstructValuesQuery(String var, Collection<String> constants) {
+		StringBuilder sb = new StringBuilder("CONSTRUCT { ?s ?p ?o } WHERE { ?s ?p ?o VALUES ");
+		sb.append(var).append(" {");
+		for (String constant : constants)
+			sb.append(" <").append(constant).append('>');
+		sb.append(" } }");
+		return sb.toString();
+	}
+	
 	public static String getSelectObjQuery(String constant) {
 		return "SELECT * WHERE { ?s ?p <" + constant + "> }";
 }
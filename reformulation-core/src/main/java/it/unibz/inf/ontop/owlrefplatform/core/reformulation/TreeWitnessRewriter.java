@@ -48,6 +48,8 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -88,8 +90,8 @@ public class TreeWitnessRewriter implements QueryRewriter {
 		
 		double endtime = System.currentTimeMillis();
 		double tm = (endtime - startime) / 1000;
-		time += tm;
-		log.debug(String.format("setTBox time: %.3f s (total %.3f s)", tm, time));		
+		time.add(tm);
+		log.debug(String.format("setTBox time: %.3f s (total %.3f s)", tm, time.sum()));		
 	}
 	
 	
@@ -103,11 +105,11 @@ public class TreeWitnessRewriter implements QueryRewriter {
 		return fac.getFunction(predicate, arguments);
 	}
 	
-	private int freshVarIndex = 0;
+	// the rewriter is shared by all the queries of a Quest instance
+	private final AtomicInteger freshVarIndex = new AtomicInteger();
 	
 	private Variable getFreshVariable() {
-		freshVarIndex++;
-		return fac.getVariable("twr" + freshVarIndex); 
+		return fac.getVariable("twr" + freshVarIndex.incrementAndGet()); 
 	}
 	
 	/*
@@ -278,7 +280,7 @@ public class TreeWitnessRewriter implements QueryRewriter {
 		return outputRules;
 	}
 	
-	private double time = 0;
+	private final DoubleAdder time = new DoubleAdder();
 	
 	@Override
 	public DatalogProgram rewrite(DatalogProgram dp) {
@@ -341,8 +343,8 @@ public class TreeWitnessRewriter implements QueryRewriter {
 
 		double endtime = System.currentTimeMillis();
 		double tm = (endtime - startime) / 1000;
-		time += tm;
-		log.debug(String.format("Rewriting time: %.3f s (total %.3f s)", tm, time));
+		time.add(tm);
+		log.debug(String.format("Rewriting time: %.3f s (total %.3f s)", tm, time.sum()));
 		log.debug("Final rewriting:\n{}", output);
 		return output;
 	}
@@ -20,12 +20,20 @@ package it.unibz.inf.ontop.owlrefplatform.core.resultset;
  * #L%
  */
 
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import it.unibz.inf.ontop.model.Constant;
 import it.unibz.inf.ontop.model.OBDAException;
 import it.unibz.inf.ontop.model.OBDAStatement;
 import it.unibz.inf.ontop.model.TupleResultSet;
+import it.unibz.inf.ontop.owlrefplatform.core.Quest;
 import it.unibz.inf.ontop.owlrefplatform.core.QuestStatement;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -35,20 +43,36 @@ import java.util.Set;
 /**
  * Class to handle distinct in SPARQL query. Avoid returning duplicate rows.
  * See test case DistinctResultSetTest
+ * <p>
+ * By default, the rows are identified by a 128-bit fingerprint of their raw
+ * values, kept in a {@link RowFingerprintSet} that spills to disk beyond the
+ * memory budget of Quest. If exact distinct is enabled, the raw values
+ * themselves are kept in memory instead.
  */
 
 public class QuestDistinctTupleResultSet implements TupleResultSet {
 
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
     private QuestTupleResultSet questTupleResultSet;
 
+    private final int columns;
+
+    private RowFingerprintSet distinctFingerprints;
+
     private Set<List<Object>> distinctKeys;
 
     public QuestDistinctTupleResultSet(ResultSet set, List<String> signature, QuestStatement st) throws OBDAException {
 
         questTupleResultSet = new QuestTupleResultSet(set, signature, st);
 
-        distinctKeys = new HashSet<>();
+        columns = 3 * signature.size();
 
+        Quest questInstance = st.questInstance;
+        if (questInstance.hasExactDistinctResultSet())
+            distinctKeys = new HashSet<>();
+        else
+            distinctFingerprints = new RowFingerprintSet(questInstance.getDistinctResultSetMemory());
     }
 
 
@@ -69,7 +93,7 @@ public class QuestDistinctTupleResultSet implements TupleResultSet {
 
     @Override
     public void close() throws OBDAException {
-        distinctKeys.clear();
+        releaseDistinctRows();
         questTupleResultSet.close();
 
     }
@@ -82,30 +106,55 @@ public class QuestDistinctTupleResultSet implements TupleResultSet {
     @Override
     public boolean nextRow() throws OBDAException {
         // return the row only if it is not a duplicate
+        while (questTupleResultSet.nextRow()) {
+            if (isNewRow())
+                return true;
+        }
+        releaseDistinctRows();
+        return false;
+    }
 
-        boolean next = false;
-        
-        List<Object> row = null; 
-        do{
-            next = questTupleResultSet.nextRow();
-            if (next) {
-                row = new ArrayList<>();
-                for (int i = 1; i <= getSignature().size();  i ++ ) {
-                    
-                    int column = i * 3;
-                    row.add(questTupleResultSet.getRawObject(column-2));  //type
-                    row.add(questTupleResultSet.getRawObject(column-1)); //lang
-                    row.add(questTupleResultSet.getRawObject(column)); //value
-                    
-                }
+    /**
+     * Whether the current row (type, lang and value of each variable) has not been returned yet
+     */
+    private boolean isNewRow() throws OBDAException {
+        if (distinctKeys != null) {
+            List<Object> row = new ArrayList<>(columns);
+            for (int column = 1; column <= columns; column++)
+                row.add(questTupleResultSet.getRawObject(column));
+            return distinctKeys.add(row);
+        }
+
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        for (int column = 1; column <= columns; column++) {
+            Object value = questTupleResultSet.getRawObject(column);
+            if (value == null) {
+                hasher.putByte((byte) 0);
             }
-            else{
-                distinctKeys.clear();
-                break;
+            else if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                hasher.putByte((byte) 1).putInt(bytes.length).putBytes(bytes);
             }
-        }while( !distinctKeys.add(row) );
-        
-        return next;
+            else {
+                String string = value.toString();
+                hasher.putByte((byte) 2).putInt(string.length()).putUnencodedChars(string);
+            }
+        }
+        HashCode fingerprint = hasher.hash();
+        ByteBuffer bytes = ByteBuffer.wrap(fingerprint.asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            return distinctFingerprints.add(bytes.getLong(0), bytes.getLong(8));
+        }
+        catch (IOException e) {
+            throw new OBDAException("Error spilling the distinct rows to disk", e);
+        }
+    }
+
+    private void releaseDistinctRows() {
+        if (distinctKeys != null)
+            distinctKeys.clear();
+        if (distinctFingerprints != null)
+            distinctFingerprints.close();
     }
 
     @Override
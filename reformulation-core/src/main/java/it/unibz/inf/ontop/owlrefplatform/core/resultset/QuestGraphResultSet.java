@@ -33,45 +33,149 @@ import org.openrdf.model.impl.LiteralImpl;
 import org.openrdf.model.impl.URIImpl;
 import org.openrdf.query.algebra.*;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Assertions of a CONSTRUCT (or DESCRIBE) query. The template is compiled once
+ * per query: the constant nodes are created up front, the variables are resolved
+ * to their columns in the tuple result set and, whenever the predicate (and the object)
+ * is fixed, the kind of assertion produced by each triple is decided beforehand.
+ */
 public class QuestGraphResultSet implements GraphResultSet {
 
-	private List<List<Assertion>> results = new ArrayList<>();
-
-	private TupleResultSet tupleResultSet;
+	private final Deque<List<Assertion>> results = new ArrayDeque<>();
 
+	private final TupleResultSet tupleResultSet;
 
-	private SesameConstructTemplate sesameTemplate;
+	private final List<TripleTemplate> triples;
 
-	List<ExtensionElem> extList = null;
-	
-	Map<String, ValueExpr> extMap = null;
-	
 	//store results in case of describe queries
-	private boolean storeResults = false;
+	private final boolean storeResults;
 
-	private OBDADataFactory dfac = OBDADataFactoryImpl.getInstance();
-	private AssertionFactory ofac = AssertionFactoryImpl.getInstance();
+	private static final OBDADataFactory dfac = OBDADataFactoryImpl.getInstance();
+	private static final AssertionFactory ofac = AssertionFactoryImpl.getInstance();
 
 	public QuestGraphResultSet(TupleResultSet results, SesameConstructTemplate template,
 			boolean storeResult) throws OBDAException {
 		this.tupleResultSet = results;
-		this.sesameTemplate = template;
+		this.triples = compile(template, results.getSignature());
 		this.storeResults = storeResult;
-		processResultSet(tupleResultSet, sesameTemplate);
+		processResultSet(tupleResultSet);
+	}
+
+	private enum AssertionKind { CLASS, OBJECT_PROPERTY, DATA_PROPERTY }
+
+	/**
+	 * A node of the template: either a constant or a column of the tuple result set
+	 */
+	private static final class Slot {
+		private final Constant constant;
+		private final int column; // 1-based, 0 for constants
+
+		Slot(Constant constant) {
+			this.constant = constant;
+			this.column = 0;
+		}
+
+		Slot(int column) {
+			this.constant = null;
+			this.column = column;
+		}
+
+		Constant get(TupleResultSet resSet) throws OBDAException {
+			return (column == 0) ? constant : resSet.getConstant(column);
+		}
+	}
+
+	private static final class TripleTemplate {
+		private final Slot subject, predicate, object;
+		private final AssertionKind kind; // null if it depends on the row
+
+		TripleTemplate(Slot subject, Slot predicate, Slot object) {
+			this.subject = subject;
+			this.predicate = predicate;
+			this.object = object;
+
+			AssertionKind k = null;
+			if (predicate.column == 0) {
+				if (predicate.constant.getValue().equals(OBDAVocabulary.RDF_TYPE))
+					k = AssertionKind.CLASS;
+				else if (object.column == 0)
+					k = getPropertyAssertionKind(object.constant);
+			}
+			this.kind = k;
+		}
 	}
 
-    private void processResultSet(TupleResultSet resSet, SesameConstructTemplate template)
-			throws OBDAException {
+	private static AssertionKind getPropertyAssertionKind(Constant object) {
+		return ((object instanceof URIConstant) || (object instanceof BNode))
+				? AssertionKind.OBJECT_PROPERTY : AssertionKind.DATA_PROPERTY;
+	}
+
+	private static List<TripleTemplate> compile(SesameConstructTemplate template, List<String> signature) {
+		Map<String, ValueExpr> extMap = new HashMap<>();
+		Extension ex = template.getExtension();
+		if (ex != null) {
+			for (ExtensionElem elem : ex.getElements())
+				extMap.put(elem.getName(), elem.getExpr());
+		}
+
+		Map<String, Integer> columns = new HashMap<>(signature.size() * 2);
+		for (int i = 0; i < signature.size(); i++)
+			columns.put(signature.get(i), i + 1);
+
+		List<TripleTemplate> triples = new ArrayList<>();
+		for (ProjectionElemList peList : template.getProjectionElemList()) {
+			List<ProjectionElem> elements = peList.getElements();
+			for (int i = 0; i < elements.size() / 3; i++) {
+				Slot subject = getSlot(elements.get(i * 3), extMap, columns);
+				Slot predicate = getSlot(elements.get(i * 3 + 1), extMap, columns);
+				Slot object = getSlot(elements.get(i * 3 + 2), extMap, columns);
+				// a variable that does not occur in the WHERE clause is never bound
+				if (subject != null && predicate != null && object != null)
+					triples.add(new TripleTemplate(subject, predicate, object));
+			}
+		}
+		return triples;
+	}
+
+	/**
+	 * @return null if the node is a variable that is not in the answers
+	 */
+	private static Slot getSlot(ProjectionElem node, Map<String, ValueExpr> extMap, Map<String, Integer> columns) {
+		String node_name = node.getSourceName();
+		ValueExpr ve = extMap.get(node_name);
+		if (ve != null && ve instanceof Var)
+			throw new RuntimeException ("Invalid query. Found unbound variable: "+ve);
+
+		if (node_name.charAt(0) == '-') {
+			org.openrdf.query.algebra.ValueConstant vc = (org.openrdf.query.algebra.ValueConstant) ve;
+			Constant constant;
+			if (vc.getValue() instanceof URIImpl) {
+				constant = dfac.getConstantURI(vc.getValue().stringValue());
+			} else if (vc.getValue() instanceof LiteralImpl) {
+				constant = dfac.getConstantLiteral(vc.getValue().stringValue());
+			} else {
+				constant = dfac.getConstantBNode(vc.getValue().stringValue());
+			}
+			return new Slot(constant);
+		}
+
+		Integer column = columns.get(node_name);
+		return (column == null) ? null : new Slot(column);
+	}
+
+	private void processResultSet(TupleResultSet resSet) throws OBDAException {
 		if (storeResults) {
 			//process current result set into local buffer, 
 			//since additional results will be collected
 			while (resSet.nextRow()) {
-				this.results.add(processResults(resSet, template));
+				this.results.add(processResults(resSet));
 			}
 		}
 	}
@@ -89,46 +193,40 @@ public class QuestGraphResultSet implements GraphResultSet {
 	 * the results from a resultset.
 	 * In case of construct it is called upon next, to process
 	 * the only current result set.
+	 * 
+	 * Triples with an unbound node are not produced (as in SPARQL, where such
+	 * triples are left out of the constructed graph).
 	 */
-	private List<Assertion> processResults(TupleResultSet result,
-			SesameConstructTemplate template) throws OBDAException {
-		List<Assertion> tripleAssertions = new ArrayList<>();
-		List<ProjectionElemList> peLists = template.getProjectionElemList();
-		
-		Extension ex = template.getExtension();
-		if (ex != null) 
-			{
-				extList = ex.getElements();
-				Map<String, ValueExpr> newExtMap = new HashMap<>();
-                for (ExtensionElem anExtList : extList) {
-                    newExtMap.put(anExtList.getName(), anExtList.getExpr());
-                }
-				extMap = newExtMap;
-			}
-		for (ProjectionElemList peList : peLists) {
-		int size = peList.getElements().size();
-		
-		for (int i = 0; i < size / 3; i++) {
-			
-			ObjectConstant subjectConstant = (ObjectConstant) getConstant(peList.getElements().get(i*3), result);
-			Constant predicateConstant = getConstant(peList.getElements().get(i*3+1), result);
-			Constant objectConstant = getConstant(peList.getElements().get(i*3+2), result);
-
-			// Determines the type of assertion
+	private List<Assertion> processResults(TupleResultSet result) throws OBDAException {
+		List<Assertion> tripleAssertions = new ArrayList<>(triples.size());
+		for (TripleTemplate triple : triples) {
+			ObjectConstant subjectConstant = (ObjectConstant) triple.subject.get(result);
+			Constant predicateConstant = triple.predicate.get(result);
+			Constant objectConstant = triple.object.get(result);
+			if (subjectConstant == null || predicateConstant == null || objectConstant == null)
+				continue;
+
+			// Determines the type of assertion (unless fixed by the template)
 			String predicateName = predicateConstant.getValue();
+			AssertionKind kind = triple.kind;
+			if (kind == null)
+				kind = predicateName.equals(OBDAVocabulary.RDF_TYPE)
+						? AssertionKind.CLASS : getPropertyAssertionKind(objectConstant);
+
 			Assertion assertion;
 			try {
-				if (predicateName.equals(OBDAVocabulary.RDF_TYPE)) {
-					assertion = ofac.createClassAssertion(objectConstant.getValue(), subjectConstant);
-				} 
-				else {
-					if ((objectConstant instanceof URIConstant) || (objectConstant instanceof BNode)) 
-						assertion = ofac.createObjectPropertyAssertion(predicateName, 
+				switch (kind) {
+					case CLASS:
+						assertion = ofac.createClassAssertion(objectConstant.getValue(), subjectConstant);
+						break;
+					case OBJECT_PROPERTY:
+						assertion = ofac.createObjectPropertyAssertion(predicateName,
 								subjectConstant, (ObjectConstant) objectConstant);
-					else 
-						assertion = ofac.createDataPropertyAssertion(predicateName, 
-									subjectConstant, (ValueConstant) objectConstant);
-				} 
+						break;
+					default:
+						assertion = ofac.createDataPropertyAssertion(predicateName,
+								subjectConstant, (ValueConstant) objectConstant);
+				}
 				if (assertion != null)
 					tripleAssertions.add(assertion);
 			}
@@ -137,7 +235,6 @@ public class QuestGraphResultSet implements GraphResultSet {
 							predicateName + " " + subjectConstant + " " + objectConstant);
 			}
 		}
-		}
 		return tripleAssertions;
 	}
 	
@@ -145,7 +242,7 @@ public class QuestGraphResultSet implements GraphResultSet {
 	public boolean hasNext() throws OBDAException {
 		//in case of describe, we return the collected results list information
 		if (storeResults) {
-			return results.size() != 0;
+			return !results.isEmpty();
 		} else {
 			//in case of construct advance the result set cursor on hasNext
 			return tupleResultSet.nextRow();
@@ -155,41 +252,14 @@ public class QuestGraphResultSet implements GraphResultSet {
 	@Override
 	public List<Assertion> next() throws OBDAException {
 		//if we collect results, then remove and return the next one in the list
-		if (results.size() > 0) {
-			return results.remove(0);
+		if (!results.isEmpty()) {
+			return results.poll();
 		} else {
 			//otherwise we need to process the unstored result
-			return processResults(tupleResultSet, sesameTemplate);
+			return processResults(tupleResultSet);
 		}
 	}
 
-	private Constant getConstant(ProjectionElem node, TupleResultSet resSet)
-			throws OBDAException {
-		Constant constant = null;
-		String node_name = node.getSourceName();
-		ValueExpr ve = null;
-		
-		if (extMap!= null) {
-			ve = extMap.get(node_name);
-			if (ve!=null && ve instanceof Var)
-				throw new RuntimeException ("Invalid query. Found unbound variable: "+ve);
-		}
-		
-		if (node_name.charAt(0) == '-') {
-			org.openrdf.query.algebra.ValueConstant vc = (org.openrdf.query.algebra.ValueConstant) ve;
-			 if (vc.getValue() instanceof URIImpl) {
-				 constant = dfac.getConstantURI(vc.getValue().stringValue());
-			 } else if (vc.getValue() instanceof LiteralImpl) {
-				 constant = dfac.getConstantLiteral(vc.getValue().stringValue());
-			 } else {
-				 constant = dfac.getConstantBNode(vc.getValue().stringValue());
-			 }
-		} else {
-			constant = resSet.getConstant(node_name);
-		}
-		return constant;
-	}
-	
 	@Override
 	public void close() throws OBDAException {
 		tupleResultSet.close();
@@ -25,6 +25,7 @@ import it.unibz.inf.ontop.model.*;
 import it.unibz.inf.ontop.model.Predicate.COL_TYPE;
 import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
 import it.unibz.inf.ontop.owlrefplatform.core.QuestStatement;
+import it.unibz.inf.ontop.owlrefplatform.core.URITemplateRegistry;
 import it.unibz.inf.ontop.owlrefplatform.core.abox.SemanticIndexURIMap;
 import it.unibz.inf.ontop.sql.DBMetadata;
 
@@ -43,26 +44,45 @@ public class QuestTupleResultSet implements TupleResultSet {
 	private final QuestStatement st;
 	private final List<String> signature;
 	
-	private static final DecimalFormat formatter = new DecimalFormat("0.0###E0");
+	private static final DecimalFormat DOUBLE_FORMAT = new DecimalFormat("0.0###E0");
 
 	static {
 		DecimalFormatSymbols symbol = DecimalFormatSymbols.getInstance();
 		symbol.setDecimalSeparator('.');
-		formatter.setDecimalFormatSymbols(symbol);
+		DOUBLE_FORMAT.setDecimalFormatSymbols(symbol);
 	}
+
+	/* DecimalFormat is not thread-safe: each result set has its own copy */
+	private final DecimalFormat formatter = (DecimalFormat) DOUBLE_FORMAT.clone();
+
+	/* Maximum number of URI constants interned by a result set */
+	static final int MAX_INTERNED_CONSTANTS = 10000;
 	
 	private final Map<String, Integer> columnMap;
-	private final Map<String, String> bnodeMap;
+	private final Map<String, BNode> bnodeMap;
+	/* URI constants of the result set, indexed by their values in the SQL result set */
+	private final Map<String, URIConstant> uriCache;
+	/* URI constants built from client-side URI templates, indexed by template code and column value */
+	private final Map<Integer, Map<String, URIConstant>> templateURICache;
+	private int templateURICacheSize = 0;
+
+	/* the type of the last row of each column (type codes rarely change from one row to the next) */
+	private final int[] columnTypeCodes;
+	private final COL_TYPE[] columnTypes;
 
 	private int bnodeCounter = 0;
 
 	private final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
 	private final SemanticIndexURIMap uriMap;
+	private final URITemplateRegistry uriTemplates;
 	
 	private final boolean isOracle;
     private final boolean isMsSQL;
 	
+	/* Formats of the dates returned as strings by some drivers (SimpleDateFormat is not thread-safe,
+	 * so each result set has its own) */
 	private final DateFormat dateFormat;
+	private final DateFormat oracleDateFormat;
 
 
 
@@ -82,10 +102,15 @@ public class QuestTupleResultSet implements TupleResultSet {
 		this.rs = set;
 		this.st = st;
 		this.uriMap = st.questInstance.getUriMap();
+		this.uriTemplates = st.questInstance.getURITemplates();
 		this.signature = signature;
 		
 		columnMap = new HashMap<>(signature.size() * 2);
 		bnodeMap = new HashMap<>(1000);
+		uriCache = new HashMap<>(1000);
+		templateURICache = new HashMap<>();
+		columnTypeCodes = new int[signature.size() + 1];
+		columnTypes = new COL_TYPE[signature.size() + 1];
 
 		for (int j = 1; j <= signature.size(); j++) {
 			columnMap.put(signature.get(j - 1), j);
@@ -104,12 +129,16 @@ public class QuestTupleResultSet implements TupleResultSet {
 				dateFormat = new SimpleDateFormat("dd-MMM-yy HH:mm:ss,SSSSSS" , Locale.ENGLISH); // THIS WORKS FOR ORACLE DRIVER 12.1.0.2
 			else 
 				dateFormat = new SimpleDateFormat("dd-MMM-yy HH.mm.ss.SSSSSS aa" , Locale.ENGLISH); // For oracle driver v.11 and less
+			oracleDateFormat = new SimpleDateFormat("dd-MMM-yy" ,  Locale.ENGLISH);
 		}
 		else if (isMsSQL) {
 			dateFormat = new SimpleDateFormat("MMM dd yyyy hh:mmaa", Locale.ENGLISH );
+			oracleDateFormat = null;
 		}
-		else
+		else {
 			dateFormat = null;
+			oracleDateFormat = null;
+		}
 	}
 
 	@Override
@@ -169,6 +198,7 @@ public class QuestTupleResultSet implements TupleResultSet {
 	 */
 	@Override
 	public Constant getConstant(int column) throws OBDAException {
+		int signatureColumn = column;
 		column = column * 3; // recall that the real SQL result set has 3
 								// columns per value. From each group of 3 the actual value is the
 								// 3rd column, the 2nd is the language, the 1st is the type code (an integer)
@@ -184,9 +214,17 @@ public class QuestTupleResultSet implements TupleResultSet {
 			} 
 			else {
 				int t = rs.getInt(column - 2);
-			    COL_TYPE type = COL_TYPE.getQuestType(t);
-			    if (type == null)
-			    	throw new RuntimeException("typeCode unknown: " + t);
+				if (uriTemplates != null && URITemplateRegistry.isTemplateCode(t)) 
+					return getTemplateURI(t, value);
+				
+				COL_TYPE type = columnTypes[signatureColumn];
+				if (type == null || columnTypeCodes[signatureColumn] != t) {
+					type = COL_TYPE.getQuestType(t);
+					if (type == null)
+						throw new RuntimeException("typeCode unknown: " + t);
+					columnTypes[signatureColumn] = type;
+					columnTypeCodes[signatureColumn] = t;
+				}
 			    
 				switch (type) {
 				case NULL:
@@ -194,27 +232,36 @@ public class QuestTupleResultSet implements TupleResultSet {
 					break;
 					
 				case OBJECT:
-					if (uriMap != null) {
-						try {
-							Integer id = Integer.parseInt(value);
-							value = uriMap.getURI(id);
-						} 
-						catch (NumberFormatException e) {
-							 // If its not a number, then it has to be a URI, so
-							 // we leave realValue as it is.
+					URIConstant uri = uriCache.get(value);
+					if (uri == null) {
+						String uriString = value;
+						if (uriMap != null) {
+							try {
+								Integer id = Integer.parseInt(value);
+								uriString = uriMap.getURI(id);
+							} 
+							catch (NumberFormatException e) {
+								 // If its not a number, then it has to be a URI, so
+								 // we leave realValue as it is.
+							}
 						}
+						uri = fac.getConstantURI(uriString.trim());
+						if (uriCache.size() >= MAX_INTERNED_CONSTANTS)
+							uriCache.clear();
+						uriCache.put(value, uri);
 					}
-					result = fac.getConstantURI(value.trim());
+					result = uri;
 					break;
 					
 				case BNODE:
-					String scopedLabel = this.bnodeMap.get(value);
-					if (scopedLabel == null) {
-						scopedLabel = "b" + bnodeCounter;
+					// the labels are scoped by the result set and so cannot be forgotten
+					BNode bnode = this.bnodeMap.get(value);
+					if (bnode == null) {
+						bnode = fac.getConstantBNode("b" + bnodeCounter);
 						bnodeCounter += 1;
-						bnodeMap.put(value, scopedLabel);
+						bnodeMap.put(value, bnode);
 					}
-					result = fac.getConstantBNode(scopedLabel);
+					result = bnode;
 					break;
 					
 				case LITERAL:
@@ -295,8 +342,7 @@ public class QuestTupleResultSet implements TupleResultSet {
 					} 
 					else {
 						try {
-							DateFormat df = new SimpleDateFormat("dd-MMM-yy" ,  Locale.ENGLISH);
-							java.util.Date date = df.parse(value);
+							oracleDateFormat.parse(value);
 						} 
 						catch (ParseException e) {
 							throw new RuntimeException(e);
@@ -344,6 +390,31 @@ public class QuestTupleResultSet implements TupleResultSet {
 	}
 
 
+	/**
+	 * The URI for the template with the given code (see {@link URITemplateRegistry})
+	 * instantiated by the value of the column
+	 */
+	private URIConstant getTemplateURI(int code, String value) {
+		Map<String, URIConstant> uris = templateURICache.get(code);
+		if (uris == null) {
+			uris = new HashMap<>();
+			templateURICache.put(code, uris);
+		}
+		URIConstant uri = uris.get(value);
+		if (uri == null) {
+			// the template is only instantiated on a cache miss
+			uri = fac.getConstantURI(uriTemplates.getURI(code, value).trim());
+			if (templateURICacheSize >= MAX_INTERNED_CONSTANTS) {
+				for (Map<String, URIConstant> m : templateURICache.values())
+					m.clear();
+				templateURICacheSize = 0;
+			}
+			uris.put(value, uri);
+			templateURICacheSize++;
+		}
+		return uri;
+	}
+
 	@Override
 	public Constant getConstant(String name) throws OBDAException {
 		Integer columnIndex = columnMap.get(name);
@@ -0,0 +1,319 @@
+package it.unibz.inf.ontop.owlrefplatform.core.resultset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Set of 128-bit row fingerprints with a bounded memory footprint.
+ * <p>
+ * The fingerprints are kept in an open-addressing hash table backed by a
+ * long array (two longs per slot, the pair (0, 0) marks an empty slot).
+ * Once the table has reached the memory budget, its content is sorted and
+ * written to a temporary run file, which is memory-mapped and searched by
+ * binary search from then on. Runs are merged when there are too many of
+ * them, so that a lookup never probes more than a few files.
+ */
+final class RowFingerprintSet implements Closeable {
+
+	private static final int MIN_CAPACITY = 1024;
+	private static final int MAX_CAPACITY = 1 << 27; // slots
+	private static final int MAX_RUNS = 8;
+	// largest run that can be memory-mapped (16 bytes per fingerprint)
+	private static final long MAX_RUN_SIZE = Integer.MAX_VALUE / 16;
+
+	private final int maxCapacity;
+	private long[] table;
+	private int capacity;
+	private int size = 0;
+	private boolean containsZero = false;
+
+	private final List<Run> runs = new ArrayList<>();
+
+	/**
+	 * @param memoryBudget maximum size (in bytes) of the in-memory table
+	 */
+	RowFingerprintSet(long memoryBudget) {
+		long slots = Long.highestOneBit(Math.max(memoryBudget / 16, MIN_CAPACITY));
+		maxCapacity = (int) Math.min(slots, MAX_CAPACITY);
+		capacity = Math.min(MIN_CAPACITY, maxCapacity);
+		table = new long[2 * capacity];
+	}
+
+	/**
+	 * Adds the fingerprint to the set.
+	 *
+	 * @return true if the fingerprint was not already in the set
+	 */
+	boolean add(long hi, long lo) throws IOException {
+		if (hi == 0 && lo == 0) {
+			// (0, 0) marks the empty slots, so it is never stored in the table (or the runs)
+			if (containsZero)
+				return false;
+			containsZero = true;
+			return true;
+		}
+
+		int slot = find(table, capacity, hi, lo);
+		if (table[2 * slot] != 0 || table[2 * slot + 1] != 0)
+			return false;
+
+		for (Run run : runs)
+			if (run.contains(hi, lo))
+				return false;
+
+		table[2 * slot] = hi;
+		table[2 * slot + 1] = lo;
+		size++;
+		if (size > capacity / 4 * 3) {
+			if (capacity < maxCapacity)
+				rehash(2 * capacity);
+			else
+				spill();
+		}
+		return true;
+	}
+
+	/**
+	 * Number of fingerprints stored on disk
+	 */
+	long getSpilledSize() {
+		long n = 0;
+		for (Run run : runs)
+			n += run.size;
+		return n;
+	}
+
+	@Override
+	public void close() {
+		table = null;
+		for (Run run : runs)
+			run.delete();
+		runs.clear();
+	}
+
+	/**
+	 * Returns the slot of the fingerprint or the empty slot where it would be inserted
+	 */
+	private static int find(long[] table, int capacity, long hi, long lo) {
+		int mask = capacity - 1;
+		int slot = (int) (lo ^ (lo >>> 32)) & mask;
+		while (true) {
+			long h = table[2 * slot], l = table[2 * slot + 1];
+			if ((h == 0 && l == 0) || (h == hi && l == lo))
+				return slot;
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private void rehash(int newCapacity) {
+		long[] newTable = new long[2 * newCapacity];
+		for (int i = 0; i < capacity; i++) {
+			long h = table[2 * i], l = table[2 * i + 1];
+			if (h != 0 || l != 0) {
+				int slot = find(newTable, newCapacity, h, l);
+				newTable[2 * slot] = h;
+				newTable[2 * slot + 1] = l;
+			}
+		}
+		table = newTable;
+		capacity = newCapacity;
+	}
+
+	/**
+	 * Moves the content of the table into a new sorted run
+	 */
+	private void spill() throws IOException {
+		// compact the fingerprints to the front of the table and sort them
+		int n = 0;
+		for (int i = 0; i < capacity; i++) {
+			long h = table[2 * i], l = table[2 * i + 1];
+			if (h != 0 || l != 0) {
+				table[2 * n] = h;
+				table[2 * n + 1] = l;
+				n++;
+			}
+		}
+		sort(table, 0, n - 1);
+
+		Path path = Files.createTempFile("ontop-distinct", ".run");
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+			for (int i = 0; i < 2 * n; i++) {
+				if (!buffer.hasRemaining())
+					flush(channel, buffer);
+				buffer.putLong(table[i]);
+			}
+			flush(channel, buffer);
+		}
+		runs.add(new Run(path, n));
+
+		Arrays.fill(table, 0);
+		size = 0;
+
+		if (runs.size() > MAX_RUNS)
+			mergeRuns();
+	}
+
+	/**
+	 * Merges the smallest runs into one, as long as the result can be memory-mapped
+	 */
+	private void mergeRuns() throws IOException {
+		Collections.sort(runs, new Comparator<Run>() {
+			@Override
+			public int compare(Run r1, Run r2) {
+				return Long.compare(r1.size, r2.size);
+			}
+		});
+		List<Run> merged = new ArrayList<>();
+		long total = 0;
+		for (Run run : runs) {
+			if (total + run.size > MAX_RUN_SIZE)
+				break;
+			merged.add(run);
+			total += run.size;
+		}
+		if (merged.size() < 2)
+			return;
+
+		Path path = Files.createTempFile("ontop-distinct", ".run");
+		int[] positions = new int[merged.size()];
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+			while (true) {
+				int min = -1;
+				for (int i = 0; i < positions.length; i++) {
+					Run run = merged.get(i);
+					if (positions[i] < run.size && (min == -1 ||
+							compare(run.hi(positions[i]), run.lo(positions[i]),
+									merged.get(min).hi(positions[min]), merged.get(min).lo(positions[min])) < 0))
+						min = i;
+				}
+				if (min == -1)
+					break;
+				if (!buffer.hasRemaining())
+					flush(channel, buffer);
+				Run run = merged.get(min);
+				buffer.putLong(run.hi(positions[min]));
+				buffer.putLong(run.lo(positions[min]));
+				positions[min]++;
+			}
+			flush(channel, buffer);
+		}
+
+		for (Run run : merged)
+			run.delete();
+		runs.removeAll(merged);
+		runs.add(new Run(path, (int) total));
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	private static int compare(long h1, long l1, long h2, long l2) {
+		int c = Long.compare(h1, h2);
+		return (c != 0) ? c : Long.compare(l1, l2);
+	}
+
+	/**
+	 * Sorts the pairs between positions from and to (inclusive) of the array
+	 */
+	private static void sort(long[] a, int from, int to) {
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			long ph = a[2 * mid], pl = a[2 * mid + 1];
+			int i = from, j = to;
+			while (i <= j) {
+				while (compare(a[2 * i], a[2 * i + 1], ph, pl) < 0)
+					i++;
+				while (compare(a[2 * j], a[2 * j + 1], ph, pl) > 0)
+					j--;
+				if (i <= j) {
+					swap(a, i, j);
+					i++;
+					j--;
+				}
+			}
+			// recurse into the smaller part to bound the stack depth
+			if (j - from < to - i) {
+				sort(a, from, j);
+				from = i;
+			}
+			else {
+				sort(a, i, to);
+				to = j;
+			}
+		}
+	}
+
+	private static void swap(long[] a, int i, int j) {
+		long h = a[2 * i], l = a[2 * i + 1];
+		a[2 * i] = a[2 * j];
+		a[2 * i + 1] = a[2 * j + 1];
+		a[2 * j] = h;
+		a[2 * j + 1] = l;
+	}
+
+	/**
+	 * Sorted fingerprints in a memory-mapped temporary file
+	 */
+	private static final class Run {
+		private final Path path;
+		private final MappedByteBuffer buffer;
+		private final int size;
+
+		Run(Path path, int size) throws IOException {
+			this.path = path;
+			this.size = size;
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, 16L * size);
+			}
+		}
+
+		long hi(int i) {
+			return buffer.getLong(16 * i);
+		}
+
+		long lo(int i) {
+			return buffer.getLong(16 * i + 8);
+		}
+
+		boolean contains(long hi, long lo) {
+			int low = 0, high = size - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int c = compare(hi(mid), lo(mid), hi, lo);
+				if (c < 0)
+					low = mid + 1;
+				else if (c > 0)
+					high = mid - 1;
+				else
+					return true;
+			}
+			return false;
+		}
+
+		void delete() {
+			try {
+				Files.deleteIfExists(path);
+			}
+			catch (IOException e) {
+				path.toFile().deleteOnExit();
+			}
+		}
+	}
+}
@@ -28,6 +28,7 @@ import it.unibz.inf.ontop.model.Predicate.COL_TYPE;
 import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
 import it.unibz.inf.ontop.model.impl.OBDAVocabulary;
 import it.unibz.inf.ontop.model.impl.TermUtils;
+import it.unibz.inf.ontop.owlrefplatform.core.URITemplateRegistry;
 import it.unibz.inf.ontop.owlrefplatform.core.abox.SemanticIndexURIMap;
 import it.unibz.inf.ontop.owlrefplatform.core.abox.XsdDatatypeConverter;
 import it.unibz.inf.ontop.owlrefplatform.core.basicoperations.DatalogNormalizer;
@@ -67,17 +68,15 @@ public class SQLGenerator implements SQLQueryGenerator {
 	private final boolean distinctResultSet;
 	private final String replace1, replace2;
 
-	private boolean isDistinct = false;
-	private boolean isOrderBy = false;
-	
 	private final SemanticIndexURIMap uriRefIds; // non-null in the Semantic Index mode
+	private final URITemplateRegistry uriTemplates; // non-null if URIs are built by the result sets
 	
 	private final DatatypeFactory dtfac = OBDADataFactoryImpl.getInstance().getDatatypeFactory();
 	
 	private final ImmutableMap<ExpressionOperation, String> operations;
 
 	public SQLGenerator(DBMetadata metadata, SQLDialectAdapter sqladapter) {
-		this(metadata, sqladapter, false, true, null);
+		this(metadata, sqladapter, false, true, null, null);
 	}
 
 	/**
@@ -86,13 +85,17 @@ public class SQLGenerator implements SQLQueryGenerator {
 	 * @param sqladapter
 	 * @param sqlGenerateReplace
 	 * @param uriid is null in case we are not in the SI mode
+	 * @param uriTemplates the URI templates instantiated by the result sets, null if they 
+	 *                     are instantiated by the DBMS
 	 */
 
-	public SQLGenerator(DBMetadata metadata, SQLDialectAdapter sqladapter, boolean sqlGenerateReplace, boolean distinctResultSet, SemanticIndexURIMap uriid) {
+	public SQLGenerator(DBMetadata metadata, SQLDialectAdapter sqladapter, boolean sqlGenerateReplace, boolean distinctResultSet, 
+						SemanticIndexURIMap uriid, URITemplateRegistry uriTemplates) {
 		this.metadata = metadata;
 		this.sqladapter = sqladapter;
 		this.distinctResultSet = distinctResultSet;
 		this.uriRefIds = uriid;
+		this.uriTemplates = (uriid == null) ? uriTemplates : null;
 		
 		ImmutableMap.Builder<ExpressionOperation, String> builder = new ImmutableMap.Builder<ExpressionOperation, String>()
 				.put(ExpressionOperation.ADD, "%s + %s")
@@ -159,8 +162,6 @@ public class SQLGenerator implements SQLQueryGenerator {
 	 */
 	@Override
 	public String generateSourceQuery(DatalogProgram query, List<String> signature) throws OBDAException {
-		isDistinct = hasSelectDistinctStatement(query);
-		isOrderBy = hasOrderByClause(query);
 		if (query.getQueryModifiers().hasModifiers()) {
 			final String indent = "   ";
 			final String outerViewName = "SUB_QVIEW";
@@ -188,6 +189,11 @@ public class SQLGenerator implements SQLQueryGenerator {
 		return distinctResultSet;
 	}
 
+	@Override
+	public String getSQLLexicalFormString(String constant) {
+		return sqladapter.getSQLLexicalFormString(constant);
+	}
+
 	private boolean hasSelectDistinctStatement(DatalogProgram query) {
 		boolean toReturn = false;
 		if (query.getQueryModifiers().hasModifiers()) {
@@ -208,10 +214,16 @@ public class SQLGenerator implements SQLQueryGenerator {
 	/**
 	 * Main method. Generates the full query, taking into account
 	 * limit/offset/order by.
+	 * 
+	 * The generator is shared by all the queries of a Quest instance, and so
+	 * the state of a translation is kept in local variables and in the alias
+	 * index of each CQ.
 	 */
 	private String generateQuery(DatalogProgram query, List<String> signature,
 			String indent) throws OBDAException {
 
+		boolean isDistinct = hasSelectDistinctStatement(query);
+		boolean isOrderBy = hasOrderByClause(query);
 		int numberOfQueries = query.getRules().size();
 
 		List<String> queriesStrings = new LinkedList<>();
@@ -257,7 +269,7 @@ public class SQLGenerator implements SQLQueryGenerator {
 				continue;
 			}
 
-			QueryAliasIndex index = new QueryAliasIndex(cq);
+			QueryAliasIndex index = new QueryAliasIndex(cq, isDistinct, isOrderBy);
 
 			boolean innerdistincts = false;
 			if (isDistinct && !distinctResultSet && numberOfQueries == 1) {
@@ -758,9 +770,10 @@ public class SQLGenerator implements SQLQueryGenerator {
 		while (hit.hasNext()) {
 
 			Term ht = hit.next();
-			String typeColumn = getTypeColumnForSELECT(ht, signature, hpos, sqlVariableNames);
+			int templateCode = getClientSideTemplateCode(ht, index);
+			String typeColumn = getTypeColumnForSELECT(ht, signature, hpos, sqlVariableNames, templateCode);
 			String langColumn = getLangColumnForSELECT(ht, signature, hpos,	index, sqlVariableNames);
-			String mainColumn = getMainColumnForSELECT(ht, signature, hpos, index, sqlVariableNames);
+			String mainColumn = getMainColumnForSELECT(ht, signature, hpos, index, sqlVariableNames, templateCode);
 
 			sb.append("\n   ");
 			sb.append(typeColumn);
@@ -776,8 +789,33 @@ public class SQLGenerator implements SQLQueryGenerator {
 		return sb.toString();
 	}
 
+	/**
+	 * Returns the code of the URI template of the term if the URI is to be built 
+	 * by the result set, that is, if the term is a URI template with a single 
+	 * placeholder filled by a column, and the query neither sorts nor removes 
+	 * duplicates (two templates may give the same URI). Returns -1 otherwise.
+	 */
+	private int getClientSideTemplateCode(Term ht, QueryAliasIndex index) {
+		if (uriTemplates == null || index.isOrderBy || index.isDistinct)
+			return -1;
+		if (!(ht instanceof Function))
+			return -1;
+		Function ov = (Function) ht;
+		if (!(ov.getFunctionSymbol() instanceof URITemplatePredicate) || ov.getTerms().size() != 2)
+			return -1;
+		Term t = ov.getTerm(0);
+		if (!(t instanceof ValueConstant) || !(ov.getTerm(1) instanceof Variable))
+			return -1;
+		
+		String template = trimLiteral(((ValueConstant) t).getValue());
+		int pos = template.indexOf("{}");
+		if (pos == -1 || template.indexOf("{}", pos + 2) != -1 || template.equals("{}"))
+			return -1;
+		return uriTemplates.getCode(template.substring(0, pos), template.substring(pos + 2));
+	}
+
 	private String getMainColumnForSELECT(Term ht,
-			List<String> signature, int hpos, QueryAliasIndex index, Set<String> sqlVariableNames) {
+			List<String> signature, int hpos, QueryAliasIndex index, Set<String> sqlVariableNames, int templateCode) {
 
 		/**
 		 * Creates a variable name that fits to the restrictions of the SQL dialect.
@@ -789,7 +827,16 @@ public class SQLGenerator implements SQLQueryGenerator {
 
 		String mainTemplate = "%s AS %s";
 
-		if (ht instanceof URIConstant) {
+		if (templateCode != -1) {
+			/*
+			 * Only the column: the result set instantiates the template
+			 */
+			Term column = ((Function) ht).getTerm(1);
+			mainColumn = getSQLString(column, index, false);
+			if (!isStringColType(column, index))
+				mainColumn = sqladapter.sqlCast(mainColumn, Types.VARCHAR);
+		}
+		else if (ht instanceof URIConstant) {
 			URIConstant uc = (URIConstant) ht;
 			mainColumn = sqladapter.getSQLLexicalFormString(uc.getURI());
 		} 
@@ -935,11 +982,10 @@ public class SQLGenerator implements SQLQueryGenerator {
 	 * Beware: a new entry will be added to sqlVariableNames (is thus mutable).
 	 */
 	private String getTypeColumnForSELECT(Term ht, List<String> signature, int hpos,
-										  Set<String> sqlVariableNames) {
+										  Set<String> sqlVariableNames, int templateCode) {
 		
 
-		COL_TYPE type = getTypeColumn(ht);
-		int code = type.getQuestCode();
+		int code = (templateCode != -1) ? templateCode : getTypeColumn(ht).getQuestCode();
 		
         // Creates a variable name that fits to the restrictions of the SQL dialect.
         String typeVariableName = sqladapter.nameTopVariable(signature.get(hpos), typeSuffix, sqlVariableNames);
@@ -1094,7 +1140,7 @@ public class SQLGenerator implements SQLQueryGenerator {
 			if (vex.size() == 1) {	
 				return vex.get(0);
 			}
-			return getStringConcatenation(vex.toArray(new String[]{}));
+			return getStringConcatenation(vex.toArray(new String[]{}), index);
 			
 		} 
 		else if (t instanceof Variable) {
@@ -1130,14 +1176,14 @@ public class SQLGenerator implements SQLQueryGenerator {
 	}
 
 	// TODO: move to SQLAdapter
-	private String getStringConcatenation(String[] params) {
+	private String getStringConcatenation(String[] params, QueryAliasIndex index) {
 		String toReturn = sqladapter.strConcat(params);
 		if (sqladapter instanceof DB2SQLDialectAdapter) {
 			/*
 			 * A work around to handle DB2 (>9.1) issue SQL0134N: Improper use of a string column, host variable, constant, or function name.
 			 * http://publib.boulder.ibm.com/infocenter/db2luw/v9r5/index.jsp?topic=%2Fcom.ibm.db2.luw.messages.sql.doc%2Fdoc%2Fmsql00134n.html
 			 */
-			if (isDistinct || isOrderBy) {
+			if (index.isDistinct || index.isOrderBy) {
 				return sqladapter.sqlCast(toReturn, Types.VARCHAR);
 			}
 		}
@@ -1538,7 +1584,13 @@ public class SQLGenerator implements SQLQueryGenerator {
 		int dataTableCount = 0;
 		boolean isEmpty = false;
 
-		public QueryAliasIndex(CQIE query) {
+		// modifiers of the query the CQ belongs to
+		final boolean isDistinct;
+		final boolean isOrderBy;
+
+		public QueryAliasIndex(CQIE query, boolean isDistinct, boolean isOrderBy) {
+			this.isDistinct = isDistinct;
+			this.isOrderBy = isOrderBy;
 			List<Function> body = query.getBody();
 			generateViews(body);
 		}
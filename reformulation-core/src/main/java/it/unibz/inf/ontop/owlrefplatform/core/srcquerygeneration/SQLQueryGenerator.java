@@ -48,4 +48,10 @@ public interface SQLQueryGenerator extends Serializable {
 	public String generateSourceQuery(DatalogProgram query, List<String> signature) throws OBDAException;
 
 	public boolean hasDistinctResultSet() ;
+
+	/**
+	 * Returns the SQL lexical form of the given string constant, as it occurs
+	 * in the source queries produced by this generator.
+	 */
+	public String getSQLLexicalFormString(String constant);
 }
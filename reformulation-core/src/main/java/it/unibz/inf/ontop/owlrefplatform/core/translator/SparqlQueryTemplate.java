@@ -0,0 +1,390 @@
+package it.unibz.inf.ontop.owlrefplatform.core.translator;
+
+import it.unibz.inf.ontop.model.Function;
+import it.unibz.inf.ontop.model.Term;
+import it.unibz.inf.ontop.owlrefplatform.core.basicoperations.UriTemplateMatcher;
+import org.openrdf.model.Literal;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.query.algebra.BindingSetAssignment;
+import org.openrdf.query.algebra.Slice;
+import org.openrdf.query.algebra.StatementPattern;
+import org.openrdf.query.algebra.TupleExpr;
+import org.openrdf.query.algebra.ValueConstant;
+import org.openrdf.query.algebra.Var;
+import org.openrdf.query.algebra.helpers.QueryModelVisitorBase;
+import org.openrdf.query.parser.ParsedBooleanQuery;
+import org.openrdf.query.parser.ParsedQuery;
+import org.openrdf.query.parser.ParsedTupleQuery;
+
+import java.util.*;
+
+/**
+ * Constant-agnostic view of a SELECT or ASK query.
+ * <p>
+ * Plain string literals (no language tag, no datatype other than xsd:string)
+ * are lifted out of the SPARQL algebra and replaced by placeholder literals.
+ * Queries that differ only in those literals have the same key and the same
+ * placeholder query, so the SQL translation of the latter can be shared by all
+ * of them.
+ * <p>
+ * xsd:integer literals in the canonical lexical form (that fit into a long) are 
+ * lifted as well and replaced by integer placeholders: large integers derived from
+ * the placeholder prefix, which are found in the SQL as numbers rather than as 
+ * string constants (see {@link #isInteger}).
+ * <p>
+ * IRIs in the subject and object positions of triple patterns and in 
+ * expressions are lifted in the same way when a URI template matcher is given: 
+ * the values of the placeholders of their URI template are lifted (the template 
+ * itself stays in the key) and the IRI is replaced by the template instantiated
+ * with placeholders. Such an IRI is kept if it does not match a template with 
+ * placeholders, if the placeholder IRI would match a different template, or if
+ * it contains escape codes (which are decoded by the translation).
+ * <p>
+ * Occurrences of the same value share one placeholder. A value is kept in
+ * the query (and hence in the key) whenever it may influence the translation
+ * in ways other than as an opaque SQL string constant, i.e., if it is one of
+ * the given excluded values (e.g., constants of the mappings) or if a literal 
+ * occurs inside another constant of the query that is kept.
+ */
+public class SparqlQueryTemplate {
+
+	private static final ValueFactory vfac = ValueFactoryImpl.getInstance();
+
+	private final String key;
+	private final ParsedQuery query;
+	private final List<String> parameters;
+	private final List<String> placeholders;
+	private final BitSet integers;
+
+	private SparqlQueryTemplate(String key, ParsedQuery query, List<String> parameters, List<String> placeholders, 
+								BitSet integers) {
+		this.key = key;
+		this.query = query;
+		this.parameters = parameters;
+		this.placeholders = placeholders;
+		this.integers = integers;
+	}
+
+	/**
+	 * Lifts the plain string and integer literals only.
+	 */
+	public static SparqlQueryTemplate create(ParsedQuery pq, String placeholderPrefix, Set<String> excludedValues) {
+		return create(pq, placeholderPrefix, excludedValues, null);
+	}
+
+	/**
+	 * @param pq the parsed query (not modified)
+	 * @param placeholderPrefix prefix of the placeholder literals, which must not occur in any query or mapping
+	 * @param excludedValues literals that must not be lifted
+	 * @param uriTemplateMatcher the URI templates of the mappings (null if IRIs are not to be lifted)
+	 * @return the template, or null if the query is neither a SELECT nor an ASK query
+	 */
+	public static SparqlQueryTemplate create(ParsedQuery pq, String placeholderPrefix, Set<String> excludedValues, 
+											 UriTemplateMatcher uriTemplateMatcher) {
+
+		TupleExpr te = pq.getTupleExpr().clone();
+
+		ConstantCollector collector = new ConstantCollector();
+		te.visit(collector);
+
+		// the URI templates (with their values) of the IRIs that can be lifted
+		Map<String, Function> iriTemplates = new HashMap<>();
+		if (uriTemplateMatcher != null)
+			for (Constant c : collector.constants)
+				if (c.liftableIRI && !iriTemplates.containsKey(c.value.stringValue())) {
+					Function f = getTemplate(c.value.stringValue(), placeholderPrefix, excludedValues, uriTemplateMatcher);
+					if (f != null)
+						iriTemplates.put(c.value.stringValue(), f);
+				}
+
+		List<String> kept = new ArrayList<>();
+		for (Constant c : collector.constants)
+			if (!isPlainString(c.value) && !isInteger(c.value) && !(c.liftableIRI && iriTemplates.containsKey(c.value.stringValue())))
+				kept.add(c.value.stringValue());
+
+		// values that can be safely replaced by placeholders
+		Map<String, String> placeholderOf = new HashMap<>();
+		Map<String, String> integerPlaceholderOf = new HashMap<>();
+		List<String> parameters = new ArrayList<>();
+		List<String> placeholders = new ArrayList<>();
+		BitSet integers = new BitSet();
+		long integerPlaceholderBase = getIntegerPlaceholderBase(placeholderPrefix);
+		for (Constant c : collector.constants) {
+			Function f = c.liftableIRI ? iriTemplates.get(c.value.stringValue()) : null;
+			if (f != null) {
+				List<String> placeholderValues = new ArrayList<>(f.getArity() - 1);
+				for (Term t : f.getTerms().subList(1, f.getArity()))
+					placeholderValues.add(getPlaceholder(getValue(t), placeholderPrefix, 
+							placeholderOf, parameters, placeholders));
+				c.replacement = vfac.createURI(instantiate(getValue(f.getTerm(0)), placeholderValues));
+			}
+			else if (isPlainString(c.value) || isInteger(c.value)) {
+				String value = c.value.stringValue();
+				boolean integer = isInteger(c.value);
+				if (!(integer ? integerPlaceholderOf : placeholderOf).containsKey(value)) {
+					if (excludedValues.contains(value))
+						continue;
+
+					boolean nested = false;
+					for (String other : kept)
+						if (other.contains(value)) {
+							nested = true;
+							break;
+						}
+					if (nested)
+						continue;
+				}
+
+				Literal lit = (Literal) c.value;
+				if (integer) {
+					String placeholder = integerPlaceholderOf.get(value);
+					if (placeholder == null) {
+						placeholder = String.valueOf(integerPlaceholderBase + parameters.size());
+						integerPlaceholderOf.put(value, placeholder);
+						integers.set(parameters.size());
+						parameters.add(value);
+						placeholders.add(placeholder);
+					}
+					c.replacement = vfac.createLiteral(placeholder, lit.getDatatype());
+				}
+				else {
+					String placeholder = getPlaceholder(value, placeholderPrefix, placeholderOf, parameters, placeholders);
+					c.replacement = (lit.getDatatype() == null)
+							? vfac.createLiteral(placeholder)
+							: vfac.createLiteral(placeholder, lit.getDatatype());
+				}
+			}
+		}
+
+		// the names of the anonymous variables holding the constants are derived 
+		// from their values and so are replaced as well
+		for (Constant c : collector.constants)
+			if (c.replacement != null) {
+				if (c.node instanceof Var) {
+					((Var) c.node).setValue(c.replacement);
+					((Var) c.node).setName("-const-" + c.replacement.stringValue());
+				}
+				else
+					((ValueConstant) c.node).setValue(c.replacement);
+			}
+
+		ParsedQuery query;
+		String type;
+		if (pq instanceof ParsedTupleQuery) {
+			query = parameters.isEmpty() ? pq : new ParsedTupleQuery(te);
+			type = "SELECT";
+		}
+		else if (pq instanceof ParsedBooleanQuery) {
+			query = parameters.isEmpty() ? pq : new ParsedBooleanQuery(te);
+			type = "ASK";
+		}
+		else
+			return null;
+
+		if (query != pq)
+			query.setDataset(pq.getDataset());
+
+		String key = type + "\n" + pq.getDataset() + "\n" + te + "\n" + collector.unrendered;
+		return new SparqlQueryTemplate(key, query, Collections.unmodifiableList(parameters),
+				Collections.unmodifiableList(placeholders), integers);
+	}
+
+	/**
+	 * The integer placeholders are 18-digit numbers (which fit into a long) depending on 
+	 * the prefix, so that they are as unlikely to occur in queries and mappings as the prefix
+	 */
+	private static long getIntegerPlaceholderBase(String placeholderPrefix) {
+		return 100000000000000000L + ((placeholderPrefix.hashCode() & 0x7fffffffL) << 16);
+	}
+
+	private static String getPlaceholder(String value, String placeholderPrefix, Map<String, String> placeholderOf,
+										 List<String> parameters, List<String> placeholders) {
+		String placeholder = placeholderOf.get(value);
+		if (placeholder == null) {
+			placeholder = placeholderPrefix + parameters.size() + "_";
+			placeholderOf.put(value, placeholder);
+			parameters.add(value);
+			placeholders.add(placeholder);
+		}
+		return placeholder;
+	}
+
+	private static final String PLACEHOLDER = "{}";
+
+	private static String instantiate(String template, List<String> values) {
+		StringBuilder sb = new StringBuilder();
+		int start = 0;
+		for (String value : values) {
+			int pos = template.indexOf(PLACEHOLDER, start);
+			sb.append(template, start, pos).append(value);
+			start = pos + PLACEHOLDER.length();
+		}
+		sb.append(template.substring(start));
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the URI template matching the IRI, applied to the values of its placeholders, 
+	 * or null if the IRI cannot be lifted
+	 */
+	private static Function getTemplate(String iri, String placeholderPrefix, Set<String> excludedValues, 
+										UriTemplateMatcher uriTemplateMatcher) {
+		if (iri.indexOf('%') != -1 || excludedValues.contains(iri))
+			return null;
+
+		Function f = uriTemplateMatcher.generateURIFunction(iri);
+		String template = getValue(f.getTerm(0));
+		if (f.getArity() < 2 || template == null)
+			return null;
+		
+		List<String> probes = new ArrayList<>(f.getArity() - 1);
+		for (Term t : f.getTerms().subList(1, f.getArity())) {
+			String value = getValue(t);
+			if (value == null || excludedValues.contains(value))
+				return null;
+			probes.add(placeholderPrefix + probes.size() + "_");
+		}
+		if (!instantiate(template, getValues(f)).equals(iri))
+			return null;
+
+		// the IRI with placeholders has to match the same template, with the placeholders as values
+		Function g = uriTemplateMatcher.generateURIFunction(instantiate(template, probes));
+		if (!g.getTerm(0).equals(f.getTerm(0)) || !getValues(g).equals(probes))
+			return null;
+
+		return f;
+	}
+
+	private static List<String> getValues(Function uriTemplate) {
+		List<String> values = new ArrayList<>(uriTemplate.getArity() - 1);
+		for (Term t : uriTemplate.getTerms().subList(1, uriTemplate.getArity()))
+			values.add(getValue(t));
+		return values;
+	}
+
+	private static String getValue(Term t) {
+		return (t instanceof it.unibz.inf.ontop.model.ValueConstant) ? ((it.unibz.inf.ontop.model.ValueConstant) t).getValue() : null;
+	}
+
+	/**
+	 * The key shared by all queries that differ only in the lifted literals
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * The query with the lifted literals replaced by placeholders (the original
+	 * query if no literal has been lifted)
+	 */
+	public ParsedQuery getQuery() {
+		return query;
+	}
+
+	/**
+	 * The lifted literals: the i-th parameter is replaced by the i-th placeholder
+	 */
+	public List<String> getParameters() {
+		return parameters;
+	}
+
+	public List<String> getPlaceholders() {
+		return placeholders;
+	}
+
+	/**
+	 * Whether the i-th parameter is an integer (and its placeholder an integer 
+	 * rather than a string)
+	 */
+	public boolean isInteger(int i) {
+		return integers.get(i);
+	}
+
+
+	private static boolean isPlainString(Value v) {
+		if (!(v instanceof Literal))
+			return false;
+		Literal lit = (Literal) v;
+		if (lit.getLanguage() != null)
+			return false;
+		return lit.getDatatype() == null || lit.getDatatype().equals(XMLSchema.STRING);
+	}
+
+	/**
+	 * xsd:integer literals in the canonical form (no sign +, no leading zeros) of at most 18 digits
+	 */
+	private static boolean isInteger(Value v) {
+		if (!(v instanceof Literal))
+			return false;
+		Literal lit = (Literal) v;
+		return XMLSchema.INTEGER.equals(lit.getDatatype()) && lit.getLabel().matches("0|-?[1-9][0-9]{0,17}");
+	}
+
+	/**
+	 * An occurrence of a constant in the query
+	 */
+	private static final class Constant {
+		final Object node; // Var or ValueConstant
+		final Value value;
+		final boolean liftableIRI; // whether the position allows lifting an IRI
+		Value replacement;
+
+		Constant(Object node, Value value, boolean liftableIRI) {
+			this.node = node;
+			this.value = value;
+			this.liftableIRI = liftableIRI && (value instanceof URI);
+		}
+	}
+
+	/**
+	 * Collects the occurrences of all constants (in the order of the visit)
+	 */
+	private static final class ConstantCollector extends QueryModelVisitorBase<RuntimeException> {
+		private final List<Constant> constants = new ArrayList<>();
+		// variables whose IRIs denote properties or classes
+		private final Set<Var> vocabulary = Collections.newSetFromMap(new IdentityHashMap<Var, Boolean>());
+		// parts of the query that are not rendered by toString()
+		private final StringBuilder unrendered = new StringBuilder();
+
+		@Override
+		public void meet(StatementPattern node) {
+			vocabulary.add(node.getPredicateVar());
+			if (node.getContextVar() != null)
+				vocabulary.add(node.getContextVar());
+			Value p = node.getPredicateVar().getValue();
+			if (p != null && p.equals(RDF.TYPE))
+				vocabulary.add(node.getObjectVar());
+			super.meet(node);
+		}
+
+		@Override
+		public void meet(Var node) {
+			if (node.hasValue())
+				constants.add(new Constant(node, node.getValue(), !vocabulary.contains(node)));
+		}
+
+		@Override
+		public void meet(ValueConstant node) {
+			constants.add(new Constant(node, node.getValue(), true));
+		}
+
+		@Override
+		public void meet(BindingSetAssignment node) {
+			// VALUES are kept in the key
+			unrendered.append(node.getBindingSets()).append("\n");
+			super.meet(node);
+		}
+
+		@Override
+		public void meet(Slice node) {
+			unrendered.append("offset=").append(node.getOffset())
+					.append(" limit=").append(node.getLimit()).append("\n");
+			super.meet(node);
+		}
+	}
+}
@@ -26,6 +26,7 @@ import it.unibz.inf.ontop.model.*;
 import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
 import it.unibz.inf.ontop.model.impl.OBDAVocabulary;
 import it.unibz.inf.ontop.model.impl.TermUtils;
+import it.unibz.inf.ontop.owlrefplatform.core.QueryCompilationBudget;
 import it.unibz.inf.ontop.owlrefplatform.core.basicoperations.*;
 
 import org.slf4j.Logger;
@@ -175,6 +176,18 @@ public class DatalogUnfolder {
 	 * 
 	 */
 	public DatalogProgram unfold(DatalogProgram inputquery) {
+		return unfold(inputquery, 0, 0);
+	}
+
+	/***
+	 * Generates the partial evaluation as above, but gives up (with a 
+	 * {@link it.unibz.inf.ontop.owlrefplatform.core.QueryCompilationBudgetException}) as soon as the partial evaluation
+	 * has more than <b>maxRules</b> rules or the deadline has passed.
+	 * 
+	 * @param maxRules the maximum number of rules, 0 if unlimited
+	 * @param deadline the value of System.nanoTime() at which to give up, 0 if none
+	 */
+	public DatalogProgram unfold(DatalogProgram inputquery, int maxRules, long deadline) {
 
 		List<CQIE> workingSet = new LinkedList<>();
 		for (CQIE query : inputquery.getRules()) 
@@ -183,7 +196,7 @@ public class DatalogUnfolder {
 		for (CQIE query : workingSet)
 			EQNormalizer.enforceEqualities(query);
 
-		computePartialEvaluation(workingSet);	
+		computePartialEvaluation(workingSet, maxRules, deadline);	
 		
 		// We need to enforce equality again, because at this point it is 
 		//  possible that there is still some EQ(...) 
@@ -934,11 +947,15 @@ public class DatalogUnfolder {
 
 	 * @return
 	 */
-	private void computePartialEvaluation(List<CQIE> workingList) {
+	private void computePartialEvaluation(List<CQIE> workingList, int maxRules, long deadline) {
 
 		ListIterator<CQIE> iterator = workingList.listIterator();
 		
 		while (iterator.hasNext()) {
+			if (maxRules > 0 && workingList.size() > maxRules)
+				throw QueryCompilationBudget.unfoldingExceeded(maxRules);
+			QueryCompilationBudget.checkDeadline(deadline);
+			
 			CQIE rule = iterator.next(); 
 
 			List<CQIE> result = computePartialEvaluation(rule.getBody(), rule, new Stack<Integer>(), false);
@@ -0,0 +1,133 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import it.unibz.inf.ontop.model.CQIE;
+import it.unibz.inf.ontop.model.Function;
+import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.OBDAMappingAxiom;
+import it.unibz.inf.ontop.model.Variable;
+import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
+import it.unibz.inf.ontop.model.impl.OBDAVocabulary;
+import it.unibz.inf.ontop.ontology.OClass;
+import it.unibz.inf.ontop.ontology.Ontology;
+import it.unibz.inf.ontop.ontology.OntologyFactory;
+import it.unibz.inf.ontop.ontology.OntologyVocabulary;
+import it.unibz.inf.ontop.ontology.impl.OntologyFactoryImpl;
+import it.unibz.inf.ontop.sql.Attribute;
+import it.unibz.inf.ontop.sql.DBMetadata;
+import it.unibz.inf.ontop.sql.DBMetadataExtractor;
+import it.unibz.inf.ontop.sql.DatabaseRelationDefinition;
+import it.unibz.inf.ontop.sql.QuotedIDFactory;
+import it.unibz.inf.ontop.sql.UniqueConstraint;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class MappingSnapshotTest {
+
+	private static final String NS = "http://example.org/snapshot#";
+
+	private static final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
+	private static final OntologyFactory ofac = OntologyFactoryImpl.getInstance();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Ontology ontology;
+	private OClass c;
+	private DBMetadata metadata;
+	private DatabaseRelationDefinition table;
+	private List<OBDAMappingAxiom> mappings;
+
+	@Before
+	public void setUp() {
+		OntologyVocabulary vb = ofac.createVocabulary();
+		c = vb.createClass(NS + "C");
+		ontology = ofac.createOntology(vb);
+
+		metadata = DBMetadataExtractor.createDummyMetadata();
+		QuotedIDFactory idfac = metadata.getQuotedIDFactory();
+		table = metadata.createDatabaseRelation(idfac.createRelationID(null, "T"));
+		Attribute id = table.addAttribute(idfac.createAttributeID("ID"), Types.INTEGER, "INTEGER", false);
+		table.addUniqueConstraint(UniqueConstraint.primaryKeyOf(id));
+
+		Variable x = fac.getVariable("ID");
+		mappings = new ArrayList<>();
+		mappings.add(fac.getRDBMSMappingAxiom("m1", fac.getSQLQuery("SELECT ID FROM T"),
+				Collections.singletonList(fac.getFunction(c.getPredicate(), x))));
+	}
+
+	private List<CQIE> createProgram() {
+		Variable x = fac.getVariable("x");
+		Function body = fac.getFunction(fac.getPredicate("T", 1), x);
+		List<CQIE> program = new ArrayList<>();
+		program.add(fac.getCQIE(fac.getFunction(c.getPredicate(), fac.getUriTemplate(x)),
+				fac.getFunction(OBDAVocabulary.SPARQL_JOIN, body, fac.getFunctionIsNotNull(x)),
+				fac.getFunctionNEQ(x, OBDAVocabulary.NULL)));
+		return program;
+	}
+
+	@Test
+	public void testStoreAndLoad() throws Exception {
+		File file = new File(folder.getRoot(), "mappings.snapshot");
+		String key = MappingSnapshot.getKey(ontology, mappings, metadata, "settings");
+		List<CQIE> program = createProgram();
+		MappingSnapshot.store(file, key, program, metadata);
+
+		MappingSnapshot snapshot = MappingSnapshot.load(file, key);
+		assertNotNull(snapshot);
+		assertEquals(program, snapshot.getProgram());
+		assertEquals(table.getID(), snapshot.getMetadata().getDatabaseRelation(table.getID()).getID());
+		assertNotNull(snapshot.getMetadata().getDatabaseRelation(table.getID()).getPrimaryKey());
+
+		// the constants and operators of the vocabulary are compared by identity
+		CQIE rule = snapshot.getProgram().get(0);
+		assertSame(OBDAVocabulary.SPARQL_JOIN, rule.getBody().get(0).getFunctionSymbol());
+		assertSame(OBDAVocabulary.NULL, rule.getBody().get(1).getTerm(1));
+
+		assertNull(MappingSnapshot.load(file, "other key"));
+		assertNull(MappingSnapshot.load(new File(folder.getRoot(), "missing.snapshot"), key));
+	}
+
+	@Test
+	public void testEmptyPredicates() throws Exception {
+		File file = new File(folder.getRoot(), "mappings.snapshot");
+		String key = MappingSnapshot.getKey(ontology, mappings, metadata, "settings");
+		assertNull(MappingSnapshot.loadEmptyPredicates(file, key));
+
+		Set<String> names = new HashSet<>(Arrays.asList(NS + "C", NS + "P", "http://example.org/other#\u00e9"));
+		MappingSnapshot.storeEmptyPredicates(file, key, names);
+		assertEquals(names, MappingSnapshot.loadEmptyPredicates(file, key));
+
+		// overwritten under a new key (e.g., the mappings have changed)
+		String key2 = MappingSnapshot.getKey(ontology, mappings, metadata, "other settings");
+		MappingSnapshot.storeEmptyPredicates(file, key2, Collections.<String>emptySet());
+		assertNull(MappingSnapshot.loadEmptyPredicates(file, key));
+		assertEquals(Collections.<String>emptySet(), MappingSnapshot.loadEmptyPredicates(file, key2));
+	}
+
+	@Test
+	public void testKey() {
+		String key = MappingSnapshot.getKey(ontology, mappings, metadata, "settings");
+		assertEquals(key, MappingSnapshot.getKey(ontology, mappings, metadata, "settings"));
+		assertFalse(key.equals(MappingSnapshot.getKey(ontology, mappings, metadata, "other settings")));
+
+		table.addAttribute(metadata.getQuotedIDFactory().createAttributeID("NAME"), Types.VARCHAR, "VARCHAR", true);
+		String key2 = MappingSnapshot.getKey(ontology, mappings, metadata, "settings");
+		assertFalse(key.equals(key2));
+
+		mappings.get(0).setSourceQuery(fac.getSQLQuery("SELECT ID FROM T WHERE ID > 0"));
+		assertFalse(key2.equals(MappingSnapshot.getKey(ontology, mappings, metadata, "settings")));
+	}
+}
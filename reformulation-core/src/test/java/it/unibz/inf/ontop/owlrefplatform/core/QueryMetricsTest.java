@@ -0,0 +1,60 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class QueryMetricsTest {
+
+    @Test
+    public void testCompilation() throws Exception {
+        QueryMetrics metrics = new QueryMetrics();
+
+        QueryCompilationStats stats = new QueryCompilationStats();
+        stats.start(QueryCompilationStats.Phase.TRANSLATION);
+        stats.start(QueryCompilationStats.Phase.REWRITING);
+        stats.setRewrittenCQs(3);
+        stats.start(QueryCompilationStats.Phase.UNFOLDING);
+        stats.setUnfoldedRules(5);
+        stats.stop();
+        stats.setSQLLength(100);
+        assertEquals(3, stats.getPhaseTimes().size());
+
+        metrics.recordCompilation(stats);
+        metrics.recordCompilation(stats);
+        metrics.recordCompilationCacheHit();
+
+        assertEquals(2, metrics.getCompilations());
+        assertEquals(1, metrics.getCompilationCacheHits());
+        assertEquals(6, metrics.getRewrittenCQs());
+        assertEquals(10, metrics.getUnfoldedRules());
+        assertEquals(200, metrics.getSQLLength());
+        assertEquals(QueryCompilationStats.Phase.values().length, metrics.getPhaseTimes().size());
+
+        long count = 0;
+        for (long c : metrics.getCompilationTimeHistogram().values())
+            count += c;
+        assertEquals(2, count);
+
+        metrics.reset();
+        assertEquals(0, metrics.getCompilations());
+        assertEquals(0, metrics.getRewrittenCQs());
+    }
+
+    @Test
+    public void testExecutionHistogram() throws Exception {
+        QueryMetrics metrics = new QueryMetrics();
+        metrics.recordExecution(TimeUnit.MICROSECONDS.toNanos(500));
+        metrics.recordExecution(TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.recordExecution(TimeUnit.HOURS.toNanos(1));
+
+        Map<String, Long> histogram = metrics.getExecutionTimeHistogram();
+        assertEquals(Long.valueOf(1), histogram.get("<1ms"));
+        assertEquals(Long.valueOf(1), histogram.get("<8ms"));
+        assertEquals(Long.valueOf(1), histogram.get(">=65536ms"));
+        assertEquals(3, metrics.getExecutions());
+    }
+}
@@ -0,0 +1,112 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import com.google.common.collect.ImmutableList;
+import it.unibz.inf.ontop.model.DatalogProgram;
+import it.unibz.inf.ontop.owlrefplatform.core.srcquerygeneration.SQLQueryGenerator;
+import it.unibz.inf.ontop.owlrefplatform.core.translator.SparqlQueryTemplate;
+import org.junit.Test;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.parser.ParsedQuery;
+import org.openrdf.query.parser.QueryParserUtil;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SQLTemplateTest {
+
+    private static final String PREFIX = "ontopTESTp";
+
+    private static final SQLQueryGenerator generator = new SQLQueryGenerator() {
+        @Override
+        public String generateSourceQuery(DatalogProgram query, List<String> signature) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean hasDistinctResultSet() {
+            return false;
+        }
+
+        @Override
+        public String getSQLLexicalFormString(String constant) {
+            return "'" + constant.replace("'", "''") + "'";
+        }
+    };
+
+    private static SparqlQueryTemplate template(String sparql) throws Exception {
+        ParsedQuery pq = QueryParserUtil.createParser(QueryLanguage.SPARQL).parseQuery(sparql, null);
+        return SparqlQueryTemplate.create(pq, PREFIX, Collections.<String>emptySet());
+    }
+
+    @Test
+    public void testRebinding() throws Exception {
+        SparqlQueryTemplate t = template("SELECT ?x WHERE { ?x <http://example.org/a> \"A\" . ?x <http://example.org/b> \"B\" }");
+        String sql = "SELECT x FROM t WHERE a = '" + PREFIX + "0_' AND b = '" + PREFIX + "1_' AND c = '" + PREFIX + "0_'";
+        SQLTemplate sqlTemplate = SQLTemplate.create(sql, ImmutableList.of("x"), t, PREFIX, generator);
+        assertNotNull(sqlTemplate);
+        assertTrue(sqlTemplate.hasParameters());
+
+        assertEquals("SELECT x FROM t WHERE a = 'A' AND b = 'B' AND c = 'A'",
+                sqlTemplate.getSQL(t.getParameters(), generator));
+        assertEquals("SELECT x FROM t WHERE a = 'O''Neil' AND b = 'C' AND c = 'O''Neil'",
+                sqlTemplate.getSQL(ImmutableList.of("O'Neil", "C"), generator));
+
+        ParameterizedSQL psql = sqlTemplate.getParameterizedSQL(ImmutableList.of("O'Neil", "C"));
+        assertEquals("SELECT x FROM t WHERE a = ? AND b = ? AND c = ?", psql.getSQL());
+        assertEquals(ImmutableList.of("O'Neil", "C", "O'Neil"), psql.getParameters());
+    }
+
+    @Test
+    public void testIntegerRebinding() throws Exception {
+        SparqlQueryTemplate t = template("SELECT ?x WHERE { ?x <http://example.org/a> 42 . ?x <http://example.org/b> \"B\" }");
+        String number = t.getPlaceholders().get(0);
+        String sql = "SELECT x FROM t WHERE a = " + number + " AND b = '" + PREFIX + "1_' AND c=" + number;
+        SQLTemplate sqlTemplate = SQLTemplate.create(sql, ImmutableList.of("x"), t, PREFIX, generator);
+        assertNotNull(sqlTemplate);
+
+        assertEquals("SELECT x FROM t WHERE a = 42 AND b = 'B' AND c=42",
+                sqlTemplate.getSQL(t.getParameters(), generator));
+        assertEquals("SELECT x FROM t WHERE a = (-7) AND b = 'C' AND c=(-7)",
+                sqlTemplate.getSQL(ImmutableList.of("-7", "C"), generator));
+
+        ParameterizedSQL psql = sqlTemplate.getParameterizedSQL(ImmutableList.of("-7", "C"));
+        assertEquals("SELECT x FROM t WHERE a = ? AND b = ? AND c=?", psql.getSQL());
+        assertEquals(ImmutableList.<Object>of(-7L, "C", -7L), psql.getParameters());
+    }
+
+    @Test
+    public void testIntegerPlaceholderOutsideNumber() throws Exception {
+        SparqlQueryTemplate t = template("SELECT ?x WHERE { ?x <http://example.org/a> 42 }");
+        String number = t.getPlaceholders().get(0);
+        assertNull(SQLTemplate.create("SELECT x FROM t WHERE a = " + number + " AND b = '" + number + "'",
+                ImmutableList.of("x"), t, PREFIX, generator));
+        assertNull(SQLTemplate.create("SELECT x FROM t WHERE a = " + number + ".5",
+                ImmutableList.of("x"), t, PREFIX, generator));
+    }
+
+    @Test
+    public void testPlaceholderOutsideStringConstant() throws Exception {
+        SparqlQueryTemplate t = template("SELECT ?x WHERE { ?x <http://example.org/a> ?y FILTER(STRSTARTS(?y, \"A\")) }");
+        String sql = "SELECT x FROM t WHERE a LIKE '" + PREFIX + "0_%'";
+        assertNull(SQLTemplate.create(sql, ImmutableList.of("x"), t, PREFIX, generator));
+    }
+
+    @Test
+    public void testPlaceholderNotInSQL() throws Exception {
+        SparqlQueryTemplate t = template("SELECT ?x WHERE { ?x <http://example.org/a> \"A\" FILTER(\"B\" != \"C\") }");
+        String sql = "SELECT x FROM t WHERE a = '" + PREFIX + "0_'";
+        assertNull(SQLTemplate.create(sql, ImmutableList.of("x"), t, PREFIX, generator));
+    }
+
+    @Test
+    public void testNoParameters() throws Exception {
+        SparqlQueryTemplate t = template("SELECT ?x WHERE { ?x <http://example.org/a> ?y }");
+        String sql = "SELECT x FROM t";
+        SQLTemplate sqlTemplate = SQLTemplate.create(sql, ImmutableList.of("x"), t, PREFIX, generator);
+        assertNotNull(sqlTemplate);
+        assertFalse(sqlTemplate.hasParameters());
+        assertEquals(sql, sqlTemplate.getSQL(t.getParameters(), generator));
+    }
+}
@@ -0,0 +1,34 @@
+package it.unibz.inf.ontop.owlrefplatform.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class URITemplateRegistryTest {
+
+    @Test
+    public void testCodes() {
+        URITemplateRegistry registry = new URITemplateRegistry(true);
+        int c1 = registry.getCode("http://example.org/person/", "");
+        int c2 = registry.getCode("http://example.org/", "/address");
+        assertTrue(URITemplateRegistry.isTemplateCode(c1));
+        assertTrue(URITemplateRegistry.isTemplateCode(c2));
+        assertNotEquals(c1, c2);
+        assertEquals(c1, registry.getCode("http://example.org/person/", ""));
+        assertFalse(URITemplateRegistry.isTemplateCode(1));
+
+        assertEquals("http://example.org/person/12", registry.getURI(c1, "12"));
+        assertEquals("http://example.org/12/address", registry.getURI(c2, "12"));
+    }
+
+    @Test
+    public void testEncoding() {
+        URITemplateRegistry registry = new URITemplateRegistry(true);
+        int c = registry.getCode("http://example.org/", "");
+        assertEquals("http://example.org/O%22Neil%20%26%20Sons%2F1", registry.getURI(c, "O'Neil & Sons/1"));
+
+        registry = new URITemplateRegistry(false);
+        c = registry.getCode("http://example.org/", "");
+        assertEquals("http://example.org/a b", registry.getURI(c, "a b"));
+    }
+}
@@ -0,0 +1,174 @@
+package it.unibz.inf.ontop.owlrefplatform.core.abox;
+
+import com.google.common.collect.ImmutableMap;
+import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
+import it.unibz.inf.ontop.ontology.Assertion;
+import it.unibz.inf.ontop.ontology.AssertionFactory;
+import it.unibz.inf.ontop.ontology.Ontology;
+import it.unibz.inf.ontop.ontology.OntologyFactory;
+import it.unibz.inf.ontop.ontology.OntologyVocabulary;
+import it.unibz.inf.ontop.ontology.impl.AssertionFactoryImpl;
+import it.unibz.inf.ontop.ontology.impl.OntologyFactoryImpl;
+import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.TBoxReasonerImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes rows of all the datatypes of the Semantic Index tables into the staging files
+ * and loads them with CSVREAD of H2 (or reads them back)
+ */
+public class SemanticIndexBulkLoaderTest {
+
+	private static final String URL = "jdbc:h2:mem:semantic_index_bulk_loader_test;DB_CLOSE_DELAY=-1";
+	private static final String NS = "http://example.org/bulk#";
+
+	private static final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
+	private static final OntologyFactory ofac = OntologyFactoryImpl.getInstance();
+	private static final AssertionFactory afac = AssertionFactoryImpl.getInstance();
+
+	private static final RDBMSSIRepositoryManager.TableDescription table = new RDBMSSIRepositoryManager.TableDescription("BULK_TEST",
+			ImmutableMap.<String, String>builder()
+					.put("ID", "INTEGER")
+					.put("S", "VARCHAR(100)")
+					.put("L", "BIGINT")
+					.put("D", "DOUBLE PRECISION")
+					.put("N", "DECIMAL")
+					.put("T", "TIMESTAMP")
+					.put("B", "BOOLEAN").build(), "*");
+
+	private static final Object[][] rows = {
+			{ 1, "plain", 1L, 1.5, new BigDecimal("1.25"), Timestamp.valueOf("2015-01-02 03:04:05.6"), true },
+			{ 2, "with \"quotes\", commas\nand newlines", -2L, -2.5, new BigDecimal("-123456789012345678901234.5"),
+					Timestamp.valueOf("1970-01-01 00:00:00.0"), false },
+			{ 3, "NULL", Long.MAX_VALUE, 1e300, BigDecimal.ZERO, null, null },
+			{ 4, null, null, null, null, null, true },
+			{ 5, "", 0L, 0.0, new BigDecimal("0.000001"), Timestamp.valueOf("2015-12-31 23:59:59.123"), false }
+	};
+
+	private Connection conn;
+
+	@Before
+	public void setUp() throws Exception {
+		conn = DriverManager.getConnection(URL, "sa", "");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (Statement st = conn.createStatement()) {
+			st.execute("DROP ALL OBJECTS DELETE FILES");
+		}
+		conn.close();
+	}
+
+	private static void stage(SemanticIndexBulkLoader.Staging staging) throws Exception {
+		for (Object[] row : rows)
+			staging.add(table, row);
+	}
+
+	@Test
+	public void testH2RoundTrip() throws Exception {
+		try (Statement st = conn.createStatement()) {
+			st.execute(table.createCommand);
+		}
+
+		SemanticIndexBulkLoader loader = SemanticIndexBulkLoader.create(conn);
+		assertNotNull(loader);
+		try (SemanticIndexBulkLoader.Staging staging = loader.createStaging()) {
+			stage(staging);
+			staging.load(conn);
+		}
+
+		try (Statement st = conn.createStatement();
+			 ResultSet rs = st.executeQuery(table.getSELECT() + " ORDER BY ID")) {
+			for (Object[] row : rows) {
+				assertTrue(rs.next());
+				assertEquals(row[0], rs.getInt(1));
+				assertEquals(row[1], rs.getString(2));
+				assertEquals(row[2], rs.getObject(3));
+				assertEquals(row[3], rs.getObject(4));
+				if (row[4] == null)
+					assertNull(rs.getBigDecimal(5));
+				else
+					assertEquals(0, ((BigDecimal) row[4]).compareTo(rs.getBigDecimal(5)));
+				assertEquals(row[5], rs.getTimestamp(6));
+				assertEquals(row[6], rs.getObject(7));
+			}
+			assertFalse(rs.next());
+		}
+	}
+
+	@Test
+	public void testReplay() throws Exception {
+		final List<Object[]> replayed = new ArrayList<>();
+		try (SemanticIndexBulkLoader.Staging staging = SemanticIndexBulkLoader.create(conn).createStaging()) {
+			stage(staging);
+			staging.replay(new SemanticIndexBulkLoader.RowHandler() {
+				@Override
+				public void addRow(RDBMSSIRepositoryManager.TableDescription t, Object[] row) throws SQLException {
+					assertSame(table, t);
+					replayed.add(row);
+				}
+			});
+		}
+
+		assertEquals(rows.length, replayed.size());
+		for (int i = 0; i < rows.length; i++)
+			assertTrue(Arrays.toString(replayed.get(i)), Arrays.equals(rows[i], replayed.get(i)));
+	}
+
+	@Test
+	public void testFailedLoadLeavesDictionaryUnchanged() throws Exception {
+		OntologyVocabulary vb = ofac.createVocabulary();
+		vb.createClass(NS + "C");
+		Ontology ontology = ofac.createOntology(vb);
+
+		RDBMSSIRepositoryManager repository = new RDBMSSIRepositoryManager(TBoxReasonerImpl.create(ontology), ontology.getVocabulary());
+		repository.generateMetadata();
+		repository.createDBSchemaAndInsertMetadata(conn);
+		repository.setBulkLoad(true);
+
+		List<Assertion> assertions = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+			assertions.add(afac.createClassAssertion(NS + "C", fac.getConstantURI(NS + "i" + i)));
+
+		assertEquals(10, repository.insertData(conn, assertions.iterator(), 1, 1));
+		assertEquals(10, repository.getUriMap().size());
+
+		// both the bulk load and the batches fail (after the URIs have been inserted)
+		try (Statement st = conn.createStatement()) {
+			st.execute("ALTER TABLE QUEST_CLASS_ASSERTION ADD CONSTRAINT NO_NEW_URIS CHECK (\"URI\" < 10)");
+		}
+		assertions.clear();
+		for (int i = 10; i < 20; i++)
+			assertions.add(afac.createClassAssertion(NS + "C", fac.getConstantURI(NS + "i" + i)));
+		try {
+			repository.insertData(conn, assertions.iterator(), 1, 1);
+			fail();
+		}
+		catch (SQLException e) {
+			// expected
+		}
+		assertEquals(10, repository.getUriMap().size());
+		assertEquals(-2, repository.getUriMap().getId(NS + "i10"));
+		try (Statement st = conn.createStatement();
+			 ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM URIID")) {
+			rs.next();
+			assertEquals(10, rs.getInt(1));
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package it.unibz.inf.ontop.owlrefplatform.core.abox;
+
+import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.Predicate.COL_TYPE;
+import it.unibz.inf.ontop.model.URIConstant;
+import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
+import it.unibz.inf.ontop.ontology.Assertion;
+import it.unibz.inf.ontop.ontology.AssertionFactory;
+import it.unibz.inf.ontop.ontology.Ontology;
+import it.unibz.inf.ontop.ontology.OntologyFactory;
+import it.unibz.inf.ontop.ontology.OntologyVocabulary;
+import it.unibz.inf.ontop.ontology.impl.AssertionFactoryImpl;
+import it.unibz.inf.ontop.ontology.impl.OntologyFactoryImpl;
+import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.TBoxReasonerImpl;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Loads class, object and data property assertions (some of which do not match
+ * the datatype of the database) with several threads in each stage
+ */
+public class SemanticIndexLoaderTest {
+
+	private static final String URL = "jdbc:h2:mem:semantic_index_loader_test;DB_CLOSE_DELAY=-1";
+	private static final String NS = "http://example.org/loader#";
+	private static final int INDIVIDUALS = 3000;
+
+	private static final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
+	private static final OntologyFactory ofac = OntologyFactoryImpl.getInstance();
+	private static final AssertionFactory afac = AssertionFactoryImpl.getInstance();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Ontology ontology;
+	private Connection conn;
+	private RDBMSSIRepositoryManager repository;
+
+	@Before
+	public void setUp() throws Exception {
+		OntologyVocabulary vb = ofac.createVocabulary();
+		vb.createClass(NS + "C");
+		vb.createObjectProperty(NS + "next");
+		vb.createDataProperty(NS + "value");
+		ontology = ofac.createOntology(vb);
+
+		repository = new RDBMSSIRepositoryManager(TBoxReasonerImpl.create(ontology), ontology.getVocabulary());
+		repository.generateMetadata();
+
+		conn = DriverManager.getConnection(URL, "sa", "");
+		repository.createDBSchemaAndInsertMetadata(conn);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (Statement st = conn.createStatement()) {
+			st.execute("DROP ALL OBJECTS DELETE FILES");
+		}
+		conn.close();
+	}
+
+	private static int count(Statement st, String query) throws Exception {
+		try (ResultSet rs = st.executeQuery(query)) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	/**
+	 * @return the assertions about the individuals (a class, an object property and a data 
+	 *         property assertion each, with a value that is not an integer for every 10th)
+	 */
+	private static List<Assertion> createAssertions() {
+		List<Assertion> assertions = new ArrayList<>();
+		for (int i = 0; i < INDIVIDUALS; i++) {
+			URIConstant individual = fac.getConstantURI(NS + "i" + i);
+			assertions.add(afac.createClassAssertion(NS + "C", individual));
+			if (i > 0)
+				assertions.add(afac.createObjectPropertyAssertion(NS + "next", fac.getConstantURI(NS + "i" + (i - 1)), individual));
+			String value = (i % 10 == 0) ? "x" + i : String.valueOf(i);
+			assertions.add(afac.createDataPropertyAssertion(NS + "value", individual, fac.getConstantLiteral(value, COL_TYPE.INTEGER)));
+		}
+		return assertions;
+	}
+
+	private static JdbcDataSource createDataSource() {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL(URL);
+		dataSource.setUser("sa");
+		dataSource.setPassword("");
+		return dataSource;
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		List<Assertion> assertions = createAssertions();
+		int invalid = INDIVIDUALS / 10;
+
+		SemanticIndexLoader loader = new SemanticIndexLoader(repository, conn, createDataSource(), 2, 2, 3, 4);
+		int inserted = loader.load(SemanticIndexLoader.fromIterator(assertions.iterator(), 100));
+
+		assertEquals(assertions.size() - invalid, inserted);
+		assertEquals(inserted, loader.getStatistics().getWritten());
+		assertEquals(invalid, loader.getStatistics().getFailed());
+		assertEquals(assertions.size(), loader.getStatistics().getParsed());
+
+		try (Statement st = conn.createStatement()) {
+			assertEquals(INDIVIDUALS, count(st, "SELECT COUNT(*) FROM QUEST_CLASS_ASSERTION"));
+			assertEquals(INDIVIDUALS - 1, count(st, "SELECT COUNT(*) FROM QUEST_OBJECT_PROPERTY_ASSERTION"));
+			assertEquals(INDIVIDUALS - invalid, count(st, "SELECT COUNT(*) FROM QUEST_DATA_PROPERTY_INTEGER_ASSERTION"));
+			assertEquals(INDIVIDUALS, count(st, "SELECT COUNT(DISTINCT ID) FROM URIID"));
+
+			// the ids in the database are those of the dictionary
+			SemanticIndexURIMap uriMap = repository.getUriMap();
+			try (ResultSet rs = st.executeQuery("SELECT ID, URI FROM URIID")) {
+				while (rs.next())
+					assertEquals(rs.getInt(1), uriMap.getId(rs.getString(2)));
+			}
+		}
+	}
+
+	/**
+	 * A writer fails in the middle of the load: the URIs referred to by the committed chunks
+	 * are in the database and the dictionary is the URIID table
+	 */
+	@Test
+	public void testWriterFailure() throws Exception {
+		try (Statement st = conn.createStatement()) {
+			st.execute("ALTER TABLE QUEST_DATA_PROPERTY_INTEGER_ASSERTION ADD CONSTRAINT NOT_1505 CHECK (VAL <> 1505)");
+		}
+
+		// 10 individuals in each chunk (but the first)
+		SemanticIndexLoader loader = new SemanticIndexLoader(repository, conn, createDataSource(), 2, 2, 3, 4);
+		try {
+			loader.load(SemanticIndexLoader.fromIterator(createAssertions().iterator(), 30));
+			fail();
+		}
+		catch (SQLException e) {
+			// expected
+		}
+
+		try (Statement st = conn.createStatement()) {
+			assertTrue(count(st, "SELECT COUNT(*) FROM QUEST_CLASS_ASSERTION") < INDIVIDUALS);
+			assertEquals(0, count(st, "SELECT COUNT(*) FROM QUEST_CLASS_ASSERTION WHERE \"URI\" NOT IN (SELECT ID FROM URIID)"));
+			assertEquals(0, count(st, "SELECT COUNT(*) FROM QUEST_OBJECT_PROPERTY_ASSERTION " +
+					"WHERE \"URI1\" NOT IN (SELECT ID FROM URIID) OR \"URI2\" NOT IN (SELECT ID FROM URIID)"));
+			assertEquals(0, count(st, "SELECT COUNT(*) FROM QUEST_DATA_PROPERTY_INTEGER_ASSERTION WHERE \"URI\" NOT IN (SELECT ID FROM URIID)"));
+
+			SemanticIndexURIMap uriMap = repository.getUriMap();
+			assertEquals(count(st, "SELECT COUNT(*) FROM URIID"), uriMap.size());
+			try (ResultSet rs = st.executeQuery("SELECT ID, URI FROM URIID")) {
+				while (rs.next())
+					assertEquals(rs.getInt(1), uriMap.getId(rs.getString(2)));
+			}
+		}
+
+		// the next load continues with the ids of the table
+		try (Statement st = conn.createStatement()) {
+			st.execute("ALTER TABLE QUEST_DATA_PROPERTY_INTEGER_ASSERTION DROP CONSTRAINT NOT_1505");
+		}
+		int size = repository.getUriMap().size();
+		assertEquals(1, repository.insertData(conn, Collections.singletonList((Assertion) afac.createClassAssertion(NS + "C",
+				fac.getConstantURI(NS + "new"))).iterator(), 1, 1));
+		assertEquals(size, repository.getUriMap().getId(NS + "new"));
+	}
+
+	/**
+	 * No chunk is committed: the views remain empty
+	 */
+	@Test
+	public void testFailureOfAllChunks() throws Exception {
+		try (Statement st = conn.createStatement()) {
+			st.execute("ALTER TABLE QUEST_DATA_PROPERTY_INTEGER_ASSERTION ADD CONSTRAINT NEGATIVE CHECK (VAL < 0)");
+		}
+
+		SemanticIndexLoader loader = new SemanticIndexLoader(repository, conn, createDataSource(), 2, 2, 3, 4);
+		try {
+			loader.load(SemanticIndexLoader.fromIterator(createAssertions().iterator(), 30));
+			fail();
+		}
+		catch (SQLException e) {
+			// expected
+		}
+
+		try (Statement st = conn.createStatement()) {
+			assertEquals(0, count(st, "SELECT COUNT(*) FROM QUEST_CLASS_ASSERTION"));
+			assertEquals(count(st, "SELECT COUNT(*) FROM URIID"), repository.getUriMap().size());
+		}
+		assertTrue(repository.getMappings().isEmpty());
+	}
+
+	private int insertIndividuals(RDBMSSIRepositoryManager repository, int from, int to) throws Exception {
+		List<Assertion> assertions = new ArrayList<>();
+		for (int i = from; i < to; i++)
+			assertions.add(afac.createClassAssertion(NS + "C", fac.getConstantURI(NS + "i" + i)));
+		return repository.insertData(conn, assertions.iterator(), 1, 1);
+	}
+
+	private RDBMSSIRepositoryManager reopen(File file) throws Exception {
+		RDBMSSIRepositoryManager reopened = new RDBMSSIRepositoryManager(TBoxReasonerImpl.create(ontology), ontology.getVocabulary());
+		reopened.setUriDictionaryFile(file);
+		reopened.loadMetadata(conn);
+		return reopened;
+	}
+
+	@Test
+	public void testUriDictionaryFileAfterRepeatedInserts() throws Exception {
+		File file = new File(folder.getRoot(), "uris.dict");
+		repository.setUriDictionaryFile(file);
+
+		// the file is not rewritten after each insertion
+		for (int i = 0; i < 3; i++) {
+			assertEquals(10, insertIndividuals(repository, i * 10, i * 10 + 10));
+			assertFalse(file.exists());
+		}
+		repository.saveUriDictionary();
+		assertTrue(file.isFile());
+
+		// the (unchanged) dictionary is not written again
+		long modified = file.lastModified();
+		assertTrue(file.setLastModified(modified - 10000));
+		repository.saveUriDictionary();
+		assertEquals(modified - 10000, file.lastModified());
+
+		try (Statement st = conn.createStatement()) {
+			// the URIs are read from the file rather than from the table, which has as many ids
+			st.executeUpdate("UPDATE URIID SET URI = 'changed' WHERE ID = 0");
+			RDBMSSIRepositoryManager reopened = reopen(file);
+			assertEquals(30, reopened.getUriMap().size());
+			assertEquals(NS + "i0", reopened.getUriMap().getURI(0));
+			st.executeUpdate("UPDATE URIID SET URI = '" + NS + "i0' WHERE ID = 0");
+
+			// the file mapped by the reopened repository is replaced after more insertions
+			assertEquals(10, insertIndividuals(reopened, 30, 40));
+			reopened.saveUriDictionary();
+			assertEquals(NS + "i5", reopened.getUriMap().getURI(5));
+
+			SemanticIndexURIMap uriMap = reopen(file).getUriMap();
+			assertEquals(40, uriMap.size());
+			assertEquals(40, count(st, "SELECT COUNT(*) FROM URIID"));
+			try (ResultSet rs = st.executeQuery("SELECT ID, URI FROM URIID")) {
+				while (rs.next()) {
+					assertEquals(rs.getInt(1), uriMap.getId(rs.getString(2)));
+					assertEquals(rs.getString(2), uriMap.getURI(rs.getInt(1)));
+				}
+			}
+
+			// a file that is out of date (inserts without closing) is ignored
+			assertEquals(10, insertIndividuals(reopen(file), 40, 50));
+			assertEquals(NS + "i45", reopen(file).getUriMap().getURI(45));
+		}
+	}
+}
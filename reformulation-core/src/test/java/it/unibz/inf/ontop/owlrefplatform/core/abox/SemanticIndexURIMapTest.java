@@ -0,0 +1,115 @@
+package it.unibz.inf.ontop.owlrefplatform.core.abox;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class SemanticIndexURIMapTest {
+
+	private static final String NS = "http://example.org/uri-map#";
+	private static final int URIS = 10000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static String uri(int i) {
+		return NS + "individual/" + (i % 7) + "/" + i;
+	}
+
+	private static void check(SemanticIndexURIMap map, int n) {
+		assertEquals(n, map.size());
+		for (int i = 0; i < n; i++) {
+			assertEquals(i, map.getId(uri(i)));
+			assertEquals(uri(i), map.getURI(i));
+		}
+		assertEquals(-2, map.getId(NS + "missing"));
+		assertNull(map.getURI(n));
+		assertNull(map.getURI(-1));
+	}
+
+	@Test
+	public void testAdd() {
+		SemanticIndexURIMap map = new SemanticIndexURIMap();
+		for (int i = 0; i < URIS; i++)
+			assertEquals(i, map.add(uri(i)));
+		assertEquals(-1, map.add(uri(URIS / 2)));
+		check(map, URIS);
+
+		// non-ASCII characters and blank nodes
+		int id = map.add("http://example.org/ünïcødé");
+		assertEquals("http://example.org/ünïcødé", map.getURI(id));
+		assertEquals(id, map.getId("http://example.org/ünïcødé"));
+		id = map.add("b0");
+		assertEquals(id, map.getId("b0"));
+	}
+
+	@Test
+	public void testSetWithGaps() {
+		SemanticIndexURIMap map = new SemanticIndexURIMap();
+		map.set(uri(0), 0);
+		map.set(uri(5), 5);
+		map.set(uri(5), 5);
+		assertEquals(6, map.size());
+		assertNull(map.getURI(3));
+		assertEquals(5, map.getId(uri(5)));
+		assertEquals(-2, map.getId(""));
+		assertEquals(6, map.add(uri(6)));
+	}
+
+	@Test
+	public void testSaveAndLoad() {
+		File file = new File(folder.getRoot(), "uris.dict");
+		SemanticIndexURIMap map = new SemanticIndexURIMap();
+		for (int i = 0; i < URIS - 3; i++)
+			map.add(uri(i));
+		map.save(file);
+
+		SemanticIndexURIMap loaded = new SemanticIndexURIMap();
+		assertTrue(loaded.load(file));
+		check(loaded, URIS - 3);
+
+		// the loaded dictionary can be extended (without changing the file)
+		for (int i = URIS - 3; i < URIS; i++)
+			assertEquals(i, loaded.add(uri(i)));
+		check(loaded, URIS);
+
+		SemanticIndexURIMap reloaded = new SemanticIndexURIMap();
+		assertTrue(reloaded.load(file));
+		check(reloaded, URIS - 3);
+
+		assertFalse(reloaded.load(new File(folder.getRoot(), "missing.dict")));
+		check(reloaded, URIS - 3);
+	}
+
+	@Test
+	public void testRepeatedSaves() {
+		File file = new File(folder.getRoot(), "uris.dict");
+		SemanticIndexURIMap map = new SemanticIndexURIMap();
+		for (int i = 0; i < 100; i++)
+			map.add(uri(i));
+		assertTrue(map.save(file));
+
+		// each round extends the dictionary mapped from the file and replaces the file
+		SemanticIndexURIMap loaded = map;
+		for (int n = 100; n < URIS; n += 3000) {
+			SemanticIndexURIMap previous = loaded;
+			loaded = new SemanticIndexURIMap();
+			assertTrue(loaded.load(file));
+			check(loaded, n);
+			int m = Math.min(n + 3000, URIS);
+			for (int i = n; i < m; i++)
+				assertEquals(i, loaded.add(uri(i)));
+			assertTrue(loaded.save(file));
+			// the dictionaries mapped from the replaced file are still readable
+			check(previous, n);
+		}
+
+		SemanticIndexURIMap reloaded = new SemanticIndexURIMap();
+		assertTrue(reloaded.load(file));
+		check(reloaded, URIS);
+	}
+}
@@ -0,0 +1,70 @@
+package it.unibz.inf.ontop.owlrefplatform.core.basicoperations;
+
+import it.unibz.inf.ontop.model.CQIE;
+import it.unibz.inf.ontop.model.Function;
+import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.Term;
+import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UriTemplateMatcherTest {
+
+    private static final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
+
+    private static CQIE mapping(Term... uriTerms) {
+        Function head = fac.getFunction(fac.getPredicate("A", 1), fac.getUriTemplate(uriTerms));
+        return fac.getCQIE(head, fac.getFunction(fac.getPredicate("T", 2), fac.getVariable("x"), fac.getVariable("y")));
+    }
+
+    private static UriTemplateMatcher matcher() {
+        List<CQIE> mappings = new ArrayList<>();
+        mappings.add(mapping(fac.getConstantLiteral("http://example.org/{}"), fac.getVariable("x")));
+        mappings.add(mapping(fac.getConstantLiteral("http://example.org/person/{}"), fac.getVariable("x")));
+        mappings.add(mapping(fac.getConstantLiteral("http://example.org/person/{}/address/{}"),
+                fac.getVariable("x"), fac.getVariable("y")));
+        mappings.add(mapping(fac.getConstantLiteral("http://example.org/a.b/{}"), fac.getVariable("x")));
+        return UriTemplateMatcher.create(mappings);
+    }
+
+    @Test
+    public void testMostSpecificTemplate() {
+        UriTemplateMatcher matcher = matcher();
+
+        assertEquals(fac.getUriTemplate(fac.getConstantLiteral("http://example.org/person/{}"), fac.getConstantLiteral("12")),
+                matcher.generateURIFunction("http://example.org/person/12"));
+
+        assertEquals(fac.getUriTemplate(fac.getConstantLiteral("http://example.org/person/{}/address/{}"),
+                        fac.getConstantLiteral("12"), fac.getConstantLiteral("3")),
+                matcher.generateURIFunction("http://example.org/person/12/address/3"));
+
+        assertEquals(fac.getUriTemplate(fac.getConstantLiteral("http://example.org/{}"), fac.getConstantLiteral("car/1")),
+                matcher.generateURIFunction("http://example.org/car/1"));
+    }
+
+    @Test
+    public void testLiteralPrefix() {
+        UriTemplateMatcher matcher = matcher();
+
+        // the dot of the template is not a wildcard
+        assertEquals(fac.getUriTemplate(fac.getConstantLiteral("http://example.org/{}"), fac.getConstantLiteral("aXb/1")),
+                matcher.generateURIFunction("http://example.org/aXb/1"));
+        assertEquals(fac.getUriTemplate(fac.getConstantLiteral("http://example.org/a.b/{}"), fac.getConstantLiteral("1")),
+                matcher.generateURIFunction("http://example.org/a.b/1"));
+    }
+
+    @Test
+    public void testNoMatch() {
+        UriTemplateMatcher matcher = matcher();
+
+        assertEquals(fac.getUriTemplate(fac.getConstantLiteral("http://other.org/1")),
+                matcher.generateURIFunction("http://other.org/1"));
+        // the placeholder cannot be empty
+        assertEquals(fac.getUriTemplate(fac.getConstantLiteral("http://example.org/")),
+                matcher.generateURIFunction("http://example.org/"));
+    }
+}
@@ -0,0 +1,61 @@
+package it.unibz.inf.ontop.owlrefplatform.core.mappingprocessing;
+
+import it.unibz.inf.ontop.model.CQIE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reports the time to construct the T-mappings of a tree of classes (see
+ * {@link TMappingProcessorTest}) in fork-join pools of 1 up to (number of cores)
+ * threads (not part of the unit tests: run the main method from the
+ * reformulation-core directory).
+ */
+public class TMappingProcessorBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(TMappingProcessorBenchmark.class);
+
+	public static void main(String[] args) throws Exception {
+		int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+		int branching = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+		int runs = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		final TMappingProcessorTest test = new TMappingProcessorTest();
+		test.setUp();
+		test.createTree(depth, branching);
+
+		// the first run warms up the JIT
+		int rules = construct(test, cores);
+		for (int threads = 1; threads <= cores; threads *= 2) {
+			long start = System.nanoTime();
+			for (int i = 0; i < runs; i++)
+				construct(test, threads);
+			long time = System.nanoTime() - start;
+			log.info(String.format("%d threads: %.1f ms per construction of %d rules", threads,
+					time / 1_000_000.0 / runs, rules));
+		}
+	}
+
+	/**
+	 * @return the number of T-mapping rules constructed in a fork-join pool with the given parallelism
+	 */
+	private static int construct(final TMappingProcessorTest test, int parallelism) throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<CQIE> tmappings = pool.submit(new Callable<List<CQIE>>() {
+				@Override
+				public List<CQIE> call() {
+					return test.getTMappings();
+				}
+			}).get();
+			return tmappings.size();
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package it.unibz.inf.ontop.owlrefplatform.core.mappingprocessing;
+
+import it.unibz.inf.ontop.model.CQIE;
+import it.unibz.inf.ontop.model.Function;
+import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.Predicate;
+import it.unibz.inf.ontop.model.Variable;
+import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
+import it.unibz.inf.ontop.ontology.OClass;
+import it.unibz.inf.ontop.ontology.Ontology;
+import it.unibz.inf.ontop.ontology.OntologyFactory;
+import it.unibz.inf.ontop.ontology.OntologyVocabulary;
+import it.unibz.inf.ontop.ontology.impl.OntologyFactoryImpl;
+import it.unibz.inf.ontop.owlrefplatform.core.basicoperations.CQContainmentCheckUnderLIDs;
+import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.TBoxReasoner;
+import it.unibz.inf.ontop.owlrefplatform.core.dagjgrapht.TBoxReasonerImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * T-mappings of a tree of classes, each class mapped from a table of its own and
+ * from a shared table (with a condition on the class).
+ */
+public class TMappingProcessorTest {
+
+	private static final String NS = "http://example.org/tmapping#";
+
+	private static final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
+	private static final OntologyFactory ofac = OntologyFactoryImpl.getInstance();
+
+	private final Variable x = fac.getVariable("x");
+	private final Variable t = fac.getVariable("t");
+
+	private TBoxReasoner reasoner;
+	private List<CQIE> mappings;
+	private Map<String, Integer> subtreeSizes;
+
+	@Before
+	public void setUp() {
+		reasoner = null;
+		mappings = new ArrayList<>();
+		subtreeSizes = new HashMap<>();
+	}
+
+	/**
+	 * builds a tree of classes of the given depth and branching, together with their mappings
+	 */
+	void createTree(int depth, int branching) throws Exception {
+		OntologyVocabulary vb = ofac.createVocabulary();
+		List<OClass> classes = new ArrayList<>();
+		List<Integer> parents = new ArrayList<>();
+
+		int level = 0, levelStart = 0, levelSize = 1;
+		classes.add(vb.createClass(NS + "C0"));
+		parents.add(-1);
+		while (++level <= depth) {
+			int next = classes.size();
+			for (int parent = levelStart; parent < levelStart + levelSize; parent++)
+				for (int b = 0; b < branching; b++) {
+					classes.add(vb.createClass(NS + "C" + classes.size()));
+					parents.add(parent);
+				}
+			levelStart = next;
+			levelSize = classes.size() - next;
+		}
+
+		Ontology ontology = ofac.createOntology(vb);
+		int[] sizes = new int[classes.size()];
+		for (int i = classes.size() - 1; i >= 0; i--) {
+			sizes[i]++;
+			if (parents.get(i) >= 0) {
+				ontology.addSubClassOfAxiom(classes.get(i), classes.get(parents.get(i)));
+				sizes[parents.get(i)] += sizes[i];
+			}
+		}
+		reasoner = TBoxReasonerImpl.create(ontology);
+
+		Predicate shared = fac.getPredicate("T", 2);
+		for (int i = 0; i < classes.size(); i++) {
+			Function head = fac.getFunction(classes.get(i).getPredicate(), x);
+			// C_i(x) :- T_i(x)
+			mappings.add(fac.getCQIE(head, fac.getFunction(fac.getPredicate("T" + i, 1), x)));
+			// C_i(x) :- T(x, t), t = 'i'
+			mappings.add(fac.getCQIE((Function)head.clone(), fac.getFunction(shared, x, t),
+					fac.getFunctionEQ(t, fac.getConstantLiteral(String.valueOf(i)))));
+			subtreeSizes.put(classes.get(i).getName(), sizes[i]);
+		}
+	}
+
+	List<CQIE> getTMappings() {
+		return TMappingProcessor.getTMappings(mappings, reasoner, true,
+				new CQContainmentCheckUnderLIDs(), TMappingExclusionConfig.empty());
+	}
+
+	@Test
+	public void testTree() throws Exception {
+		createTree(3, 3);
+		List<CQIE> tmappings = getTMappings();
+
+		// a rule for the table of each descendant and a single rule (with a disjunction) for the shared table
+		Map<String, Integer> counts = new HashMap<>();
+		for (CQIE cq : tmappings) {
+			String name = cq.getHead().getFunctionSymbol().getName();
+			Integer count = counts.get(name);
+			counts.put(name, (count == null) ? 1 : count + 1);
+		}
+		assertEquals(subtreeSizes.size(), counts.size());
+		for (Map.Entry<String, Integer> e : subtreeSizes.entrySet())
+			assertEquals(e.getKey(), e.getValue() + 1, (int)counts.get(e.getKey()));
+	}
+
+	/**
+	 * The nodes of the DAG are saturated in parallel on the fork-join pool of the caller:
+	 * a pool with a single thread runs them one after the other
+	 */
+	@Test
+	public void testParallelSaturation() throws Exception {
+		createTree(4, 5);
+		List<String> sequential = getTMappings(1);
+		List<String> parallel = getTMappings(Math.max(4, Runtime.getRuntime().availableProcessors()));
+		assertEquals(sequential, parallel);
+	}
+
+	/**
+	 * @return the T-mappings computed in a fork-join pool with the given parallelism (sorted)
+	 */
+	private List<String> getTMappings(int parallelism) throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<CQIE> tmappings = pool.submit(new Callable<List<CQIE>>() {
+				@Override
+				public List<CQIE> call() {
+					return getTMappings();
+				}
+			}).get();
+			List<String> result = new ArrayList<>(tmappings.size());
+			for (CQIE cq : tmappings)
+				result.add(cq.toString());
+			Collections.sort(result);
+			return result;
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package it.unibz.inf.ontop.owlrefplatform.core.queryevaluation;
+
+import org.junit.Test;
+import org.openrdf.query.algebra.BindingSetAssignment;
+import org.openrdf.query.algebra.helpers.QueryModelVisitorBase;
+import org.openrdf.query.parser.ParsedQuery;
+import org.openrdf.query.parser.sparql.SPARQLParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SPARQLQueryUtilityTest {
+
+	private static final List<String> URIS = Arrays.asList(
+			"http://example.org/a", "http://example.org/b", "http://example.org/somewhere");
+
+	@Test
+	public void testConstructSubjQuery() throws Exception {
+		String query = SPARQLQueryUtility.getConstructSubjQuery(URIS);
+		assertEquals(URIS.size(), countBindingSets(getValues(query)));
+		assertEquals("s", getValues(query).getBindingNames().iterator().next());
+	}
+
+	@Test
+	public void testConstructObjQuery() throws Exception {
+		String query = SPARQLQueryUtility.getConstructObjQuery(URIS);
+		assertEquals(URIS.size(), countBindingSets(getValues(query)));
+		assertEquals("o", getValues(query).getBindingNames().iterator().next());
+	}
+
+	@Test
+	public void testSelectFromBatchConstruct() throws Exception {
+		// the URIs (one of which contains "where") come after the WHERE keyword
+		String select = SPARQLQueryUtility.getSelectFromConstruct(SPARQLQueryUtility.getConstructSubjQuery(URIS));
+		ParsedQuery pq = new SPARQLParser().parseQuery(select, null);
+		assertTrue(SPARQLQueryUtility.isSelectQuery(pq));
+		assertEquals(URIS.size(), countBindingSets(getValues(select)));
+	}
+
+	private static BindingSetAssignment getValues(String query) throws Exception {
+		ParsedQuery pq = new SPARQLParser().parseQuery(query, null);
+		final List<BindingSetAssignment> values = new ArrayList<>();
+		pq.getTupleExpr().visit(new QueryModelVisitorBase<Exception>() {
+			@Override
+			public void meet(BindingSetAssignment node) {
+				values.add(node);
+			}
+		});
+		assertEquals(1, values.size());
+		return values.get(0);
+	}
+
+	private static int countBindingSets(BindingSetAssignment values) {
+		int n = 0;
+		for (Object b : values.getBindingSets())
+			n++;
+		return n;
+	}
+}
@@ -0,0 +1,73 @@
+package it.unibz.inf.ontop.owlrefplatform.core.resultset;
+
+import it.unibz.inf.ontop.model.Predicate.COL_TYPE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Reports the bytes allocated and the time per row to decode the constants of
+ * the result set of {@link QuestTupleResultSetTest}, with URIs drawn from a small
+ * set (as for the subjects of a table) and integer literals (not part of the
+ * unit tests: run the main method from the reformulation-core directory).
+ */
+public class QuestTupleResultSetBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(QuestTupleResultSetBenchmark.class);
+
+	public static void main(String[] args) throws Exception {
+		int rows = (args.length > 0) ? Integer.parseInt(args[0]) : 200_000;
+		int distinctURIs = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+		int runs = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		QuestTupleResultSetTest test = new QuestTupleResultSetTest();
+		test.setUp();
+		try {
+			String[] uris = new String[rows / 2];
+			String[] integers = new String[rows / 2];
+			for (int i = 0; i < rows / 2; i++) {
+				uris[i] = "http://example.org/resultset#" + (i % distinctURIs);
+				integers[i] = String.valueOf(i);
+			}
+			test.insert(COL_TYPE.OBJECT, uris);
+			test.insert(COL_TYPE.INTEGER, integers);
+
+			// the first run warms up the JIT
+			for (int run = 0; run <= runs; run++) {
+				long bytes = threads.getThreadAllocatedBytes(thread);
+				long start = System.nanoTime();
+				int count = decode(test);
+				long time = System.nanoTime() - start;
+				bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+				if (run > 0)
+					log.info(String.format("%d rows: %.0f bytes/row, %.0f ns/row", count,
+							(double) bytes / count, (double) time / count));
+			}
+		}
+		finally {
+			test.tearDown();
+		}
+	}
+
+	/**
+	 * @return the number of rows decoded
+	 */
+	private static int decode(QuestTupleResultSetTest test) throws Exception {
+		int count = 0;
+		QuestTupleResultSet rs = test.query();
+		try {
+			while (rs.nextRow()) {
+				rs.getConstant(1);
+				count++;
+			}
+		}
+		finally {
+			rs.close();
+		}
+		return count;
+	}
+}
@@ -0,0 +1,158 @@
+package it.unibz.inf.ontop.owlrefplatform.core.resultset;
+
+import it.unibz.inf.ontop.model.Constant;
+import it.unibz.inf.ontop.model.Predicate.COL_TYPE;
+import it.unibz.inf.ontop.model.URIConstant;
+import it.unibz.inf.ontop.model.ValueConstant;
+import it.unibz.inf.ontop.ontology.OntologyFactory;
+import it.unibz.inf.ontop.ontology.impl.OntologyFactoryImpl;
+import it.unibz.inf.ontop.owlrefplatform.core.Quest;
+import it.unibz.inf.ontop.owlrefplatform.core.QuestConstants;
+import it.unibz.inf.ontop.owlrefplatform.core.QuestPreferences;
+import it.unibz.inf.ontop.owlrefplatform.core.QuestStatement;
+import it.unibz.inf.ontop.sql.DBMetadataExtractor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Decodes the constants of a column of an H2 result set (a type code, a language
+ * and a value per row, as in the SQL generated by Quest)
+ */
+public class QuestTupleResultSetTest {
+
+	private static final String NS = "http://example.org/resultset#";
+
+	private static final OntologyFactory ofac = OntologyFactoryImpl.getInstance();
+
+	private Connection conn;
+	private QuestStatement st;
+	private int rows;
+
+	@Before
+	public void setUp() throws Exception {
+		conn = DriverManager.getConnection("jdbc:h2:mem:quest_tuple_result_set_test;DB_CLOSE_DELAY=-1", "sa", "");
+		try (Statement s = conn.createStatement()) {
+			s.execute("CREATE TABLE R (ID INT PRIMARY KEY, T INT, L VARCHAR(10), V VARCHAR(100))");
+		}
+		rows = 0;
+
+		QuestPreferences p = new QuestPreferences();
+		p.setCurrentValueOf(QuestPreferences.ABOX_MODE, QuestConstants.CLASSIC);
+		// the result sets only use the metadata of the instance (no URI dictionary and templates)
+		Quest quest = new Quest(ofac.createOntology(ofac.createVocabulary()), null,
+				DBMetadataExtractor.createDummyMetadata(), p);
+		st = new QuestStatement(quest, null, null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (Statement s = conn.createStatement()) {
+			s.execute("DROP ALL OBJECTS");
+		}
+		conn.close();
+	}
+
+	/**
+	 * appends rows with the given type and values (and no language)
+	 */
+	void insert(COL_TYPE type, String... values) throws Exception {
+		try (PreparedStatement ps = conn.prepareStatement("INSERT INTO R VALUES (?, ?, NULL, ?)")) {
+			for (String value : values) {
+				ps.setInt(1, rows++);
+				ps.setInt(2, type.getQuestCode());
+				ps.setString(3, value);
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+	}
+
+	/**
+	 * the rows in the order of insertion, as a result set with a single variable
+	 */
+	QuestTupleResultSet query() throws Exception {
+		Statement s = conn.createStatement();
+		return new QuestTupleResultSet(s.executeQuery("SELECT T, L, V FROM R ORDER BY ID"),
+				Collections.singletonList("x"), st);
+	}
+
+	@Test
+	public void testURIInterning() throws Exception {
+		int n = QuestTupleResultSet.MAX_INTERNED_CONSTANTS;
+		String[] uris = new String[n];
+		for (int i = 0; i < n; i++)
+			uris[i] = NS + i;
+		insert(COL_TYPE.OBJECT, uris);
+		// the cache is full: the first URI is still interned
+		insert(COL_TYPE.OBJECT, NS + 0);
+		// a new URI clears the cache
+		insert(COL_TYPE.OBJECT, NS + n, NS + 0, NS + 0);
+
+		QuestTupleResultSet rs = query();
+		try {
+			Constant[] constants = new Constant[n + 4];
+			for (int i = 0; i < constants.length; i++) {
+				assertTrue(rs.nextRow());
+				constants[i] = rs.getConstant(1);
+			}
+			assertFalse(rs.nextRow());
+
+			assertEquals(NS + (n - 1), ((URIConstant)constants[n - 1]).getURI());
+			assertSame(constants[0], constants[n]);
+			assertEquals(NS + n, ((URIConstant)constants[n + 1]).getURI());
+			assertNotSame(constants[0], constants[n + 2]);
+			assertEquals(constants[0], constants[n + 2]);
+			assertSame(constants[n + 2], constants[n + 3]);
+		}
+		finally {
+			rs.close();
+		}
+	}
+
+	@Test
+	public void testTypeChangeBetweenRows() throws Exception {
+		insert(COL_TYPE.OBJECT, NS + "a");
+		insert(COL_TYPE.LITERAL, "a");
+		insert(COL_TYPE.LITERAL, "b");
+		insert(COL_TYPE.INTEGER, "1");
+		insert(COL_TYPE.STRING, "1");
+		insert(COL_TYPE.OBJECT, NS + "a");
+
+		QuestTupleResultSet rs = query();
+		try {
+			assertTrue(rs.nextRow());
+			assertEquals(NS + "a", ((URIConstant)rs.getConstant(1)).getURI());
+
+			assertTrue(rs.nextRow());
+			assertLiteral(COL_TYPE.LITERAL, "a", rs.getConstant(1));
+			assertTrue(rs.nextRow());
+			assertLiteral(COL_TYPE.LITERAL, "b", rs.getConstant(1));
+			assertTrue(rs.nextRow());
+			assertLiteral(COL_TYPE.INTEGER, "1", rs.getConstant(1));
+			assertTrue(rs.nextRow());
+			assertLiteral(COL_TYPE.STRING, "1", rs.getConstant(1));
+
+			assertTrue(rs.nextRow());
+			assertEquals(NS + "a", ((URIConstant)rs.getConstant(1)).getURI());
+			assertFalse(rs.nextRow());
+		}
+		finally {
+			rs.close();
+		}
+	}
+
+	private static void assertLiteral(COL_TYPE type, String value, Constant c) {
+		assertTrue(c instanceof ValueConstant);
+		assertEquals(type, c.getType());
+		assertEquals(value, ((ValueConstant)c).getValue());
+	}
+}
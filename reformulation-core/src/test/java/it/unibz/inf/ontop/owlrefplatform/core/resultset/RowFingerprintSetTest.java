@@ -0,0 +1,52 @@
+package it.unibz.inf.ontop.owlrefplatform.core.resultset;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RowFingerprintSetTest {
+
+    @Test
+    public void testInMemory() throws Exception {
+        try (RowFingerprintSet set = new RowFingerprintSet(1 << 20)) {
+            assertTrue(set.add(1, 2));
+            assertTrue(set.add(2, 1));
+            assertFalse(set.add(1, 2));
+            assertTrue(set.add(0, 0));
+            assertFalse(set.add(0, 0));
+            assertEquals(0, set.getSpilledSize());
+        }
+    }
+
+    @Test
+    public void testZeroDoesNotCollide() throws Exception {
+        try (RowFingerprintSet set = new RowFingerprintSet(1 << 20)) {
+            assertTrue(set.add(0, 1));
+            assertTrue(set.add(0, 0));
+            assertFalse(set.add(0, 1));
+            assertFalse(set.add(0, 0));
+        }
+    }
+
+    @Test
+    public void testSpillAndMerge() throws Exception {
+        int n = 100000;
+        long seed = 42;
+        // 16KB budget: 1024 slots, i.e., many runs
+        try (RowFingerprintSet set = new RowFingerprintSet(16 * 1024)) {
+            Random random = new Random(seed);
+            for (int i = 0; i < n; i++)
+                assertTrue(set.add(random.nextLong(), random.nextLong()));
+            assertTrue(set.getSpilledSize() > 0);
+
+            random = new Random(seed);
+            for (int i = 0; i < n; i++)
+                assertFalse(set.add(random.nextLong(), random.nextLong()));
+
+            assertTrue(set.add(7, 7));
+            assertFalse(set.add(7, 7));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package it.unibz.inf.ontop.owlrefplatform.core.translator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import it.unibz.inf.ontop.model.CQIE;
+import it.unibz.inf.ontop.model.Function;
+import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
+import it.unibz.inf.ontop.owlrefplatform.core.basicoperations.UriTemplateMatcher;
+import org.junit.Test;
+import org.openrdf.query.QueryLanguage;
+import org.openrdf.query.parser.ParsedQuery;
+import org.openrdf.query.parser.QueryParserUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SparqlQueryTemplateTest {
+
+    private static final String PREFIX = "ontopTESTp";
+
+    private static SparqlQueryTemplate template(String sparql, Set<String> excluded) throws Exception {
+        ParsedQuery pq = QueryParserUtil.createParser(QueryLanguage.SPARQL).parseQuery(sparql, null);
+        return SparqlQueryTemplate.create(pq, PREFIX, excluded);
+    }
+
+    private static SparqlQueryTemplate template(String sparql) throws Exception {
+        return template(sparql, Collections.<String>emptySet());
+    }
+
+    private static final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
+
+    private static UriTemplateMatcher matcher(String... templates) {
+        List<CQIE> mappings = new ArrayList<>();
+        for (String template : templates) {
+            Function head = fac.getFunction(fac.getClassPredicate("http://example.org/A"),
+                    fac.getUriTemplate(fac.getConstantLiteral(template), fac.getVariable("x")));
+            mappings.add(fac.getCQIE(head, fac.getFunction(fac.getPredicate("T", 1), fac.getVariable("x"))));
+        }
+        return UriTemplateMatcher.create(mappings);
+    }
+
+    private static SparqlQueryTemplate template(String sparql, UriTemplateMatcher matcher) throws Exception {
+        ParsedQuery pq = QueryParserUtil.createParser(QueryLanguage.SPARQL).parseQuery(sparql, null);
+        return SparqlQueryTemplate.create(pq, PREFIX, ImmutableSet.of("M"), matcher);
+    }
+
+    @Test
+    public void testSameShapeSameKey() throws Exception {
+        SparqlQueryTemplate t1 = template("SELECT ?x WHERE { ?x <http://example.org/name> \"Alice\" }");
+        SparqlQueryTemplate t2 = template("SELECT ?x WHERE { ?x <http://example.org/name> \"Bob\" }");
+        assertEquals(t1.getKey(), t2.getKey());
+        assertEquals(ImmutableList.of("Alice"), t1.getParameters());
+        assertEquals(ImmutableList.of("Bob"), t2.getParameters());
+        assertEquals(ImmutableList.of(PREFIX + "0_"), t1.getPlaceholders());
+    }
+
+    @Test
+    public void testFilterLiterals() throws Exception {
+        SparqlQueryTemplate t1 = template("SELECT ?x WHERE { ?x <http://example.org/name> ?n FILTER(?n = \"Alice\") }");
+        SparqlQueryTemplate t2 = template("SELECT ?x WHERE { ?x <http://example.org/name> ?n FILTER(?n = \"Bob\") }");
+        assertEquals(t1.getKey(), t2.getKey());
+        assertNotSame(t1.getQuery(), t2.getQuery());
+    }
+
+    @Test
+    public void testIRIsAreKept() throws Exception {
+        SparqlQueryTemplate t1 = template("SELECT ?n WHERE { <http://example.org/1> <http://example.org/name> ?n }");
+        SparqlQueryTemplate t2 = template("SELECT ?n WHERE { <http://example.org/2> <http://example.org/name> ?n }");
+        assertNotEquals(t1.getKey(), t2.getKey());
+        assertTrue(t1.getParameters().isEmpty());
+    }
+
+    @Test
+    public void testIRIsAreLifted() throws Exception {
+        UriTemplateMatcher matcher = matcher("http://example.org/person/{}");
+        SparqlQueryTemplate t1 = template("SELECT ?n WHERE { <http://example.org/person/1> <http://example.org/name> ?n }", matcher);
+        SparqlQueryTemplate t2 = template("SELECT ?n WHERE { <http://example.org/person/2> <http://example.org/name> ?n }", matcher);
+        assertEquals(t1.getKey(), t2.getKey());
+        assertEquals(ImmutableList.of("1"), t1.getParameters());
+        assertEquals(ImmutableList.of("2"), t2.getParameters());
+        assertTrue(t1.getQuery().getTupleExpr().toString().contains("http://example.org/person/" + PREFIX + "0_"));
+        assertTrue(t1.getKey().contains("http://example.org/name"));
+
+        // IRIs in filters
+        SparqlQueryTemplate t3 = template("SELECT ?x WHERE { ?x <http://example.org/knows> ?y FILTER(?y = <http://example.org/person/3>) }", matcher);
+        assertEquals(ImmutableList.of("3"), t3.getParameters());
+
+        // equal values share one placeholder, also with literals
+        SparqlQueryTemplate t4 = template("SELECT ?x WHERE { <http://example.org/person/1> <http://example.org/a> \"1\" }", matcher);
+        SparqlQueryTemplate t5 = template("SELECT ?x WHERE { <http://example.org/person/1> <http://example.org/a> \"2\" }", matcher);
+        assertEquals(ImmutableList.of("1"), t4.getParameters());
+        assertEquals(ImmutableList.of("1", "2"), t5.getParameters());
+        assertNotEquals(t4.getKey(), t5.getKey());
+    }
+
+    @Test
+    public void testIRIsWithoutTemplateAreKept() throws Exception {
+        UriTemplateMatcher matcher = matcher("http://example.org/person/{}");
+        // no matching template
+        SparqlQueryTemplate t1 = template("SELECT ?n WHERE { <http://other.org/1> <http://example.org/name> ?n }", matcher);
+        assertTrue(t1.getParameters().isEmpty());
+        // properties and classes
+        SparqlQueryTemplate t2 = template("SELECT ?x WHERE { ?x a <http://example.org/person/C> . ?x <http://example.org/person/p> ?y }", matcher);
+        assertTrue(t2.getParameters().isEmpty());
+        // mapping constants and escape codes
+        SparqlQueryTemplate t3 = template("SELECT ?n WHERE { <http://example.org/person/M> <http://example.org/name> ?n }", matcher);
+        assertTrue(t3.getParameters().isEmpty());
+        SparqlQueryTemplate t4 = template("SELECT ?n WHERE { <http://example.org/person/a%20b> <http://example.org/name> ?n }", matcher);
+        assertTrue(t4.getParameters().isEmpty());
+    }
+
+    @Test
+    public void testIRIsMatchingOtherTemplatesAreKept() throws Exception {
+        // the IRI with a placeholder would match the more specific template
+        UriTemplateMatcher matcher = matcher("http://example.org/{}", "http://example.org/" + PREFIX + "{}");
+        SparqlQueryTemplate t = template("SELECT ?n WHERE { <http://example.org/1> <http://example.org/name> ?n }", matcher);
+        assertTrue(t.getParameters().isEmpty());
+    }
+
+    @Test
+    public void testEqualLiteralsShareOnePlaceholder() throws Exception {
+        SparqlQueryTemplate t1 = template("SELECT ?x WHERE { ?x <http://example.org/a> \"A\" . ?x <http://example.org/b> \"A\" }");
+        SparqlQueryTemplate t2 = template("SELECT ?x WHERE { ?x <http://example.org/a> \"A\" . ?x <http://example.org/b> \"B\" }");
+        assertEquals(1, t1.getParameters().size());
+        assertEquals(2, t2.getParameters().size());
+        assertNotEquals(t1.getKey(), t2.getKey());
+    }
+
+    @Test
+    public void testIntegersAreLifted() throws Exception {
+        SparqlQueryTemplate t1 = template("SELECT ?x WHERE { ?x <http://example.org/age> 42 . ?x <http://example.org/code> \"42\" }");
+        SparqlQueryTemplate t2 = template("SELECT ?x WHERE { ?x <http://example.org/age> -7 . ?x <http://example.org/code> \"42\" }");
+        assertEquals(t1.getKey(), t2.getKey());
+        // the integer and the string do not share a placeholder
+        assertEquals(ImmutableList.of("42", "42"), t1.getParameters());
+        assertEquals(ImmutableList.of("-7", "42"), t2.getParameters());
+        assertTrue(t1.isInteger(0));
+        assertFalse(t1.isInteger(1));
+        assertTrue(t1.getPlaceholders().get(0).matches("[1-9][0-9]{17}"));
+        assertEquals(PREFIX + "1_", t1.getPlaceholders().get(1));
+
+        // integers not in the canonical form are kept
+        SparqlQueryTemplate t3 = template("SELECT ?x WHERE { ?x <http://example.org/age> \"042\"^^<http://www.w3.org/2001/XMLSchema#integer> . " 
+                + "?x <http://example.org/code> \"42\" }");
+        assertNotEquals(t1.getKey(), t3.getKey());
+        assertEquals(ImmutableList.of("42"), t3.getParameters());
+        assertFalse(t3.isInteger(0));
+    }
+
+    @Test
+    public void testLangAndTypedLiteralsAreKept() throws Exception {
+        SparqlQueryTemplate t1 = template("SELECT ?x WHERE { ?x <http://example.org/a> \"A\"@en . ?x <http://example.org/b> 3.5 }");
+        SparqlQueryTemplate t2 = template("SELECT ?x WHERE { ?x <http://example.org/a> \"B\"@en . ?x <http://example.org/b> 3.5 }");
+        assertTrue(t1.getParameters().isEmpty());
+        assertNotEquals(t1.getKey(), t2.getKey());
+    }
+
+    @Test
+    public void testExcludedAndNestedLiteralsAreKept() throws Exception {
+        SparqlQueryTemplate t1 = template("SELECT ?x WHERE { ?x <http://example.org/a> \"M\" }", ImmutableSet.of("M"));
+        assertTrue(t1.getParameters().isEmpty());
+
+        SparqlQueryTemplate t2 = template("SELECT ?x WHERE { ?x <http://example.org/a> \"example\" }");
+        assertTrue(t2.getParameters().isEmpty());
+    }
+
+    @Test
+    public void testSliceIsPartOfTheKey() throws Exception {
+        SparqlQueryTemplate t1 = template("SELECT ?x WHERE { ?x <http://example.org/a> \"A\" } LIMIT 10");
+        SparqlQueryTemplate t2 = template("SELECT ?x WHERE { ?x <http://example.org/a> \"B\" } LIMIT 20");
+        assertNotEquals(t1.getKey(), t2.getKey());
+    }
+
+    @Test
+    public void testOriginalQueryIsNotModified() throws Exception {
+        String sparql = "SELECT ?x WHERE { ?x <http://example.org/name> \"Alice\" }";
+        ParsedQuery pq = QueryParserUtil.createParser(QueryLanguage.SPARQL).parseQuery(sparql, null);
+        String before = pq.getTupleExpr().toString();
+        SparqlQueryTemplate t = SparqlQueryTemplate.create(pq, PREFIX, Collections.<String>emptySet());
+        assertEquals(before, pq.getTupleExpr().toString());
+        assertFalse(t.getQuery().getTupleExpr().toString().contains("Alice"));
+    }
+}
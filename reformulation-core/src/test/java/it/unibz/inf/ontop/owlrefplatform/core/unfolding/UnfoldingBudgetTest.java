@@ -0,0 +1,57 @@
+package it.unibz.inf.ontop.owlrefplatform.core.unfolding;
+
+import it.unibz.inf.ontop.model.CQIE;
+import it.unibz.inf.ontop.model.DatalogProgram;
+import it.unibz.inf.ontop.model.Function;
+import it.unibz.inf.ontop.model.OBDADataFactory;
+import it.unibz.inf.ontop.model.impl.OBDADataFactoryImpl;
+import it.unibz.inf.ontop.owlrefplatform.core.QueryCompilationBudgetException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UnfoldingBudgetTest {
+
+    private static final OBDADataFactory fac = OBDADataFactoryImpl.getInstance();
+
+    /**
+     * q(x) :- A(x), B(x) with three mappings for each of A and B
+     */
+    private static DatalogProgram query() {
+        DatalogProgram program = fac.getDatalogProgram();
+        Function head = fac.getFunction(fac.getPredicate("q", 1), fac.getVariable("x"));
+        program.appendRule(fac.getCQIE(head,
+                fac.getFunction(fac.getPredicate("A", 1), fac.getVariable("x")),
+                fac.getFunction(fac.getPredicate("B", 1), fac.getVariable("x"))));
+        return program;
+    }
+
+    private static DatalogUnfolder unfolder() {
+        List<CQIE> mappings = new ArrayList<>();
+        for (String p : new String[] { "A", "B" })
+            for (int i = 1; i <= 3; i++)
+                mappings.add(fac.getCQIE(fac.getFunction(fac.getPredicate(p, 1), fac.getVariable("x")),
+                        fac.getFunction(fac.getPredicate(p + "T" + i, 1), fac.getVariable("x"))));
+        return new DatalogUnfolder(mappings);
+    }
+
+    @Test
+    public void testWithinBudget() {
+        DatalogProgram result = unfolder().unfold(query(), 9, 0);
+        assertEquals(9, result.getRules().size());
+    }
+
+    @Test(expected = QueryCompilationBudgetException.class)
+    public void testTooManyRules() {
+        unfolder().unfold(query(), 4, 0);
+    }
+
+    @Test(expected = QueryCompilationBudgetException.class)
+    public void testDeadline() {
+        // a deadline that has already passed
+        unfolder().unfold(query(), 0, System.nanoTime() - 1);
+    }
+}
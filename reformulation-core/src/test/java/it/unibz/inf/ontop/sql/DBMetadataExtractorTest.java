@@ -0,0 +1,84 @@
+package it.unibz.inf.ontop.sql;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The metadata retrieved by several threads (with the columns of each schema
+ * retrieved at once) is the same as the metadata retrieved relation by relation
+ */
+public class DBMetadataExtractorTest {
+
+	private static final String URL = "jdbc:h2:mem:metadata_extractor_test";
+	private static final int TABLES = 30;
+
+	private Connection conn;
+
+	@Before
+	public void setUp() throws Exception {
+		conn = DriverManager.getConnection(URL, "sa", "");
+		try (Statement st = conn.createStatement()) {
+			for (int i = 0; i < TABLES; i++) {
+				st.execute("CREATE TABLE T" + i + " (ID INT PRIMARY KEY, CODE VARCHAR(10) NOT NULL UNIQUE, "
+						+ "NAME VARCHAR(100), REF INT" + (i > 0 ? " REFERENCES T" + (i - 1) + "(ID)" : "") + ")");
+			}
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (Statement st = conn.createStatement()) {
+			st.execute("DROP ALL OBJECTS DELETE FILES");
+		}
+		conn.close();
+	}
+
+	private static Set<String> describe(DBMetadata metadata) {
+		Set<String> relations = new TreeSet<>();
+		for (DatabaseRelationDefinition relation : metadata.getDatabaseRelations()) {
+			StringBuilder bf = new StringBuilder(relation.toString());
+			for (Attribute attribute : relation.getAttributes())
+				bf.append("\n").append(attribute.getType());
+			for (UniqueConstraint uc : relation.getUniqueConstraints())
+				bf.append("\n").append(uc.getAttributes());
+			for (ForeignKeyConstraint fk : relation.getForeignKeys())
+				bf.append("\n").append(fk.getReferencedRelation().getID());
+			relations.add(bf.toString());
+		}
+		return relations;
+	}
+
+	@Test
+	public void testParallelMetadata() throws Exception {
+		DBMetadata sequential = DBMetadataExtractor.createMetadata(conn);
+		Set<RelationID> tables = new HashSet<>();
+		for (int i = 0; i < TABLES; i++)
+			tables.add(sequential.getQuotedIDFactory().createRelationID(null, "T" + i));
+		DBMetadataExtractor.loadMetadata(sequential, conn, tables);
+
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL(URL);
+		dataSource.setUser("sa");
+		dataSource.setPassword("");
+
+		DBMetadata parallel = DBMetadataExtractor.createMetadata(conn);
+		Set<RelationID> qualifiedTables = new HashSet<>();
+		for (int i = 0; i < TABLES; i++)
+			qualifiedTables.add(parallel.getQuotedIDFactory().createRelationID("PUBLIC", "T" + i));
+		DBMetadataExtractor.loadMetadata(parallel, conn, qualifiedTables, dataSource, 4);
+
+		assertEquals(TABLES, parallel.getDatabaseRelations().size());
+		assertEquals(describe(sequential), describe(parallel));
+	}
+}